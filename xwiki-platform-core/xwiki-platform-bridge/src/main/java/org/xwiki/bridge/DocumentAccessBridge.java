@@ -20,6 +20,7 @@
 package org.xwiki.bridge;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +31,7 @@
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.ObjectPropertyReference;
 import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * Exposes methods for accessing Document data. This is temporary until we remodel the Model classes and the Document
@@ -174,6 +176,25 @@ default DocumentModelBridge getTranslatedDocumentInstance(EntityReference entity
      */
     boolean exists(DocumentReference documentReference);
 
+    /**
+     * Check if several documents exist or not in the wiki, for example all the link targets of a content before
+     * rendering it. The default implementation calls {@link #exists(DocumentReference)} for each reference.
+     * 
+     * @param documentReferences the references of the documents to check
+     * @return <code>true</code> for each document which already exists, in the same order as the passed references
+     * @since 12.8RC1
+     */
+    @Unstable
+    default List<Boolean> exists(List<DocumentReference> documentReferences)
+    {
+        List<Boolean> result = new ArrayList<>(documentReferences.size());
+        for (DocumentReference documentReference : documentReferences) {
+            result.add(exists(documentReference));
+        }
+
+        return result;
+    }
+
     /**
      * Check if a document exists or not in the wiki.
      * 
@@ -29,9 +29,12 @@
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.descriptor.ComponentDescriptor;
 import org.xwiki.component.manager.ComponentLifecycleException;
@@ -183,10 +186,23 @@ public EventStoreTaskType getType()
     @Inject
     private Execution execution;
 
+    @Inject
+    private EventStreamConfiguration configuration;
+
     private Thread thread;
 
     private BlockingQueue<EventStoreTask<?, ?>> queue;
 
+    private int batchSize;
+
+    private long batchInterval;
+
+    private volatile long batchCount;
+
+    private volatile long batchTime;
+
+    private volatile long lastBatchLatency;
+
     private boolean notifyEach;
 
     private boolean notifyAll;
@@ -224,6 +240,44 @@ public int getQueueSize()
         return size;
     }
 
+    /**
+     * @return the number of tasks waiting to be processed
+     * @since 12.8RC1
+     */
+    public int getPendingTaskCount()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the number of batches of tasks processed since the store was initialized
+     * @since 12.8RC1
+     */
+    public long getBatchCount()
+    {
+        return this.batchCount;
+    }
+
+    /**
+     * @return the average time spent processing a batch of tasks, in milliseconds
+     * @since 12.8RC1
+     */
+    public long getAverageBatchLatency()
+    {
+        long count = this.batchCount;
+
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(this.batchTime / count) : 0;
+    }
+
+    /**
+     * @return the time spent processing the last batch of tasks, in milliseconds
+     * @since 12.8RC1
+     */
+    public long getLastBatchLatency()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.lastBatchLatency);
+    }
+
     private <O, I> CompletableFuture<O> addTask(I input, EventStoreTaskType type)
     {
         // Remember a few standard things from the context
@@ -332,17 +386,18 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
 
         List<EventStoreTask<?, ?>> tasks = new ArrayList<>();
         try {
-            for (EventStoreTask<?, ?> task = firstTask; task != null; task = this.queue.poll()) {
-                if (task != EventStoreTask.STOP) {
-                    try {
-                        processTask(task);
-                    } catch (Exception e) {
-                        task.future.completeExceptionally(e);
-                    }
-
-                    tasks.add(task);
-                }
-            }
+            collectTasks(firstTask, tasks);
+
+            long start = System.nanoTime();
+
+            processTasks(tasks);
+
+            this.lastBatchLatency = System.nanoTime() - start;
+            this.batchTime += this.lastBatchLatency;
+            ++this.batchCount;
+
+            this.logger.debug("Processed a batch of [{}] tasks in [{}] ms for event store [{}]", tasks.size(),
+                getLastBatchLatency(), this.descriptor.getRoleHint());
         } finally {
             afterTasks(tasks);
 
@@ -350,6 +405,111 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
         }
     }
 
+    private void collectTasks(EventStoreTask<?, ?> firstTask, List<EventStoreTask<?, ?>> tasks)
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.batchInterval);
+
+        for (EventStoreTask<?, ?> task = firstTask; task != null; task = nextTask(tasks.size(), deadline)) {
+            if (task == EventStoreTask.STOP) {
+                break;
+            }
+
+            tasks.add(task);
+        }
+    }
+
+    private EventStoreTask<?, ?> nextTask(int count, long deadline)
+    {
+        if (this.batchSize > 0 && count >= this.batchSize) {
+            return null;
+        }
+
+        EventStoreTask<?, ?> task = this.queue.poll();
+
+        // Wait a bit for more tasks to fill the batch
+        if (task == null && this.batchInterval > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                try {
+                    task = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        return task;
+    }
+
+    private void processTasks(List<EventStoreTask<?, ?>> tasks)
+    {
+        for (int i = 0; i < tasks.size();) {
+            EventStoreTask<?, ?> task = tasks.get(i);
+
+            // Group consecutive saves of the same type (keeping the order of the tasks)
+            int end = i + 1;
+            if (task.type == EventStoreTaskType.SAVE_EVENT || task.type == EventStoreTaskType.SAVE_STATUS
+                || task.type == EventStoreTaskType.SAVE_MAIL_ENTITY) {
+                while (end < tasks.size() && tasks.get(end).type == task.type) {
+                    ++end;
+                }
+            }
+
+            if (end - i > 1) {
+                processBatch(tasks.subList(i, end));
+            } else {
+                processSingleTask(task);
+            }
+
+            i = end;
+        }
+    }
+
+    private void processBatch(List<EventStoreTask<?, ?>> batch)
+    {
+        try {
+            if (batch.get(0).type == EventStoreTaskType.SAVE_EVENT) {
+                List<Event> outputs =
+                    syncSaveEvents(batch.stream().map(t -> (Event) t.input).collect(Collectors.toList()));
+
+                for (int i = 0; i < batch.size(); ++i) {
+                    processTaskOutput((EventStoreTask<Event, Event>) batch.get(i), outputs.get(i));
+                }
+            } else if (batch.get(0).type == EventStoreTaskType.SAVE_STATUS) {
+                List<EventStatus> outputs = syncSaveEventStatuses(
+                    batch.stream().map(t -> (EventStatus) t.input).collect(Collectors.toList()));
+
+                for (int i = 0; i < batch.size(); ++i) {
+                    processTaskOutput((EventStoreTask<EventStatus, EventStatus>) batch.get(i), outputs.get(i));
+                }
+            } else {
+                List<EntityEvent> outputs = syncSaveMailEntityEvents(
+                    batch.stream().map(t -> (EntityEvent) t.input).collect(Collectors.toList()));
+
+                for (int i = 0; i < batch.size(); ++i) {
+                    processTaskOutput((EventStoreTask<EntityEvent, EntityEvent>) batch.get(i), outputs.get(i));
+                }
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to process a batch of [{}] tasks for event store [{}], retrying one by one: {}",
+                batch.size(), this.descriptor.getRoleHint(), ExceptionUtils.getRootCauseMessage(e));
+
+            // Find which task is failing
+            for (EventStoreTask<?, ?> task : batch) {
+                processSingleTask(task);
+            }
+        }
+    }
+
+    private void processSingleTask(EventStoreTask<?, ?> task)
+    {
+        try {
+            processTask(task);
+        } catch (Exception e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
     private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamException
     {
         switch (task.type) {
@@ -482,6 +642,66 @@ private <O, I> void complete(EventStoreTask<O, I> task, O output)
      */
     protected abstract Event syncSaveEvent(Event event) throws EventStreamException;
 
+    /**
+     * Save several events at once. The default implementation saves them one by one but stores are encouraged to
+     * write them in a single operation. If the batch fails, the events are saved again one by one with
+     * {@link #syncSaveEvent(Event)}, so the save is expected to be idempotent.
+     * 
+     * @param events the events to save
+     * @return the saved events, in the same order
+     * @throws EventStreamException when failing to save the events
+     * @since 12.8RC1
+     */
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<Event> outputs = new ArrayList<>(events.size());
+        for (Event event : events) {
+            outputs.add(syncSaveEvent(event));
+        }
+
+        return outputs;
+    }
+
+    /**
+     * Save several event statuses at once. The default implementation saves them one by one but stores are encouraged
+     * to write them in a single operation. If the batch fails, the statuses are saved again one by one with
+     * {@link #syncSaveEventStatus(EventStatus)}, so the save is expected to be idempotent.
+     * 
+     * @param statuses the event statuses to save
+     * @return the saved event statuses, in the same order
+     * @throws EventStreamException when failing to save the statuses
+     * @since 12.8RC1
+     */
+    protected List<EventStatus> syncSaveEventStatuses(List<EventStatus> statuses) throws EventStreamException
+    {
+        List<EventStatus> outputs = new ArrayList<>(statuses.size());
+        for (EventStatus status : statuses) {
+            outputs.add(syncSaveEventStatus(status));
+        }
+
+        return outputs;
+    }
+
+    /**
+     * Save several event/entity relations at once. The default implementation saves them one by one but stores are
+     * encouraged to write them in a single operation. If the batch fails, the relations are saved again one by one with
+     * {@link #syncSaveMailEntityEvent(EntityEvent)}, so the save is expected to be idempotent.
+     * 
+     * @param events the event/entity relations to save
+     * @return the saved event/entity relations, in the same order
+     * @throws EventStreamException when failing to save the relations
+     * @since 12.8RC1
+     */
+    protected List<EntityEvent> syncSaveMailEntityEvents(List<EntityEvent> events) throws EventStreamException
+    {
+        List<EntityEvent> outputs = new ArrayList<>(events.size());
+        for (EntityEvent event : events) {
+            outputs.add(syncSaveMailEntityEvent(event));
+        }
+
+        return outputs;
+    }
+
     /**
      * @param event the event to save update
      * @since 12.6
@@ -532,6 +752,9 @@ protected void initialize(int queueCapacity, boolean notifyEach, boolean notifyA
 
         this.queue = new LinkedBlockingQueue<>(queueCapacity);
 
+        this.batchSize = this.configuration.getEventStoreBatchSize();
+        this.batchInterval = Math.max(0, this.configuration.getEventStoreBatchInterval());
+
         this.thread = new Thread(this::run);
         this.thread.setName("Asynchronous handler for event store [" + descriptor.getRoleHint() + "]");
         this.thread.setPriority(Thread.NORM_PRIORITY - 1);
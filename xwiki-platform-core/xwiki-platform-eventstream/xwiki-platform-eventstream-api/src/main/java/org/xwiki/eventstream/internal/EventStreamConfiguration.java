@@ -54,4 +54,22 @@ public boolean isEventStoreEnabled()
     {
         return this.configuration.getProperty("eventstream.store.enabled", true);
     }
+
+    /**
+     * @return the maximum number of queued store operations written together, 0 or less for no limit
+     * @since 12.8RC1
+     */
+    public int getEventStoreBatchSize()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.size", 100);
+    }
+
+    /**
+     * @return the maximum time to wait for more operations before writing an incomplete batch, in milliseconds
+     * @since 12.8RC1
+     */
+    public long getEventStoreBatchInterval()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.interval", 0L);
+    }
 }
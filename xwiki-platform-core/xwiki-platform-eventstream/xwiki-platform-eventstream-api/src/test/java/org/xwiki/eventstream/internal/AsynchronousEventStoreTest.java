@@ -19,12 +19,18 @@
  */
 package org.xwiki.eventstream.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.junit.jupiter.api.Test;
@@ -42,6 +48,7 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -54,6 +61,10 @@
 @ComponentTest
 public class AsynchronousEventStoreTest
 {
+    private static final long TIMEOUT = 10;
+
+    private static final String BLOCKING = "blocking";
+
     public static class TestAbstractAsynchronousEventStore extends AbstractAsynchronousEventStore
     {
         class EventEntry
@@ -81,6 +92,33 @@ EventEntry getEventEntry(String eventId, boolean create)
 
         ReentrantLock lock = new ReentrantLock();
 
+        List<Integer> eventBatches = new ArrayList<>();
+
+        List<Integer> mailBatches = new ArrayList<>();
+
+        CountDownLatch blocked;
+
+        CountDownLatch released;
+
+        void block()
+        {
+            this.blocked = new CountDownLatch(1);
+            this.released = new CountDownLatch(1);
+        }
+
+        private void waitForRelease() throws EventStreamException
+        {
+            this.blocked.countDown();
+
+            try {
+                this.released.await(TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new EventStreamException("Interrupted while the store thread was blocked", e);
+            }
+        }
+
         @Override
         public Optional<Event> getEvent(String eventId) throws EventStreamException
         {
@@ -123,9 +161,21 @@ protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStream
             }
         }
 
+        @Override
+        protected List<EntityEvent> syncSaveMailEntityEvents(List<EntityEvent> events) throws EventStreamException
+        {
+            this.mailBatches.add(events.size());
+
+            return super.syncSaveMailEntityEvents(events);
+        }
+
         @Override
         protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStreamException
         {
+            if (event.getEntityId().equals("failing")) {
+                throw new EventStreamException("Failed to save the mail entity");
+            }
+
             this.lock.lock();
 
             try {
@@ -137,9 +187,21 @@ protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStr
             }
         }
 
+        @Override
+        protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+        {
+            this.eventBatches.add(events.size());
+
+            return super.syncSaveEvents(events);
+        }
+
         @Override
         protected Event syncSaveEvent(Event event) throws EventStreamException
         {
+            if (event.getId().equals(BLOCKING)) {
+                waitForRelease();
+            }
+
             this.lock.lock();
 
             try {
@@ -276,6 +338,17 @@ private DefaultEntityEvent entityEvent(DefaultEvent event, String entityId)
         return new DefaultEntityEvent(event, entityId);
     }
 
+    /**
+     * Block the store thread on the save of an event until {@code this.store.released} is released.
+     */
+    private void blockStoreThread() throws InterruptedException
+    {
+        this.store.block();
+        this.store.saveEvent(event(BLOCKING));
+
+        assertTrue(this.store.blocked.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
     // Tests
 
     @Test
@@ -311,6 +384,34 @@ void getQueueSize() throws InterruptedException
         }
     }
 
+    @Test
+    void batch() throws InterruptedException, ExecutionException, EventStreamException
+    {
+        DefaultEvent event1 = event("id1");
+        DefaultEvent event2 = event("id2");
+        DefaultEvent event3 = event("id3");
+
+        // Queue the events while the store thread is busy
+        blockStoreThread();
+
+        this.store.saveEvent(event1);
+        this.store.saveEvent(event2);
+        CompletableFuture<Event> future3 = this.store.saveEvent(event3);
+
+        assertEquals(3, this.store.getPendingTaskCount());
+
+        this.store.released.countDown();
+        future3.get();
+
+        assertSame(event1, this.store.getEvent(event1.getId()).get());
+        assertSame(event2, this.store.getEvent(event2.getId()).get());
+        assertSame(event3, this.store.getEvent(event3.getId()).get());
+        assertEquals(0, this.store.getPendingTaskCount());
+
+        // The three queued events are saved together
+        assertEquals(Arrays.asList(3), this.store.eventBatches);
+    }
+
     @Test
     void event() throws InterruptedException, ExecutionException, EventStreamException
     {
@@ -404,6 +505,45 @@ void mailentity() throws InterruptedException, ExecutionException, EventStreamEx
         assertSame(status24, this.store.events.get(event2.getId()).mailstatuses.get(status24.getEntityId()));
     }
 
+    @Test
+    void mailentityBatch() throws InterruptedException, ExecutionException, EventStreamException
+    {
+        DefaultEvent event1 = event("id1");
+        DefaultEntityEvent status11 = entityEvent(event1, "entity1");
+        DefaultEntityEvent status12 = entityEvent(event1, "entity2");
+        DefaultEntityEvent status1f = entityEvent(event1, "failing");
+        DefaultEntityEvent status13 = entityEvent(event1, "entity3");
+
+        this.store.saveEvent(event1);
+
+        // Queue the mail entities while the store thread is busy
+        blockStoreThread();
+
+        this.store.saveMailEntityEvent(status11);
+        CompletableFuture<EventStatus> future12 = this.store.saveMailEntityEvent(status12);
+
+        this.store.released.countDown();
+        future12.get();
+
+        assertSame(status11, this.store.events.get(event1.getId()).mailstatuses.get(status11.getEntityId()));
+        assertSame(status12, this.store.events.get(event1.getId()).mailstatuses.get(status12.getEntityId()));
+        assertEquals(Arrays.asList(2), this.store.mailBatches);
+
+        // A failing mail entity does not prevent the other ones of the batch from being saved
+        blockStoreThread();
+
+        CompletableFuture<EventStatus> failing = this.store.saveMailEntityEvent(status1f);
+        CompletableFuture<EventStatus> future13 = this.store.saveMailEntityEvent(status13);
+
+        this.store.released.countDown();
+        future13.get();
+
+        assertEquals(Arrays.asList(2, 2), this.store.mailBatches);
+        assertThrows(ExecutionException.class, failing::get);
+        assertSame(status13, this.store.events.get(event1.getId()).mailstatuses.get(status13.getEntityId()));
+        assertNull(this.store.events.get(event1.getId()).mailstatuses.get(status1f.getEntityId()));
+    }
+
     @Test
     void prefilter() throws InterruptedException, ExecutionException, EventStreamException
     {
@@ -20,6 +20,7 @@
 package org.xwiki.eventstream.store.internal;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -52,6 +53,9 @@ public abstract class AbstractLegacyEventStore extends AbstractAsynchronousEvent
     @Inject
     private EventStatusManager eventStatusManager;
 
+    @Inject
+    private LegacyEventSaver eventSaver;
+
     @Override
     protected Event syncSaveEvent(Event event) throws EventStreamException
     {
@@ -60,6 +64,14 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
         return event;
     }
 
+    @Override
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        this.eventSaver.saveEvents(events);
+
+        return events;
+    }
+
     @Override
     protected Optional<Event> syncDeleteEvent(String eventId) throws EventStreamException
     {
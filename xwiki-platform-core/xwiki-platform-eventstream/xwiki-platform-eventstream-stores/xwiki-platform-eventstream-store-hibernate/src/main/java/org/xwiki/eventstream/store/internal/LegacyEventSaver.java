@@ -19,6 +19,12 @@
  */
 package org.xwiki.eventstream.store.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -28,6 +34,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.namespace.NamespaceContextExecutor;
 import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.model.namespace.WikiNamespace;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
@@ -91,7 +98,55 @@ public void saveEvent(Event event)
         }
     }
 
+    /**
+     * Add several events to the storage, using a single transaction per database.
+     * <p>
+     * When it fails, the events might already have been saved in some of the databases. They can be saved again one by
+     * one with {@link #saveEvent(Event)}, which updates the already existing events.
+     *
+     * @param events the events to store
+     * @throws EventStreamException when failing to save the events in one of the databases
+     * @since 12.8RC1
+     */
+    public void saveEvents(List<Event> events) throws EventStreamException
+    {
+        // Group the events by database
+        Map<String, List<LegacyEvent>> eventsByWiki = new LinkedHashMap<>();
+        for (Event event : events) {
+            LegacyEvent legacyEvent = eventConverter.convertEventToLegacyActivity(event);
+
+            boolean isSavedOnMainStore = false;
+
+            if (configuration.useLocalStore()) {
+                eventsByWiki.computeIfAbsent(legacyEvent.getWiki(), k -> new ArrayList<>()).add(legacyEvent);
+                isSavedOnMainStore = wikiDescriptorManager.isMainWiki(legacyEvent.getWiki());
+            }
+
+            if (configuration.useMainStore() && !isSavedOnMainStore) {
+                eventsByWiki.computeIfAbsent(wikiDescriptorManager.getMainWikiId(), k -> new ArrayList<>())
+                    .add(legacyEvent);
+            }
+        }
+
+        for (Map.Entry<String, List<LegacyEvent>> entry : eventsByWiki.entrySet()) {
+            try {
+                saveLegacyEvents(entry.getValue(), entry.getKey(), false);
+            } catch (Exception e) {
+                throw new EventStreamException(
+                    String.format("Failed to save [%s] events in the database of wiki [%s]", entry.getValue().size(),
+                        entry.getKey()),
+                    e);
+            }
+        }
+    }
+
     private void saveLegacyEvent(LegacyEvent event, String wikiId) throws Exception
+    {
+        // The event might already have been saved as part of a failed batch
+        saveLegacyEvents(Collections.singletonList(event), wikiId, true);
+    }
+
+    private void saveLegacyEvents(List<LegacyEvent> events, String wikiId, boolean update) throws Exception
     {
         namespaceContextExecutor.execute(new WikiNamespace(wikiId), () -> {
             XWikiContext context = contextProvider.get();
@@ -99,10 +154,18 @@ private void saveLegacyEvent(LegacyEvent event, String wikiId) throws Exception
             try {
                 hibernateStore.beginTransaction(context);
                 Session session = hibernateStore.getSession(context);
-                session.save(event);
+                for (LegacyEvent event : events) {
+                    if (update) {
+                        session.saveOrUpdate(event);
+                    } else {
+                        session.save(event);
+                    }
+                }
                 hibernateStore.endTransaction(context, true);
-            } catch (XWikiException e) {
+            } catch (XWikiException | RuntimeException e) {
                 hibernateStore.endTransaction(context, false);
+
+                throw e;
             }
 
             return null;
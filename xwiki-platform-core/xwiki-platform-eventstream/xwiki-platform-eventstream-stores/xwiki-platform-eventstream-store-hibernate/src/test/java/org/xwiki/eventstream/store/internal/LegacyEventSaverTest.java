@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.eventstream.store.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.inject.Provider;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.namespace.NamespaceContextExecutor;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStreamException;
+import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.model.namespace.WikiNamespace;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link LegacyEventSaver}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class LegacyEventSaverTest
+{
+    @InjectMockComponents
+    private LegacyEventSaver saver;
+
+    @MockComponent
+    private LegacyEventConverter eventConverter;
+
+    @MockComponent
+    private LegacyEventStreamStoreConfiguration configuration;
+
+    @MockComponent
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @MockComponent
+    private Provider<XWikiContext> contextProvider;
+
+    @MockComponent
+    private NamespaceContextExecutor namespaceContextExecutor;
+
+    private XWikiContext xcontext;
+
+    private XWikiHibernateStore hibernateStore;
+
+    private Session session;
+
+    private final Map<Event, LegacyEvent> legacyEvents = new HashMap<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.xcontext = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        this.hibernateStore = mock(XWikiHibernateStore.class);
+        this.session = mock(Session.class);
+        when(this.contextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getHibernateStore()).thenReturn(this.hibernateStore);
+        when(this.hibernateStore.getSession(this.xcontext)).thenReturn(this.session);
+
+        when(this.namespaceContextExecutor.execute(any(), any()))
+            .then(invocation -> ((Callable<?>) invocation.getArgument(1)).call());
+
+        when(this.configuration.useLocalStore()).thenReturn(true);
+        when(this.configuration.useMainStore()).thenReturn(true);
+        when(this.wikiDescriptorManager.getMainWikiId()).thenReturn("xwiki");
+        when(this.wikiDescriptorManager.isMainWiki("xwiki")).thenReturn(true);
+    }
+
+    private Event event(String id, String wiki)
+    {
+        Event event = new DefaultEvent();
+        event.setId(id);
+
+        LegacyEvent legacyEvent = new LegacyEvent();
+        legacyEvent.setEventId(id);
+        legacyEvent.setWiki(wiki);
+        when(this.eventConverter.convertEventToLegacyActivity(event)).thenReturn(legacyEvent);
+        this.legacyEvents.put(event, legacyEvent);
+
+        return event;
+    }
+
+    private LegacyEvent legacyEvent(Event event)
+    {
+        return this.legacyEvents.get(event);
+    }
+
+    @Test
+    void saveEvents() throws Exception
+    {
+        Event event1 = event("id1", "xwiki");
+        Event event2 = event("id2", "wiki");
+
+        this.saver.saveEvents(Arrays.asList(event1, event2));
+
+        // One transaction per database, the subwiki events being also saved in the main wiki
+        verify(this.namespaceContextExecutor).execute(eq(new WikiNamespace("xwiki")), any());
+        verify(this.namespaceContextExecutor).execute(eq(new WikiNamespace("wiki")), any());
+        verify(this.session).save(legacyEvent(event1));
+        verify(this.session, times(2)).save(legacyEvent(event2));
+        verify(this.hibernateStore, times(2)).endTransaction(this.xcontext, true);
+    }
+
+    @Test
+    void saveEventsFailing() throws Exception
+    {
+        Event event1 = event("id1", "xwiki");
+        Event event2 = event("id2", "xwiki");
+        doThrow(new HibernateException("error")).when(this.session).save(legacyEvent(event2));
+
+        // The failure is reported so that the events can be saved again one by one
+        assertThrows(EventStreamException.class, () -> this.saver.saveEvents(Arrays.asList(event1, event2)));
+
+        verify(this.hibernateStore).endTransaction(this.xcontext, false);
+        verify(this.hibernateStore, never()).endTransaction(this.xcontext, true);
+    }
+
+    @Test
+    void saveEventAlreadySaved() throws Exception
+    {
+        Event event = event("id1", "xwiki");
+
+        this.saver.saveEvent(event);
+
+        // The event might have been saved in a failed batch
+        verify(this.session).saveOrUpdate(legacyEvent(event));
+        verify(this.hibernateStore).endTransaction(this.xcontext, true);
+    }
+}
@@ -21,6 +21,7 @@
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -152,6 +153,23 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
         return event;
     }
 
+    @Override
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<SolrInputDocument> documents = new ArrayList<>(events.size());
+        for (Event event : events) {
+            documents.add(toSolrInputDocument(event));
+        }
+
+        try {
+            this.client.add(documents);
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to save events", e);
+        }
+
+        return events;
+    }
+
     @Override
     protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStreamException
     {
@@ -160,6 +178,24 @@ protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStream
         return status;
     }
 
+    @Override
+    protected List<EventStatus> syncSaveEventStatuses(List<EventStatus> statuses) throws EventStreamException
+    {
+        List<SolrInputDocument> documents = new ArrayList<>(statuses.size());
+        for (EventStatus status : statuses) {
+            documents.add(toEventStatusDocument(status.getEvent().getId(), status.getEntityId(), status.isRead(),
+                !status.isRead()));
+        }
+
+        try {
+            this.client.add(documents);
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to update the event statuses", e);
+        }
+
+        return statuses;
+    }
+
     @Override
     protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStreamException
     {
@@ -168,6 +204,23 @@ protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStr
         return event;
     }
 
+    @Override
+    protected List<EntityEvent> syncSaveMailEntityEvents(List<EntityEvent> events) throws EventStreamException
+    {
+        List<SolrInputDocument> documents = new ArrayList<>(events.size());
+        for (EntityEvent event : events) {
+            documents.add(toMailEntityDocument(event.getEvent().getId(), event.getEntityId(), true));
+        }
+
+        try {
+            this.client.add(documents);
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to update the event mail statuses", e);
+        }
+
+        return events;
+    }
+
     @Override
     protected Optional<EventStatus> syncDeleteEventStatus(EventStatus status) throws EventStreamException
     {
@@ -229,6 +282,19 @@ protected Event syncPrefilterEvent(Event event) throws EventStreamException
 
     private void saveEventStatus(String eventId, String entityId, boolean read, boolean unread)
         throws EventStreamException
+    {
+        SolrInputDocument document = toEventStatusDocument(eventId, entityId, read, unread);
+
+        try {
+            this.client.add(document);
+        } catch (Exception e) {
+            throw new EventStreamException(
+                String.format("Failed to update the event status for event [%s] and entity id [%s]", eventId, entityId),
+                e);
+        }
+    }
+
+    private SolrInputDocument toEventStatusDocument(String eventId, String entityId, boolean read, boolean unread)
     {
         SolrInputDocument document = new SolrInputDocument();
 
@@ -241,16 +307,22 @@ private void saveEventStatus(String eventId, String entityId, boolean read, bool
             unread ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
             EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, entityId, document);
 
+        return document;
+    }
+
+    private void saveMailEntityEvent(String eventId, String entityId, boolean add) throws EventStreamException
+    {
+        SolrInputDocument document = toMailEntityDocument(eventId, entityId, add);
+
         try {
             this.client.add(document);
         } catch (Exception e) {
-            throw new EventStreamException(
-                String.format("Failed to update the event status for event [%s] and entity id [%s]", eventId, entityId),
-                e);
+            throw new EventStreamException(String.format(
+                "Failed to update the event mail status for event [%s] and entity id [%s]", eventId, entityId), e);
         }
     }
 
-    private void saveMailEntityEvent(String eventId, String entityId, boolean add) throws EventStreamException
+    private SolrInputDocument toMailEntityDocument(String eventId, String entityId, boolean add)
     {
         SolrInputDocument document = new SolrInputDocument();
 
@@ -260,12 +332,7 @@ private void saveMailEntityEvent(String eventId, String entityId, boolean add) t
             add ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
             EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, entityId, document);
 
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(String.format(
-                "Failed to update the event mail status for event [%s] and entity id [%s]", eventId, entityId), e);
-        }
+        return document;
     }
 
     private SolrInputDocument toSolrInputDocument(Event event)
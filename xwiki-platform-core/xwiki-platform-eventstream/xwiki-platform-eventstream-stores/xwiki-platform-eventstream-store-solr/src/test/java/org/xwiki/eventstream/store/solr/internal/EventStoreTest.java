@@ -635,6 +635,35 @@ public void searchMail()
         assertSearch(Arrays.asList(EVENT2), new SimpleEventQuery().withMail("entity3"));
     }
 
+    @Test
+    public void saveMailEntityEvents() throws Exception
+    {
+        DefaultEvent event1 = event("mail1");
+        DefaultEvent event2 = event("mail2");
+
+        this.eventStore.saveEvent(event1);
+        this.eventStore.saveEvent(event2).get();
+
+        // Save the relations in a single update
+        this.eventStore.syncSaveMailEntityEvents(Arrays.asList(entityevent(event1, "entity1"),
+            entityevent(event1, "entity2"), entityevent(event2, "entity1")));
+
+        assertEquals(Arrays.asList("entity1", "entity2"),
+            this.eventStore.getEventDocument(event1.getId()).get(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS));
+        assertEquals(Arrays.asList("entity1"),
+            this.eventStore.getEventDocument(event2.getId()).get(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS));
+
+        // Saving the same relations again does not duplicate them
+        this.eventStore.saveMailEntityEvent(entityevent(event1, "entity1"));
+        this.eventStore.saveMailEntityEvent(entityevent(event1, "entity2")).get();
+
+        assertEquals(Arrays.asList("entity1", "entity2"),
+            this.eventStore.getEventDocument(event1.getId()).get(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS));
+
+        assertSearch(Arrays.asList(event1, event2), new SimpleEventQuery().withMail("entity1"));
+        assertSearch(Arrays.asList(event1), new SimpleEventQuery().withMail("entity2"));
+    }
+
     private void searchFields() throws EventStreamException
     {
         SimpleEventQuery query = new SimpleEventQuery();
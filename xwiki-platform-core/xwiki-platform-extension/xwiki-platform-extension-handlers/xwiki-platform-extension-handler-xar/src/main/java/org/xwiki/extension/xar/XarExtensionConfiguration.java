@@ -20,6 +20,7 @@
 package org.xwiki.extension.xar;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Various configuration related to XAR extensions support.
@@ -126,4 +127,15 @@ public boolean isSimple()
      * @return the protection to apply
      */
     DocumentProtection getDocumentProtection();
+
+    /**
+     * @return the maximum number of wikis in which a XAR extension installed on the whole farm is imported at the same
+     *         time
+     * @since 12.8RC1
+     */
+    @Unstable
+    default int getImportThreads()
+    {
+        return 1;
+    }
 }
@@ -20,6 +20,7 @@
 package org.xwiki.extension.xar.internal.handler.packager;
 
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
@@ -51,7 +52,7 @@ public class PackageConfiguration implements Cloneable
 
     private boolean skipMandatorytDocuments = true;
 
-    private final Map<ConflictType, GlobalAction> conflictActions = new EnumMap<>(ConflictType.class);
+    private Map<ConflictType, GlobalAction> conflictActions = new EnumMap<>(ConflictType.class);
 
     private XarEntry xarEntry;
 
@@ -66,7 +67,15 @@ public PackageConfiguration()
     public PackageConfiguration clone()
     {
         try {
-            return (PackageConfiguration) super.clone();
+            PackageConfiguration configuration = (PackageConfiguration) super.clone();
+
+            // Don't share the modifiable maps with the clone (which can be used from another thread)
+            configuration.conflictActions = new EnumMap<>(this.conflictActions);
+            if (this.entriesToImport != null) {
+                configuration.entriesToImport = new HashMap<>(this.entriesToImport);
+            }
+
+            return configuration;
         } catch (CloneNotSupportedException e) {
             // Should never happen
             return null;
@@ -19,13 +19,27 @@
  */
 package org.xwiki.extension.xar.internal.handler.packager;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,11 +48,19 @@
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.environment.Environment;
 import org.xwiki.extension.ExtensionId;
 import org.xwiki.extension.repository.InstalledExtensionRepository;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
 import org.xwiki.extension.xar.XarExtensionException;
 import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
 import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
@@ -49,6 +71,10 @@
 import org.xwiki.filter.input.DefaultInputStreamInputSource;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.filter.xar.input.XARInputProperties;
+import org.xwiki.job.event.status.JobProgressManager;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.logging.marker.BeginTranslationMarker;
 import org.xwiki.logging.marker.EndTranslationMarker;
 import org.xwiki.logging.marker.TranslationMarker;
@@ -130,6 +156,63 @@
     @Named(XarExtensionHandler.TYPE)
     private InstalledExtensionRepository installedXARs;
 
+    @Inject
+    private XarExtensionConfiguration xarConfiguration;
+
+    @Inject
+    private JobProgressManager progressManager;
+
+    @Inject
+    private LoggerManager loggerManager;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private Environment environment;
+
+    /**
+     * A XAR entry to import, spooled in a temporary file when importing the XAR in several wikis.
+     */
+    private static final class ImportEntry
+    {
+        private final String name;
+
+        private final XarEntry xarEntry;
+
+        private final long offset;
+
+        private final long length;
+
+        private ImportEntry(String name, XarEntry xarEntry, long offset, long length)
+        {
+            this.name = name;
+            this.xarEntry = xarEntry;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The result of the import of a XAR in a wiki from a worker thread.
+     */
+    private static final class WikiImport
+    {
+        private final WikiReference wikiReference;
+
+        private final LogQueue log = new LogQueue();
+
+        private Exception failure;
+
+        private WikiImport(WikiReference wikiReference)
+        {
+            this.wikiReference = wikiReference;
+        }
+    }
+
     private XarInstalledExtensionRepository getXarInstalledExtensionRepository()
     {
         return (XarInstalledExtensionRepository) this.installedXARs;
@@ -141,8 +224,12 @@ public void importXAR(String comment, File xarFile, PackageConfiguration configu
         if (configuration.getWiki() == null) {
             Collection<String> wikis = this.wikiDescriptors.getAllIds();
 
-            for (String subwiki : wikis) {
-                importXARToWiki(comment, xarFile, new WikiReference(subwiki), configuration);
+            if (wikis.size() > 1) {
+                importXARToWikis(comment, xarFile, wikis, configuration);
+            } else {
+                for (String subwiki : wikis) {
+                    importXARToWiki(comment, xarFile, new WikiReference(subwiki), configuration);
+                }
             }
         } else {
             importXARToWiki(comment, xarFile, new WikiReference(configuration.getWiki()), configuration);
@@ -175,20 +262,107 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
 
             for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
                 // Only import what should be imported
-                if (!entry.isDirectory() && !entry.getName().equals(XarModel.PATH_PACKAGE)) {
-                    if (configuration.getEntriesToImport() != null) {
-                        XarEntry xarEntry = configuration.getEntriesToImport().get(entry.getName());
-                        if (xarEntry != null) {
-                            configuration.setXarEntry(xarEntry);
-
-                            importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
-                        }
-                    } else {
-                        configuration.setXarEntry(null);
-                        importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
-                    }
+                if (isImported(entry, configuration)) {
+                    configuration.setXarEntry(getXarEntry(entry, configuration));
+
+                    importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
+                }
+            }
+        } finally {
+            this.observation.notify(new XARImportedEvent(), null, xcontext);
+
+            xcontext.setWikiId(currentWiki);
+        }
+    }
+
+    private boolean isImported(ArchiveEntry entry, PackageConfiguration configuration)
+    {
+        return !entry.isDirectory() && !entry.getName().equals(XarModel.PATH_PACKAGE)
+            && (configuration.getEntriesToImport() == null
+                || configuration.getEntriesToImport().containsKey(entry.getName()));
+    }
+
+    private XarEntry getXarEntry(ArchiveEntry entry, PackageConfiguration configuration)
+    {
+        return configuration.getEntriesToImport() != null ? configuration.getEntriesToImport().get(entry.getName())
+            : null;
+    }
+
+    /**
+     * Read the XAR only once and import it in several wikis, with one progress step per wiki.
+     * <p>
+     * The wikis are imported one after the other, and the import stops at the first failing wiki, unless the
+     * configuration allows several import threads and the job is not interactive. In that case the import continues
+     * in the other wikis after a failure (they might already be in progress) and the first failure is thrown at the
+     * end.
+     */
+    private void importXARToWikis(String comment, File xarFile, Collection<String> wikis,
+        PackageConfiguration configuration) throws IOException, XarException, XWikiException
+    {
+        // Spool the entries to import (uncompressed) on disk so that each wiki import can read them independently
+        File entriesFile = File.createTempFile("xarimport", ".entries", this.environment.getTemporaryDirectory());
+        try {
+            List<ImportEntry> entries = spoolXAR(xarFile, entriesFile, configuration);
+
+            int threads = Math.min(this.xarConfiguration.getImportThreads(), wikis.size());
+
+            // Questions can only be asked from the job thread
+            if (threads > 1 && !configuration.isInteractive()) {
+                importXARToWikis(comment, entries, entriesFile, wikis, threads, configuration);
+            } else {
+                importXARToWikis(comment, entries, entriesFile, wikis, configuration);
+            }
+        } finally {
+            Files.deleteIfExists(entriesFile.toPath());
+        }
+    }
+
+    private List<ImportEntry> spoolXAR(File xarFile, File entriesFile, PackageConfiguration configuration)
+        throws IOException
+    {
+        List<ImportEntry> entries = new ArrayList<>();
+
+        try (ZipArchiveInputStream zis = new ZipArchiveInputStream(new FileInputStream(xarFile));
+            OutputStream entriesStream = new BufferedOutputStream(new FileOutputStream(entriesFile))) {
+            long offset = 0;
+            for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                if (isImported(entry, configuration)) {
+                    long length = IOUtils.copyLarge(zis, entriesStream);
+
+                    entries.add(new ImportEntry(entry.getName(), getXarEntry(entry, configuration), offset, length));
+
+                    offset += length;
                 }
             }
+        }
+
+        return entries;
+    }
+
+    private void importXARToWiki(String comment, List<ImportEntry> entries, File entriesFile,
+        WikiReference wikiReference, PackageConfiguration configuration)
+        throws IOException, XarException, XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        String currentWiki = xcontext.getWikiId();
+        try (FileChannel entriesChannel = FileChannel.open(entriesFile.toPath(), StandardOpenOption.READ)) {
+            xcontext.setWikiId(wikiReference.getName());
+
+            this.observation.notify(new XARImportingEvent(), null, xcontext);
+
+            for (ImportEntry entry : entries) {
+                configuration.setXarEntry(entry.xarEntry);
+
+                entriesChannel.position(entry.offset);
+                BoundedInputStream entryStream =
+                    new BoundedInputStream(Channels.newInputStream(entriesChannel), entry.length);
+                // The channel is reused for the next entries
+                entryStream.setPropagateClose(false);
+
+                importDocumentToWiki(comment, wikiReference, new BufferedInputStream(entryStream), configuration,
+                    entry.name);
+            }
         } finally {
             this.observation.notify(new XARImportedEvent(), null, xcontext);
 
@@ -196,6 +370,121 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
         }
     }
 
+    private void importXARToWikis(String comment, List<ImportEntry> entries, File entriesFile,
+        Collection<String> wikis, PackageConfiguration configuration) throws IOException, XarException, XWikiException
+    {
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                importXARToWiki(comment, entries, entriesFile, new WikiReference(wiki), configuration);
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    private void importXARToWikis(String comment, List<ImportEntry> entries, File entriesFile,
+        Collection<String> wikis, int threads, PackageConfiguration configuration)
+        throws IOException, XarException, XWikiException
+    {
+        DocumentReference userReference = this.xcontextProvider.get().getUserReference();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new BasicThreadFactory.Builder().namingPattern("XAR import thread %d").daemon(true).build());
+        CompletionService<WikiImport> completionService = new ExecutorCompletionService<>(executor);
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            for (String wiki : wikis) {
+                WikiImport wikiImport = new WikiImport(new WikiReference(wiki));
+                PackageConfiguration wikiConfiguration = configuration.clone();
+                completionService.submit(
+                    () -> importXARToWiki(comment, entries, entriesFile, wikiImport, userReference, wikiConfiguration));
+            }
+
+            Exception failure = null;
+            for (int i = 0; i < wikis.size(); ++i) {
+                this.progressManager.startStep(this);
+
+                WikiImport wikiImport = completionService.take().get();
+
+                // Send the log of the import to the job log
+                wikiImport.log.log(this.logger);
+
+                if (wikiImport.failure != null) {
+                    this.logger.error("Failed to import XAR in wiki [{}]", wikiImport.wikiReference.getName(),
+                        wikiImport.failure);
+
+                    if (failure == null) {
+                        failure = wikiImport.failure;
+                    }
+                }
+
+                this.progressManager.endStep(this);
+            }
+
+            if (failure != null) {
+                throwFailure(failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while importing XAR", e);
+        } catch (ExecutionException e) {
+            // Should never happen since failures are reported in the result
+            throw new IOException("Failed to import XAR", e);
+        } finally {
+            executor.shutdownNow();
+
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    /**
+     * Import the XAR in a wiki, from a worker thread with its own execution context.
+     */
+    private WikiImport importXARToWiki(String comment, List<ImportEntry> entries, File entriesFile,
+        WikiImport wikiImport, DocumentReference userReference, PackageConfiguration configuration)
+    {
+        // Isolate the log to send it to the job log later
+        this.loggerManager.pushLogListener(new LoggerListener(UUID.randomUUID().toString(), wikiImport.log));
+
+        try {
+            this.executionContextManager.initialize(new ExecutionContext());
+
+            this.xcontextProvider.get().setUserReference(userReference);
+
+            importXARToWiki(comment, entries, entriesFile, wikiImport.wikiReference, configuration);
+        } catch (Exception e) {
+            wikiImport.failure = e;
+        } finally {
+            this.execution.removeContext();
+
+            this.loggerManager.popLogListener();
+        }
+
+        return wikiImport;
+    }
+
+    private void throwFailure(Exception failure) throws IOException, XarException, XWikiException
+    {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof XarException) {
+            throw (XarException) failure;
+        } else if (failure instanceof XWikiException) {
+            throw (XWikiException) failure;
+        }
+
+        throw new IOException("Failed to import XAR", failure);
+    }
+
     private void importDocumentToWiki(String comment, WikiReference wikiReference, InputStream inputStream,
         PackageConfiguration configuration, String name) throws XWikiException, XarException, IOException
     {
@@ -1010,6 +1010,89 @@ public void testInstallOnRoot() throws Throwable
         assertTrue(pageWiki2.isNew());
     }
 
+    @Test
+    public void testInstallOnRootInParallel() throws Throwable
+    {
+        this.oldcore.getConfigurationSource().setProperty("extension.xar.importThreads", 2);
+        doReturn(Arrays.asList("wiki1", "wiki2", "wiki3")).when(this.oldcore.getWikiDescriptorManager()).getAllIds();
+
+        // install
+
+        install(this.localXarExtensiontId1, null, this.contextUser);
+
+        // validate
+
+        for (String wiki : Arrays.asList("wiki1", "wiki2", "wiki3")) {
+            XWikiDocument page = this.oldcore.getSpyXWiki().getDocument(new DocumentReference(wiki, "space1", "page1"),
+                getXWikiContext());
+
+            Assert.assertFalse("Document " + wiki + ":space1.page1 has not been saved in the database", page.isNew());
+
+            page = this.oldcore.getSpyXWiki().getDocument(new DocumentReference(wiki, "space", "page"),
+                getXWikiContext());
+
+            Assert.assertEquals("Wrong content", "content", page.getContent());
+            Assert.assertEquals("Wrong author", this.contextUser, page.getAuthorReference());
+
+            XWikiDocument pagewithattachment = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference(wiki, "space", "pagewithattachment"), getXWikiContext());
+
+            XWikiAttachment attachment = pagewithattachment.getAttachment("attachment.txt");
+            Assert.assertNotNull(attachment);
+            Assert.assertEquals("attachment content",
+                IOUtils.toString(attachment.getContentInputStream(getXWikiContext()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testUpgradeOnRootInParallel() throws Throwable
+    {
+        this.oldcore.getConfigurationSource().setProperty("extension.xar.importThreads", 2);
+        doReturn(Arrays.asList("wiki1", "wiki2")).when(this.oldcore.getWikiDescriptorManager()).getAllIds();
+
+        install(this.localXarExtensiontId1, null, this.contextUser);
+
+        // Do some local modifications
+
+        XWikiDocument deletedpage = this.oldcore.getSpyXWiki()
+            .getDocument(new DocumentReference("wiki1", "space", "deletedpage"), getXWikiContext());
+        this.oldcore.getSpyXWiki().deleteDocument(deletedpage, getXWikiContext());
+
+        // upgrade
+
+        install(this.localXarExtensiontId2, null, this.contextUser);
+
+        // validate
+
+        for (String wiki : Arrays.asList("wiki1", "wiki2")) {
+            XWikiDocument page = this.oldcore.getSpyXWiki().getDocument(new DocumentReference(wiki, "space", "page"),
+                getXWikiContext());
+
+            Assert.assertEquals("Wrong content", "content 2", page.getContent());
+            Assert.assertEquals("Wrong versions", "2.1", page.getVersion());
+
+            XWikiDocument newPage = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference(wiki, "space2", "page2"), getXWikiContext());
+
+            Assert.assertFalse("Document " + wiki + ":space2.page2 has not been saved in the database",
+                newPage.isNew());
+
+            XWikiDocument removedPage = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference(wiki, "space1", "page1"), getXWikiContext());
+
+            assertTrue("Document " + wiki + ":space1.page1 has not been removed from the database",
+                removedPage.isNew());
+        }
+
+        // The local modifications of a wiki don't leak in the other wikis
+        deletedpage = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki1", "space", "deletedpage"),
+            getXWikiContext());
+        assertTrue("Document wiki1:space.deletedpage has been restored", deletedpage.isNew());
+        deletedpage = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki2", "space", "deletedpage"),
+            getXWikiContext());
+        Assert.assertFalse("Document wiki2:space.deletedpage has been removed", deletedpage.isNew());
+    }
+
     // rights check
 
     // install
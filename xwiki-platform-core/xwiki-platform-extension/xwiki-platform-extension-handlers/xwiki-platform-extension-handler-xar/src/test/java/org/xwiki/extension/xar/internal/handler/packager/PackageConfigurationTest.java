@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.extension.xar.internal.handler.packager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.extension.xar.question.ConflictQuestion.ConflictType;
+import org.xwiki.extension.xar.question.ConflictQuestion.GlobalAction;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.xar.XarEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for {@link PackageConfiguration}.
+ *
+ * @version $Id$
+ */
+class PackageConfigurationTest
+{
+    @Test
+    void cloneDoesNotShareModifiableState()
+    {
+        PackageConfiguration configuration = new PackageConfiguration();
+        configuration.setConflictAction(ConflictType.MERGE_FAILURE, GlobalAction.NEXT);
+        Map<String, XarEntry> entries = new HashMap<>();
+        XarEntry entry = new XarEntry(new LocalDocumentReference("space", "page"));
+        entries.put(entry.getEntryName(), entry);
+        configuration.setEntriesToImport(entries);
+
+        PackageConfiguration clone = configuration.clone();
+
+        assertEquals(GlobalAction.NEXT, clone.getConflictAction(ConflictType.MERGE_FAILURE));
+        assertEquals(entries, clone.getEntriesToImport());
+
+        // Modifying the clone doesn't affect the original configuration
+        clone.setConflictAction(ConflictType.MERGE_FAILURE, GlobalAction.CURRENT);
+        clone.getEntriesToImport().clear();
+        clone.setXarEntry(entry);
+
+        assertEquals(GlobalAction.NEXT, configuration.getConflictAction(ConflictType.MERGE_FAILURE));
+        assertEquals(1, configuration.getEntriesToImport().size());
+        assertNull(configuration.getXarEntry());
+    }
+}
@@ -21,19 +21,20 @@
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheException;
-import org.xwiki.cache.CacheManager;
-import org.xwiki.cache.config.CacheConfiguration;
-import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.environment.Environment;
+import org.xwiki.observation.ObservationManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -65,12 +66,13 @@ public class ImagePlugin extends XWikiDefaultPlugin
     /**
      * Cache for already served images.
      */
-    private Cache<XWikiAttachment> imageCache;
+    private ThumbnailCache imageCache;
 
     /**
-     * The size of the cache. This parameter can be configured using the key {@code xwiki.plugin.image.cache.capacity}.
+     * The maximum size of the cache, in megabytes. This parameter can be configured using the key
+     * {@code xwiki.plugin.image.cache.size}.
      */
-    private int capacity = 50;
+    private long cacheSize = 100;
 
     /**
      * Default JPEG image quality.
@@ -138,30 +140,30 @@ public void init(XWikiContext context)
     private void initCache(XWikiContext context)
     {
         if (this.imageCache == null) {
-            CacheConfiguration configuration = new CacheConfiguration();
-
-            configuration.setConfigurationId("xwiki.plugin.image");
-
-            // Set cache constraints.
-            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
-            configuration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
-
-            String capacityParam = context.getWiki().Param("xwiki.plugin.image.cache.capacity");
-            if (!StringUtils.isBlank(capacityParam) && StringUtils.isNumeric(capacityParam.trim())) {
+            String sizeParam = context.getWiki().Param("xwiki.plugin.image.cache.size");
+            if (!StringUtils.isBlank(sizeParam)) {
                 try {
-                    this.capacity = Integer.parseInt(capacityParam.trim());
+                    this.cacheSize = Long.parseLong(sizeParam.trim());
                 } catch (NumberFormatException e) {
                     LOG.warn(String.format(
-                        "Failed to parse xwiki.plugin.image.cache.capacity configuration parameter. "
-                            + "Using %s as the cache capacity.", this.capacity), e);
+                        "Failed to parse xwiki.plugin.image.cache.size configuration parameter. "
+                            + "Using %s as the cache size.", this.cacheSize), e);
                 }
             }
-            lru.setMaxEntries(this.capacity);
 
-            try {
-                this.imageCache = Utils.getComponent(CacheManager.class).createNewLocalCache(configuration);
-            } catch (CacheException e) {
-                LOG.error("Error initializing the image cache.", e);
+            if (this.cacheSize > 0) {
+                try {
+                    File directory =
+                        new File(Utils.getComponent(Environment.class).getPermanentDirectory(), "cache/image");
+                    this.imageCache = new ThumbnailCache(directory, this.cacheSize * FileUtils.ONE_MB);
+
+                    ObservationManager observationManager = Utils.getComponent(ObservationManager.class);
+                    if (observationManager.getListener(this.imageCache.getName()) == null) {
+                        observationManager.addListener(this.imageCache);
+                    }
+                } catch (Exception e) {
+                    LOG.error("Error initializing the image cache.", e);
+                }
             }
         }
     }
@@ -170,9 +172,8 @@ private void initCache(XWikiContext context)
     public void flushCache()
     {
         if (this.imageCache != null) {
-            this.imageCache.dispose();
+            this.imageCache.clear();
         }
-        this.imageCache = null;
     }
 
     /**
@@ -249,7 +250,7 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
+        XWikiAttachment thumbnail = (this.imageCache == null || image.getReference() == null)
             ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
             : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
 
@@ -280,14 +281,34 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
     private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width, int height,
         boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
     {
-        String key = String.format("%s;%s;%s;%s;%s;%s;%s", image.getId(), image.getVersion(), image.getDate().getTime(),
-            width, height, keepAspectRatio, quality);
+        String variant = String.format("%sx%s-%s-%s", width, height, keepAspectRatio, quality);
+
+        ThumbnailCache.Thumbnail cachedThumbnail = this.imageCache.get(image, variant);
+        if (cachedThumbnail == null) {
+            Pair<RenderedImage, Float> shrunkImage =
+                scaleImage(image, width, height, keepAspectRatio, quality, context);
+            if (shrunkImage == null) {
+                // Remember that the original image should be used with an empty thumbnail, to avoid reading the image
+                // again the next time
+                cachedThumbnail = this.imageCache.set(image, variant, out -> { });
+            } else {
+                String mimeType = image.getMimeType(context);
+                cachedThumbnail = this.imageCache.set(image, variant, out -> this.imageProcessor
+                    .writeImage(shrunkImage.getLeft(), mimeType, shrunkImage.getRight(), out));
+            }
+        }
+
+        if (cachedThumbnail.getLength() == 0) {
+            IOUtils.closeQuietly(cachedThumbnail.takeStream());
 
-        XWikiAttachment thumbnail = this.imageCache.get(key);
-        if (thumbnail == null) {
-            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
-            this.imageCache.set(key, thumbnail);
+            return image;
         }
+
+        // Stream the thumbnail from the cache
+        XWikiAttachment thumbnail = (XWikiAttachment) image.clone();
+        thumbnail.setAttachment_content(new ThumbnailAttachmentContent(this.imageCache, cachedThumbnail, thumbnail));
+        thumbnail.setLongSize(cachedThumbnail.getLength());
+
         return thumbnail;
     }
 
@@ -310,6 +331,47 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
      */
     private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
         boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
+    {
+        Pair<RenderedImage, Float> shrunkImage =
+            scaleImage(attachment, requestedWidth, requestedHeight, keepAspectRatio, requestedQuality, context);
+        if (shrunkImage == null) {
+            return attachment;
+        }
+
+        // Create an image attachment for the shrunk image.
+        XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
+        thumbnail.loadAttachmentContent(context);
+
+        OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
+        this.imageProcessor.writeImage(shrunkImage.getLeft(),
+            attachment.getMimeType(context),
+            shrunkImage.getRight(),
+            acos);
+
+        IOUtils.closeQuietly(acos);
+
+        return thumbnail;
+    }
+
+    /**
+     * Scales the image to the requested dimensions.
+     *
+     * @param attachment the image to be shrunk
+     * @param requestedWidth the desired image width; this value is taken into account only if it is greater than zero
+     *            and less than the current image width
+     * @param requestedHeight the desired image height; this value is taken into account only if it is greater than zero
+     *            and less than the current image height
+     * @param keepAspectRatio {@code true} to preserve the image aspect ratio even when both requested dimensions are
+     *            properly specified (in this case the image will be resized to best fit the rectangle with the
+     *            requested width and height), {@code false} otherwise
+     * @param requestedQuality the desired compression quality
+     * @param context the XWiki context
+     * @return the scaled image and the compression quality to use when writing it, {@code null} if the original image
+     *         should be used
+     * @throws Exception if scaling the image fails
+     */
+    private Pair<RenderedImage, Float> scaleImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
     {
         Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
 
@@ -323,27 +385,13 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         if (quality < 0) {
             // If no scaling is needed and the quality parameter is not specified, return the original image.
             if (dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
-                return attachment;
+                return null;
             }
             quality = this.defaultQuality;
         }
 
         // Scale the image to the new dimensions.
-        RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
-
-        // Create an image attachment for the shrunk image.
-        XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
-        thumbnail.loadAttachmentContent(context);
-
-        OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
-        this.imageProcessor.writeImage(shrunkImage,
-            attachment.getMimeType(context),
-            quality,
-            acos);
-
-        IOUtils.closeQuietly(acos);
-
-        return thumbnail;
+        return new ImmutablePair<>(this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]), quality);
     }
 
     /**
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.AutoCloseInputStream;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+
+/**
+ * The content of a thumbnail stored in the {@link ThumbnailCache}, streamed from the file without being loaded in
+ * memory.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+class ThumbnailAttachmentContent extends XWikiAttachmentContent
+{
+    private final ThumbnailCache cache;
+
+    private final ThumbnailCache.Thumbnail thumbnail;
+
+    /**
+     * @param cache the cache holding the thumbnail
+     * @param thumbnail the thumbnail found in the cache
+     * @param attachment the thumbnail attachment
+     */
+    ThumbnailAttachmentContent(ThumbnailCache cache, ThumbnailCache.Thumbnail thumbnail, XWikiAttachment attachment)
+    {
+        super(attachment, null);
+
+        this.cache = cache;
+        this.thumbnail = thumbnail;
+    }
+
+    /**
+     * @param content the content to copy
+     */
+    ThumbnailAttachmentContent(ThumbnailAttachmentContent content)
+    {
+        super(content);
+
+        this.cache = content.cache;
+        this.thumbnail = content.thumbnail;
+    }
+
+    @Override
+    public ThumbnailAttachmentContent clone()
+    {
+        return new ThumbnailAttachmentContent(this);
+    }
+
+    @Override
+    @Deprecated
+    public byte[] getContent()
+    {
+        if (getFileItem() != null) {
+            return super.getContent();
+        }
+
+        try (InputStream stream = getContentInputStream()) {
+            return IOUtils.toByteArray(stream);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read thumbnail content", e);
+        }
+    }
+
+    @Override
+    public InputStream getContentInputStream()
+    {
+        if (getFileItem() != null) {
+            return super.getContentInputStream();
+        }
+
+        // The first read uses the file opened when the thumbnail was found in the cache, since it might have been
+        // evicted since then
+        InputStream stream = this.thumbnail.takeStream();
+        if (stream == null) {
+            try {
+                stream = this.cache.open(this.thumbnail.getFile());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to get thumbnail InputStream", e);
+            }
+        }
+
+        return new AutoCloseInputStream(stream);
+    }
+
+    @Override
+    public long getLongSize()
+    {
+        if (getFileItem() != null) {
+            return super.getLongSize();
+        }
+
+        return this.thumbnail.getLength();
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AbstractAttachmentEvent;
+import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
+import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
+
+/**
+ * Store the thumbnails generated by the {@link ImagePlugin} on the file system, so that they don't take heap space and
+ * survive a restart. The thumbnails of an attachment are stored in a dedicated directory and the least recently used
+ * ones are deleted when the total size of the cache exceeds the configured maximum. The thumbnails of an attachment are
+ * deleted when the attachment is modified or deleted.
+ * <p>
+ * A thumbnail file is always opened while holding the lock protecting the registered thumbnails, so that it cannot be
+ * evicted between the moment it's found and the moment it's opened. A file already opened can still be read after
+ * being deleted.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+class ThumbnailCache implements EventListener
+{
+    /**
+     * Write the content of a thumbnail.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    interface ThumbnailWriter
+    {
+        /**
+         * @param out the stream where to write the thumbnail
+         * @throws IOException when failing to write the thumbnail
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A thumbnail found in the cache.
+     *
+     * @version $Id$
+     */
+    static final class Thumbnail
+    {
+        private final File file;
+
+        private final long length;
+
+        private InputStream stream;
+
+        private Thumbnail(File file, long length, InputStream stream)
+        {
+            this.file = file;
+            this.length = length;
+            this.stream = stream;
+        }
+
+        /**
+         * @return the file holding the thumbnail
+         */
+        File getFile()
+        {
+            return this.file;
+        }
+
+        /**
+         * @return the size of the thumbnail, in bytes
+         */
+        long getLength()
+        {
+            return this.length;
+        }
+
+        /**
+         * @return the stream opened when the thumbnail was found in the cache, {@code null} if it was already taken
+         */
+        synchronized InputStream takeStream()
+        {
+            InputStream result = this.stream;
+            this.stream = null;
+
+            return result;
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailCache.class);
+
+    private static final String NAME = "imagethumbnails";
+
+    private static final List<Event> EVENTS = Arrays.asList(new AttachmentUpdatedEvent(), new AttachmentDeletedEvent());
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final char SEPARATOR = '-';
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /**
+     * The size of the thumbnails, from the least recently used to the most recently used.
+     */
+    private final LinkedHashMap<File, Long> files = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size;
+
+    /**
+     * @param directory the directory where to store the thumbnails
+     * @param maxSize the maximum size of the cache, in bytes
+     */
+    ThumbnailCache(File directory, long maxSize)
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        load();
+    }
+
+    /**
+     * Register the thumbnails left by a previous run, from the oldest to the most recently accessed one.
+     */
+    private void load()
+    {
+        List<File> thumbnails = new ArrayList<>();
+
+        File[] attachmentDirectories = this.directory.listFiles(File::isDirectory);
+        if (attachmentDirectories != null) {
+            for (File attachmentDirectory : attachmentDirectories) {
+                File[] attachmentThumbnails = attachmentDirectory.listFiles(File::isFile);
+                if (attachmentThumbnails != null) {
+                    for (File thumbnail : attachmentThumbnails) {
+                        if (thumbnail.getName().endsWith(TEMPORARY_SUFFIX)) {
+                            // Left by a generation which did not finish
+                            delete(thumbnail);
+                        } else {
+                            thumbnails.add(thumbnail);
+                        }
+                    }
+                }
+            }
+        }
+
+        thumbnails.sort(Comparator.comparingLong(File::lastModified));
+
+        synchronized (this) {
+            for (File thumbnail : thumbnails) {
+                long length = thumbnail.length();
+                this.files.put(thumbnail, length);
+                this.size += length;
+            }
+
+            evict();
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return EVENTS;
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        // The thumbnails are stored locally so remote events are also taken into account
+        XWikiDocument document = (XWikiDocument) source;
+        String name = ((AbstractAttachmentEvent) event).getName();
+
+        if (document != null && name != null) {
+            remove(new AttachmentReference(name, document.getDocumentReference()));
+        }
+    }
+
+    /**
+     * @param attachment the attachment from which the thumbnail was generated
+     * @param variant the identifier of the transformation applied to the attachment
+     * @return the thumbnail, {@code null} if there is none
+     */
+    synchronized Thumbnail get(XWikiAttachment attachment, String variant)
+    {
+        File file = getFile(attachment, variant);
+
+        // Update the access order
+        Long length = this.files.get(file);
+        if (length == null) {
+            return null;
+        }
+
+        try {
+            return new Thumbnail(file, length, new FileInputStream(file));
+        } catch (FileNotFoundException e) {
+            // It was deleted behind our back
+            unregister(file);
+
+            return null;
+        }
+    }
+
+    /**
+     * Open a thumbnail again.
+     *
+     * @param file the file holding the thumbnail
+     * @return the content of the thumbnail
+     * @throws IOException when the thumbnail is not in the cache anymore
+     */
+    synchronized InputStream open(File file) throws IOException
+    {
+        if (!this.files.containsKey(file)) {
+            throw new FileNotFoundException(String.format("The thumbnail [%s] has been evicted", file));
+        }
+
+        return new FileInputStream(file);
+    }
+
+    /**
+     * Store a new thumbnail.
+     *
+     * @param attachment the attachment from which the thumbnail is generated
+     * @param variant the identifier of the transformation applied to the attachment
+     * @param writer write the content of the thumbnail
+     * @return the stored thumbnail
+     * @throws IOException when failing to store the thumbnail
+     */
+    Thumbnail set(XWikiAttachment attachment, String variant, ThumbnailWriter writer) throws IOException
+    {
+        File file = getFile(attachment, variant);
+        File attachmentDirectory = file.getParentFile();
+
+        // The thumbnails of other versions of the attachment are kept (an older version can be requested as often as
+        // the current one), they are removed by the attachment events or evicted once they are not used anymore.
+
+        // Write the thumbnail in a temporary file first to never expose a partial thumbnail
+        attachmentDirectory.mkdirs();
+        File temporaryFile = File.createTempFile(file.getName(), TEMPORARY_SUFFIX, attachmentDirectory);
+        try {
+            try (OutputStream out = new FileOutputStream(temporaryFile)) {
+                writer.write(out);
+            }
+
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+
+        long length = file.length();
+        synchronized (this) {
+            Long previousLength = this.files.put(file, length);
+            this.size += length - (previousLength != null ? previousLength : 0);
+
+            // Open it before it can be evicted
+            Thumbnail thumbnail = new Thumbnail(file, length, new FileInputStream(file));
+
+            evict();
+
+            return thumbnail;
+        }
+    }
+
+    /**
+     * Remove all the thumbnails of the passed attachment.
+     *
+     * @param attachmentReference the reference of the attachment
+     */
+    void remove(AttachmentReference attachmentReference)
+    {
+        File attachmentDirectory = getAttachmentDirectory(attachmentReference);
+
+        File[] thumbnails = attachmentDirectory.listFiles();
+        if (thumbnails != null) {
+            for (File thumbnail : thumbnails) {
+                unregister(thumbnail);
+            }
+
+            FileUtils.deleteQuietly(attachmentDirectory);
+        }
+    }
+
+    /**
+     * Remove all the thumbnails.
+     */
+    synchronized void clear()
+    {
+        for (File file : this.files.keySet()) {
+            delete(file);
+        }
+
+        this.files.clear();
+        this.size = 0;
+    }
+
+    private synchronized void unregister(File file)
+    {
+        Long length = this.files.remove(file);
+        if (length != null) {
+            this.size -= length;
+        }
+    }
+
+    /**
+     * Delete the least recently used thumbnails until the total size of the cache is below the maximum.
+     */
+    private void evict()
+    {
+        for (Iterator<Map.Entry<File, Long>> it = this.files.entrySet().iterator(); this.size > this.maxSize
+            && it.hasNext();) {
+            Map.Entry<File, Long> entry = it.next();
+
+            it.remove();
+            this.size -= entry.getValue();
+
+            delete(entry.getKey());
+        }
+    }
+
+    private void delete(File file)
+    {
+        // The file might still be read by a download in progress in which case some file systems won't delete it
+        if (!file.delete() && file.exists()) {
+            LOGGER.debug("Failed to delete thumbnail [{}]", file);
+        }
+
+        // Clean the directory of the attachment if it's empty
+        file.getParentFile().delete();
+    }
+
+    private File getAttachmentDirectory(AttachmentReference attachmentReference)
+    {
+        return new File(this.directory, DigestUtils.sha256Hex(attachmentReference.toString()));
+    }
+
+    private File getFile(XWikiAttachment attachment, String variant)
+    {
+        return new File(getAttachmentDirectory(attachment.getReference()), getVersionPrefix(attachment) + variant);
+    }
+
+    private String getVersionPrefix(XWikiAttachment attachment)
+    {
+        StringBuilder prefix = new StringBuilder();
+        prefix.append(attachment.getVersion());
+        prefix.append(SEPARATOR);
+        prefix.append(attachment.getDate() != null ? attachment.getDate().getTime() : 0);
+        prefix.append(SEPARATOR);
+
+        return prefix.toString();
+    }
+}
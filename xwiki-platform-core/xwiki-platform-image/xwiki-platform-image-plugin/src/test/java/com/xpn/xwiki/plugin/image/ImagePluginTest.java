@@ -24,27 +24,41 @@
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheManager;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -101,15 +115,18 @@
 
     private ImageProcessor imageProcessor;
 
+    private ObservationManager observationManager;
+
     @BeforeEach
     public void configure() throws Exception
     {
         XWiki xwiki = this.oldCore.getSpyXWiki();
-        doReturn("10").when(xwiki).Param("xwiki.plugin.image.cache.capacity");
+        doReturn("1").when(xwiki).Param("xwiki.plugin.image.cache.size");
         doReturn("test").when(xwiki).Param(ArgumentMatchers.eq("xwiki.plugin.image.processorHint"),
             ArgumentMatchers.anyString());
 
-        this.oldCore.getMocker().registerMockComponent(CacheManager.class);
+        this.oldCore.registerMockEnvironment();
+        this.observationManager = this.oldCore.getMocker().registerMockComponent(ObservationManager.class);
 
         this.imageProcessor = this.oldCore.getMocker().registerMockComponent(ImageProcessor.class, "test");
         when(this.imageProcessor.isMimeTypeSupported("image/png")).thenReturn(true);
@@ -130,25 +147,22 @@ public void testDownloadAttachmentWithUnsupportedFileType()
     public void testCacheOfScaledAttachment() throws Exception
     {
         Date date = new Date(0);
+        byte[] thumbnailContent = new byte[] { 1, 2, 3 };
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
 
         XWikiContext xcontext = this.oldCore.getXWikiContext();
 
         XWikiAttachment attachment = mock(XWikiAttachment.class);
         when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        when(attachment.getReference()).thenReturn(new AttachmentReference("image.png", documentReference));
+        when(attachment.getVersion()).thenReturn("1.1");
+        when(attachment.getDate()).thenReturn(date);
         InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
         when(attachment.getContentInputStream(xcontext)).thenReturn(attachmentInputStream);
-        when(attachment.clone()).thenReturn(attachment);
-        when(attachment.getDate()).thenReturn(date);
-
-        XWikiAttachmentContent attachmentContent = mock(XWikiAttachmentContent.class);
-        when(attachment.getAttachment_content()).thenReturn(attachmentContent);
-        when(attachmentContent.getContentInputStream()).thenReturn(attachmentInputStream);
-        OutputStream attachmentOutputStream = mock(OutputStream.class);
-        when(attachmentContent.getContentOutputStream()).thenReturn(attachmentOutputStream);
 
-        CacheManager cacheManager = this.oldCore.getMocker().getInstance(CacheManager.class);
-        Cache<Object> imageCache = mock(Cache.class);
-        when(cacheManager.createNewLocalCache(ArgumentMatchers.any())).thenReturn(imageCache);
+        XWikiAttachment thumbnail = mock(XWikiAttachment.class);
+        when(thumbnail.getFilename()).thenReturn("image.png");
+        when(attachment.clone()).thenReturn(thumbnail);
 
         XWikiServletRequest request = mock(XWikiServletRequest.class);
         when(request.getParameter("width")).thenReturn("30");
@@ -161,16 +175,132 @@ public void testCacheOfScaledAttachment() throws Exception
         when(imageProcessor.readImage(attachmentInputStream)).thenReturn(image);
         RenderedImage renderedImage = mock(RenderedImage.class);
         when(imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(thumbnailContent);
+            return null;
+        }).when(this.imageProcessor).writeImage(eq(renderedImage), eq("image/png"), eq(.5F), any());
 
-        XWikiAttachment scaled = plugin.downloadAttachment(attachment, xcontext);
-
-        String cacheKey = "0;null;0;30;30;false;-1.0";
-        when(imageCache.get(cacheKey)).thenReturn(scaled);
+        assertSame(thumbnail, plugin.downloadAttachment(attachment, xcontext));
 
         // Load again, this time from cache.
-        assertSame(scaled, plugin.downloadAttachment(attachment, xcontext));
+        assertSame(thumbnail, plugin.downloadAttachment(attachment, xcontext));
+
+        verify(imageProcessor, times(1)).writeImage(eq(renderedImage), eq("image/png"), eq(.5F), any());
+
+        // The thumbnail is streamed from the cache
+        ArgumentCaptor<XWikiAttachmentContent> contentCaptor = ArgumentCaptor.forClass(XWikiAttachmentContent.class);
+        verify(thumbnail, times(2)).setAttachment_content(contentCaptor.capture());
+        assertArrayEquals(thumbnailContent, IOUtils.toByteArray(contentCaptor.getValue().getContentInputStream()));
+
+        // The thumbnails are removed from the cache when the attachment is modified
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        verify(this.observationManager).addListener(listenerCaptor.capture());
+        listenerCaptor.getValue().onEvent(new AttachmentUpdatedEvent("wiki:Space.Page", "image.png"),
+            new XWikiDocument(documentReference), xcontext);
+
+        assertSame(thumbnail, plugin.downloadAttachment(attachment, xcontext));
+
+        verify(imageProcessor, times(2)).writeImage(eq(renderedImage), eq("image/png"), eq(.5F), any());
+    }
+
+    private XWikiAttachment mockImage(String version, int width, int height) throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        when(attachment.getReference())
+            .thenReturn(new AttachmentReference("image.png", new DocumentReference("wiki", "Space", "Page")));
+        when(attachment.getVersion()).thenReturn(version);
+        when(attachment.getDate()).thenReturn(new Date(0));
+        when(attachment.getContentInputStream(xcontext)).thenReturn(new ByteArrayInputStream(IMAGE_CONTENT));
+
+        XWikiAttachment thumbnail = mock(XWikiAttachment.class);
+        when(thumbnail.getFilename()).thenReturn("image.png");
+        when(attachment.clone()).thenReturn(thumbnail);
+
+        XWikiServletRequest request = mock(XWikiServletRequest.class);
+        when(request.getParameter("width")).thenReturn("30");
+        when(request.getParameter("height")).thenReturn("30");
+        xcontext.setRequest(request);
+
+        Image image = mock(Image.class);
+        when(image.getWidth(null)).thenReturn(width);
+        when(image.getHeight(null)).thenReturn(height);
+        when(this.imageProcessor.readImage(any())).thenReturn(image);
+        RenderedImage renderedImage = mock(RenderedImage.class);
+        when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(version.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(this.imageProcessor).writeImage(eq(renderedImage), eq("image/png"), eq(.5F), any());
+
+        return attachment;
+    }
+
+    private XWikiAttachmentContent getThumbnailContent(XWikiAttachment attachment)
+    {
+        ArgumentCaptor<XWikiAttachmentContent> contentCaptor = ArgumentCaptor.forClass(XWikiAttachmentContent.class);
+        XWikiAttachment thumbnail = attachment.clone();
+        verify(thumbnail, times(1)).setAttachment_content(contentCaptor.capture());
+
+        return contentCaptor.getValue();
+    }
+
+    @Test
+    public void readThumbnailRemovedFromCache() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+        XWikiAttachment attachment = mockImage("1.1", 400, 300);
+
+        this.plugin.downloadAttachment(attachment, xcontext);
+        XWikiAttachmentContent content = getThumbnailContent(attachment);
+
+        // Remove the thumbnail from the cache before it's sent
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        verify(this.observationManager).addListener(listenerCaptor.capture());
+        listenerCaptor.getValue().onEvent(new AttachmentUpdatedEvent("wiki:Space.Page", "image.png"),
+            new XWikiDocument(attachment.getReference().getDocumentReference()), xcontext);
+
+        // The thumbnail was opened when it was found in the cache so it can still be sent
+        assertArrayEquals("1.1".getBytes(StandardCharsets.UTF_8), IOUtils.toByteArray(content.getContentInputStream()));
+
+        // But it cannot be opened again
+        assertThrows(RuntimeException.class, content::getContentInputStream);
+    }
+
+    @Test
+    public void keepThumbnailsOfOtherVersions() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+        XWikiAttachment attachment = mockImage("1.1", 400, 300);
+        this.plugin.downloadAttachment(attachment, xcontext);
+
+        XWikiAttachment newAttachment = mockImage("1.2", 400, 300);
+        this.plugin.downloadAttachment(newAttachment, xcontext);
+
+        // The thumbnail of the previous version is still in the cache
+        XWikiAttachment previousAttachment = mockImage("1.1", 400, 300);
+        this.plugin.downloadAttachment(previousAttachment, xcontext);
+
+        verify(this.imageProcessor, times(2)).writeImage(any(), eq("image/png"), eq(.5F), any());
+        assertArrayEquals("1.1".getBytes(StandardCharsets.UTF_8),
+            IOUtils.toByteArray(getThumbnailContent(previousAttachment).getContentInputStream()));
+        assertArrayEquals("1.2".getBytes(StandardCharsets.UTF_8),
+            IOUtils.toByteArray(getThumbnailContent(newAttachment).getContentInputStream()));
+    }
+
+    @Test
+    public void cacheImageWhichDoesNotNeedScaling() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+        XWikiAttachment attachment = mockImage("1.1", 20, 20);
+
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
 
-        verify(imageProcessor, times(1)).writeImage(renderedImage, "image/png", .5F, attachmentOutputStream);
-        verify(imageCache, times(1)).set(cacheKey, attachment);
+        // The image is read only once to find out that it doesn't need to be scaled
+        verify(this.imageProcessor, times(1)).readImage(any());
+        verify(this.imageProcessor, never()).writeImage(any(), any(), anyFloat(), any());
     }
 }
@@ -144,7 +144,8 @@ public void consume(MentionsData data) throws XWikiException
                 } else {
                     // UPDATE
                     XWikiDocument oldDoc = this.documentRevisionProvider.getRevision(dr, doc.getPreviousVersion());
-                    handleOnUpdate(oldDoc.getXDOM(), doc.getXDOM(), documentReference, authorReference, DOCUMENT);
+                    handleOnUpdate(oldDoc.getXDOM(), doc.getXDOM(), documentReference,
+                        authorReference, DOCUMENT);
                     traverseXObjectsOnUpdate(oldDoc.getXObjects(), doc.getXObjects(), documentReference,
                         authorReference, syntax);
                 }
@@ -90,4 +90,14 @@ default int getAsyncPoolSize()
     {
         return 2;
     }
+
+    /**
+     * @return the number of threads to use for associating the events with the users listening to them
+     * @since 12.8RC1
+     */
+    @Unstable
+    default int getEventPrefilteringPoolSize()
+    {
+        return 1;
+    }
 }
@@ -84,4 +84,10 @@ public int getAsyncPoolSize()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "async.poolSize", 2);
     }
+
+    @Override
+    public int getEventPrefilteringPoolSize()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "eventPrefilteringPoolSize", 1);
+    }
 }
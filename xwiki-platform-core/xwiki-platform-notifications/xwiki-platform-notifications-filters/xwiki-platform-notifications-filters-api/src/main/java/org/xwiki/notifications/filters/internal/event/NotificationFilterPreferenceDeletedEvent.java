@@ -21,6 +21,14 @@
 
 /**
  * Event generated when a notification filter preference is deleted.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the {@link org.xwiki.model.reference.DocumentReference} of the user owning the filter preference (since
+ * 12.8RC1)</li>
+ * <li>data: null</li>
+ * </ul>
  * 
  * @version $Id$
  * @since 10.11.4
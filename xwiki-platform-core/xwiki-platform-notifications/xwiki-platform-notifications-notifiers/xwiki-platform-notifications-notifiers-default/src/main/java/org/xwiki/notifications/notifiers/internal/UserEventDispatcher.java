@@ -19,15 +19,27 @@
  */
 package org.xwiki.notifications.notifiers.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -67,8 +79,32 @@
 @Singleton
 public class UserEventDispatcher implements Runnable, Disposable, Initializable
 {
+    /**
+     * The maximum number of events being dispatched by the threads at the same time, to not accumulate unbounded
+     * tasks in the threads queues when the dispatch is slower than the production of events.
+     */
+    static final int MAX_PENDING_EVENTS = 100;
+
     private static final Event STOP_EVENT = new DefaultEvent();
 
+    private static final long DISPOSE_TIMEOUT = 10000;
+
+    private static final class UserDispatch
+    {
+        private final DocumentReference user;
+
+        private final boolean alert;
+
+        private final boolean mail;
+
+        UserDispatch(DocumentReference user, boolean alert, boolean mail)
+        {
+            this.user = user;
+            this.alert = alert;
+            this.mail = mail;
+        }
+    }
+
     @Inject
     private UsersCache userCache;
 
@@ -78,6 +114,9 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
     @Inject
     private UserEventManager userEventManager;
 
+    @Inject
+    private UserSubscriptionIndex subscriptionIndex;
+
     @Inject
     private NotificationConfiguration notificationConfiguration;
 
@@ -108,17 +147,38 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
 
     private BlockingQueue<Event> queue;
 
+    private Thread thread;
+
+    private List<ExecutorService> shards;
+
+    private final AtomicInteger pendingEventCount = new AtomicInteger();
+
+    private final Semaphore pendingEvents = new Semaphore(MAX_PENDING_EVENTS);
+
+    private final AtomicLong dispatchedEventCount = new AtomicLong();
+
+    private final AtomicLong dispatchTime = new AtomicLong();
+
     @Override
     public void initialize() throws InitializationException
     {
         this.queue = new LinkedBlockingQueue<>();
 
+        int poolSize = this.notificationConfiguration.getEventPrefilteringPoolSize();
+        if (poolSize > 1) {
+            this.shards = new ArrayList<>(poolSize);
+            for (int i = 0; i < poolSize; ++i) {
+                this.shards.add(Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+                    .namingPattern("User event dispatcher thread " + i).priority(Thread.NORM_PRIORITY - 1).build()));
+            }
+        }
+
         // Start a background thread to filter and dispatch users events
         // Not making it a daemon thread because we don't want to loose events
-        Thread thread = new Thread(this);
-        thread.setName("User event dispatcher thread");
-        thread.setPriority(Thread.NORM_PRIORITY - 1);
-        thread.start();
+        this.thread = new Thread(this);
+        this.thread.setName("User event dispatcher thread");
+        this.thread.setPriority(Thread.NORM_PRIORITY - 1);
+        this.thread.start();
     }
 
     @Override
@@ -126,6 +186,22 @@ public void dispose() throws ComponentLifecycleException
     {
         try {
             addEvent(STOP_EVENT);
+
+            // Wait for the dispatch of the events already in the queue, but not more than 10s in case it's stuck for
+            // some reason
+            this.thread.join(DISPOSE_TIMEOUT);
+
+            if (this.shards != null) {
+                // Finish the dispatch of the events already sent to the threads
+                this.shards.forEach(ExecutorService::shutdown);
+                for (ExecutorService shard : this.shards) {
+                    if (!shard.awaitTermination(DISPOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        this.logger.warn("The user event dispatcher threads did not finish their work in time");
+
+                        break;
+                    }
+                }
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
 
@@ -133,6 +209,37 @@ public void dispose() throws ComponentLifecycleException
         }
     }
 
+    /**
+     * @return the number of events waiting to be dispatched
+     * @since 12.8RC1
+     */
+    public int getQueueSize()
+    {
+        BlockingQueue<Event> currentQueue = this.queue;
+
+        return (currentQueue != null ? currentQueue.size() : 0) + this.pendingEventCount.get();
+    }
+
+    /**
+     * @return the number of events dispatched since the dispatcher was initialized
+     * @since 12.8RC1
+     */
+    public long getDispatchedEventCount()
+    {
+        return this.dispatchedEventCount.get();
+    }
+
+    /**
+     * @return the average time spent dispatching an event, in milliseconds
+     * @since 12.8RC1
+     */
+    public long getAverageDispatchLatency()
+    {
+        long count = this.dispatchedEventCount.get();
+
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(this.dispatchTime.get() / count) : 0;
+    }
+
     /**
      * @param event the event to dispatch
      * @throws InterruptedException if interrupted while waiting
@@ -162,6 +269,7 @@ public void run()
 
                     try {
                         if (event == STOP_EVENT) {
+                            // The threads are stopped by dispose()
                             this.queue = null;
 
                             return;
@@ -182,51 +290,160 @@ public void run()
         }
     }
 
-    private void dispatch(Event event)
+    private void dispatch(Event event) throws InterruptedException
     {
         WikiReference eventWiki = event.getWiki();
 
+        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
+
+        List<UserDispatch> userDispatches = new ArrayList<>();
+
         if (CollectionUtils.isNotEmpty(event.getTarget())) {
             // The event explicitly indicate with which entities to associated it
 
-            boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
             event.getTarget().forEach(entity -> {
                 DocumentReference entityReference = this.resolver.resolve(entity, event.getWiki());
                 UserReference userReference = this.documentReferenceUserReferenceResolver.resolve(entityReference);
 
                 if (this.userManager.exists(userReference)) {
-                    dispatch(event, entityReference, mailEnabled);
+                    userDispatches.add(new UserDispatch(entityReference, true, mailEnabled));
                 } else {
                     // Also recursively associate the members of the entity if it's a group
                     try {
                         this.groupManager.getMembers(entityReference, true).forEach(userDocumentReference -> {
-                            dispatch(event, userDocumentReference, mailEnabled);
+                            userDispatches.add(new UserDispatch(userDocumentReference, true, mailEnabled));
                         });
                     } catch (GroupException e) {
                         this.logger.warn("Failed to get the member of the entity [{}]: {}", entity,
                             ExceptionUtils.getRootCauseMessage(e));
                     }
                 }
-                // Remember we are done pre filtering this event
-                this.events.prefilterEvent(event);
             });
         } else {
             // Try to find users listening to this event
 
             // Associated event with event's wiki users
-            dispatch(event, this.userCache.getUsers(eventWiki, true));
+            addCandidates(event, this.userCache.getUsers(eventWiki, true), mailEnabled, userDispatches);
 
             // Also take into account global users (main wiki users) if the event is on a subwiki
             if (!this.wikiManager.isMainWiki(eventWiki.getName())) {
-                dispatch(event, this.userCache.getUsers(new WikiReference(this.wikiManager.getMainWikiId()), true));
+                addCandidates(event, this.userCache.getUsers(new WikiReference(this.wikiManager.getMainWikiId()), true),
+                    mailEnabled, userDispatches);
+            }
+        }
+
+        dispatch(event, userDispatches);
+    }
+
+    private void addCandidates(Event event, List<DocumentReference> users, boolean mailEnabled,
+        List<UserDispatch> userDispatches)
+    {
+        // Only evaluate the users which subscribed to the event type or follow the user who triggered the event
+        this.subscriptionIndex.index(users);
+        Set<DocumentReference> alertCandidates =
+            this.subscriptionIndex.getCandidates(event, NotificationFormat.ALERT, users);
+        Set<DocumentReference> mailCandidates = mailEnabled
+            ? this.subscriptionIndex.getCandidates(event, NotificationFormat.EMAIL, users) : Collections.emptySet();
+
+        for (DocumentReference user : users) {
+            boolean alertCandidate = alertCandidates.contains(user);
+            boolean mailCandidate = mailCandidates.contains(user);
+
+            if (alertCandidate || mailCandidate) {
+                userDispatches.add(new UserDispatch(user, alertCandidate, mailCandidate));
             }
         }
     }
 
-    private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
+    private void dispatch(Event event, List<UserDispatch> userDispatches) throws InterruptedException
     {
+        long start = System.nanoTime();
+
+        if (this.shards == null) {
+            dispatchUsers(event, userDispatches);
+
+            dispatched(event, start);
+        } else {
+            // Share the users between the threads, always using the same thread for a given user so that its events are
+            // handled in order
+            List<List<UserDispatch>> shardDispatches = new ArrayList<>(this.shards.size());
+            for (int i = 0; i < this.shards.size(); ++i) {
+                shardDispatches.add(new ArrayList<>());
+            }
+            for (UserDispatch userDispatch : userDispatches) {
+                shardDispatches.get(Math.floorMod(userDispatch.user.hashCode(), this.shards.size())).add(userDispatch);
+            }
+
+            // Wait for the threads to catch up when too many events are already being dispatched
+            this.pendingEventCount.incrementAndGet();
+            try {
+                this.pendingEvents.acquire();
+            } catch (InterruptedException e) {
+                this.pendingEventCount.decrementAndGet();
+
+                throw e;
+            }
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>(this.shards.size());
+            for (int i = 0; i < this.shards.size(); ++i) {
+                List<UserDispatch> shardDispatch = shardDispatches.get(i);
+                if (!shardDispatch.isEmpty()) {
+                    futures.add(CompletableFuture.runAsync(
+                        () -> runInContext(event, () -> dispatchUsers(event, shardDispatch)), this.shards.get(i)));
+                }
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((result, e) -> {
+                this.pendingEventCount.decrementAndGet();
+                this.pendingEvents.release();
+
+                if (e != null) {
+                    this.logger.error("Failed to dispatch event [{}]", event.getId(), e);
+                } else {
+                    runInContext(event, () -> dispatched(event, start));
+                }
+            });
+        }
+    }
+
+    private void dispatchUsers(Event event, List<UserDispatch> userDispatches)
+    {
+        for (UserDispatch userDispatch : userDispatches) {
+            dispatch(event, userDispatch);
+        }
+    }
+
+    private void runInContext(Event event, Runnable runnable)
+    {
+        try {
+            this.ecm.pushContext(new ExecutionContext(), false);
+        } catch (ExecutionContextException e) {
+            throw new CompletionException(
+                String.format("Failed to push a new execution context for event [%s]", event.getId()), e);
+        }
+
+        try {
+            runnable.run();
+        } finally {
+            this.ecm.popContext();
+        }
+    }
+
+    private void dispatched(Event event, long start)
+    {
+        // Remember we are done pre filtering this event
+        this.events.prefilterEvent(event);
+
+        this.dispatchTime.addAndGet(System.nanoTime() - start);
+        this.dispatchedEventCount.incrementAndGet();
+    }
+
+    private void dispatch(Event event, UserDispatch userDispatch)
+    {
+        DocumentReference user = userDispatch.user;
+
         // Make sure the user asked to be alerted about this event
-        if (this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
+        if (userDispatch.alert && this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
             // Associate the event with the user
             String userId = this.entityReferenceSerializer.serialize(user);
             saveEventStatus(event, userId);
@@ -234,25 +451,13 @@ private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
 
         // Make sure the notification module is allowed to send mails
         // Make sure the user asked to receive mails about this event
-        if (mailEnabled && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
+        if (userDispatch.mail && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
             // Associate the event with the user
             String userId = this.entityReferenceSerializer.serialize(user);
             saveMailEntityEvent(event, userId);
         }
     }
 
-    private void dispatch(Event event, List<DocumentReference> users)
-    {
-        boolean mailEnabled = this.notificationConfiguration.areEmailsEnabled();
-
-        for (DocumentReference user : users) {
-            dispatch(event, user, mailEnabled);
-        }
-
-        // Remember we are done pre filtering this event
-        this.events.prefilterEvent(event);
-    }
-
     private void saveEventStatus(Event event, String entityId)
     {
         this.events.saveEventStatus(new DefaultEventStatus(event, entityId, false));
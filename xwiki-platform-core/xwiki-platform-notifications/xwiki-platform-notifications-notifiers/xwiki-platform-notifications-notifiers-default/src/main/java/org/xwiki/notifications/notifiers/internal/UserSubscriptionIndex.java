@@ -0,0 +1,310 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+
+/**
+ * Inverted index of the users subscriptions (the event types they enabled and the users they follow for each
+ * notification format) used to find the users which might be listening to an event without evaluating the preferences
+ * of each user of the wiki.
+ * <p>
+ * The index is only a pre-selection: {@link UserEventManager#isListening(Event, DocumentReference, NotificationFormat)}
+ * is still the reference for the candidates. Users are indexed the first time they are asked for and removed from the
+ * index when their preferences are modified (see {@link UserSubscriptionIndexInvalidator}).
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = UserSubscriptionIndex.class)
+@Singleton
+public class UserSubscriptionIndex
+{
+    @Inject
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @Inject
+    private NotificationFilterPreferenceManager notificationFilterPreferenceManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The subscriptions of each indexed user.
+     */
+    private final Map<DocumentReference, Set<SubscriptionKey>> users = new HashMap<>();
+
+    /**
+     * The users associated to each subscription.
+     */
+    private final Map<SubscriptionKey, Set<DocumentReference>> subscribers = new HashMap<>();
+
+    /**
+     * Incremented each time the index is invalidated, so that the subscriptions loaded before an invalidation are not
+     * added to the index.
+     */
+    private long generation;
+
+    private static final class SubscriptionKey
+    {
+        private final NotificationFormat format;
+
+        /**
+         * The type of the event (a {@link String}) or the user triggering the event (a {@link DocumentReference}).
+         */
+        private final Object target;
+
+        SubscriptionKey(NotificationFormat format, Object target)
+        {
+            this.format = format;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == this) {
+                return true;
+            }
+
+            if (obj instanceof SubscriptionKey) {
+                SubscriptionKey otherKey = (SubscriptionKey) obj;
+
+                return this.format == otherKey.format && Objects.equals(this.target, otherKey.target);
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.format, this.target);
+        }
+    }
+
+    /**
+     * Make sure the passed users are indexed.
+     *
+     * @param userReferences the users to index
+     */
+    public void index(Collection<DocumentReference> userReferences)
+    {
+        for (DocumentReference user : userReferences) {
+            index(user);
+        }
+    }
+
+    private void index(DocumentReference user)
+    {
+        long userGeneration;
+        synchronized (this) {
+            if (this.users.containsKey(user)) {
+                return;
+            }
+
+            userGeneration = this.generation;
+        }
+
+        // Load the preferences outside of the lock, it can take some time and should not block the invalidations
+        Set<SubscriptionKey> keys = getSubscriptions(user);
+
+        if (keys != null) {
+            synchronized (this) {
+                // The preferences of the user might have been modified while being loaded
+                if (this.generation == userGeneration && !this.users.containsKey(user)) {
+                    this.users.put(user, keys);
+                    for (SubscriptionKey key : keys) {
+                        this.subscribers.computeIfAbsent(key, k -> new HashSet<>()).add(user);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param user the reference of the user
+     * @return the subscriptions of the user, {@code null} if they cannot be loaded
+     */
+    private Set<SubscriptionKey> getSubscriptions(DocumentReference user)
+    {
+        Set<SubscriptionKey> keys = new HashSet<>();
+
+        // Event types (only the first preference matching a format and a type is taken into account, see
+        // UserEventManager#hasCorrespondingNotificationPreference)
+        try {
+            Set<SubscriptionKey> found = new HashSet<>();
+            for (NotificationPreference preference : this.notificationPreferenceManager.getAllPreferences(user)) {
+                Object eventType = preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE);
+                if (eventType != null) {
+                    SubscriptionKey key = new SubscriptionKey(preference.getFormat(), eventType);
+                    if (found.add(key) && preference.isNotificationEnabled()) {
+                        keys.add(key);
+                    }
+                }
+            }
+        } catch (NotificationException e) {
+            this.logger.warn("Unable to retrieve the notifications preferences of [{}]: {}", user,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            // Don't index the user, it will be fully evaluated
+            return null;
+        }
+
+        // Followed users (see UserEventManager#isTriggeredByAFollowedUser)
+        try {
+            for (NotificationFilterPreference filterPreference : this.notificationFilterPreferenceManager
+                .getFilterPreferences(user)) {
+                if (isFollowedUserPreference(filterPreference)) {
+                    DocumentReference followedUser = this.referenceResolver.resolve(filterPreference.getUser());
+                    for (NotificationFormat format : filterPreference.getNotificationFormats()) {
+                        keys.add(new SubscriptionKey(format, followedUser));
+                    }
+                }
+            }
+        } catch (NotificationException e) {
+            this.logger.warn("Unable to retrieve the notifications filter preferences of [{}]: {}", user,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            // Don't index the user, it will be fully evaluated
+            return null;
+        }
+
+        return keys;
+    }
+
+    private boolean isFollowedUserPreference(NotificationFilterPreference filterPreference)
+    {
+        return filterPreference.isEnabled() && EventUserFilter.FILTER_NAME.equals(filterPreference.getFilterName())
+            && filterPreference.getFilterType() == NotificationFilterType.INCLUSIVE
+            && filterPreference.getEventTypes().isEmpty() && filterPreference.getUser() != null;
+    }
+
+    /**
+     * @param event the event
+     * @param format the format of the notification
+     * @param userReferences the users to filter
+     * @return the passed users which might be listening to the passed event in the passed format (users which are not
+     *         indexed are always part of the result)
+     */
+    public synchronized Set<DocumentReference> getCandidates(Event event, NotificationFormat format,
+        Collection<DocumentReference> userReferences)
+    {
+        Set<DocumentReference> subscribedUsers = new HashSet<>();
+        if (event.getType() != null) {
+            addSubscribers(new SubscriptionKey(format, event.getType()), subscribedUsers);
+        }
+        if (event.getUser() != null) {
+            addSubscribers(new SubscriptionKey(format, event.getUser()), subscribedUsers);
+        }
+
+        Set<DocumentReference> candidates = new HashSet<>();
+        for (DocumentReference user : userReferences) {
+            if (subscribedUsers.contains(user) || !this.users.containsKey(user)) {
+                candidates.add(user);
+            }
+        }
+
+        return candidates;
+    }
+
+    private void addSubscribers(SubscriptionKey key, Set<DocumentReference> candidates)
+    {
+        Set<DocumentReference> keySubscribers = this.subscribers.get(key);
+        if (keySubscribers != null) {
+            candidates.addAll(keySubscribers);
+        }
+    }
+
+    /**
+     * Remove the passed user from the index.
+     *
+     * @param user the reference of the user
+     */
+    public synchronized void invalidateUser(DocumentReference user)
+    {
+        this.generation++;
+
+        Set<SubscriptionKey> keys = this.users.remove(user);
+        if (keys != null) {
+            for (SubscriptionKey key : keys) {
+                Set<DocumentReference> keySubscribers = this.subscribers.get(key);
+                if (keySubscribers != null) {
+                    keySubscribers.remove(user);
+                    if (keySubscribers.isEmpty()) {
+                        this.subscribers.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the users of the passed wiki from the index.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public synchronized void invalidateWiki(String wiki)
+    {
+        this.generation++;
+
+        this.users.keySet().stream().filter(user -> user.getWikiReference().getName().equals(wiki))
+            .collect(Collectors.toList()).forEach(this::invalidateUser);
+    }
+
+    /**
+     * Empty the index.
+     */
+    public synchronized void invalidate()
+    {
+        this.generation++;
+
+        this.users.clear();
+        this.subscribers.clear();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.UserManager;
+import org.xwiki.user.UserReference;
+import org.xwiki.user.UserReferenceResolver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserEventDispatcher}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class UserEventDispatcherTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    @InjectMockComponents
+    private UserEventDispatcher dispatcher;
+
+    @MockComponent
+    private NotificationConfiguration notificationConfiguration;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    @Named("document")
+    private UserReferenceResolver<DocumentReference> documentReferenceUserReferenceResolver;
+
+    @MockComponent
+    private UserManager userManager;
+
+    @MockComponent
+    private UserEventManager userEventManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> entityReferenceSerializer;
+
+    @MockComponent
+    private EventStore events;
+
+    private final Map<String, List<String>> userEvents = new HashMap<>();
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.notificationConfiguration.getEventPrefilteringPoolSize()).thenReturn(4);
+
+        when(this.resolver.resolve(anyString(), any())).then(invocation -> new DocumentReference(
+            ((WikiReference) invocation.getArgument(1)).getName(), "XWiki", invocation.getArgument(0)));
+        when(this.documentReferenceUserReferenceResolver.resolve(any())).thenReturn(mock(UserReference.class));
+        when(this.userManager.exists(any())).thenReturn(true);
+        when(this.entityReferenceSerializer.serialize(any()))
+            .then(invocation -> ((DocumentReference) invocation.getArgument(0)).getName());
+
+        when(this.events.saveEventStatus(any())).then(invocation -> {
+            EventStatus status = invocation.getArgument(0);
+            synchronized (this.userEvents) {
+                this.userEvents.computeIfAbsent(status.getEntityId(), key -> new ArrayList<>())
+                    .add(status.getEvent().getId());
+            }
+
+            return null;
+        });
+    }
+
+    private DefaultEvent event(String id, String... targets)
+    {
+        DefaultEvent event = new DefaultEvent();
+        event.setId(id);
+        event.setWiki(WIKI);
+        event.setTarget(new LinkedHashSet<>(Arrays.asList(targets)));
+
+        return event;
+    }
+
+    @Test
+    void dispatchKeepsUserOrder() throws Exception
+    {
+        // Make the evaluation of some users slower to give a chance to the other threads to move forward
+        when(this.userEventManager.isListening(any(), any(), eq(NotificationFormat.ALERT))).then(invocation -> {
+            if (((DocumentReference) invocation.getArgument(1)).getName().endsWith("0")) {
+                Thread.sleep(1);
+            }
+
+            return true;
+        });
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            String id = "event" + i;
+            this.dispatcher.addEvent(event(id, "user0", "user1", "user2", "user3", "user4", "user5", "user10"));
+            expected.add(id);
+        }
+
+        verify(this.events, timeout(10000).times(50)).prefilterEvent(any());
+
+        assertEquals(7, this.userEvents.size());
+        this.userEvents.values().forEach(ids -> assertEquals(expected, ids));
+        assertEquals(0, this.dispatcher.getQueueSize());
+    }
+
+    @Test
+    void dispatchBoundsPendingEvents() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        when(this.userEventManager.isListening(any(), any(), eq(NotificationFormat.ALERT))).then(invocation -> {
+            latch.await(10, TimeUnit.SECONDS);
+
+            return true;
+        });
+
+        int count = UserEventDispatcher.MAX_PENDING_EVENTS + 10;
+        for (int i = 0; i < count; ++i) {
+            this.dispatcher.addEvent(event("event" + i, "user"));
+        }
+
+        // The dispatcher thread stops taking events when too many are waiting for the blocked threads
+        verify(this.resolver, timeout(10000).times(UserEventDispatcher.MAX_PENDING_EVENTS + 1)).resolve(anyString(),
+            any());
+        Thread.sleep(100);
+        verify(this.resolver, times(UserEventDispatcher.MAX_PENDING_EVENTS + 1)).resolve(anyString(), any());
+        assertEquals(count, this.dispatcher.getQueueSize());
+
+        latch.countDown();
+
+        verify(this.events, timeout(10000).times(count)).prefilterEvent(any());
+        assertEquals(Collections.singleton("user"), this.userEvents.keySet());
+        assertEquals(0, this.dispatcher.getQueueSize());
+    }
+
+    @Test
+    void disposeWaitsForThreads() throws Exception
+    {
+        CountDownLatch dispatching = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        when(this.userEventManager.isListening(any(), any(), eq(NotificationFormat.ALERT))).then(invocation -> {
+            dispatching.countDown();
+            latch.await(10, TimeUnit.SECONDS);
+
+            return true;
+        });
+
+        this.dispatcher.addEvent(event("event", "user"));
+        assertTrue(dispatching.await(10, TimeUnit.SECONDS));
+
+        // Release the dispatch thread only after a while so that dispose() has to wait for it
+        CompletableFuture<Void> release = CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latch.countDown();
+        });
+
+        this.dispatcher.dispose();
+
+        verify(this.events).prefilterEvent(any());
+        assertEquals(Collections.singletonList("event"), this.userEvents.get("user"));
+        release.join();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.user.EventUserFilter;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserSubscriptionIndex}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class UserSubscriptionIndexTest
+{
+    private static final DocumentReference USER1 = new DocumentReference("wiki", "XWiki", "user1");
+
+    private static final DocumentReference USER2 = new DocumentReference("wiki", "XWiki", "user2");
+
+    private static final DocumentReference USER3 = new DocumentReference("wiki", "XWiki", "user3");
+
+    private static final List<DocumentReference> USERS = Arrays.asList(USER1, USER2, USER3);
+
+    private static final long TIMEOUT = 10;
+
+    @InjectMockComponents
+    private UserSubscriptionIndex index;
+
+    @MockComponent
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @MockComponent
+    private NotificationFilterPreferenceManager notificationFilterPreferenceManager;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> referenceResolver;
+
+    private NotificationPreference mockPreference(String eventType, NotificationFormat format, boolean enabled)
+    {
+        NotificationPreference preference = mock(NotificationPreference.class);
+        when(preference.getFormat()).thenReturn(format);
+        when(preference.isNotificationEnabled()).thenReturn(enabled);
+        when(preference.getProperties())
+            .thenReturn(Collections.singletonMap(NotificationPreferenceProperty.EVENT_TYPE, eventType));
+
+        return preference;
+    }
+
+    private NotificationFilterPreference mockFollowPreference(String followedUser, NotificationFormat format)
+    {
+        NotificationFilterPreference preference = mock(NotificationFilterPreference.class);
+        when(preference.isEnabled()).thenReturn(true);
+        when(preference.getFilterName()).thenReturn(EventUserFilter.FILTER_NAME);
+        when(preference.getFilterType()).thenReturn(NotificationFilterType.INCLUSIVE);
+        when(preference.getEventTypes()).thenReturn(Collections.emptySet());
+        when(preference.getNotificationFormats()).thenReturn(Collections.singleton(format));
+        when(preference.getUser()).thenReturn(followedUser);
+
+        return preference;
+    }
+
+    private DefaultEvent event(String type, DocumentReference user)
+    {
+        DefaultEvent event = new DefaultEvent();
+        event.setType(type);
+        event.setUser(user);
+
+        return event;
+    }
+
+    @Test
+    void getCandidates() throws NotificationException
+    {
+        when(this.notificationPreferenceManager.getAllPreferences(USER1)).thenReturn(
+            Arrays.asList(mockPreference("update", NotificationFormat.ALERT, true),
+                mockPreference("update", NotificationFormat.EMAIL, false),
+                mockPreference("update", NotificationFormat.EMAIL, true)));
+        when(this.notificationPreferenceManager.getAllPreferences(USER2))
+            .thenReturn(Arrays.asList(mockPreference("create", NotificationFormat.ALERT, true)));
+        when(this.notificationFilterPreferenceManager.getFilterPreferences(USER2))
+            .thenReturn(Arrays.asList(mockFollowPreference("wiki:XWiki.user3", NotificationFormat.ALERT)));
+        when(this.referenceResolver.resolve("wiki:XWiki.user3")).thenReturn(USER3);
+
+        this.index.index(USERS);
+
+        assertEquals(new HashSet<>(Arrays.asList(USER1)),
+            this.index.getCandidates(event("update", USER1), NotificationFormat.ALERT, USERS));
+        // Only the first preference matters
+        assertEquals(Collections.emptySet(),
+            this.index.getCandidates(event("update", USER1), NotificationFormat.EMAIL, USERS));
+        assertEquals(new HashSet<>(Arrays.asList(USER1, USER2)),
+            this.index.getCandidates(event("update", USER3), NotificationFormat.ALERT, USERS));
+        assertEquals(Collections.emptySet(),
+            this.index.getCandidates(event("delete", USER1), NotificationFormat.ALERT, USERS));
+
+        // Invalidated users are always candidates until they are indexed again
+        this.index.invalidateUser(USER1);
+
+        assertEquals(new HashSet<>(Arrays.asList(USER1)),
+            this.index.getCandidates(event("delete", USER2), NotificationFormat.ALERT, USERS));
+
+        when(this.notificationPreferenceManager.getAllPreferences(USER1))
+            .thenReturn(Arrays.asList(mockPreference("delete", NotificationFormat.ALERT, true)));
+
+        this.index.index(USERS);
+
+        assertEquals(new HashSet<>(Arrays.asList(USER1)),
+            this.index.getCandidates(event("delete", USER2), NotificationFormat.ALERT, USERS));
+        assertEquals(Collections.emptySet(),
+            this.index.getCandidates(event("update", USER2), NotificationFormat.ALERT, USERS));
+    }
+
+    @Test
+    void getCandidatesWhenPreferencesCannotBeLoaded() throws NotificationException
+    {
+        when(this.notificationPreferenceManager.getAllPreferences(USER1)).thenThrow(new NotificationException(""));
+
+        this.index.index(USERS);
+
+        assertEquals(new HashSet<>(Arrays.asList(USER1)),
+            this.index.getCandidates(event("update", USER2), NotificationFormat.ALERT, USERS));
+    }
+
+    @Test
+    void invalidateUserWhileIndexing() throws Exception
+    {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        when(this.notificationPreferenceManager.getAllPreferences(USER1)).then(invocation -> {
+            loading.countDown();
+            released.await(TIMEOUT, TimeUnit.SECONDS);
+
+            return Arrays.asList(mockPreference("update", NotificationFormat.ALERT, true));
+        });
+
+        CompletableFuture<Void> indexing = CompletableFuture.runAsync(() -> this.index.index(USERS));
+        assertTrue(loading.await(TIMEOUT, TimeUnit.SECONDS));
+
+        // The invalidation is not blocked by the loading of the preferences
+        CompletableFuture.runAsync(() -> this.index.invalidateUser(USER1)).get(TIMEOUT, TimeUnit.SECONDS);
+
+        released.countDown();
+        indexing.get(TIMEOUT, TimeUnit.SECONDS);
+
+        // The preferences loaded before the invalidation are not indexed
+        assertEquals(new HashSet<>(Arrays.asList(USER1)),
+            this.index.getCandidates(event("delete", USER2), NotificationFormat.ALERT, USERS));
+    }
+}
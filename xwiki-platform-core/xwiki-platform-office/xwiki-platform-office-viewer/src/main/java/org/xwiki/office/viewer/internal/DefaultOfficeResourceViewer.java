@@ -29,11 +29,13 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jodconverter.document.DocumentFamily;
@@ -50,6 +52,7 @@
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.AttachmentReferenceResolver;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.office.viewer.OfficeResourceViewer;
 import org.xwiki.officeimporter.builder.PresentationBuilder;
@@ -133,6 +136,12 @@ public class DefaultOfficeResourceViewer implements OfficeResourceViewer, Initia
      */
     private Cache<OfficeDocumentView> externalCache;
 
+    /**
+     * Attachment based office document conversion results kept on disk.
+     */
+    @Inject
+    private OfficeDocumentViewStore viewStore;
+
     /**
      * Used to build XDOM documents from office documents.
      */
@@ -338,6 +347,7 @@ private OfficeDocumentView getView(ResourceReference reference, AttachmentRefere
             if (view != null) {
                 this.attachmentCache.remove(cacheKey);
             }
+            this.viewStore.remove(attachmentReference);
             throw new Exception(String.format("Attachment [%s] does not exist.", attachmentReference));
         }
 
@@ -351,8 +361,17 @@ private OfficeDocumentView getView(ResourceReference reference, AttachmentRefere
 
         // If a view in not available, build one and cache it.
         if (view == null) {
-            XDOMOfficeDocument xdomOfficeDocument = createXDOM(attachmentReference, parameters);
-            String attachmentVersion = this.documentAccessBridge.getAttachmentVersion(attachmentReference);
+            // Avoid converting again an attachment version which has already been converted. The version alone is not
+            // enough since it starts again from the first version when an attachment with the same name is uploaded
+            // after a deletion.
+            String storeKey = getStoreKey(attachmentReference, parameters);
+            String storeVersion = currentVersion + '/' + getContentHash(attachmentReference);
+            XDOMOfficeDocument xdomOfficeDocument = this.viewStore.get(attachmentReference, storeKey, storeVersion);
+            if (xdomOfficeDocument == null) {
+                xdomOfficeDocument = createXDOM(attachmentReference, parameters);
+                // Store the conversion result before the image references are modified.
+                this.viewStore.set(attachmentReference, storeKey, storeVersion, xdomOfficeDocument);
+            }
             XDOM xdom = xdomOfficeDocument.getContentDocument();
             // We use only the file name from the resource reference because the rest of the information is specified by
             // the owner document reference. This way we ensure the path to the temporary files doesn't contain
@@ -360,7 +379,7 @@ private OfficeDocumentView getView(ResourceReference reference, AttachmentRefere
             // on some environments).
             Set<File> temporaryFiles = processImages(xdom, xdomOfficeDocument.getArtifacts(),
                 attachmentReference.getDocumentReference(), attachmentReference.getName(), parameters);
-            view = new AttachmentOfficeDocumentView(reference, attachmentReference, attachmentVersion, xdom,
+            view = new AttachmentOfficeDocumentView(reference, attachmentReference, currentVersion, xdom,
                 temporaryFiles);
 
             this.attachmentCache.set(cacheKey, view);
@@ -417,6 +436,30 @@ private String getCacheKey(DocumentReference ownerDocument, String resource, Map
         return this.serializer.serialize(ownerDocument) + '/' + resource + '/' + parameters.hashCode();
     }
 
+    /**
+     * Unlike the cache key, the store key must not depend on the hash code of the parameters since it's used after a
+     * restart.
+     */
+    private String getContentHash(AttachmentReference attachmentReference) throws Exception
+    {
+        try (InputStream content = this.documentAccessBridge.getAttachmentContent(attachmentReference)) {
+            return DigestUtils.sha256Hex(content);
+        }
+    }
+
+    private String getStoreKey(AttachmentReference attachmentReference, Map<String, ?> parameters)
+    {
+        StringBuilder key = new StringBuilder(this.serializer.serialize(attachmentReference));
+        for (Map.Entry<String, ?> parameter : new TreeMap<>(parameters).entrySet()) {
+            Object value = parameter.getValue();
+            key.append('/').append(parameter.getKey()).append('=');
+            key.append(value instanceof EntityReference ? this.serializer.serialize((EntityReference) value)
+                : String.valueOf(value));
+        }
+
+        return key.toString();
+    }
+
     private DocumentReference getOwnerDocument(Map<String, ?> parameters)
     {
         DocumentReference ownerDocument =
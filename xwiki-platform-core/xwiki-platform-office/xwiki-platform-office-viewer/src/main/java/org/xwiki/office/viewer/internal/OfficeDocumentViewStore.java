@@ -0,0 +1,476 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.office.viewer.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.officeimporter.document.XDOMOfficeDocument;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Store on disk (in the permanent directory) the result of the conversion of the office attachments so that the same
+ * attachment version is not converted again by the office server after a restart or after its view has been evicted
+ * from the memory cache.
+ * <p>
+ * Each entry contains the {@link XDOM} (serialized in the {@code xdom+xml} syntax) and the artifacts (the extracted
+ * images) produced by the conversion. The entries are grouped by wiki, document and attachment so that they can be
+ * removed when the attachment, the document or the wiki is deleted (see {@link OfficeDocumentViewStoreListener}). When
+ * the total size of the stored entries exceeds the configured limit, the least recently used entries are removed.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = OfficeDocumentViewStore.class)
+@Singleton
+public class OfficeDocumentViewStore implements Initializable
+{
+    private static final String VERSION_FILE = "version.txt";
+
+    private static final String XDOM_FILE = "view.xml";
+
+    private static final String ARTIFACTS_DIRECTORY = "artifacts";
+
+    private static final long MB = 1024L * 1024L;
+
+    private static final int ENTRY_DEPTH = 4;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Logger logger;
+
+    private File directory;
+
+    private File temporaryDirectory;
+
+    private long maxSize;
+
+    private long size;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.maxSize = this.configuration.getProperty("officeviewer.store.maxSize", 500L) * MB;
+
+        if (this.maxSize > 0) {
+            File rootDirectory = new File(this.environment.getPermanentDirectory(), "cache/officeviewer");
+            this.directory = new File(rootDirectory, "views");
+            this.temporaryDirectory = new File(rootDirectory, "tmp");
+
+            try {
+                FileUtils.forceMkdir(this.directory);
+                // Cleanup the entries which were being written when XWiki was stopped
+                FileUtils.deleteDirectory(this.temporaryDirectory);
+                FileUtils.forceMkdir(this.temporaryDirectory);
+            } catch (IOException e) {
+                throw new InitializationException(
+                    String.format("Failed to create the office views directory [%s]", rootDirectory), e);
+            }
+
+            this.size = FileUtils.sizeOfDirectory(this.directory);
+        }
+    }
+
+    /**
+     * @param attachmentReference the converted attachment
+     * @param key the identifier of the view (resource and view parameters)
+     * @param version the expected version of the resource, including the hash of its content since the version of a
+     *            new attachment with the same name starts again from the first version
+     * @return the stored conversion result, {@code null} if none is stored for the passed version
+     */
+    public XDOMOfficeDocument get(AttachmentReference attachmentReference, String key, String version)
+    {
+        if (this.directory == null) {
+            return null;
+        }
+
+        File entryDirectory = getEntryDirectory(attachmentReference, key);
+
+        synchronized (this) {
+            if (!entryDirectory.isDirectory()) {
+                return null;
+            }
+
+            if (!version.equals(getVersion(entryDirectory))) {
+                // The resource has been modified
+                removeEntry(entryDirectory);
+
+                return null;
+            }
+
+            // Remember that the entry has been used recently
+            entryDirectory.setLastModified(System.currentTimeMillis());
+        }
+
+        // Read outside of the lock, the conversion result can be big. A removed entry is moved away at once so the
+        // read fails if the entry is removed or replaced meanwhile.
+        try {
+            return read(entryDirectory);
+        } catch (Exception e) {
+            synchronized (this) {
+                // Don't remove an entry which has been replaced or was already removed while being read
+                if (version.equals(getVersion(entryDirectory))) {
+                    this.logger.warn("Failed to read the stored office view [{}]: {}", key,
+                        ExceptionUtils.getRootCauseMessage(e));
+
+                    removeEntry(entryDirectory);
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * @param attachmentReference the converted attachment
+     * @param key the identifier of the view (resource and view parameters)
+     * @param version the version of the resource, including the hash of its content
+     * @param document the result of the conversion of the resource
+     */
+    public void set(AttachmentReference attachmentReference, String key, String version, XDOMOfficeDocument document)
+    {
+        if (this.directory == null) {
+            return;
+        }
+
+        File entryDirectory = getEntryDirectory(attachmentReference, key);
+        File temporaryEntryDirectory =
+            new File(this.temporaryDirectory, entryDirectory.getName() + RandomStringUtils.randomAlphanumeric(8));
+
+        try {
+            // Write outside of the lock, the conversion result can be big
+            write(version, document, temporaryEntryDirectory);
+
+            synchronized (this) {
+                removeEntry(entryDirectory);
+
+                FileUtils.forceMkdirParent(entryDirectory);
+                Files.move(temporaryEntryDirectory.toPath(), entryDirectory.toPath());
+                this.size += FileUtils.sizeOfDirectory(entryDirectory);
+
+                evict();
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to store the office view [{}]: {}", key, ExceptionUtils.getRootCauseMessage(e));
+
+            FileUtils.deleteQuietly(temporaryEntryDirectory);
+        }
+    }
+
+    /**
+     * Remove all the stored views of an attachment.
+     *
+     * @param attachmentReference the attachment
+     */
+    public void remove(AttachmentReference attachmentReference)
+    {
+        if (this.directory != null) {
+            synchronized (this) {
+                removeEntry(getAttachmentDirectory(attachmentReference));
+            }
+        }
+    }
+
+    /**
+     * Remove all the stored views of the attachments of a document.
+     *
+     * @param documentReference the document
+     */
+    public void remove(DocumentReference documentReference)
+    {
+        if (this.directory != null) {
+            synchronized (this) {
+                removeEntry(getDocumentDirectory(documentReference));
+            }
+        }
+    }
+
+    /**
+     * Remove all the stored views of the attachments of a wiki.
+     *
+     * @param wikiReference the wiki
+     */
+    public void remove(WikiReference wikiReference)
+    {
+        if (this.directory != null) {
+            synchronized (this) {
+                removeEntry(getWikiDirectory(wikiReference));
+            }
+        }
+    }
+
+    /**
+     * Remove the stored views of the attachments which don't exist anymore in a document.
+     *
+     * @param documentReference the document
+     * @param attachmentReferences the current attachments of the document
+     */
+    public void retain(DocumentReference documentReference, Collection<AttachmentReference> attachmentReferences)
+    {
+        if (this.directory != null) {
+            File documentDirectory = getDocumentDirectory(documentReference);
+
+            synchronized (this) {
+                File[] attachmentDirectories = documentDirectory.listFiles(File::isDirectory);
+                if (attachmentDirectories != null) {
+                    Set<String> existingDirectories = new HashSet<>();
+                    for (AttachmentReference attachmentReference : attachmentReferences) {
+                        existingDirectories.add(getAttachmentDirectory(attachmentReference).getName());
+                    }
+
+                    for (File attachmentDirectory : attachmentDirectories) {
+                        if (!existingDirectories.contains(attachmentDirectory.getName())) {
+                            removeEntry(attachmentDirectory);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param documentReference the document
+     * @return {@code true} if views of attachments of the passed document are stored
+     */
+    public boolean contains(DocumentReference documentReference)
+    {
+        return this.directory != null && getDocumentDirectory(documentReference).isDirectory();
+    }
+
+    private File getWikiDirectory(WikiReference wikiReference)
+    {
+        return new File(this.directory, DigestUtils.sha256Hex(wikiReference.getName()));
+    }
+
+    private File getDocumentDirectory(DocumentReference documentReference)
+    {
+        return new File(getWikiDirectory(documentReference.getWikiReference()),
+            DigestUtils.sha256Hex(this.serializer.serialize(documentReference)));
+    }
+
+    private File getAttachmentDirectory(AttachmentReference attachmentReference)
+    {
+        return new File(getDocumentDirectory(attachmentReference.getDocumentReference()),
+            DigestUtils.sha256Hex(attachmentReference.getName()));
+    }
+
+    private File getEntryDirectory(AttachmentReference attachmentReference, String key)
+    {
+        return new File(getAttachmentDirectory(attachmentReference), DigestUtils.sha256Hex(key));
+    }
+
+    private String getVersion(File entryDirectory)
+    {
+        try {
+            return FileUtils.readFileToString(new File(entryDirectory, VERSION_FILE), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void removeEntry(File entryDirectory)
+    {
+        if (entryDirectory.exists()) {
+            this.size -= FileUtils.sizeOfDirectory(entryDirectory);
+
+            // Move the entry away before deleting it so that it cannot be read partially
+            File removedDirectory =
+                new File(this.temporaryDirectory, entryDirectory.getName() + RandomStringUtils.randomAlphanumeric(8));
+            try {
+                Files.move(entryDirectory.toPath(), removedDirectory.toPath());
+            } catch (IOException e) {
+                removedDirectory = entryDirectory;
+            }
+
+            FileUtils.deleteQuietly(removedDirectory);
+        }
+    }
+
+    private void evict()
+    {
+        if (this.size > this.maxSize) {
+            // The entries are stored in <wiki>/<document>/<attachment>/<entry>
+            List<File> entries = Collections.singletonList(this.directory);
+            for (int i = 0; i < ENTRY_DEPTH; i++) {
+                entries = listDirectories(entries);
+            }
+
+            // Remove the least recently used entries first
+            entries.sort(Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < entries.size() && this.size > this.maxSize; i++) {
+                removeEntry(entries.get(i));
+            }
+        }
+    }
+
+    private List<File> listDirectories(List<File> parents)
+    {
+        List<File> directories = new ArrayList<>();
+        for (File parent : parents) {
+            File[] children = parent.listFiles(File::isDirectory);
+            if (children != null) {
+                directories.addAll(Arrays.asList(children));
+            }
+        }
+
+        return directories;
+    }
+
+    private void write(String version, XDOMOfficeDocument document, File entryDirectory) throws Exception
+    {
+        FileUtils.writeStringToFile(new File(entryDirectory, VERSION_FILE), version, StandardCharsets.UTF_8);
+
+        PrintRendererFactory rendererFactory = this.componentManagerProvider.get()
+            .getInstance(PrintRendererFactory.class, Syntax.XDOMXML_CURRENT.toIdString());
+        try (Writer writer = Files.newBufferedWriter(new File(entryDirectory, XDOM_FILE).toPath())) {
+            PrintRenderer renderer = rendererFactory.createRenderer(new WriterWikiPrinter(writer));
+            document.getContentDocument().traverse(renderer);
+        }
+
+        File artifactsDirectory = new File(entryDirectory, ARTIFACTS_DIRECTORY);
+        FileUtils.forceMkdir(artifactsDirectory);
+        for (Map.Entry<String, byte[]> artifact : document.getArtifacts().entrySet()) {
+            FileUtils.writeByteArrayToFile(new File(artifactsDirectory, encode(artifact.getKey())),
+                artifact.getValue());
+        }
+    }
+
+    private XDOMOfficeDocument read(File entryDirectory) throws Exception
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+
+        XDOM xdom;
+        Parser parser = componentManager.getInstance(Parser.class, Syntax.XDOMXML_CURRENT.toIdString());
+        try (Reader reader = Files.newBufferedReader(new File(entryDirectory, XDOM_FILE).toPath())) {
+            xdom = parser.parse(reader);
+        }
+
+        Map<String, byte[]> artifacts = new HashMap<>();
+        File artifactsDirectory = new File(entryDirectory, ARTIFACTS_DIRECTORY);
+        File[] artifactFiles = artifactsDirectory.listFiles();
+        if (artifactFiles == null) {
+            // The entry has been removed while being read
+            throw new IOException(String.format("Failed to list the artifacts in [%s]", artifactsDirectory));
+        }
+        for (File artifactFile : artifactFiles) {
+            artifacts.put(decode(artifactFile.getName()), FileUtils.readFileToByteArray(artifactFile));
+        }
+
+        return new XDOMOfficeDocument(xdom, artifacts, componentManager);
+    }
+
+    private String encode(String name) throws UnsupportedEncodingException
+    {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8.name());
+    }
+
+    private String decode(String name) throws UnsupportedEncodingException
+    {
+        return URLDecoder.decode(name, StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Print the rendered XDOM directly in the entry file.
+     *
+     * @version $Id$
+     */
+    private static final class WriterWikiPrinter implements WikiPrinter
+    {
+        private final Writer writer;
+
+        WriterWikiPrinter(Writer writer)
+        {
+            this.writer = writer;
+        }
+
+        @Override
+        public void print(String text)
+        {
+            try {
+                this.writer.write(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the office view", e);
+            }
+        }
+
+        @Override
+        public void println(String text)
+        {
+            print(text);
+            print("\n");
+        }
+    }
+}
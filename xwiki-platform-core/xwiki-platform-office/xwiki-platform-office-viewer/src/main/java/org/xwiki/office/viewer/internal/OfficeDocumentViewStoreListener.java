@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.office.viewer.internal;
+
+import java.util.Arrays;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Remove the stored office views of the deleted attachments, documents and wikis.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component
+@Named(OfficeDocumentViewStoreListener.NAME)
+@Singleton
+public class OfficeDocumentViewStoreListener extends AbstractEventListener
+{
+    /**
+     * Name of the listener.
+     */
+    public static final String NAME = "org.xwiki.office.viewer.internal.OfficeDocumentViewStoreListener";
+
+    @Inject
+    private OfficeDocumentViewStore viewStore;
+
+    @Inject
+    private DocumentAccessBridge documentAccessBridge;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Default constructor.
+     */
+    public OfficeDocumentViewStoreListener()
+    {
+        super(NAME, Arrays.asList(new DocumentUpdatedEvent(), new DocumentDeletedEvent(), new WikiDeletedEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.viewStore.remove(new WikiReference(((WikiDeletedEvent) event).getWikiId()));
+        } else {
+            DocumentReference documentReference = ((DocumentModelBridge) source).getDocumentReference();
+
+            if (event instanceof DocumentDeletedEvent) {
+                this.viewStore.remove(documentReference);
+            } else if (this.viewStore.contains(documentReference)) {
+                // Some attachments might have been deleted
+                try {
+                    this.viewStore.retain(documentReference,
+                        this.documentAccessBridge.getAttachmentReferences(documentReference));
+                } catch (Exception e) {
+                    this.logger.error("Failed to remove the office views of the deleted attachments of document [{}]",
+                        documentReference, e);
+                }
+            }
+        }
+    }
+}
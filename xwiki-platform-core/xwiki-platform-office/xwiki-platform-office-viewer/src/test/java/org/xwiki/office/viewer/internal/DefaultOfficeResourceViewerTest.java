@@ -30,6 +30,7 @@
 import java.util.HashSet;
 import java.util.Map;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.jodconverter.document.DefaultDocumentFormatRegistry;
 import org.junit.Assert;
 import org.junit.Before;
@@ -118,11 +119,26 @@
     private static final String CACHE_KEY = STRING_DOCUMENT_REFERENCE + '/' + ATTACHEMENT_NAME + '/'
         + DEFAULT_VIEW_PARAMETERS.hashCode();
 
+    /**
+     * The store key corresponding to {@link #STRING_ATTACHMENT_REFERENCE} and {@link #DEFAULT_VIEW_PARAMETERS}.
+     */
+    private static final String STORE_KEY = STRING_ATTACHMENT_REFERENCE + "/ownerDocument=" + STRING_DOCUMENT_REFERENCE;
+
     /**
      * Attachment version to be used in tests.
      */
     private static final String ATTACHMENT_VERSION = "1.1";
 
+    /**
+     * Attachment content to be used in tests.
+     */
+    private static final byte[] ATTACHMENT_CONTENT = new byte[256];
+
+    /**
+     * The stored version corresponding to {@link #ATTACHMENT_VERSION} and {@link #ATTACHMENT_CONTENT}.
+     */
+    private static final String STORE_VERSION = ATTACHMENT_VERSION + '/' + DigestUtils.sha256Hex(ATTACHMENT_CONTENT);
+
     /**
      * A component manager that automatically mocks all dependencies of {@link DefaultOfficeResourceViewer}.
      */
@@ -227,7 +243,7 @@ public void testViewExistingOfficeAttachmentWithCacheMiss() throws Exception
             Arrays.asList(ATTACHMENT_REFERENCE));
         when(documentAccessBridge.getAttachmentVersion(ATTACHMENT_REFERENCE)).thenReturn(ATTACHMENT_VERSION);
 
-        ByteArrayInputStream attachmentContent = new ByteArrayInputStream(new byte[256]);
+        ByteArrayInputStream attachmentContent = new ByteArrayInputStream(ATTACHMENT_CONTENT);
         when(documentAccessBridge.getAttachmentContent(ATTACHMENT_REFERENCE)).thenReturn(attachmentContent);
 
         XDOMOfficeDocument xdomOfficeDocument =
@@ -239,6 +255,72 @@ public void testViewExistingOfficeAttachmentWithCacheMiss() throws Exception
         mocker.getComponentUnderTest().createView(ATTACHMENT_RESOURCE_REFERENCE, DEFAULT_VIEW_PARAMETERS);
 
         verify(attachmentCache).set(eq(CACHE_KEY), notNull(AttachmentOfficeDocumentView.class));
+        verify(mocker.getInstance(OfficeDocumentViewStore.class)).set(ATTACHMENT_REFERENCE, STORE_KEY, STORE_VERSION,
+            xdomOfficeDocument);
+    }
+
+    /**
+     * Tests creating a view for an office attachment which has already been converted and stored on disk.
+     * 
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testViewExistingOfficeAttachmentWithStoreHit() throws Exception
+    {
+        when(attachmentCache.get(CACHE_KEY)).thenReturn(null);
+        when(documentAccessBridge.getAttachmentReferences(ATTACHMENT_REFERENCE.getDocumentReference())).thenReturn(
+            Arrays.asList(ATTACHMENT_REFERENCE));
+        when(documentAccessBridge.getAttachmentVersion(ATTACHMENT_REFERENCE)).thenReturn(ATTACHMENT_VERSION);
+
+        when(documentAccessBridge.getAttachmentContent(ATTACHMENT_REFERENCE))
+            .thenReturn(new ByteArrayInputStream(ATTACHMENT_CONTENT));
+
+        XDOMOfficeDocument xdomOfficeDocument =
+            new XDOMOfficeDocument(new XDOM(new ArrayList<Block>()), new HashMap<String, byte[]>(), mocker);
+        OfficeDocumentViewStore viewStore = mocker.getInstance(OfficeDocumentViewStore.class);
+        when(viewStore.get(ATTACHMENT_REFERENCE, STORE_KEY, STORE_VERSION)).thenReturn(xdomOfficeDocument);
+
+        Assert.assertNotNull(mocker.getComponentUnderTest().createView(ATTACHMENT_RESOURCE_REFERENCE,
+            DEFAULT_VIEW_PARAMETERS));
+
+        verify(attachmentCache).set(eq(CACHE_KEY), notNull(AttachmentOfficeDocumentView.class));
+        verify(officeDocumentBuilder, never()).build(any(InputStream.class), any(), any(), anyBoolean());
+        verify(viewStore, never()).set(any(), any(), any(), any());
+    }
+
+    /**
+     * Tests that the stored view of a deleted attachment is not used for a new attachment with the same name and
+     * version.
+     * 
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testViewRecreatedOfficeAttachmentWithStoredView() throws Exception
+    {
+        when(attachmentCache.get(CACHE_KEY)).thenReturn(null);
+        when(documentAccessBridge.getAttachmentReferences(ATTACHMENT_REFERENCE.getDocumentReference())).thenReturn(
+            Arrays.asList(ATTACHMENT_REFERENCE));
+        when(documentAccessBridge.getAttachmentVersion(ATTACHMENT_REFERENCE)).thenReturn(ATTACHMENT_VERSION);
+
+        byte[] newContent = new byte[] {1, 2, 3};
+        ByteArrayInputStream attachmentContent = new ByteArrayInputStream(newContent);
+        when(documentAccessBridge.getAttachmentContent(ATTACHMENT_REFERENCE)).thenReturn(attachmentContent);
+
+        OfficeDocumentViewStore viewStore = mocker.getInstance(OfficeDocumentViewStore.class);
+        when(viewStore.get(ATTACHMENT_REFERENCE, STORE_KEY, STORE_VERSION)).thenReturn(
+            new XDOMOfficeDocument(new XDOM(new ArrayList<Block>()), new HashMap<String, byte[]>(), mocker));
+
+        XDOMOfficeDocument xdomOfficeDocument =
+            new XDOMOfficeDocument(new XDOM(new ArrayList<Block>()), new HashMap<String, byte[]>(), mocker);
+        when(
+            officeDocumentBuilder.build(attachmentContent, ATTACHMENT_REFERENCE.getName(),
+                ATTACHMENT_REFERENCE.getDocumentReference(), false)).thenReturn(xdomOfficeDocument);
+
+        mocker.getComponentUnderTest().createView(ATTACHMENT_RESOURCE_REFERENCE, DEFAULT_VIEW_PARAMETERS);
+
+        // The new content is converted instead of reusing the stored view of the previous attachment
+        verify(viewStore).set(ATTACHMENT_REFERENCE, STORE_KEY,
+            ATTACHMENT_VERSION + '/' + DigestUtils.sha256Hex(newContent), xdomOfficeDocument);
     }
 
     /**
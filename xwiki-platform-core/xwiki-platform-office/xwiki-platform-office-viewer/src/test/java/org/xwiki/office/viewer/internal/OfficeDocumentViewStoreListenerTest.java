@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.office.viewer.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link OfficeDocumentViewStoreListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class OfficeDocumentViewStoreListenerTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockComponents
+    private OfficeDocumentViewStoreListener listener;
+
+    @MockComponent
+    private OfficeDocumentViewStore viewStore;
+
+    @MockComponent
+    private DocumentAccessBridge documentAccessBridge;
+
+    private DocumentModelBridge document;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.document = mock(DocumentModelBridge.class);
+        when(this.document.getDocumentReference()).thenReturn(DOCUMENT);
+    }
+
+    @Test
+    void onDocumentUpdated() throws Exception
+    {
+        // Nothing to do when no view of the document attachments is stored
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT), this.document, null);
+
+        verify(this.documentAccessBridge, never()).getAttachmentReferences(any());
+        verify(this.viewStore, never()).retain(any(), any());
+
+        List<AttachmentReference> attachments = Arrays.asList(new AttachmentReference("file.doc", DOCUMENT));
+        when(this.viewStore.contains(DOCUMENT)).thenReturn(true);
+        when(this.documentAccessBridge.getAttachmentReferences(DOCUMENT)).thenReturn(attachments);
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT), this.document, null);
+
+        verify(this.viewStore).retain(DOCUMENT, attachments);
+    }
+
+    @Test
+    void onDocumentDeleted()
+    {
+        this.listener.onEvent(new DocumentDeletedEvent(DOCUMENT), this.document, null);
+
+        verify(this.viewStore).remove(DOCUMENT);
+    }
+
+    @Test
+    void onWikiDeleted()
+    {
+        this.listener.onEvent(new WikiDeletedEvent("wiki"), null, null);
+
+        verify(this.viewStore).remove(new WikiReference("wiki"));
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.office.viewer.internal;
+
+import java.io.File;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.officeimporter.document.XDOMOfficeDocument;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AfterComponent;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link OfficeDocumentViewStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class OfficeDocumentViewStoreTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    private static final AttachmentReference ATTACHMENT1 = new AttachmentReference("file1.doc", DOCUMENT);
+
+    private static final AttachmentReference ATTACHMENT2 = new AttachmentReference("file2.doc", DOCUMENT);
+
+    private static final AttachmentReference OTHER_ATTACHMENT =
+        new AttachmentReference("file.doc", new DocumentReference("otherwiki", "Space", "Page"));
+
+    private static final String KEY = "key";
+
+    private static final String VERSION = "1.1/hash";
+
+    private static final long TIMEOUT = 10;
+
+    @InjectMockComponents
+    private OfficeDocumentViewStore store;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    private ComponentManager componentManager;
+
+    private Parser parser;
+
+    @AfterComponent
+    void afterComponent()
+    {
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        when(this.configuration.getProperty("officeviewer.store.maxSize", 500L)).thenReturn(500L);
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.serializer.serialize(any())).then(invocation -> String.valueOf(invocation.getArgument(0)));
+
+        this.componentManager = mock(ComponentManager.class);
+        when(this.componentManagerProvider.get()).thenReturn(this.componentManager);
+
+        PrintRendererFactory rendererFactory = mock(PrintRendererFactory.class);
+        when(rendererFactory.createRenderer(any())).thenReturn(mock(PrintRenderer.class));
+        when(this.componentManager.getInstance(PrintRendererFactory.class, Syntax.XDOMXML_CURRENT.toIdString()))
+            .thenReturn(rendererFactory);
+
+        this.parser = mock(Parser.class);
+        when(this.parser.parse(any(Reader.class))).then(invocation -> new XDOM(Collections.emptyList()));
+        when(this.componentManager.getInstance(Parser.class, Syntax.XDOMXML_CURRENT.toIdString()))
+            .thenReturn(this.parser);
+    }
+
+    private void set(AttachmentReference attachmentReference)
+    {
+        this.store.set(attachmentReference, KEY, VERSION, new XDOMOfficeDocument(new XDOM(Collections.emptyList()),
+            Collections.singletonMap("image.png", new byte[] {1, 2}), this.componentManager));
+    }
+
+    @Test
+    void setGet()
+    {
+        assertNull(this.store.get(ATTACHMENT1, KEY, VERSION));
+
+        set(ATTACHMENT1);
+
+        XDOMOfficeDocument document = this.store.get(ATTACHMENT1, KEY, VERSION);
+        assertNotNull(document);
+        assertArrayEquals(new byte[] {1, 2}, document.getArtifacts().get("image.png"));
+        assertNull(this.store.get(ATTACHMENT1, "otherkey", VERSION));
+        assertNull(this.store.get(ATTACHMENT2, KEY, VERSION));
+
+        // Another content with the same version removes the stored entry
+        assertNull(this.store.get(ATTACHMENT1, KEY, "1.1/otherhash"));
+        assertNull(this.store.get(ATTACHMENT1, KEY, VERSION));
+    }
+
+    /**
+     * Block the parsing of the stored views until the returned latch is released.
+     */
+    private CountDownLatch blockParser(CountDownLatch parsing) throws Exception
+    {
+        CountDownLatch released = new CountDownLatch(1);
+        when(this.parser.parse(any(Reader.class))).then(invocation -> {
+            parsing.countDown();
+            released.await(TIMEOUT, TimeUnit.SECONDS);
+
+            return new XDOM(Collections.emptyList());
+        });
+
+        return released;
+    }
+
+    @Test
+    void getParsesOutsideOfTheLock() throws Exception
+    {
+        set(ATTACHMENT1);
+        set(ATTACHMENT2);
+
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch released = blockParser(parsing);
+        CompletableFuture<XDOMOfficeDocument> future =
+            CompletableFuture.supplyAsync(() -> this.store.get(ATTACHMENT1, KEY, VERSION));
+        assertTrue(parsing.await(TIMEOUT, TimeUnit.SECONDS));
+
+        // The other entries can be used while a view is being parsed
+        CompletableFuture.runAsync(() -> this.store.remove(ATTACHMENT2)).get(TIMEOUT, TimeUnit.SECONDS);
+
+        released.countDown();
+        assertNotNull(future.get(TIMEOUT, TimeUnit.SECONDS));
+        assertNull(this.store.get(ATTACHMENT2, KEY, VERSION));
+    }
+
+    @Test
+    void getEntryRemovedWhileParsing() throws Exception
+    {
+        set(ATTACHMENT1);
+
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch released = blockParser(parsing);
+        CompletableFuture<XDOMOfficeDocument> future =
+            CompletableFuture.supplyAsync(() -> this.store.get(ATTACHMENT1, KEY, VERSION));
+        assertTrue(parsing.await(TIMEOUT, TimeUnit.SECONDS));
+
+        this.store.remove(ATTACHMENT1);
+        released.countDown();
+
+        // The removed entry is not returned partially (without its artifacts)
+        assertNull(future.get(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void removeAttachment()
+    {
+        set(ATTACHMENT1);
+        set(ATTACHMENT2);
+
+        this.store.remove(ATTACHMENT1);
+
+        assertNull(this.store.get(ATTACHMENT1, KEY, VERSION));
+        assertNotNull(this.store.get(ATTACHMENT2, KEY, VERSION));
+    }
+
+    @Test
+    void retain()
+    {
+        set(ATTACHMENT1);
+        set(ATTACHMENT2);
+
+        this.store.retain(DOCUMENT, Arrays.asList(ATTACHMENT2));
+
+        assertNull(this.store.get(ATTACHMENT1, KEY, VERSION));
+        assertNotNull(this.store.get(ATTACHMENT2, KEY, VERSION));
+    }
+
+    @Test
+    void removeDocument()
+    {
+        assertFalse(this.store.contains(DOCUMENT));
+
+        set(ATTACHMENT1);
+        set(ATTACHMENT2);
+        set(OTHER_ATTACHMENT);
+
+        assertTrue(this.store.contains(DOCUMENT));
+
+        this.store.remove(DOCUMENT);
+
+        assertFalse(this.store.contains(DOCUMENT));
+        assertNull(this.store.get(ATTACHMENT1, KEY, VERSION));
+        assertNull(this.store.get(ATTACHMENT2, KEY, VERSION));
+        assertNotNull(this.store.get(OTHER_ATTACHMENT, KEY, VERSION));
+    }
+
+    @Test
+    void removeWiki()
+    {
+        set(ATTACHMENT1);
+        set(OTHER_ATTACHMENT);
+
+        this.store.remove(new WikiReference("wiki"));
+
+        assertNull(this.store.get(ATTACHMENT1, KEY, VERSION));
+        assertNotNull(this.store.get(OTHER_ATTACHMENT, KEY, VERSION));
+    }
+}
@@ -48,6 +48,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -2196,6 +2197,63 @@ public XWikiDocument getDocument(DocumentReference reference, XWikiContext conte
         return getDocument(doc, context);
     }
 
+    /**
+     * Load several documents, possibly located in different wikis. The references are grouped by wiki and the
+     * documents of each wiki are loaded with a single call to
+     * {@link XWikiStoreInterface#loadXWikiDocs(java.util.Collection, XWikiContext)}.
+     *
+     * @param references the references of the documents to load (with the locale of the translation to load, if any)
+     * @param context see {@link XWikiContext}
+     * @return the documents, in the same order as the passed references, with new documents for the ones which don't
+     *         exist
+     * @throws XWikiException when failing to load the documents
+     * @since 12.8RC1
+     */
+    @Unstable
+    public List<XWikiDocument> getDocuments(List<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        // The store works on the current wiki
+        Map<WikiReference, Set<DocumentReference>> referencesByWiki = new LinkedHashMap<>();
+        for (DocumentReference reference : references) {
+            referencesByWiki.computeIfAbsent(reference.getWikiReference(), k -> new LinkedHashSet<>()).add(reference);
+        }
+
+        Map<DocumentReference, XWikiDocument> documents = new HashMap<>();
+        String currentWiki = context.getWikiId();
+        try {
+            for (Map.Entry<WikiReference, Set<DocumentReference>> entry : referencesByWiki.entrySet()) {
+                context.setWikiId(entry.getKey().getName());
+
+                List<DocumentReference> wikiReferences = new ArrayList<>(entry.getValue());
+                for (DocumentReference reference : wikiReferences) {
+                    try {
+                        // Indicate the the async context manipulated documents
+                        getAsyncContext().useEntity(reference);
+                    } catch (Exception e) {
+                        // If the AsyncContext component does not work then we are not in an asynchronous context
+                        // anyway
+                        LOGGER.debug("Failed to register the document in the asynchronous context", e);
+                    }
+                }
+
+                List<XWikiDocument> wikiDocuments = getStore().loadXWikiDocs(wikiReferences, context);
+                for (int i = 0; i < wikiReferences.size(); ++i) {
+                    documents.put(wikiReferences.get(i), wikiDocuments.get(i));
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        List<XWikiDocument> result = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            result.add(documents.get(reference));
+        }
+
+        return result;
+    }
+
     /**
      * @param reference the reference of the page
      * @param context see {@link XWikiContext}
@@ -6517,6 +6575,56 @@ public boolean exists(DocumentReference documentReference, XWikiContext context)
         }
     }
 
+    /**
+     * Check the existence of several documents, possibly located in different wikis. The references are grouped by
+     * wiki and checked with a single call to {@link XWikiStoreInterface#exists(java.util.Collection, XWikiContext)}
+     * per wiki. As with {@link #exists(DocumentReference, XWikiContext)}, the documents of a wiki which cannot be
+     * checked are reported as missing.
+     *
+     * @param references the references of the documents to check (with the locale of the translation to check, if
+     *            any)
+     * @param context see {@link XWikiContext}
+     * @return {@code true} for each document which exists, in the same order as the passed references
+     * @since 12.8RC1
+     */
+    @Unstable
+    public List<Boolean> exists(List<DocumentReference> references, XWikiContext context)
+    {
+        // The store works on the current wiki
+        Map<WikiReference, Set<DocumentReference>> referencesByWiki = new LinkedHashMap<>();
+        for (DocumentReference reference : references) {
+            referencesByWiki.computeIfAbsent(reference.getWikiReference(), k -> new LinkedHashSet<>()).add(reference);
+        }
+
+        Map<DocumentReference, Boolean> existence = new HashMap<>();
+        String currentWiki = context.getWikiId();
+        try {
+            for (Map.Entry<WikiReference, Set<DocumentReference>> entry : referencesByWiki.entrySet()) {
+                context.setWikiId(entry.getKey().getName());
+
+                List<DocumentReference> wikiReferences = new ArrayList<>(entry.getValue());
+                try {
+                    List<Boolean> wikiExistence = getStore().exists(wikiReferences, context);
+                    for (int i = 0; i < wikiReferences.size(); ++i) {
+                        existence.put(wikiReferences.get(i), wikiExistence.get(i));
+                    }
+                } catch (XWikiException e) {
+                    // Same as exists(DocumentReference, XWikiContext)
+                    LOGGER.debug("Failed to check the existence of documents [{}]", wikiReferences, e);
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        List<Boolean> result = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            result.add(existence.getOrDefault(reference, Boolean.FALSE));
+        }
+
+        return result;
+    }
+
     public String getAdType(XWikiContext context)
     {
         String adtype = "";
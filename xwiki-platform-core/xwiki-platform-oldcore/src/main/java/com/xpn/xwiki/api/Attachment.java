@@ -233,6 +233,11 @@ public List<Version> getVersionList() throws XWikiException
     public XWikiAttachment getAttachment()
     {
         if (hasProgrammingRights()) {
+            // The attachment might be modified so make sure it's not shared with a cached document
+            if (this.doc != null) {
+                this.attachment = this.doc.getModifiableAttachment(this.attachment);
+            }
+
             return this.attachment;
         } else {
             return null;
@@ -72,7 +72,7 @@ public Element[] getProperties()
         Property[] properties = new Property[coll.size()];
         int i = 0;
         for (BaseProperty prop : coll) {
-            properties[i++] = new Property(prop, getXWikiContext());
+            properties[i++] = newProperty(prop);
         }
         return properties;
     }
@@ -85,12 +85,22 @@ public Property getProperty(String name)
                 return null;
             }
 
-            return new Property((BaseProperty) prop, getXWikiContext());
+            return newProperty((BaseProperty) prop);
         } catch (Exception e) {
             return null;
         }
     }
 
+    /**
+     * @param property the property of the collection to wrap
+     * @return the property API
+     * @since 12.8RC1
+     */
+    Property newProperty(BaseProperty property)
+    {
+        return new Property(property, getXWikiContext());
+    }
+
     /**
      * @param name the name of the property
      * @return the value of the passed property
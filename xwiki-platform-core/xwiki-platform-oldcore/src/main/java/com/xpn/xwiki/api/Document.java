@@ -210,6 +210,10 @@ public XWikiDocument getDocument()
 
     /**
      * Get a clone of the XWikiDocument wrapped by this API.
+     * <p>
+     * The read only methods directly use the wrapped document instead, so that the document is only cloned when it's
+     * actually modified. The {@link Object}s and {@link Attachment}s they return are shared with the wrapped document
+     * and switch to their clone the first time they are modified.
      *
      * @return A clone of the XWikiDocument wrapped by this API.
      */
@@ -222,6 +226,23 @@ protected XWikiDocument getDoc()
         return this.doc;
     }
 
+    /**
+     * @param attachment an attachment of the document wrapped by this API
+     * @return the same attachment in the clone of the wrapped document, which can be safely modified
+     * @since 12.8RC1
+     */
+    XWikiAttachment getModifiableAttachment(XWikiAttachment attachment)
+    {
+        if (attachment.getDoc() == this.initialDoc && this.initialDoc != null) {
+            XWikiAttachment clonedAttachment = getDoc().getAttachment(attachment.getFilename());
+            if (clonedAttachment != null) {
+                return clonedAttachment;
+            }
+        }
+
+        return attachment;
+    }
+
     /**
      * return the ID of the document. this ID is unique across the wiki.
      *
@@ -1158,7 +1179,7 @@ public int getObjectNumbers(String classname)
      */
     public Map<String, Vector<Object>> getxWikiObjects()
     {
-        Map<DocumentReference, List<BaseObject>> map = this.getDoc().getXObjects();
+        Map<DocumentReference, List<BaseObject>> map = this.doc.getXObjects();
         Map<String, Vector<Object>> resultmap = new HashMap<String, Vector<Object>>();
         for (Map.Entry<DocumentReference, List<BaseObject>> entry : map.entrySet()) {
             List<BaseObject> objects = entry.getValue();
@@ -1190,7 +1211,7 @@ protected Vector<Object> getXObjects(List<BaseObject> objects)
      */
     public Vector<Object> getObjects(String className)
     {
-        List<BaseObject> objects = this.getDoc().getXObjects(this.doc.resolveClassReference(className));
+        List<BaseObject> objects = this.doc.getXObjects(this.doc.resolveClassReference(className));
         return getXObjects(objects);
     }
 
@@ -1203,7 +1224,7 @@ public Vector<Object> getObjects(String className)
     public Object getFirstObject(String fieldname)
     {
         try {
-            BaseObject obj = this.getDoc().getFirstObject(fieldname, getXWikiContext());
+            BaseObject obj = this.doc.getFirstObject(fieldname, getXWikiContext());
             if (obj == null) {
                 return null;
             } else {
@@ -1226,7 +1247,7 @@ public Object getFirstObject(String fieldname)
     public Object getObject(String classname, String key, String value, boolean failover)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, key, value, failover);
+            BaseObject obj = this.doc.getObject(classname, key, value, failover);
             if (obj == null) {
                 return null;
             } else {
@@ -1253,7 +1274,7 @@ public Vector<Object> getObjects(String classname, String key, String value)
             return getObjects(classname);
         }
         try {
-            Vector<BaseObject> allObjects = this.getDoc().getObjects(classname);
+            Vector<BaseObject> allObjects = this.doc.getObjects(classname);
             if (allObjects == null || allObjects.size() == 0) {
                 return result;
             } else {
@@ -1286,7 +1307,7 @@ public Vector<Object> getObjects(String classname, String key, String value)
     public Object getObject(String classname, String key, String value)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, key, value);
+            BaseObject obj = this.doc.getObject(classname, key, value);
             if (obj == null) {
                 return null;
             } else {
@@ -1319,7 +1340,9 @@ public Object getObject(String classname)
     public Object getObject(String classname, boolean create)
     {
         try {
-            BaseObject obj = getDoc().getObject(classname, create, getXWikiContext());
+            // Only clone the document if the object might be created
+            XWikiDocument document = create ? getDoc() : this.doc;
+            BaseObject obj = document.getObject(classname, create, getXWikiContext());
 
             if (obj == null) {
                 return null;
@@ -1341,7 +1364,7 @@ public Object getObject(String classname, boolean create)
     public Object getObject(String classname, int nb)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, nb);
+            BaseObject obj = this.doc.getObject(classname, nb);
             if (obj == null) {
                 return null;
             } else {
@@ -1360,7 +1383,7 @@ public Object getObject(String classname, int nb)
     public Object getObject(ObjectReference objectReference)
     {
         try {
-            BaseObject obj = this.getDoc().getXObject(objectReference);
+            BaseObject obj = this.doc.getXObject(objectReference);
             return obj == null ? null : newObjectApi(obj, getXWikiContext());
         } catch (Exception e) {
             return null;
@@ -1369,6 +1392,11 @@ public Object getObject(ObjectReference objectReference)
 
     private Object newObjectApi(BaseObject obj, XWikiContext context)
     {
+        if (this.doc == this.initialDoc) {
+            // The document is not cloned yet: share the object until it's actually modified
+            return new Object(obj, this, context);
+        }
+
         return obj.newObjectApi(obj, context);
     }
 
@@ -1438,7 +1466,7 @@ public RevisionInfo getRevisionInfo(String version) throws XWikiException
     public List<Attachment> getAttachmentList()
     {
         List<Attachment> apis = new ArrayList<Attachment>();
-        for (XWikiAttachment attachment : this.getDoc().getAttachmentList()) {
+        for (XWikiAttachment attachment : this.doc.getAttachmentList()) {
             apis.add(new Attachment(this, attachment, getXWikiContext()));
         }
         return apis;
@@ -1451,7 +1479,7 @@ public Vector<Object> getComments()
 
     public Vector<Object> getComments(boolean asc)
     {
-        return getXObjects(this.getDoc().getComments(asc));
+        return getXObjects(this.doc.getComments(asc));
     }
 
     /**
@@ -1824,7 +1852,7 @@ public List<String> getLinkedPages()
 
     public Attachment getAttachment(String filename)
     {
-        XWikiAttachment attach = this.getDoc().getAttachment(filename);
+        XWikiAttachment attach = this.doc.getAttachment(filename);
         if (attach == null) {
             return null;
         } else {
@@ -2201,7 +2229,7 @@ public java.lang.Object getValue(String fieldName)
     {
         Object object;
         if (this.currentObj == null) {
-            object = new Object(this.getDoc().getFirstObject(fieldName, getXWikiContext()), getXWikiContext());
+            object = new Object(this.doc.getFirstObject(fieldName, getXWikiContext()), getXWikiContext());
         } else {
             object = this.currentObj;
         }
@@ -2244,7 +2272,7 @@ public String getTags()
 
     public List<String> getTagList()
     {
-        return this.getDoc().getTagsList(getXWikiContext());
+        return this.doc.getTagsList(getXWikiContext());
     }
 
     public List<String> getTagsPossibleValues()
@@ -3226,7 +3254,7 @@ public void dropPermissions()
      */
     public boolean isTranslation()
     {
-        return 1 == this.getDoc().getTranslation();
+        return 1 == this.doc.getTranslation();
     }
 
     /**
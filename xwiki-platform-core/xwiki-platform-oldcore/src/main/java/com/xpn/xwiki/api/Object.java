@@ -22,25 +22,89 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseCollection;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseObjectReference;
+import com.xpn.xwiki.objects.BaseProperty;
 
 public class Object extends Collection
 {
+    /**
+     * The document API from which this object was taken without cloning the document, {@code null} if the object can
+     * be modified directly.
+     */
+    private Document document;
+
+    /**
+     * The document holding the shared object.
+     */
+    private XWikiDocument sharedDocument;
+
     public Object(BaseObject obj, XWikiContext context)
     {
         super(obj, context);
     }
 
+    /**
+     * @param obj the object shared with the document wrapped by the passed document API
+     * @param document the document API from which the object was taken
+     * @param context the XWiki context
+     * @since 12.8RC1
+     */
+    Object(BaseObject obj, Document document, XWikiContext context)
+    {
+        super(obj, context);
+
+        this.document = document;
+        this.sharedDocument = document.doc;
+    }
+
+    @Override
+    protected BaseCollection getCollection()
+    {
+        if (this.document != null && this.document.doc != this.sharedDocument) {
+            // The document has been cloned since this object was taken, switch to the object of the clone
+            BaseObject object = (BaseObject) this.element;
+            BaseObject clonedObject = this.document.doc.getXObject(object.getXClassReference(), object.getNumber());
+            if (clonedObject != null) {
+                this.element = clonedObject;
+            }
+
+            this.document = null;
+            this.sharedDocument = null;
+        }
+
+        return super.getCollection();
+    }
+
     protected BaseObject getBaseObject()
     {
         return (BaseObject) getCollection();
     }
 
+    /**
+     * @return the object to modify, never shared with a cached document
+     */
+    BaseObject getModifiableBaseObject()
+    {
+        if (this.document != null) {
+            // Make sure the document is cloned before modifying the object
+            this.document.getDoc();
+        }
+
+        return getBaseObject();
+    }
+
+    @Override
+    Property newProperty(BaseProperty property)
+    {
+        return new Property(property, this, getXWikiContext());
+    }
+
     public BaseObject getXWikiObject()
     {
         if (hasProgrammingRights()) {
-            return (BaseObject) getCollection();
+            return getModifiableBaseObject();
         } else {
             return null;
         }
@@ -53,7 +117,7 @@ public String getGuid()
 
     public void setGuid(String guid)
     {
-        getBaseObject().setGuid(guid);
+        getModifiableBaseObject().setGuid(guid);
     }
 
     /**
@@ -100,17 +164,19 @@ public boolean equals(java.lang.Object arg0)
             return false;
         }
         Object o = (Object) arg0;
-        return o.getXWikiContext().equals(getXWikiContext()) && this.element.equals(o.element);
+        return o.getXWikiContext().equals(getXWikiContext()) && getCollection().equals(o.getCollection());
     }
 
     public void set(String fieldname, java.lang.Object value)
     {
         XWikiContext xcontext = getXWikiContext();
 
-        getBaseObject().set(fieldname, value, xcontext);
+        BaseObject baseObject = getModifiableBaseObject();
+
+        baseObject.set(fieldname, value, xcontext);
 
         // Temporary set as author of the document the current script author (until the document is saved)
-        getBaseObject().getOwnerDocument().setAuthorReference(xcontext.getAuthorReference());
+        baseObject.getOwnerDocument().setAuthorReference(xcontext.getAuthorReference());
     }
 
     @Override
@@ -29,6 +29,11 @@
  */
 public class Property extends Element
 {
+    /**
+     * The object API from which this property was taken, {@code null} if the property can be modified directly.
+     */
+    private Object object;
+
     /**
      * The Constructor.
      *
@@ -40,11 +45,32 @@ public Property(BaseProperty property, XWikiContext context)
         super(property, context);
     }
 
+    /**
+     * @param property the property of the object wrapped by the passed object API
+     * @param object the object API from which the property was taken
+     * @param context the XWiki context
+     * @since 12.8RC1
+     */
+    Property(BaseProperty property, Object object, XWikiContext context)
+    {
+        super(property, context);
+
+        this.object = object;
+    }
+
     /**
      * @return the internal {@link com.xpn.xwiki.objects.BaseProperty} which this Property wraps.
      */
     protected BaseProperty getBaseProperty()
     {
+        if (this.object != null) {
+            // Follow the object in case its document has been cloned since this property was taken
+            BaseProperty property = (BaseProperty) this.object.getBaseObject().safeget(getName());
+            if (property != null) {
+                this.element = property;
+            }
+        }
+
         return (BaseProperty) this.element;
     }
 
@@ -54,7 +80,12 @@ protected BaseProperty getBaseProperty()
     public BaseProperty getProperty()
     {
         if (hasProgrammingRights()) {
-            return (BaseProperty) this.element;
+            if (this.object != null) {
+                // The property might be modified so make sure it's not shared with a cached document
+                this.object.getModifiableBaseObject();
+            }
+
+            return getBaseProperty();
         } else {
             return null;
         }
@@ -94,6 +125,6 @@ public java.lang.Object getValue()
             }
         }
 
-        return getBaseProperty().getValue();
+        return baseProperty.getValue();
     }
 }
@@ -253,6 +253,17 @@ public boolean exists(DocumentReference documentReference)
         }
     }
 
+    @Override
+    public List<Boolean> exists(List<DocumentReference> documentReferences)
+    {
+        XWikiContext context = getContext();
+        if (context != null) {
+            return context.getWiki().exists(documentReferences, context);
+        } else {
+            return Collections.nCopies(documentReferences.size(), Boolean.FALSE);
+        }
+    }
+
     @Override
     @Deprecated
     public boolean exists(String documentReference)
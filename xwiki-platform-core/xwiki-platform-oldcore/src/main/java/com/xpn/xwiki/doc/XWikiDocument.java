@@ -5264,7 +5264,7 @@ private Set<EntityReference> getUniqueLinkedEntityReferences(XWikiContext contex
                 references = new LinkedHashSet<>();
 
                 // Document content
-                XDOM dom = getXDOM();
+                XDOM dom = getReadOnlyXDOM();
                 getUniqueLinkedEntityReferences(dom, entityType, references);
 
                 // XObjects
@@ -5639,7 +5639,7 @@ private List<String> getIncludedPagesInternal(XWikiContext context)
             return getIncludedPagesForXWiki10Syntax(getContent(), context);
         } else {
             // Find all include macros listed on the page
-            XDOM dom = getXDOM();
+            XDOM dom = getReadOnlyXDOM();
 
             List<String> result = new ArrayList<String>();
             List<MacroBlock> macroBlocks =
@@ -7077,7 +7077,7 @@ private String getDefaultEditModeInternal(XWikiContext context) throws XWikiExce
             // Find all include macros and extract the document names
             // TODO: Is there a good way not to hardcode the macro name? The macro itself shouldn't know
             // its own name since it's a deployment time concern.
-            for (Block macroBlock : getXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
+            for (Block macroBlock : getReadOnlyXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
                 // Find the document reference to include by checking the macro's "reference" parameter.
                 // For backward-compatibility we also check for a "document" parameter since this is the parameter name
                 // that was used prior to XWiki 3.4M1 when the "reference" one was introduced and thus when the
@@ -8536,16 +8536,41 @@ public void convertSyntax(Syntax targetSyntax, XWikiContext context) throws XWik
     @Override
     public XDOM getXDOM()
     {
-        if (this.xdomCache == null) {
+        return getXDOM(true);
+    }
+
+    /**
+     * NOTE: unlike {@link #getXDOM()}, this method returns the cached XDOM itself, which is shared between all the
+     * callers. It's meant for code which only reads the XDOM (to extract links or macros, to render it without
+     * executing transformations, etc.) and which should not pay for a copy of the whole block tree. The returned XDOM
+     * must never be modified, use {@link #getXDOM()} to get a copy which can be safely modified (for example to execute
+     * transformations on it). Note that inserting one of its blocks in another block also modifies it since the block
+     * is moved to its new parent.
+     *
+     * @return the XDOM corresponding to the document's string content, read only
+     * @since 12.8RC1
+     */
+    @Unstable
+    public XDOM getReadOnlyXDOM()
+    {
+        return getXDOM(false);
+    }
+
+    private XDOM getXDOM(boolean clone)
+    {
+        XDOM xdom = this.xdomCache;
+
+        if (xdom == null) {
             try {
-                this.xdomCache = parseContent(getContent());
+                xdom = parseContent(getContent());
+                this.xdomCache = xdom;
             } catch (XWikiException e) {
                 ErrorBlockGenerator errorBlockGenerator = Utils.getComponent(ErrorBlockGenerator.class);
                 return new XDOM(errorBlockGenerator.generateErrorBlocks("Failed to render content", e, false));
             }
         }
 
-        return this.xdomCache.clone();
+        return clone ? xdom.clone() : xdom;
     }
 
     /**
@@ -22,6 +22,7 @@
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import javax.inject.Inject;
 
@@ -161,21 +162,51 @@ protected XWikiDocument getDocument(DocumentReference documentReference, String
     {
         XWikiContext xcontext = getXWikiStubContext();
 
+        return getDocument(loadLastDocument(documentReference, language, xcontext), version, xcontext);
+    }
+
+    /**
+     * @param documentReference the reference of the document
+     * @param language the language of the document
+     * @param xcontext the XWiki context
+     * @return the version of the document currently stored in the database
+     * @throws XWikiException when failing to load the document
+     */
+    private XWikiDocument loadLastDocument(DocumentReference documentReference, String language,
+        XWikiContext xcontext) throws XWikiException
+    {
         XWikiDocument document = new XWikiDocument(documentReference);
         document.setLanguage(language);
 
         // Force bypassing the cache to make extra sure we get the last version of the document.
-        XWikiDocument targetDocument = xcontext.getWiki().getNotCacheStore().loadXWikiDoc(document, xcontext);
+        return xcontext.getWiki().getNotCacheStore().loadXWikiDoc(document, xcontext);
+    }
 
-        if (!targetDocument.getVersion().equals(version)) {
-            // It's not the last version of the document, ask versioning store.
-            targetDocument = xcontext.getWiki().getVersioningStore().loadXWikiDoc(document, version, xcontext);
+    /**
+     * @param lastDocument the version of the document currently stored in the database
+     * @param version the version of the document to return
+     * @param xcontext the XWiki context
+     * @return the document in the asked version
+     * @throws XWikiException when failing to load the document
+     */
+    private XWikiDocument getDocument(XWikiDocument lastDocument, String version, XWikiContext xcontext)
+        throws XWikiException
+    {
+        if (lastDocument.getVersion().equals(version)) {
+            return lastDocument;
         }
 
-        return targetDocument;
+        // It's not the last version of the document, ask versioning store.
+        XWikiDocument document = new XWikiDocument(lastDocument.getDocumentReference());
+        document.setLanguage(lastDocument.getLanguage());
+
+        return xcontext.getWiki().getVersioningStore().loadXWikiDoc(document, version, xcontext);
     }
 
     /**
+     * Unserialize a document and its original document. When both are in the same language, the version of the
+     * document currently stored in the database is loaded only once.
+     *
      * @param remoteData the serialized version of the document
      * @return the document
      * @throws XWikiException when failing to unserialize document
@@ -185,23 +216,35 @@ protected XWikiDocument unserializeDocument(Serializable remoteData) throws XWik
         Map<String, Serializable> remoteDataMap = (Map<String, Serializable>) remoteData;
 
         DocumentReference docReference = (DocumentReference) remoteDataMap.get(DOC_NAME);
+        String docLanguage = (String) remoteDataMap.get(DOC_LANGUAGE);
+        String docVersion = (String) remoteDataMap.get(DOC_VERSION);
+
+        XWikiContext xcontext = getXWikiStubContext();
 
         XWikiDocument doc;
-        if (remoteDataMap.get(DOC_VERSION) == null) {
+        XWikiDocument lastDocument = null;
+        if (docVersion == null) {
             doc = new XWikiDocument(docReference);
         } else {
-            doc =
-                getDocument(docReference, (String) remoteDataMap.get(DOC_LANGUAGE),
-                    (String) remoteDataMap.get(DOC_VERSION));
+            lastDocument = loadLastDocument(docReference, docLanguage, xcontext);
+            doc = getDocument(lastDocument, docVersion, xcontext);
         }
 
         XWikiDocument origDoc;
-        if (remoteDataMap.get(ORIGDOC_VERSION) == null) {
+        String origVersion = (String) remoteDataMap.get(ORIGDOC_VERSION);
+        if (origVersion == null) {
             origDoc = new XWikiDocument(docReference);
         } else {
-            origDoc =
-                getDocument(docReference, (String) remoteDataMap.get(ORIGDOC_LANGUAGE),
-                    (String) remoteDataMap.get(ORIGDOC_VERSION));
+            String origLanguage = (String) remoteDataMap.get(ORIGDOC_LANGUAGE);
+
+            if (lastDocument == null || !Objects.equals(origLanguage, docLanguage)) {
+                lastDocument = loadLastDocument(docReference, origLanguage, xcontext);
+            } else if (lastDocument == doc && origVersion.equals(docVersion)) {
+                // Make sure the document is not its own original document
+                lastDocument = lastDocument.clone();
+            }
+
+            origDoc = getDocument(lastDocument, origVersion, xcontext);
         }
 
         doc.setOriginalDocument(origDoc);
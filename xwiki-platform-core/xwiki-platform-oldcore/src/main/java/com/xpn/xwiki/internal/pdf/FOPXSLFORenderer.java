@@ -132,6 +132,12 @@ public void initialize() throws InitializationException
 
     @Override
     public void render(InputStream input, OutputStream output, String outputFormat) throws Exception
+    {
+        render(new StreamSource(input), output, outputFormat);
+    }
+
+    @Override
+    public void render(Source source, OutputStream output, String outputFormat) throws Exception
     {
         FOUserAgent foUserAgent = this.fopFactory.newFOUserAgent();
 
@@ -144,9 +150,6 @@ public void render(InputStream input, OutputStream output, String outputFormat)
         // Identity transformer
         Transformer transformer = this.transformerFactory.newTransformer();
 
-        // Setup input stream.
-        Source source = new StreamSource(input);
-
         // Resulting SAX events (the generated FO) must be piped through to FOP.
         Result result = new SAXResult(fop.getDefaultHandler());
 
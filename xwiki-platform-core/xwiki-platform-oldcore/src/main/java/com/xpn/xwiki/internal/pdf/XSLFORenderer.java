@@ -22,6 +22,8 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import javax.xml.transform.Source;
+
 import org.xwiki.component.annotation.Role;
 
 /**
@@ -42,4 +44,18 @@
      * @throws Exception if XSL-FO rendering fails
      */
     void render(InputStream input, OutputStream output, String outputFormat) throws Exception;
+
+    /**
+     * Renders the XSL-FO produced by the passed source to the specified output format.
+     * <p>
+     * The source is consumed as it's rendered so a {@link javax.xml.transform.sax.SAXSource} producing the XSL-FO as
+     * SAX events (the result of an XSLT transformation for example) does not need to be serialized first.
+     *
+     * @param input the XSL-FO input
+     * @param output where to write the output
+     * @param outputFormat the output format
+     * @throws Exception if XSL-FO rendering fails
+     * @since 12.8RC1
+     */
+    void render(Source input, OutputStream output, String outputFormat) throws Exception;
 }
@@ -0,0 +1,152 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.pdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.xml.EntityResolver;
+import org.xwiki.xml.XMLReaderFactory;
+
+/**
+ * Keep the compiled XSLT stylesheets used by the exports so that the same stylesheet is not parsed and compiled again
+ * for each export.
+ * <p>
+ * The stylesheets coming from the classpath are indexed by resource name and the other ones by the hash of their
+ * content (they are usually the result of a Velocity evaluation).
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = XSLTemplatesCache.class)
+@Singleton
+public class XSLTemplatesCache implements Initializable, Disposable
+{
+    private static final String NAME = "export.xslt";
+
+    private static final int SIZE = 100;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private XMLReaderFactory xmlReaderFactory;
+
+    @Inject
+    private EntityResolver entityResolver;
+
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    private Cache<Templates> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewLocalCache(new LRUCacheConfiguration(NAME, SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the XSLT templates cache", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.cache.dispose();
+    }
+
+    /**
+     * @return the factory used to compile the stylesheets, to use when creating the transformers and filters
+     */
+    public TransformerFactory getTransformerFactory()
+    {
+        return this.transformerFactory;
+    }
+
+    /**
+     * @param xslt the content of the stylesheet
+     * @return the compiled stylesheet
+     * @throws Exception when failing to compile the stylesheet
+     */
+    public Templates getTemplates(String xslt) throws Exception
+    {
+        String key = "content:" + DigestUtils.sha256Hex(xslt);
+
+        Templates templates = this.cache.get(key);
+        if (templates == null) {
+            templates = compile(new InputSource(new StringReader(xslt)));
+            this.cache.set(key, templates);
+        }
+
+        return templates;
+    }
+
+    /**
+     * @param classLoader the class loader from which to load the stylesheet
+     * @param resourceName the name of the resource containing the stylesheet
+     * @return the compiled stylesheet
+     * @throws Exception when failing to load or compile the stylesheet
+     */
+    public Templates getTemplates(ClassLoader classLoader, String resourceName) throws Exception
+    {
+        String key = "resource:" + resourceName;
+
+        Templates templates = this.cache.get(key);
+        if (templates == null) {
+            try (InputStream stream = classLoader.getResourceAsStream(resourceName)) {
+                if (stream == null) {
+                    throw new IOException(String.format("Cannot find the XSLT resource [%s]", resourceName));
+                }
+
+                templates = compile(new InputSource(stream));
+            }
+            this.cache.set(key, templates);
+        }
+
+        return templates;
+    }
+
+    private Templates compile(InputSource xslt) throws Exception
+    {
+        XMLReader xmlReader = this.xmlReaderFactory.createXMLReader();
+        xmlReader.setEntityResolver(this.entityResolver);
+
+        return this.transformerFactory.newTemplates(new SAXSource(xmlReader, xslt));
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.skin;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.BaseObjectReference;
+import com.xpn.xwiki.web.XWikiRequest;
+
+/**
+ * Keep the result of the evaluation of the skin CSS and JavaScript files so that the same files are not evaluated again
+ * by Velocity for each request.
+ * <p>
+ * The entries are indexed by the source of the file and its version, and by the context of the evaluation (wiki, skin,
+ * color theme, locale and request URL). They are removed when a skin, color theme or preferences object is added,
+ * modified or removed.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = SkinResourceCache.class)
+@Singleton
+public class SkinResourceCache implements Initializable, Disposable
+{
+    private static final String NAME = "skin.resources";
+
+    private static final String COLOR_THEME = "colorTheme";
+
+    private static final List<String> CLASSES = Arrays.asList("XWiki.XWikiSkins", "ColorThemes.ColorThemeClass",
+        "FlamingoThemesCode.ThemeClass", "XWiki.XWikiPreferences");
+
+    // Only the modifications of skin, color theme and preferences objects are relevant (no need to look at the
+    // objects of each saved document)
+    private static final List<Event> EVENTS = CLASSES.stream()
+        .flatMap(classReference -> BaseObjectReference.anyEvents(classReference).stream())
+        .collect(Collectors.toList());
+
+    /**
+     * An evaluated skin resource.
+     *
+     * @version $Id$
+     */
+    public static final class SkinResource
+    {
+        private final byte[] content;
+
+        private final Date date;
+
+        private final String etag;
+
+        private SkinResource(byte[] content, Date date)
+        {
+            this.content = content;
+            this.date = date;
+            this.etag = '"' + DigestUtils.md5Hex(content) + '"';
+        }
+
+        /**
+         * @return the evaluated content
+         */
+        public byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return the date of the last modification of the resource
+         */
+        public Date getDate()
+        {
+            return this.date;
+        }
+
+        /**
+         * @return the entity tag of the content, to use in the ETag header
+         */
+        public String getETag()
+        {
+            return this.etag;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private Cache<SkinResource> cache;
+
+    private final EventListener listener = new EventListener()
+    {
+        @Override
+        public String getName()
+        {
+            return SkinResourceCache.class.getName();
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return EVENTS;
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            // The evaluation of any skin resource might depend on the modified object
+            removeAll();
+        }
+    };
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int size = this.configuration.getProperty("skin.cache.resources.size", 500);
+
+        if (size > 0) {
+            try {
+                this.cache = this.cacheManager.createNewLocalCache(new LRUCacheConfiguration(NAME, size));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the skin resources cache", e);
+            }
+
+            this.observation.addListener(this.listener);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cache != null) {
+            this.observation.removeListener(this.listener.getName());
+
+            this.cache.dispose();
+        }
+    }
+
+    /**
+     * @param resource the identifier of the source of the resource
+     * @param version the version of the source of the resource
+     * @param xcontext the context in which the resource is evaluated
+     * @return the key of the resource in the cache, {@code null} if the resource cannot be cached
+     */
+    public String getKey(String resource, String version, XWikiContext xcontext)
+    {
+        if (this.cache == null) {
+            return null;
+        }
+
+        XWikiRequest request = xcontext.getRequest();
+
+        String colorTheme = request.getParameter(COLOR_THEME);
+        if (StringUtils.isEmpty(colorTheme)) {
+            colorTheme = xcontext.getWiki().getUserPreference(COLOR_THEME, xcontext);
+        }
+
+        StringBuilder key = new StringBuilder();
+        appendKeyElement(xcontext.getWikiId(), key);
+        appendKeyElement(xcontext.getWiki().getSkin(xcontext), key);
+        appendKeyElement(colorTheme, key);
+        appendKeyElement(String.valueOf(xcontext.getLocale()), key);
+        appendKeyElement(String.valueOf(request.getRequestURL()), key);
+        appendKeyElement(request.getQueryString(), key);
+        appendKeyElement(resource, key);
+        appendKeyElement(version, key);
+
+        return key.toString();
+    }
+
+    private void appendKeyElement(String element, StringBuilder key)
+    {
+        // Prefix with the size of the element to avoid any ambiguity
+        if (element != null) {
+            key.append(element.length());
+            key.append(':');
+            key.append(element);
+        } else {
+            key.append('-');
+        }
+    }
+
+    /**
+     * @param key the key of the resource
+     * @return the evaluated resource, {@code null} if it's not in the cache
+     */
+    public SkinResource get(String key)
+    {
+        return this.cache != null && key != null ? this.cache.get(key) : null;
+    }
+
+    /**
+     * @param key the key of the resource
+     * @param content the evaluated content
+     * @param date the date of the last modification of the resource
+     * @return the cached resource
+     */
+    public SkinResource set(String key, byte[] content, Date date)
+    {
+        SkinResource resource = new SkinResource(content, date);
+
+        if (this.cache != null && key != null) {
+            this.cache.set(key, resource);
+        }
+
+        return resource;
+    }
+
+    /**
+     * Remove all the evaluated resources.
+     */
+    public void removeAll()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections4.ListUtils;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.BaseStringProperty;
+import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.DoubleProperty;
+import com.xpn.xwiki.objects.FloatProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
+import com.xpn.xwiki.objects.LongProperty;
+import com.xpn.xwiki.objects.StringListProperty;
+import com.xpn.xwiki.objects.StringProperty;
+
+/**
+ * Load the properties of several objects at once: one query to list the properties of all the objects and then one
+ * query per property table, instead of one query per object and one query per property.
+ * <p>
+ * Only the properties stored in a single column are handled, the other ones (like the ones stored in several rows of
+ * {@code xwikilistitems}) are expected to be loaded one by one by the caller.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+public class ObjectPropertiesBulkLoader
+{
+    /**
+     * The maximum number of identifiers passed to a single {@code in} clause (some databases, like Oracle, don't
+     * support more than 1000).
+     */
+    private static final int MAX_IDS = 1000;
+
+    private static final String IDS = "ids";
+
+    private static final String VALUE = "value";
+
+    /**
+     * The property types which can be loaded in bulk, with the name of the Hibernate property holding the value.
+     */
+    private static final Map<String, String> VALUE_PROPERTIES = new LinkedHashMap<>();
+
+    static {
+        VALUE_PROPERTIES.put(StringProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(LargeStringProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(IntegerProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(LongProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(FloatProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(DoubleProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(DateProperty.class.getName(), VALUE);
+        VALUE_PROPERTIES.put(StringListProperty.class.getName(), "textValue");
+    }
+
+    /**
+     * The name and type of the properties, indexed by object identifier.
+     */
+    private final Map<Long, List<Object[]>> properties = new HashMap<>();
+
+    /**
+     * The values of the properties, indexed by property type, object identifier and property name.
+     */
+    private final Map<String, Map<Long, Map<String, Object>>> values = new HashMap<>();
+
+    /**
+     * Load the properties of the passed objects.
+     *
+     * @param objectIds the identifiers of the objects for which to load the properties
+     * @param session the Hibernate session to use
+     */
+    public void load(Collection<Long> objectIds, Session session)
+    {
+        if (objectIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Set<Long>> idsByType = new HashMap<>();
+
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(objectIds), MAX_IDS)) {
+            Query<Object[]> query = session.createQuery(
+                "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)",
+                Object[].class);
+            query.setParameterList(IDS, ids);
+
+            for (Object[] result : query.list()) {
+                Long id = (Long) result[0];
+                String classType = (String) result[2];
+
+                this.properties.computeIfAbsent(id, k -> new ArrayList<>())
+                    .add(new Object[] { result[1], classType });
+
+                if (VALUE_PROPERTIES.containsKey(classType)) {
+                    idsByType.computeIfAbsent(classType, k -> new LinkedHashSet<>()).add(id);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Set<Long>> entry : idsByType.entrySet()) {
+            loadValues(entry.getKey(), new ArrayList<>(entry.getValue()), session);
+        }
+    }
+
+    private void loadValues(String classType, List<Long> objectIds, Session session)
+    {
+        Map<Long, Map<String, Object>> typeValues = this.values.computeIfAbsent(classType, k -> new HashMap<>());
+
+        // Make sure to not mix types sharing the same table (like LargeStringProperty and StringListProperty)
+        String statement = String.format("select prop.id.id, prop.name, prop.%s from %s as prop "
+            + "where prop.id.id in (:ids) and prop.classType = :classType", VALUE_PROPERTIES.get(classType),
+            classType);
+
+        for (List<Long> ids : ListUtils.partition(objectIds, MAX_IDS)) {
+            Query<Object[]> query = session.createQuery(statement, Object[].class);
+            query.setParameterList(IDS, ids);
+            query.setParameter("classType", classType);
+
+            for (Object[] result : query.list()) {
+                typeValues.computeIfAbsent((Long) result[0], k -> new HashMap<>()).put((String) result[1], result[2]);
+            }
+        }
+    }
+
+    /**
+     * @param objectId the identifier of the object
+     * @return the name and the type of each property of the object
+     */
+    public List<Object[]> getProperties(long objectId)
+    {
+        return this.properties.getOrDefault(objectId, Collections.emptyList());
+    }
+
+    /**
+     * Set the loaded value in the passed property.
+     *
+     * @param property the property to update, already associated to its object and name
+     * @return true if the value of the property has been loaded and set, false if the property should be loaded by
+     *         other means
+     */
+    public boolean setValue(BaseProperty property)
+    {
+        Map<Long, Map<String, Object>> typeValues = this.values.get(property.getClassType());
+        if (typeValues == null) {
+            return false;
+        }
+
+        Map<String, Object> objectValues = typeValues.get(property.getId());
+        if (objectValues == null || !objectValues.containsKey(property.getName())) {
+            return false;
+        }
+
+        Object value = objectValues.get(property.getName());
+        if (property instanceof StringListProperty) {
+            ((StringListProperty) property).setTextValue((String) value);
+        } else {
+            property.setValue(value);
+        }
+
+        // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
+        // safe to assume that a retrieved NULL value should actually be an empty string.
+        if (property instanceof BaseStringProperty && ((BaseStringProperty) property).getValue() == null) {
+            ((BaseStringProperty) property).setValue("");
+        }
+
+        property.setValueDirty(false);
+
+        return true;
+    }
+}
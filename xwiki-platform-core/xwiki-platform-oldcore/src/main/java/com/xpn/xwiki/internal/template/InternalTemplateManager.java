@@ -163,6 +163,9 @@ public class InternalTemplateManager implements Initializable
     @Inject
     private VelocityTemplateEvaluator evaluator;
 
+    @Inject
+    private TemplateXDOMCache xdomCache;
+
     @Inject
     private Logger logger;
 
@@ -651,7 +654,12 @@ private XDOM getXDOM(Template template, TemplateContent content) throws Exceptio
         XDOM xdom;
 
         if (content.getSourceSyntax() != null) {
-            xdom = this.parser.parse(content.getContent(), content.getSourceSyntax());
+            xdom = this.xdomCache.get(template, content);
+            if (xdom == null) {
+                xdom = this.parser.parse(content.getContent(), content.getSourceSyntax());
+
+                this.xdomCache.set(template, content, xdom);
+            }
         } else {
             String result = evaluateContent(template, content);
             if (StringUtils.isEmpty(result)) {
@@ -0,0 +1,225 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.template;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateContent;
+import org.xwiki.template.event.TemplateDeletedEvent;
+import org.xwiki.template.event.TemplateEvent;
+import org.xwiki.template.event.TemplateUpdatedEvent;
+
+/**
+ * Keep the result of the parsing of the templates declaring a source syntax, to not parse them again each time they
+ * are rendered.
+ * <p>
+ * The entries are indexed by template id (which already indicates the skin or the wiki page the template comes from)
+ * and are only reused if the content of the template did not change since it was parsed. They are also removed when a
+ * template stored in a wiki page is modified or deleted.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = TemplateXDOMCache.class)
+@Singleton
+public class TemplateXDOMCache implements Initializable, Disposable
+{
+    private static final String NAME = "template.xdom";
+
+    private static final List<Event> EVENTS = Arrays.asList(new TemplateUpdatedEvent(), new TemplateDeletedEvent());
+
+    private static final class Entry
+    {
+        private final String content;
+
+        private final Syntax syntax;
+
+        private final XDOM xdom;
+
+        private Entry(String content, Syntax syntax, XDOM xdom)
+        {
+            this.content = content;
+            this.syntax = syntax;
+            this.xdom = xdom;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private Cache<Entry> cache;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final EventListener listener = new EventListener()
+    {
+        @Override
+        public String getName()
+        {
+            return TemplateXDOMCache.class.getName();
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return EVENTS;
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            remove(((TemplateEvent) event).getId());
+        }
+    };
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int size = this.configuration.getProperty("template.cache.xdom.size", 1000);
+
+        if (size > 0) {
+            try {
+                this.cache = this.cacheManager.createNewLocalCache(new LRUCacheConfiguration(NAME, size));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the template XDOM cache", e);
+            }
+
+            this.observation.addListener(this.listener);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cache != null) {
+            this.observation.removeListener(this.listener.getName());
+
+            this.cache.dispose();
+        }
+    }
+
+    /**
+     * @param template the template
+     * @param content the current content of the template
+     * @return a copy of the XDOM resulting from the parsing of the passed content, {@code null} if it's not in the
+     *         cache
+     */
+    public XDOM get(Template template, TemplateContent content)
+    {
+        if (this.cache == null || template.getId() == null) {
+            return null;
+        }
+
+        Entry entry = this.cache.get(template.getId());
+
+        if (entry != null && Objects.equals(entry.content, content.getContent())
+            && Objects.equals(entry.syntax, content.getSourceSyntax())) {
+            this.hitCount.incrementAndGet();
+
+            // The XDOM is generally modified by the transformations
+            return entry.xdom.clone();
+        }
+
+        this.missCount.incrementAndGet();
+
+        return null;
+    }
+
+    /**
+     * @param template the template
+     * @param content the content of the template which was parsed
+     * @param xdom the result of the parsing of the passed content
+     */
+    public void set(Template template, TemplateContent content, XDOM xdom)
+    {
+        if (this.cache != null && template.getId() != null) {
+            this.cache.set(template.getId(), new Entry(content.getContent(), content.getSourceSyntax(), xdom.clone()));
+        }
+    }
+
+    /**
+     * @param id the identifier of the template to forget
+     */
+    public void remove(String id)
+    {
+        if (this.cache != null && id != null) {
+            this.cache.remove(id);
+        }
+    }
+
+    /**
+     * @return the number of times a template XDOM was found in the cache
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times a template had to be parsed
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the proportion of template XDOMs found in the cache, between 0 and 1
+     */
+    public double getHitRate()
+    {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+
+        return total > 0 ? (double) hits / total : 0;
+    }
+}
@@ -19,7 +19,6 @@
  */
 package com.xpn.xwiki.pdf.impl;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -33,7 +32,13 @@
 import java.util.HashMap;
 import java.util.List;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -50,6 +55,7 @@
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLFilter;
 import org.xml.sax.XMLReader;
 import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.environment.Environment;
@@ -70,6 +76,7 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.pdf.XSLFORenderer;
+import com.xpn.xwiki.internal.pdf.XSLTemplatesCache;
 import com.xpn.xwiki.pdf.api.PdfExport;
 import com.xpn.xwiki.web.Utils;
 
@@ -120,6 +127,11 @@ public class PdfExportImpl implements PdfExport
      */
     private XSLFORenderer xslFORenderer = Utils.getComponent(XSLFORenderer.class, "fop");
 
+    /**
+     * Used to get the compiled XSLT stylesheets.
+     */
+    private XSLTemplatesCache templatesCache;
+
     @Override
     public void exportToPDF(XWikiDocument doc, OutputStream out, XWikiContext context) throws XWikiException
     {
@@ -210,13 +222,20 @@ protected void exportXHTML(String xhtml, OutputStream out, ExportType type, XWik
     {
         LOGGER.debug("Final XHTML for export:\n{}", xhtml);
 
-        // XSL Transformation to XML-FO
-        String xmlfo = convertXHtmlToXMLFO(xhtml, context);
+        TransformerFactory factory = getTemplatesCache().getTransformerFactory();
+        if (LOGGER.isDebugEnabled() || !factory.getFeature(SAXTransformerFactory.FEATURE_XMLFILTER)) {
+            // XSL Transformation to XML-FO
+            String xmlfo = convertXHtmlToXMLFO(xhtml, context);
 
-        // Debug output
-        LOGGER.debug("Final XSL-FO source:\n{}", xmlfo);
+            // Debug output
+            LOGGER.debug("Final XSL-FO source:\n{}", xmlfo);
 
-        renderXSLFO(xmlfo, out, type, context);
+            renderXSLFO(new StreamSource(new StringReader(xmlfo)), out, type);
+        } else {
+            // Stream the XHTML through the XSL transformations directly to the XSL-FO renderer instead of keeping the
+            // (much bigger) intermediate XSL-FO documents in memory
+            renderXSLFO(getXMLFOSource(xhtml, (SAXTransformerFactory) factory, context), out, type);
+        }
     }
 
     /**
@@ -241,20 +260,47 @@ private String convertXHtmlToXMLFO(String xhtml, XWikiContext context) throws XW
         return applyXSLT(xmlfo, getFopCleanupXslt(context));
     }
 
+    /**
+     * Produce the XSL-FO version of a valid XHTML document as SAX events, by chaining the same XSLT transformations as
+     * {@link #convertXHtmlToXMLFO(String, XWikiContext)} without serializing the intermediate documents.
+     *
+     * @param xhtml the XHTML document to convert
+     * @param factory the factory used to create the XSLT filters
+     * @param context the current request context
+     * @return the source producing the resulting XML-FO document when parsed
+     * @throws XWikiException if the XSLT cannot be loaded
+     */
+    private Source getXMLFOSource(String xhtml, SAXTransformerFactory factory, XWikiContext context)
+        throws XWikiException
+    {
+        try {
+            XMLFilter xhtml2fo = factory.newXMLFilter(getXhtml2FopXslt(context));
+            xhtml2fo.setParent(createXMLReader());
+
+            XMLFilter cleanup = factory.newXMLFilter(getFopCleanupXslt(context));
+            cleanup.setParent(xhtml2fo);
+
+            return new SAXSource(cleanup, new InputSource(new StringReader(xhtml)));
+        } catch (XWikiException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED,
+                "XSL Transformation Failed", e);
+        }
+    }
+
     /**
      * Convert an XSL-FO document into PDF.
      *
      * @param xmlfo the source FO to render
      * @param out where to write the resulting document
      * @param type the type of the output: PDF or RTF
-     * @param context the XWiki Context used by the custom URI Resolver we use to locate image attachment data
      * @throws XWikiException if the conversion fails for any reason
      */
-    private void renderXSLFO(String xmlfo, OutputStream out, ExportType type, final XWikiContext context)
-        throws XWikiException
+    private void renderXSLFO(Source xmlfo, OutputStream out, ExportType type) throws XWikiException
     {
         try {
-            this.xslFORenderer.render(new ByteArrayInputStream(xmlfo.getBytes("UTF-8")), out, type.getMimeType());
+            this.xslFORenderer.render(xmlfo, out, type.getMimeType());
         } catch (IllegalStateException e) {
             throw createException(e, type, XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION);
         } catch (Exception e) {
@@ -273,8 +319,7 @@ private void renderXSLFO(String xmlfo, OutputStream out, ExportType type, final
     protected String applyXSLT(String xml, InputStream xslt) throws XWikiException
     {
         try {
-            XMLReader xmlReader = Utils.getComponent(XMLReaderFactory.class).createXMLReader();
-            xmlReader.setEntityResolver(Utils.getComponent(EntityResolver.class));
+            XMLReader xmlReader = createXMLReader();
             SAXSource xmlSource = new SAXSource(xmlReader, new InputSource(new StringReader(xml)));
             SAXSource xsltSource = new SAXSource(xmlReader, new InputSource(xslt));
             return XMLUtils.transform(xmlSource, xsltSource);
@@ -284,6 +329,44 @@ protected String applyXSLT(String xml, InputStream xslt) throws XWikiException
         }
     }
 
+    /**
+     * Applies a compiled XSLT transformation to an XML document.
+     *
+     * @param xml the XML document to convert
+     * @param xslt the compiled XSLT to apply
+     * @return the converted document
+     * @throws XWikiException if the transformation fails for any reason
+     * @since 12.8RC1
+     */
+    protected String applyXSLT(String xml, Templates xslt) throws XWikiException
+    {
+        try {
+            SAXSource xmlSource = new SAXSource(createXMLReader(), new InputSource(new StringReader(xml)));
+            StringWriter writer = new StringWriter();
+            xslt.newTransformer().transform(xmlSource, new StreamResult(writer));
+            return writer.toString();
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED,
+                "XSL Transformation Failed", e);
+        }
+    }
+
+    private XMLReader createXMLReader() throws Exception
+    {
+        XMLReader xmlReader = Utils.getComponent(XMLReaderFactory.class).createXMLReader();
+        xmlReader.setEntityResolver(Utils.getComponent(EntityResolver.class));
+        return xmlReader;
+    }
+
+    private XSLTemplatesCache getTemplatesCache()
+    {
+        if (this.templatesCache == null) {
+            this.templatesCache = Utils.getComponent(XSLTemplatesCache.class);
+        }
+
+        return this.templatesCache;
+    }
+
     /**
      * Apply CSS styling to an XHTML document. The style to apply is taken from:
      * <ol>
@@ -412,11 +495,12 @@ private void applyInlineStyle(Element element)
      * </ol>
      *
      * @param context the current request context
-     * @return the content of the XSLT as a byte stream
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT cannot be compiled
      */
-    private InputStream getXhtml2FopXslt(XWikiContext context)
+    private Templates getXhtml2FopXslt(XWikiContext context) throws XWikiException
     {
-        return getXslt("xhtmlxsl", DEFAULT_XHTML2FOP_XSLT, context);
+        return getXsltTemplates("xhtmlxsl", DEFAULT_XHTML2FOP_XSLT, context);
     }
 
     /**
@@ -427,11 +511,12 @@ private InputStream getXhtml2FopXslt(XWikiContext context)
      * </ol>
      *
      * @param context the current request context
-     * @return the content of the XSLT as a byte stream
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT cannot be compiled
      */
-    private InputStream getFopCleanupXslt(XWikiContext context)
+    private Templates getFopCleanupXslt(XWikiContext context) throws XWikiException
     {
-        return getXslt("fopxsl", DEFAULT_CLEANUP_XSLT, context);
+        return getXsltTemplates("fopxsl", DEFAULT_CLEANUP_XSLT, context);
     }
 
     /**
@@ -462,6 +547,33 @@ protected InputStream getXslt(String propertyName, String fallbackFile, XWikiCon
         return getClass().getClassLoader().getResourceAsStream(fallbackFile);
     }
 
+    /**
+     * Get a compiled XSLT file. The same XSLT file is compiled only once.
+     *
+     * @param propertyName the name of the xproperty from which to read the XSLT file, see
+     *            {@link #getXslt(String, String, XWikiContext)}
+     * @param fallbackFile the name of a resource file to use when no XSLT content was found using the passed
+     *            {@code propertyName}
+     * @param context the current request context
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT cannot be compiled
+     * @since 12.8RC1
+     */
+    protected Templates getXsltTemplates(String propertyName, String fallbackFile, XWikiContext context)
+        throws XWikiException
+    {
+        String xsl = getPDFTemplateProperty(propertyName, context);
+        try {
+            if (!StringUtils.isBlank(xsl)) {
+                return getTemplatesCache().getTemplates(xsl);
+            }
+            return getTemplatesCache().getTemplates(getClass().getClassLoader(), fallbackFile);
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED,
+                "XSL Transformation Failed", e);
+        }
+    }
+
     /**
      * Extract XSLT file content using the following algorithm:
      * <ul>
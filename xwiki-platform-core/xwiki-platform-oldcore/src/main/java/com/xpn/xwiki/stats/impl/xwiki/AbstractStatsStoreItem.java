@@ -63,6 +63,13 @@ public abstract class AbstractStatsStoreItem implements XWikiStatsStoreItem
      */
     protected int period;
 
+    /**
+     * The number of statistics events combined in this item.
+     *
+     * @since 12.8RC1
+     */
+    protected int hits = 1;
+
     /**
      * @param name the statistic name.
      * @param periodDate the period date.
@@ -80,6 +87,17 @@ public AbstractStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         this.context = context.clone();
     }
 
+    /**
+     * Combine the passed statistic, which has the same identifier, into this one so that they are stored at once.
+     *
+     * @param item the statistic to combine into this one
+     * @since 12.8RC1
+     */
+    public void combine(AbstractStatsStoreItem item)
+    {
+        this.hits += item.hits;
+    }
+
     @Override
     public void store(List<XWikiStatsStoreItem> statsList)
     {
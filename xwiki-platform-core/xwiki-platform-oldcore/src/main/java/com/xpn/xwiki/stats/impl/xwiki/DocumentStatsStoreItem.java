@@ -50,9 +50,9 @@ public class DocumentStatsStoreItem extends AbstractStatsStoreItem
     private String action;
 
     /**
-     * Is this part of a user visit.
+     * The number of user visits combined in this item.
      */
-    private boolean isVisit;
+    private int visits;
 
     /**
      * Create new instance of {@link DocumentStatsStoreItem}.
@@ -75,7 +75,15 @@ public DocumentStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         super(name, periodDate, periodType, context);
 
         this.action = action;
-        this.isVisit = isVisit;
+        this.visits = isVisit ? 1 : 0;
+    }
+
+    @Override
+    public void combine(AbstractStatsStoreItem item)
+    {
+        super.combine(item);
+
+        this.visits += ((DocumentStatsStoreItem) item).visits;
     }
 
     @Override
@@ -108,14 +116,16 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        documentStat.setIntValue("pageViews", documentStat.getPageViews() + stats.size());
+        int pageViews = 0;
+        int visitCount = 0;
         for (XWikiStatsStoreItem statItem : stats) {
             DocumentStatsStoreItem docStat = (DocumentStatsStoreItem) statItem;
 
-            if (docStat.isVisit) {
-                documentStat.incVisits();
-            }
+            pageViews += docStat.hits;
+            visitCount += docStat.visits;
         }
+        documentStat.setIntValue("pageViews", documentStat.getPageViews() + pageViews);
+        documentStat.setVisits(documentStat.getVisits() + visitCount);
 
         // Re-save statistics object
         try {
@@ -70,6 +70,19 @@ public String getId()
             this.visitStats.getCookie());
     }
 
+    @Override
+    public void combine(AbstractStatsStoreItem item)
+    {
+        super.combine(item);
+
+        // Store the latest state of the visit but still delete the object stored before the first combined item
+        VisitStats oldVisitStats = this.visitStats.getOldObject();
+        this.visitStats = ((VisitStatsStoreItem) item).visitStats;
+        if (oldVisitStats != null) {
+            this.visitStats.rememberOldObject(oldVisitStats);
+        }
+    }
+
     @Override
     public void storeInternal(List<XWikiStatsStoreItem> stats)
     {
@@ -20,27 +20,38 @@
 package com.xpn.xwiki.stats.impl.xwiki;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.stats.impl.StatsUtil;
 import com.xpn.xwiki.stats.impl.VisitStats;
+import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.util.AbstractXWikiRunnable;
 import com.xpn.xwiki.web.DownloadAction;
 import com.xpn.xwiki.web.SaveAction;
+import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.ViewAction;
 
 /**
  * Back-end statistics storing service.
+ * <p>
+ * The statistics are combined in memory (one entry by wiki and statistic identifier, which includes the period) and
+ * are stored periodically by a single thread, which means that a counter incremented many times between two flushes
+ * is loaded and saved only once. When too many distinct statistics are waiting to be stored, the threads producing
+ * new ones wait for the next flush instead of dropping them.
  *
  * @version $Id$
  * @since 1.4M2
@@ -53,14 +64,41 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiStatsStoreService.class);
 
     /**
-     * The queue containing the statistics to store.
+     * The statistics waiting to be stored, indexed by wiki and statistic identifier, in the order in which they were
+     * first added. The statistics extending {@link AbstractStatsStoreItem} are combined in a single item. Protected by
+     * {@link #pendingLock}.
      */
-    private ArrayBlockingQueue<XWikiStatsStoreItem> queue;
+    private Map<String, List<XWikiStatsStoreItem>> pending = new LinkedHashMap<>();
+
+    /**
+     * Used to protect the pending statistics.
+     */
+    private final Object pendingLock = new Object();
+
+    /**
+     * The maximum number of distinct statistics waiting to be stored, a flush is forced when it's reached.
+     */
+    private final int maxPendingSize;
+
+    /**
+     * The time to wait between two flushes of the pending statistics, in milliseconds.
+     */
+    private final long flushInterval;
+
+    /**
+     * Used to wake up the storing thread.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * Indicate if the storing thread should stop.
+     */
+    private volatile boolean stopped;
 
     /**
      * The thread on which the storing service is running.
      */
-    private Thread thread;
+    private volatile Thread thread;
 
     /**
      * The xwiki context.
@@ -75,8 +113,8 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     public XWikiStatsStoreService(XWikiContext context)
     {
         this.xwikiContext = context.clone();
-        long queueSize = context.getWiki().ParamAsLong("stats.queue.size", 200);
-        this.queue = new ArrayBlockingQueue<>((int) queueSize);
+        this.maxPendingSize = (int) context.getWiki().ParamAsLong("stats.queue.size", 10000);
+        this.flushInterval = context.getWiki().ParamAsLong("stats.flush.interval", 10000);
     }
 
     @Override
@@ -92,6 +130,7 @@ protected void declareProperties(ExecutionContext executionContext)
     public void start()
     {
         if (this.thread == null) {
+            this.stopped = false;
             this.thread = new Thread(this, "Statistics storing daemon");
             // The JVM should be allowed to shutdown while this thread is running
             this.thread.setDaemon(true);
@@ -100,13 +139,16 @@ public void start()
     }
 
     /**
-     * Stop storing thread.
+     * Stop storing thread, after storing the pending statistics.
      */
     public void stop()
     {
-        this.queue.clear();
+        this.stopped = true;
+        synchronized (this.flushLock) {
+            this.flushLock.notifyAll();
+        }
+
         try {
-            this.queue.put(new StopStatsRegisterObject());
             this.thread.join();
             this.thread = null;
         } catch (InterruptedException e) {
@@ -120,75 +162,220 @@ public void stop()
     public void runInternal() throws InterruptedException
     {
         try {
-            while (true) {
+            while (!this.stopped) {
+                synchronized (this.flushLock) {
+                    // Don't wait if some threads are already waiting for room in the pending statistics
+                    if (!this.stopped && getPendingSize() < this.maxPendingSize) {
+                        this.flushLock.wait(this.flushInterval);
+                    }
+                }
+
                 register();
+
+                // Wake up the threads waiting for room in the pending statistics
+                synchronized (this.flushLock) {
+                    this.flushLock.notifyAll();
+                }
             }
         } catch (InterruptedException e) {
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("Statistics storing thread has been interrupted.", e);
             }
             throw e;
-        } catch (StopStatsStoreException e) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.warn("Statistics storing thread received stop order.", e);
-            }
         }
+
+        LOGGER.info("Statistics storing thread received stop order.");
     }
 
     /**
-     * Store the statistics in the queue.
-     *
-     * @throws InterruptedException thread has been interrupted.
-     * @throws StopStatsStoreException service received stop order.
+     * Store the pending statistics.
      */
-    private void register() throws InterruptedException, StopStatsStoreException
+    private void register()
     {
-        XWikiStatsStoreItem stat = this.queue.take();
+        // Take the combined statistics
+        Map<String, List<XWikiStatsStoreItem>> pendingStats;
+        synchronized (this.pendingLock) {
+            pendingStats = this.pending;
+            this.pending = new LinkedHashMap<>();
+        }
 
-        List<List<XWikiStatsStoreItem>> statsList = new ArrayList<>();
-        Map<String, List<XWikiStatsStoreItem>> statsMap = new HashMap<>();
+        // Group them by wiki, keeping the order in which they were added
+        Map<String, List<List<XWikiStatsStoreItem>>> statsByWiki = new LinkedHashMap<>();
+        for (List<XWikiStatsStoreItem> stats : pendingStats.values()) {
+            statsByWiki.computeIfAbsent(getWikiId(stats.get(0)), k -> new ArrayList<>()).add(stats);
+        }
 
-        do {
-            if (stat instanceof StopStatsRegisterObject) {
-                throw new StopStatsStoreException();
-            }
+        for (List<List<XWikiStatsStoreItem>> statsList : statsByWiki.values()) {
+            register(statsList);
+        }
+    }
 
-            String statId = stat.getId();
+    /**
+     * Store the statistics of a wiki in a single transaction, or one by one if the transaction fails so that a single
+     * failing statistic does not prevent the others from being stored.
+     *
+     * @param statsList the statistics of a wiki, combined by identifier
+     */
+    private void register(List<List<XWikiStatsStoreItem>> statsList)
+    {
+        try {
+            store(statsList);
+        } catch (Exception e) {
+            if (statsList.size() == 1) {
+                LOGGER.error("Failed to store the statistic [{}]", statsList.get(0).get(0).getId(), e);
+            } else {
+                LOGGER.warn("Failed to store the statistics of wiki [{}] in a single transaction, storing them one by"
+                    + " one: {}", getWikiId(statsList.get(0).get(0)), ExceptionUtils.getRootCauseMessage(e));
+
+                for (List<XWikiStatsStoreItem> stats : statsList) {
+                    register(Collections.singletonList(stats));
+                }
+            }
+        }
+    }
 
-            List<XWikiStatsStoreItem> stats = statsMap.get(statId);
+    /**
+     * Store statistics of the same wiki in a single transaction.
+     *
+     * @param statsList the statistics of a wiki, combined by identifier
+     * @throws XWikiException when failing to start or commit the transaction
+     */
+    private void store(List<List<XWikiStatsStoreItem>> statsList) throws XWikiException
+    {
+        XWikiStatsStoreItem firstItem = statsList.get(0).get(0);
+        XWikiContext context =
+            firstItem instanceof AbstractStatsStoreItem ? ((AbstractStatsStoreItem) firstItem).context : null;
+        XWikiHibernateStore store = context != null ? context.getWiki().getHibernateStore() : null;
 
-            if (stats == null) {
-                stats = new ArrayList<>();
+        ExecutionContext econtext = Utils.getComponent(Execution.class).getContext();
+        Object currentContext = econtext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
 
-                statsMap.put(statId, stats);
-                statsList.add(stats);
+        boolean transaction = false;
+        boolean commit = false;
+        try {
+            if (store != null) {
+                econtext.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, context);
+                // The items join the transaction instead of each opening their own
+                transaction = store.beginTransaction(context);
             }
 
-            stats.add(stat);
+            for (List<XWikiStatsStoreItem> stats : statsList) {
+                stats.get(0).store(stats);
+            }
 
-            stat = this.queue.poll();
-        } while (stat != null);
+            commit = true;
+        } finally {
+            try {
+                if (transaction) {
+                    store.endTransaction(context, commit);
+                }
+            } finally {
+                econtext.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, currentContext);
+            }
+        }
+    }
 
-        for (List<XWikiStatsStoreItem> stats : statsList) {
-            stats.get(0).store(stats);
+    private int getPendingSize()
+    {
+        synchronized (this.pendingLock) {
+            return this.pending.size();
         }
     }
 
+    private String getKey(XWikiStatsStoreItem item)
+    {
+        // Statistics with the same identifier are stored together (in the same wiki)
+        return getWikiId(item) + ' ' + item.getId();
+    }
+
+    private String getWikiId(XWikiStatsStoreItem item)
+    {
+        return item instanceof AbstractStatsStoreItem ? ((AbstractStatsStoreItem) item).context.getWikiId() : null;
+    }
+
     // ////////////////////////////////////////////////////////////////////////////
     // Add stats to queue
     // ////////////////////////////////////////////////////////////////////////////
 
     /**
      * Add new statistic to store.
+     * <p>
+     * The statistic is combined with the pending one having the same identifier. If too many distinct statistics are
+     * already waiting to be stored, wait for them to be flushed first.
      *
      * @param statsRegisterItem the statistic store item.
      */
     public void add(XWikiStatsStoreItem statsRegisterItem)
     {
-        try {
-            this.queue.put(statsRegisterItem);
-        } catch (InterruptedException e) {
-            LOGGER.error("Statistics storage thread has been interrupted", e);
+        String key = getKey(statsRegisterItem);
+
+        boolean full;
+        synchronized (this.pendingLock) {
+            full = this.pending.size() >= this.maxPendingSize && !this.pending.containsKey(key);
+        }
+        if (full) {
+            waitForFlush();
+        }
+
+        addPending(key, statsRegisterItem);
+    }
+
+    /**
+     * Combine a new statistic with the pending ones, without waiting for a flush.
+     *
+     * @param key the key of the statistic in the pending statistics
+     * @param statsRegisterItem the statistic store item
+     */
+    private void addPending(String key, XWikiStatsStoreItem statsRegisterItem)
+    {
+        synchronized (this.pendingLock) {
+            List<XWikiStatsStoreItem> stats = this.pending.get(key);
+
+            if (stats == null) {
+                stats = new ArrayList<>(1);
+                stats.add(statsRegisterItem);
+                this.pending.put(key, stats);
+            } else {
+                XWikiStatsStoreItem lastItem = stats.get(stats.size() - 1);
+                if (lastItem instanceof AbstractStatsStoreItem
+                    && statsRegisterItem instanceof AbstractStatsStoreItem) {
+                    ((AbstractStatsStoreItem) lastItem).combine((AbstractStatsStoreItem) statsRegisterItem);
+                } else {
+                    stats.add(statsRegisterItem);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a new statistic to store while holding the lock of the visit: never wait for a flush since it would also
+     * block the other requests of the same visit. The limit is checked before taking that lock instead.
+     *
+     * @param statsRegisterItem the statistic store item
+     */
+    private void addWithoutWaiting(XWikiStatsStoreItem statsRegisterItem)
+    {
+        addPending(getKey(statsRegisterItem), statsRegisterItem);
+    }
+
+    /**
+     * Wake up the storing thread and wait until there is room for new statistics.
+     */
+    private void waitForFlush()
+    {
+        LOGGER.debug("More than [{}] distinct statistics are waiting to be stored, forcing a flush",
+            this.maxPendingSize);
+
+        synchronized (this.flushLock) {
+            this.flushLock.notifyAll();
+
+            try {
+                while (this.thread != null && !this.stopped && getPendingSize() >= this.maxPendingSize) {
+                    this.flushLock.wait(this.flushInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -202,6 +389,12 @@ public void add(XWikiStatsStoreItem statsRegisterItem)
     public void addStats(XWikiDocument doc, String action, XWikiContext context)
     {
         VisitStats vobject = StatsUtil.findVisit(context);
+
+        // Wait for room in the pending statistics before locking the visit
+        if (getPendingSize() >= this.maxPendingSize) {
+            waitForFlush();
+        }
+
         synchronized (vobject) {
             if (action.equals(ViewAction.VIEW_ACTION)) {
                 // We count page views in the sessions only for the "view" action
@@ -238,7 +431,7 @@ private void addVisitStats(VisitStats vobject, XWikiContext context)
         Date currentDate = new Date();
 
         vobject.setEndDate(currentDate);
-        add(new VisitStatsStoreItem(vobject, context));
+        addWithoutWaiting(new VisitStatsStoreItem(vobject, context));
         vobject.unrememberOldObject();
     }
 
@@ -254,16 +447,13 @@ private void addDocumentStats(XWikiDocument doc, String action, boolean isVisit,
     {
         Date currentDate = new Date();
 
-        add(new DocumentStatsStoreItem(doc.getFullName(), currentDate, StatsUtil.PeriodType.MONTH, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem(doc.getSpace(), currentDate, StatsUtil.PeriodType.MONTH, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem("", currentDate, StatsUtil.PeriodType.MONTH, action, false, context));
-        add(new DocumentStatsStoreItem(doc.getFullName(), currentDate, StatsUtil.PeriodType.DAY, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem(doc.getSpace(), currentDate, StatsUtil.PeriodType.DAY, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem("", currentDate, StatsUtil.PeriodType.DAY, action, false, context));
+        for (StatsUtil.PeriodType periodType : Arrays.asList(StatsUtil.PeriodType.MONTH, StatsUtil.PeriodType.DAY)) {
+            addWithoutWaiting(
+                new DocumentStatsStoreItem(doc.getFullName(), currentDate, periodType, action, isVisit, context));
+            addWithoutWaiting(
+                new DocumentStatsStoreItem(doc.getSpace(), currentDate, periodType, action, isVisit, context));
+            addWithoutWaiting(new DocumentStatsStoreItem("", currentDate, periodType, action, false, context));
+        }
     }
 
     /**
@@ -281,31 +471,3 @@ private void addRefererStats(XWikiDocument doc, XWikiContext context)
     }
 }
 
-/**
- * Item used to stop the statistics storing.
- *
- * @version $Id$
- */
-class StopStatsRegisterObject implements XWikiStatsStoreItem
-{
-    @Override
-    public String getId()
-    {
-        return null;
-    }
-
-    @Override
-    public void store(List<XWikiStatsStoreItem> register)
-    {
-    }
-}
-
-/**
- * Used to order stopping storing thread.
- *
- * @version $Id$
- */
-class StopStatsStoreException extends Exception
-{
-
-}
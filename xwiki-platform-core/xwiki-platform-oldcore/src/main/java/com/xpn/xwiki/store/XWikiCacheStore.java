@@ -19,8 +19,19 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -104,11 +115,78 @@ public class XWikiCacheStore extends AbstractXWikiStore
 
     private Cache<Boolean> pageExistCache;
 
+    /**
+     * The locales of the translations of each document, indexed by the cache key of the default document.
+     */
+    private Cache<List<String>> translationListCache;
+
     /**
      * Used to cache the values asked by {@link #getLimitSize(XWikiContext, Class, String)}.
      */
     private Cache<Integer> limitSizePropertyCache;
 
+    /**
+     * The documents currently being loaded from the persistent storage, indexed by cache key. Used to make sure
+     * concurrent cache misses on the same document share a single load.
+     */
+    private final ConcurrentMap<String, StoreTask<XWikiDocument>> loadingDocuments = new ConcurrentHashMap<>();
+
+    /**
+     * The documents currently being checked for existence in the persistent storage, indexed by cache key.
+     */
+    private final ConcurrentMap<String, StoreTask<Boolean>> checkingDocuments = new ConcurrentHashMap<>();
+
+    private final AtomicLong coalescedDocumentLoads = new AtomicLong();
+
+    private final AtomicLong coalescedDocumentExistChecks = new AtomicLong();
+
+    /**
+     * A pending access to the underlying store that other threads asking for the same key can wait for.
+     * 
+     * @param <T> the type of the result
+     */
+    private static final class StoreTask<T> extends CompletableFuture<T>
+    {
+        private final Thread owner = Thread.currentThread();
+    }
+
+    /**
+     * An access to the underlying store.
+     * 
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface StoreCall<T>
+    {
+        T call() throws XWikiException;
+    }
+
+    /**
+     * An access to the underlying store for several keys at once.
+     * 
+     * @param <T> the type of the result for each key
+     */
+    @FunctionalInterface
+    private interface BulkStoreCall<T>
+    {
+        /**
+         * @param indexes the positions, in the list of keys, of the entries to ask the store for
+         * @return the results, in the same order as the passed positions
+         */
+        List<T> call(List<Integer> indexes) throws XWikiException;
+    }
+
+    /**
+     * Adapt the result of an access to the underlying store made by another thread.
+     * 
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface SharedResultHandler<T>
+    {
+        T handle(int index, T result);
+    }
+
     /**
      * Default constructor generally used by the Component Manager.
      */
@@ -176,6 +254,11 @@ private void initCache() throws CacheException
         this.pageExistCache = this.cacheManager
             .createNewCache(new LRUCacheConfiguration("xwiki.store.pageexistcache", pageExistCacheCapacity));
 
+        int translationListCacheCapacity =
+            this.configuration.getProperty("xwiki.store.cache.translationlistcapacity", 10000);
+        this.translationListCache = this.cacheManager.createNewCache(
+            new LRUCacheConfiguration("xwiki.store.translationlistcache", translationListCacheCapacity));
+
         // There won't be many values in this cache, but they will be accessed a lot.
         int limitSizePropertyCacheCapacity = 10;
         this.limitSizePropertyCache = this.cacheManager.createNewCache(
@@ -231,6 +314,8 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             String key = getKey(doc, context);
             getCache().remove(key);
             getPageExistCache().remove(key);
+            getTranslationListCache().remove(getTranslationListKey(doc, context));
+            forgetPendingStoreTasks(key);
 
             WikiReference originalWikiReference = doc.getDocumentReference().getWikiReference();
             // Flushing the cache for new document
@@ -241,6 +326,8 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             key = getKey(newDoc, context);
             getCache().remove(key);
             getPageExistCache().remove(key);
+            getTranslationListCache().remove(getTranslationListKey(newDoc, context));
+            forgetPendingStoreTasks(key);
             context.setWikiReference(originalWikiReference);
 
             // Restore the previous XWikiContext
@@ -263,6 +350,8 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
             String key = getKey(doc, context);
             getCache().remove(key);
             getPageExistCache().remove(key);
+            getTranslationListCache().remove(getTranslationListKey(doc, context));
+            forgetPendingStoreTasks(key);
 
             /*
              * We do not want to save the document in the cache at this time. If we did, this would introduce the
@@ -279,7 +368,19 @@ public void flushCache()
     {
         getCache().removeAll();
         getPageExistCache().removeAll();
+        getTranslationListCache().removeAll();
         getLimitSizePropertyCache().removeAll();
+        this.loadingDocuments.clear();
+        this.checkingDocuments.clear();
+    }
+
+    /**
+     * Make sure threads asking for the document after a modification don't wait for a load started before it.
+     */
+    private void forgetPendingStoreTasks(String key)
+    {
+        this.loadingDocuments.remove(key);
+        this.checkingDocuments.remove(key);
     }
 
     @Override
@@ -300,6 +401,10 @@ public void onEvent(Event event, Object source, Object data)
                 if (getPageExistCache() != null) {
                     getPageExistCache().remove(key);
                 }
+                if (getTranslationListCache() != null) {
+                    getTranslationListCache().remove(new XWikiDocument(doc.getDocumentReference()).getKey());
+                }
+                forgetPendingStoreTasks(key);
             }
         }
     }
@@ -326,6 +431,16 @@ public String getKey(XWikiDocument doc, XWikiContext context)
         return this.uidStringEntityReferenceSerializer.serialize(reference, reference);
     }
 
+    /**
+     * @param doc the document or one of its translations
+     * @param context the XWiki context
+     * @return the key of the default document, used to cache the list of translations
+     */
+    private String getTranslationListKey(XWikiDocument doc, XWikiContext context)
+    {
+        return getKey(new XWikiDocument(doc.getDocumentReference()), context);
+    }
+
     /**
      * @deprecated since 4.0M1, use {@link com.xpn.xwiki.doc.XWikiDocument#getKey()}
      */
@@ -378,45 +493,340 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             } else {
                 Boolean result = getPageExistCache().get(key);
 
+                if (result == null && isMissingTranslation(doc, context)) {
+                    getPageExistCache().set(key, Boolean.FALSE);
+
+                    result = Boolean.FALSE;
+                }
+
                 if (result == Boolean.FALSE) {
                     LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
+                    cachedoc = initNewDocument(doc);
+                } else {
+                    cachedoc = loadXWikiDocFromStore(key, doc, context);
+                }
+            }
+
+            cachedoc.setStore(this);
+            LOGGER.debug("Cache: end for doc {} in cache", key);
+
+            return cachedoc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
 
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
+    private XWikiDocument initNewDocument(XWikiDocument doc)
+    {
+        doc.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+
+        return doc;
+    }
+
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            List<XWikiDocument> documents = new ArrayList<>(references.size());
+
+            // The documents to load from the persistent storage and their position in the result
+            List<DocumentReference> missingReferences = new ArrayList<>();
+            List<XWikiDocument> missingDocuments = new ArrayList<>();
+            List<String> missingKeys = new ArrayList<>();
+            List<Integer> missingIndexes = new ArrayList<>();
+
+            for (DocumentReference reference : references) {
+                XWikiDocument doc = new XWikiDocument(
+                    reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                    reference.getLocale());
+                String key = getKey(doc, context);
+
+                XWikiDocument cachedoc;
+                try {
+                    cachedoc = getCache().get(key);
+                } catch (Exception e) {
+                    LOGGER.error("Failed to get document from the cache", e);
+
+                    cachedoc = null;
+                }
+
+                if (cachedoc != null) {
+                    cachedoc.setFromCache(true);
+                } else if (getPageExistCache().get(key) == Boolean.FALSE || isMissingTranslation(doc, context)) {
+                    cachedoc = initNewDocument(doc);
                 } else {
-                    LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+                    missingReferences.add(reference);
+                    missingDocuments.add(doc);
+                    missingKeys.add(key);
+                    missingIndexes.add(documents.size());
+                }
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                documents.add(cachedoc);
+            }
 
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
+            if (!missingReferences.isEmpty()) {
+                List<XWikiDocument> loadedDocuments =
+                    executeStoreTasks(missingKeys, this.loadingDocuments, this.coalescedDocumentLoads, indexes -> {
+                        List<DocumentReference> storeReferences = new ArrayList<>(indexes.size());
+                        for (int index : indexes) {
+                            storeReferences.add(missingReferences.get(index));
+                        }
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
+                        LOGGER.debug("Cache: Trying to get {} docs from persistent storage", storeReferences.size());
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
-                    }
+                        List<XWikiDocument> storeDocuments = this.store.loadXWikiDocs(storeReferences, context);
+
+                        // Update the caches before releasing the waiting threads
+                        for (int i = 0; i < storeDocuments.size(); ++i) {
+                            XWikiDocument loadedDocument = storeDocuments.get(i);
+                            String key = missingKeys.get(indexes.get(i));
+
+                            if (loadedDocument.isNew()) {
+                                getPageExistCache().set(key, Boolean.FALSE);
+                            } else {
+                                getCache().set(key, loadedDocument);
+
+                                // Also update exist cache
+                                getPageExistCache().set(key, Boolean.TRUE);
+                            }
+                        }
+
+                        return storeDocuments;
+                    }, (index, loadedDocument) -> {
+                        if (loadedDocument.isNew()) {
+                            // The loaded document instance belongs to the thread which loaded it
+                            return initNewDocument(missingDocuments.get(index));
+                        }
+
+                        // Same instance as the one stored in the cache
+                        loadedDocument.setFromCache(true);
 
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+                        return loadedDocument;
+                    });
+
+                for (int i = 0; i < loadedDocuments.size(); ++i) {
+                    documents.set(missingIndexes.get(i), loadedDocuments.get(i));
                 }
             }
 
-            cachedoc.setStore(this);
-            LOGGER.debug("Cache: end for doc {} in cache", key);
+            for (XWikiDocument document : documents) {
+                document.setStore(this);
+            }
 
-            return cachedoc;
+            return documents;
         } finally {
             restoreExecutionXContext();
         }
     }
 
+    /**
+     * Translations are often asked for locales in which the document is not translated: the list of translations of
+     * the document answers for all the locales with a single query.
+     *
+     * @param doc the document to check
+     * @param context the XWiki context
+     * @return {@code true} if the document is a translation which is known to not exist
+     * @throws XWikiException when failing to get the list of translations
+     */
+    private boolean isMissingTranslation(XWikiDocument doc, XWikiContext context) throws XWikiException
+    {
+        Locale locale = doc.getLocale();
+        if (locale == null || Locale.ROOT.equals(locale)) {
+            return false;
+        }
+
+        return !getCachedTranslationList(doc, context).contains(locale.toString());
+    }
+
+    private List<String> getCachedTranslationList(XWikiDocument doc, XWikiContext context) throws XWikiException
+    {
+        String key = getTranslationListKey(doc, context);
+
+        List<String> translations = getTranslationListCache().get(key);
+        if (translations == null) {
+            translations = Collections.unmodifiableList(new ArrayList<>(this.store.getTranslationList(doc, context)));
+            getTranslationListCache().set(key, translations);
+        }
+
+        return translations;
+    }
+
+    private XWikiDocument loadXWikiDocFromStore(String key, XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        StoreTask<XWikiDocument> task = new StoreTask<>();
+        StoreTask<XWikiDocument> pendingTask = this.loadingDocuments.putIfAbsent(key, task);
+
+        if (pendingTask != null && pendingTask.owner != Thread.currentThread()) {
+            LOGGER.debug("Cache: Waiting for the pending load of doc {} from persistent storage", key);
+
+            this.coalescedDocumentLoads.incrementAndGet();
+
+            XWikiDocument loadedDocument = waitForStore(pendingTask);
+
+            if (loadedDocument.isNew()) {
+                // The loaded document instance belongs to the thread which loaded it, return the requested one
+                return initNewDocument(doc);
+            }
+
+            // Same instance as the one stored in the cache
+            loadedDocument.setFromCache(true);
+
+            return loadedDocument;
+        }
+
+        // When pendingTask is not null the current thread is already loading this document (reentrant call) so
+        // waiting for the pending task would never end
+        return executeStoreTask(key, pendingTask == null ? task : null, this.loadingDocuments, () -> {
+            LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+
+            XWikiDocument loadedDocument = this.store.loadXWikiDoc(doc, context);
+
+            LOGGER.debug("Cache: Got doc {} from storage", key);
+
+            // Update the caches before releasing the waiting threads to make sure no other load is started for the
+            // same document in between
+            if (loadedDocument.isNew()) {
+                getPageExistCache().set(key, Boolean.FALSE);
+            } else {
+                getCache().set(key, loadedDocument);
+
+                // Also update exist cache
+                getPageExistCache().set(key, Boolean.TRUE);
+            }
+
+            LOGGER.debug("Cache: put doc {} in cache", key);
+
+            return loadedDocument;
+        });
+    }
+
+    private <T> T executeStoreTask(String key, StoreTask<T> task, ConcurrentMap<String, StoreTask<T>> tasks,
+        StoreCall<T> call) throws XWikiException
+    {
+        if (task == null) {
+            return call.call();
+        }
+
+        try {
+            T result = call.call();
+
+            task.complete(result);
+
+            return result;
+        } catch (XWikiException | RuntimeException | Error e) {
+            task.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            tasks.remove(key, task);
+        }
+    }
+
+    /**
+     * Same as {@link #executeStoreTask(String, StoreTask, ConcurrentMap, StoreCall)} for several keys: the keys
+     * already being accessed by other threads are not asked to the store again, their results are waited for once the
+     * store returned the other ones (waiting before could deadlock with a thread waiting for one of ours).
+     */
+    private <T> List<T> executeStoreTasks(List<String> keys, ConcurrentMap<String, StoreTask<T>> tasks,
+        AtomicLong coalescedCounter, BulkStoreCall<T> call, SharedResultHandler<T> sharedResultHandler)
+        throws XWikiException
+    {
+        List<T> results = new ArrayList<>(Collections.nCopies(keys.size(), null));
+
+        // The positions to ask the store for and the matching tasks (null for reentrant calls)
+        List<Integer> storeIndexes = new ArrayList<>();
+        List<StoreTask<T>> storeTasks = new ArrayList<>();
+        // The positions being accessed by other threads
+        Map<Integer, StoreTask<T>> pendingTasks = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys.size(); ++i) {
+            StoreTask<T> task = new StoreTask<>();
+            StoreTask<T> pendingTask = tasks.putIfAbsent(keys.get(i), task);
+
+            if (pendingTask != null && pendingTask.owner != Thread.currentThread()) {
+                pendingTasks.put(i, pendingTask);
+            } else {
+                storeIndexes.add(i);
+                storeTasks.add(pendingTask == null ? task : null);
+            }
+        }
+
+        if (!storeIndexes.isEmpty()) {
+            try {
+                List<T> storeResults = call.call(storeIndexes);
+
+                for (int i = 0; i < storeIndexes.size(); ++i) {
+                    T result = storeResults.get(i);
+
+                    results.set(storeIndexes.get(i), result);
+                    if (storeTasks.get(i) != null) {
+                        storeTasks.get(i).complete(result);
+                    }
+                }
+            } catch (XWikiException | RuntimeException | Error e) {
+                for (StoreTask<T> task : storeTasks) {
+                    if (task != null) {
+                        task.completeExceptionally(e);
+                    }
+                }
+
+                throw e;
+            } finally {
+                for (int i = 0; i < storeIndexes.size(); ++i) {
+                    if (storeTasks.get(i) != null) {
+                        tasks.remove(keys.get(storeIndexes.get(i)), storeTasks.get(i));
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, StoreTask<T>> entry : pendingTasks.entrySet()) {
+            coalescedCounter.incrementAndGet();
+
+            int index = entry.getKey();
+            results.set(index, sharedResultHandler.handle(index, waitForStore(entry.getValue())));
+        }
+
+        return results;
+    }
+
+    private <T> T waitForStore(StoreTask<T> task) throws XWikiException
+    {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Interrupted while waiting for another thread to access the store", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof XWikiException) {
+                throw (XWikiException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Failed to access the store in another thread", cause);
+        }
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -431,6 +841,8 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             getCache().remove(key);
             getPageExistCache().remove(key);
+            getTranslationListCache().remove(getTranslationListKey(doc, context));
+            forgetPendingStoreTasks(key);
             getPageExistCache().set(key, Boolean.FALSE);
         } finally {
             restoreExecutionXContext();
@@ -754,8 +1166,93 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             } catch (Exception e) {
             }
 
-            boolean result = this.store.exists(doc, context);
-            getPageExistCache().set(key, Boolean.valueOf(result));
+            if (isMissingTranslation(doc, context)) {
+                getPageExistCache().set(key, Boolean.FALSE);
+
+                return false;
+            }
+
+            StoreTask<Boolean> task = new StoreTask<>();
+            StoreTask<Boolean> pendingTask = this.checkingDocuments.putIfAbsent(key, task);
+
+            if (pendingTask != null && pendingTask.owner != Thread.currentThread()) {
+                this.coalescedDocumentExistChecks.incrementAndGet();
+
+                return waitForStore(pendingTask);
+            }
+
+            return executeStoreTask(key, pendingTask == null ? task : null, this.checkingDocuments, () -> {
+                boolean result = this.store.exists(doc, context);
+                getPageExistCache().set(key, Boolean.valueOf(result));
+
+                return result;
+            });
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    @Override
+    public List<Boolean> exists(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            List<Boolean> result = new ArrayList<>(references.size());
+
+            // The documents to check in the persistent storage and their position in the result
+            List<DocumentReference> missingReferences = new ArrayList<>();
+            List<String> missingKeys = new ArrayList<>();
+            List<Integer> missingIndexes = new ArrayList<>();
+
+            for (DocumentReference reference : references) {
+                XWikiDocument doc = new XWikiDocument(
+                    reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                    reference.getLocale());
+                String key = getKey(doc, context);
+
+                Boolean exists = getPageExistCache().get(key);
+                if (exists == null && isMissingTranslation(doc, context)) {
+                    getPageExistCache().set(key, Boolean.FALSE);
+
+                    exists = Boolean.FALSE;
+                }
+
+                if (exists == null) {
+                    missingReferences.add(reference);
+                    missingKeys.add(key);
+                    missingIndexes.add(result.size());
+                }
+
+                result.add(exists);
+            }
+
+            if (!missingReferences.isEmpty()) {
+                List<Boolean> storeResult = executeStoreTasks(missingKeys, this.checkingDocuments,
+                    this.coalescedDocumentExistChecks, indexes -> {
+                        List<DocumentReference> storeReferences = new ArrayList<>(indexes.size());
+                        for (int index : indexes) {
+                            storeReferences.add(missingReferences.get(index));
+                        }
+
+                        LOGGER.debug("Cache: Checking the existence of {} docs in persistent storage",
+                            storeReferences.size());
+
+                        List<Boolean> storeExists = this.store.exists(storeReferences, context);
+
+                        for (int i = 0; i < storeExists.size(); ++i) {
+                            getPageExistCache().set(missingKeys.get(indexes.get(i)), storeExists.get(i));
+                        }
+
+                        return storeExists;
+                    }, (index, exists) -> exists);
+
+                for (int i = 0; i < storeResult.size(); ++i) {
+                    result.set(missingIndexes.get(i), storeResult.get(i));
+                }
+            }
 
             return result;
         } finally {
@@ -783,6 +1280,16 @@ public void setPageExistCache(Cache<Boolean> pageExistCache)
         this.pageExistCache = pageExistCache;
     }
 
+    /**
+     * @return the cache of the locales in which each document is translated
+     * @since 12.8RC1
+     */
+    @Unstable
+    public Cache<List<String>> getTranslationListCache()
+    {
+        return this.translationListCache;
+    }
+
     /**
      * @return the cache that handle the limit size properties.
      * @since 11.4RC1
@@ -793,6 +1300,28 @@ public Cache<Integer> getLimitSizePropertyCache()
         return this.limitSizePropertyCache;
     }
 
+    /**
+     * @return the number of document loads which did not hit the persistent storage because another thread was
+     *         already loading the same document
+     * @since 12.8RC1
+     */
+    @Unstable
+    public long getCoalescedDocumentLoadCount()
+    {
+        return this.coalescedDocumentLoads.get();
+    }
+
+    /**
+     * @return the number of document existence checks which did not hit the persistent storage because another thread
+     *         was already checking the same document
+     * @since 12.8RC1
+     */
+    @Unstable
+    public long getCoalescedDocumentExistCount()
+    {
+        return this.coalescedDocumentExistChecks.get();
+    }
+
     @Override
     public List<String> getCustomMappingPropertyList(BaseClass bclass)
     {
@@ -812,9 +1341,17 @@ public void injectUpdatedCustomMappings(XWikiContext context) throws XWikiExcept
     }
 
     @Override
-    public List<String> getTranslationList(XWikiDocument doc, XWikiContext context) throws XWikiException
+    public List<String> getTranslationList(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
-        return this.store.getTranslationList(doc, context);
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            // Return a copy since callers are allowed to modify the list
+            return new ArrayList<>(getCachedTranslationList(doc, context));
+        } finally {
+            restoreExecutionXContext();
+        }
     }
 
     @Override
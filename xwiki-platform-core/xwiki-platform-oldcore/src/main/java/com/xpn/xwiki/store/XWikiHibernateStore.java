@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -38,6 +39,7 @@
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -45,6 +47,7 @@
 import javax.persistence.criteria.CriteriaUpdate;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.FlushMode;
@@ -66,11 +69,10 @@
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
-import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
-import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
@@ -89,6 +91,7 @@
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.doc.XWikiSpace;
+import com.xpn.xwiki.internal.store.hibernate.ObjectPropertiesBulkLoader;
 import com.xpn.xwiki.internal.store.hibernate.legacy.LegacySessionImplementor;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseCollection;
@@ -117,6 +120,17 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface, Initializable
 {
+    private static final LocalDocumentReference LOCAL_GROUPS_REFERENCE =
+        new LocalDocumentReference("XWiki", "XWikiGroups");
+
+    /**
+     * The maximum number of values passed to a single {@code in} clause (some databases, like Oracle, don't support
+     * more than 1000).
+     */
+    private static final int MAX_IN_PARAMETERS = 1000;
+
+    private static final String IDS = "ids";
+
     @Inject
     private Logger logger;
 
@@ -499,6 +513,72 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
         }
     }
 
+    @Override
+    public List<Boolean> exists(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            List<Long> documentIds = new ArrayList<>(references.size());
+            for (DocumentReference reference : references) {
+                XWikiDocument document = new XWikiDocument(
+                    reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                    reference.getLocale());
+
+                documentIds.add(document.getId());
+            }
+
+            Set<Long> existingIds = documentIds.isEmpty() ? Collections.emptySet() : exists(documentIds, context);
+
+            return documentIds.stream().map(existingIds::contains).collect(Collectors.toList());
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    private Set<Long> exists(List<Long> documentIds, XWikiContext context) throws XWikiException
+    {
+        boolean bTransaction = true;
+        MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        try {
+            // Start monitoring timer
+            if (monitor != null) {
+                monitor.startTimer(HINT);
+            }
+            checkHibernate(context);
+
+            bTransaction = beginTransaction(null, context);
+            Session session = getSession(context);
+
+            Set<Long> existingIds = new HashSet<>();
+            for (List<Long> ids : ListUtils.partition(new ArrayList<>(new LinkedHashSet<>(documentIds)),
+                MAX_IN_PARAMETERS)) {
+                Query<Long> query =
+                    session.createQuery("select doc.id from XWikiDocument as doc where doc.id in (:ids)", Long.class);
+                query.setParameterList(IDS, ids);
+                existingIds.addAll(query.list());
+            }
+
+            return existingIds;
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_CHECK_EXISTS_DOC, "Exception while checking documents", e);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false);
+                }
+            } catch (Exception e) {
+            }
+
+            // End monitoring timer
+            if (monitor != null) {
+                monitor.endTimer(HINT);
+            }
+        }
+    }
+
     @Override
     public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean bTransaction) throws XWikiException
     {
@@ -966,18 +1046,9 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
                 try {
                     session.load(doc, Long.valueOf(doc.getId()));
-                    doc.setNew(false);
-                    doc.setMostRecent(true);
-                    // Fix for XWIKI-1651
-                    doc.setDate(new Date(doc.getDate().getTime()));
-                    doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
-                    doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
+                    initLoadedXWikiDoc(doc);
                 } catch (ObjectNotFoundException e) { // No document
-                    doc.setNew(true);
-
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+                    initNewXWikiDoc(doc);
 
                     return doc;
                 }
@@ -987,18 +1058,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                     loadAttachmentList(doc, context, false);
                 }
 
-                // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
-                BaseClass bclass = new BaseClass();
-                String cxml = doc.getXClassXML();
-                if (cxml != null) {
-                    bclass.fromXML(cxml);
-                    doc.setXClass(bclass);
-                    bclass.setDirty(false);
-                }
-
-                // Store this XWikiClass in the context so that we can use it in case of recursive usage
-                // of classes
-                context.addBaseClass(bclass);
+                BaseClass bclass = loadXClass(doc, context);
 
                 if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
                     Query<BaseObject> query = session.createQuery(
@@ -1006,77 +1066,14 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                         BaseObject.class);
                     query.setParameter("name", doc.getFullName());
 
-                    Iterator<BaseObject> it = query.list().iterator();
-
-                    EntityReference localGroupEntityReference = new EntityReference("XWikiGroups", EntityType.DOCUMENT,
-                        new EntityReference("XWiki", EntityType.SPACE));
-                    DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
-                        localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
-
-                    boolean hasGroups = false;
-                    while (it.hasNext()) {
-                        BaseObject object = it.next();
-                        DocumentReference classReference = object.getXClassReference();
-
-                        if (classReference == null) {
-                            continue;
-                        }
-
-                        // It seems to search before is case insensitive. And this would break the loading if we get an
-                        // object which doesn't really belong to this document
-                        if (!object.getDocumentReference().equals(doc.getDocumentReference())) {
-                            continue;
-                        }
-
-                        BaseObject newobject;
-                        if (classReference.equals(doc.getDocumentReference())) {
-                            newobject = bclass.newCustomClassInstance(true);
-                        } else {
-                            newobject = BaseClass.newCustomClassInstance(classReference, true, context);
-                        }
-                        if (newobject != null) {
-                            newobject.setId(object.getId());
-                            newobject.setXClassReference(object.getRelativeXClassReference());
-                            newobject.setDocumentReference(object.getDocumentReference());
-                            newobject.setNumber(object.getNumber());
-                            newobject.setGuid(object.getGuid());
-                            object = newobject;
-                        }
+                    List<BaseObject> objects = initXObjects(doc, bclass, query.list(), context);
 
-                        if (classReference.equals(groupsDocumentReference)) {
-                            // Groups objects are handled differently.
-                            hasGroups = true;
-                        } else {
-                            loadXWikiCollectionInternal(object, doc, context, false, true);
-                        }
-                        doc.setXObject(object.getNumber(), object);
-                    }
+                    // Load the properties of all the objects at once instead of 1 query per object and 1 query per
+                    // property
+                    ObjectPropertiesBulkLoader bulkLoader = new ObjectPropertiesBulkLoader();
+                    bulkLoader.load(objects.stream().map(BaseObject::getId).collect(Collectors.toList()), session);
 
-                    // AFAICT this was added as an emergency patch because loading of objects has proven
-                    // too slow and the objects which cause the most overhead are the XWikiGroups objects
-                    // as each group object (each group member) would otherwise cost 2 database queries.
-                    // This will do every group member in a single query.
-                    if (hasGroups) {
-                        Query<Object[]> query2 = session.createQuery(
-                            "select bobject.number, prop.value from StringProperty as prop,"
-                                + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
-                                + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number",
-                            Object[].class);
-                        query2.setParameter("name", doc.getFullName());
-
-                        Iterator<Object[]> it2 = query2.list().iterator();
-                        while (it2.hasNext()) {
-                            Object[] result = it2.next();
-                            Integer number = (Integer) result[0];
-                            String member = (String) result[1];
-                            BaseObject obj = BaseClass.newCustomClassInstance(groupsDocumentReference, true, context);
-                            obj.setDocumentReference(doc.getDocumentReference());
-                            obj.setXClassReference(localGroupEntityReference);
-                            obj.setNumber(number.intValue());
-                            obj.setStringValue("member", member);
-                            doc.setXObject(obj.getNumber(), obj);
-                        }
-                    }
+                    loadXObjects(doc, objects, bulkLoader, session, context);
                 }
 
                 doc.setContentDirty(false);
@@ -1115,6 +1112,311 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
         }
     }
 
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            // Dynamic custom mappings might require a different session factory for each document
+            if (context.getWiki().hasDynamicCustomMappings()) {
+                return XWikiStoreInterface.super.loadXWikiDocs(references, context);
+            }
+
+            List<XWikiDocument> documents = new ArrayList<>(references.size());
+            Map<Long, XWikiDocument> documentsById = new LinkedHashMap<>();
+            for (DocumentReference reference : references) {
+                XWikiDocument document = new XWikiDocument(
+                    reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                    reference.getLocale());
+
+                XWikiDocument existingDocument = documentsById.putIfAbsent(document.getId(), document);
+                documents.add(existingDocument != null ? existingDocument : document);
+            }
+
+            if (!documentsById.isEmpty()) {
+                loadXWikiDocs(documentsById, context);
+            }
+
+            return documents;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    private void loadXWikiDocs(Map<Long, XWikiDocument> documents, XWikiContext context) throws XWikiException
+    {
+        boolean bTransaction = true;
+        MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        try {
+            // Start monitoring timer
+            if (monitor != null) {
+                monitor.startTimer(HINT);
+            }
+            checkHibernate(context);
+
+            bTransaction = beginTransaction(context);
+            Session session = getSession(context);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+
+            // Find which documents exist
+            Set<Long> existingIds = new HashSet<>();
+            for (List<Long> ids : ListUtils.partition(new ArrayList<>(documents.keySet()), MAX_IN_PARAMETERS)) {
+                Query<Long> query =
+                    session.createQuery("select doc.id from XWikiDocument as doc where doc.id in (:ids)", Long.class);
+                query.setParameterList(IDS, ids);
+                existingIds.addAll(query.list());
+            }
+
+            List<XWikiDocument> loadedDocuments = new ArrayList<>(existingIds.size());
+            for (XWikiDocument document : documents.values()) {
+                document.setStore(this);
+
+                if (existingIds.contains(document.getId())) {
+                    session.load(document, Long.valueOf(document.getId()));
+                    // Make sure loading other documents (classes) from the same session won't conflict with this one
+                    session.evict(document);
+                    initLoadedXWikiDoc(document);
+
+                    loadedDocuments.add(document);
+                } else {
+                    initNewXWikiDoc(document);
+                }
+            }
+
+            Map<Long, List<XWikiAttachment>> attachments = loadAttachmentLists(loadedDocuments, session);
+            Map<String, List<BaseObject>> storedObjects = loadStoredXObjects(loadedDocuments, session);
+
+            List<List<BaseObject>> documentsObjects = new ArrayList<>(loadedDocuments.size());
+            List<Long> objectIds = new ArrayList<>();
+            for (XWikiDocument document : loadedDocuments) {
+                for (XWikiAttachment attachment : attachments.getOrDefault(document.getId(),
+                    Collections.emptyList())) {
+                    document.setAttachment(attachment);
+                }
+
+                BaseClass bclass = loadXClass(document, context);
+
+                List<BaseObject> objects = Collections.emptyList();
+                if (document.hasElement(XWikiDocument.HAS_OBJECTS)) {
+                    objects = initXObjects(document, bclass,
+                        storedObjects.getOrDefault(document.getFullName(), Collections.emptyList()), context);
+                    objects.forEach(object -> objectIds.add(object.getId()));
+                }
+                documentsObjects.add(objects);
+            }
+
+            // Load the properties of the objects of all the documents at once
+            ObjectPropertiesBulkLoader bulkLoader = new ObjectPropertiesBulkLoader();
+            bulkLoader.load(objectIds, session);
+
+            for (int i = 0; i < loadedDocuments.size(); ++i) {
+                XWikiDocument document = loadedDocuments.get(i);
+
+                if (document.hasElement(XWikiDocument.HAS_OBJECTS)) {
+                    loadXObjects(document, documentsObjects.get(i), bulkLoader, session, context);
+                }
+
+                document.setContentDirty(false);
+                document.setMetaDataDirty(false);
+
+                // We need to ensure that the loaded document becomes the original document
+                document.setOriginalDocument(document.clone());
+
+                this.logger.debug("Loaded XWikiDocument: [{}]", document.getDocumentReference());
+            }
+
+            if (bTransaction) {
+                endTransaction(context, false);
+            }
+        } catch (Exception e) {
+            Object[] args = { documents.values().stream().map(XWikiDocument::getDocumentReference)
+                .collect(Collectors.toList()) };
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading documents {0}", e,
+                args);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false);
+                }
+            } catch (Exception e) {
+            }
+
+            // End monitoring timer
+            if (monitor != null) {
+                monitor.endTimer(HINT);
+            }
+        }
+    }
+
+    private void initLoadedXWikiDoc(XWikiDocument doc)
+    {
+        doc.setNew(false);
+        doc.setMostRecent(true);
+        // Fix for XWIKI-1651
+        doc.setDate(new Date(doc.getDate().getTime()));
+        doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
+        doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
+    }
+
+    private void initNewXWikiDoc(XWikiDocument doc)
+    {
+        doc.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+    }
+
+    private BaseClass loadXClass(XWikiDocument doc, XWikiContext context) throws XWikiException
+    {
+        // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
+        BaseClass bclass = new BaseClass();
+        String cxml = doc.getXClassXML();
+        if (cxml != null) {
+            bclass.fromXML(cxml);
+            doc.setXClass(bclass);
+            bclass.setDirty(false);
+        }
+
+        // Store this XWikiClass in the context so that we can use it in case of recursive usage
+        // of classes
+        context.addBaseClass(bclass);
+
+        return bclass;
+    }
+
+    private Map<Long, List<XWikiAttachment>> loadAttachmentLists(List<XWikiDocument> documents, Session session)
+    {
+        List<Long> documentIds = documents.stream().filter(doc -> doc.hasElement(XWikiDocument.HAS_ATTACHMENTS))
+            .map(XWikiDocument::getId).collect(Collectors.toList());
+
+        Map<Long, List<XWikiAttachment>> attachments = new HashMap<>();
+        for (List<Long> ids : ListUtils.partition(documentIds, MAX_IN_PARAMETERS)) {
+            Query<XWikiAttachment> query = session
+                .createQuery("from XWikiAttachment as attach where attach.docId in (:ids)", XWikiAttachment.class);
+            query.setParameterList(IDS, ids);
+
+            for (XWikiAttachment attachment : query.list()) {
+                attachments.computeIfAbsent(attachment.getDocId(), k -> new ArrayList<>()).add(attachment);
+            }
+        }
+
+        return attachments;
+    }
+
+    private Map<String, List<BaseObject>> loadStoredXObjects(List<XWikiDocument> documents, Session session)
+    {
+        // Objects are linked to the default locale document so several documents might share the same name
+        List<String> names = documents.stream().filter(doc -> doc.hasElement(XWikiDocument.HAS_OBJECTS))
+            .map(XWikiDocument::getFullName).distinct().collect(Collectors.toList());
+
+        Map<String, List<BaseObject>> objects = new HashMap<>();
+        for (List<String> chunk : ListUtils.partition(names, MAX_IN_PARAMETERS)) {
+            Query<BaseObject> query = session.createQuery(
+                "from BaseObject as bobject where bobject.name in (:names) order by bobject.number", BaseObject.class);
+            query.setParameterList("names", chunk);
+
+            for (BaseObject object : query.list()) {
+                objects.computeIfAbsent(object.getName(), k -> new ArrayList<>()).add(object);
+            }
+        }
+
+        return objects;
+    }
+
+    /**
+     * Associate the stored objects to the document, as instances of their class.
+     *
+     * @return the objects which still need their properties to be loaded
+     */
+    private List<BaseObject> initXObjects(XWikiDocument doc, BaseClass bclass, List<BaseObject> storedObjects,
+        XWikiContext context) throws XWikiException
+    {
+        DocumentReference groupsDocumentReference = getGroupsDocumentReference(context);
+
+        List<BaseObject> objects = new ArrayList<>();
+        for (BaseObject storedObject : storedObjects) {
+            BaseObject object = storedObject;
+            DocumentReference classReference = object.getXClassReference();
+
+            if (classReference == null) {
+                continue;
+            }
+
+            // It seems to search before is case insensitive. And this would break the loading if we get an
+            // object which doesn't really belong to this document
+            if (!object.getDocumentReference().equals(doc.getDocumentReference())) {
+                continue;
+            }
+
+            BaseObject newobject;
+            if (classReference.equals(doc.getDocumentReference())) {
+                newobject = bclass.newCustomClassInstance(true);
+            } else {
+                newobject = BaseClass.newCustomClassInstance(classReference, true, context);
+            }
+            if (newobject != null) {
+                newobject.setId(object.getId());
+                newobject.setXClassReference(object.getRelativeXClassReference());
+                newobject.setDocumentReference(object.getDocumentReference());
+                newobject.setNumber(object.getNumber());
+                newobject.setGuid(object.getGuid());
+                object = newobject;
+            }
+
+            // Groups objects are handled differently.
+            if (!classReference.equals(groupsDocumentReference)) {
+                objects.add(object);
+            }
+            doc.setXObject(object.getNumber(), object);
+        }
+
+        return objects;
+    }
+
+    private void loadXObjects(XWikiDocument doc, List<BaseObject> objects, ObjectPropertiesBulkLoader bulkLoader,
+        Session session, XWikiContext context) throws XWikiException
+    {
+        for (BaseObject object : objects) {
+            loadXWikiCollectionInternal(object, doc, context, false, true, bulkLoader);
+        }
+
+        // AFAICT this was added as an emergency patch because loading of objects has proven
+        // too slow and the objects which cause the most overhead are the XWikiGroups objects
+        // as each group object (each group member) would otherwise cost 2 database queries.
+        // This will do every group member in a single query.
+        DocumentReference groupsDocumentReference = getGroupsDocumentReference(context);
+        if (!doc.getXObjects(groupsDocumentReference).isEmpty()) {
+            Query<Object[]> query2 = session.createQuery(
+                "select bobject.number, prop.value from StringProperty as prop,"
+                    + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
+                    + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number",
+                Object[].class);
+            query2.setParameter("name", doc.getFullName());
+
+            Iterator<Object[]> it2 = query2.list().iterator();
+            while (it2.hasNext()) {
+                Object[] result = it2.next();
+                Integer number = (Integer) result[0];
+                String member = (String) result[1];
+                BaseObject obj = BaseClass.newCustomClassInstance(groupsDocumentReference, true, context);
+                obj.setDocumentReference(doc.getDocumentReference());
+                obj.setXClassReference(LOCAL_GROUPS_REFERENCE);
+                obj.setNumber(number.intValue());
+                obj.setStringValue("member", member);
+                doc.setXObject(obj.getNumber(), obj);
+            }
+        }
+    }
+
+    private DocumentReference getGroupsDocumentReference(XWikiContext context)
+    {
+        return new DocumentReference(LOCAL_GROUPS_REFERENCE, new WikiReference(context.getWikiId()));
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -1410,11 +1712,11 @@ public void loadXWikiCollection(BaseCollection object, XWikiContext context, boo
     private void loadXWikiCollectionInternal(BaseCollection object, XWikiContext context, boolean bTransaction,
         boolean alreadyLoaded) throws XWikiException
     {
-        loadXWikiCollectionInternal(object, null, context, bTransaction, alreadyLoaded);
+        loadXWikiCollectionInternal(object, null, context, bTransaction, alreadyLoaded, null);
     }
 
     private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument doc, XWikiContext inputxcontext,
-        boolean bTransaction, boolean alreadyLoaded) throws XWikiException
+        boolean bTransaction, boolean alreadyLoaded, ObjectPropertiesBulkLoader bulkLoader) throws XWikiException
     {
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
@@ -1474,11 +1776,17 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
 
                 // Load strings, integers, dates all at once
 
-                Query<Object[]> query = session.createQuery(
-                    "select prop.name, prop.classType from BaseProperty as prop where prop.id.id = :id",
-                    Object[].class);
-                query.setParameter("id", object.getId());
-                for (Object[] result : (List<Object[]>) query.list()) {
+                List<Object[]> properties;
+                if (bulkLoader != null) {
+                    properties = bulkLoader.getProperties(object.getId());
+                } else {
+                    Query<Object[]> query = session.createQuery(
+                        "select prop.name, prop.classType from BaseProperty as prop where prop.id.id = :id",
+                        Object[].class);
+                    query.setParameter("id", object.getId());
+                    properties = query.list();
+                }
+                for (Object[] result : properties) {
                     String name = (String) result[0];
                     // No need to load fields already loaded from
                     // custom mapping
@@ -1492,7 +1800,9 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
                         property = (BaseProperty) Class.forName(classType).newInstance();
                         property.setObject(object);
                         property.setName(name);
-                        loadXWikiProperty(property, context, false);
+                        if (bulkLoader == null || !bulkLoader.setValue(property)) {
+                            loadXWikiProperty(property, context, false);
+                        }
                     } catch (Exception e) {
                         // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
                         try {
@@ -2834,7 +3144,8 @@ public List<XWikiDocument> searchDocuments(String wheresql, boolean distinctbyla
 
         // Resolve documents. We use two separated sessions because rights service could need to switch database to
         // check rights
-        List<XWikiDocument> documents = new ArrayList<>();
+        List<DocumentReference> documentReferences = new ArrayList<>();
+        List<String> locales = new ArrayList<>();
         WikiReference currentWikiReference = new WikiReference(context.getWikiId());
         for (Object result : documentDatas) {
             String fullName;
@@ -2857,16 +3168,19 @@ public List<XWikiDocument> searchDocuments(String wheresql, boolean distinctbyla
                 }
             }
 
-            DocumentReference documentReference = doc.getDocumentReference();
-            if (distinctbylanguage) {
-                XWikiDocument document = context.getWiki().getDocument(documentReference, context);
-                if (StringUtils.isEmpty(locale)) {
-                    documents.add(document);
-                } else {
-                    documents.add(document.getTranslatedDocument(locale, context));
+            documentReferences.add(doc.getDocumentReference());
+            locales.add(locale);
+        }
+
+        // Load all the documents at once
+        List<XWikiDocument> documents = context.getWiki().getDocuments(documentReferences, context);
+
+        if (distinctbylanguage) {
+            for (int i = 0; i < documents.size(); ++i) {
+                String locale = locales.get(i);
+                if (StringUtils.isNotEmpty(locale)) {
+                    documents.set(i, documents.get(i).getTranslatedDocument(locale, context));
                 }
-            } else {
-                documents.add(context.getWiki().getDocument(documentReference, context));
             }
         }
 
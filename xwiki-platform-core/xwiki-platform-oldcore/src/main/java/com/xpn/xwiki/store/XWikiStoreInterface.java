@@ -19,7 +19,10 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
@@ -60,6 +63,35 @@ default void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, X
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load several documents of the current wiki. The default implementation calls
+     * {@link #loadXWikiDoc(XWikiDocument, XWikiContext)} for each reference; stores able to load the documents, their
+     * attachments and their objects with a few queries should override it.
+     *
+     * @param references the references of the documents to load (with the locale of the translation to load, if any),
+     *            all located in the current wiki
+     * @param context the XWiki context
+     * @return the loaded documents, in the same order as the passed references, with new documents for the ones which
+     *         don't exist
+     * @throws XWikiException when failing to load the documents
+     * @since 12.8RC1
+     */
+    @Unstable
+    default List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        List<XWikiDocument> documents = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            XWikiDocument document = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                reference.getLocale());
+
+            documents.add(loadXWikiDoc(document, context));
+        }
+
+        return documents;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
@@ -522,6 +554,34 @@ <T> List<T> search(String sql, int nb, int start, Object[][] whereParams, List<?
 
     boolean exists(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Check the existence of several documents of the current wiki. The default implementation calls
+     * {@link #exists(XWikiDocument, XWikiContext)} for each reference; stores able to answer with a single query
+     * should override it.
+     *
+     * @param references the references of the documents to check (with the locale of the translation to check, if
+     *            any), all located in the current wiki
+     * @param context the XWiki context
+     * @return {@code true} for each document which exists, in the same order as the passed references
+     * @throws XWikiException when failing to check the existence of the documents
+     * @since 12.8RC1
+     */
+    @Unstable
+    default List<Boolean> exists(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        List<Boolean> result = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            XWikiDocument document = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                reference.getLocale());
+
+            result.add(exists(document, context));
+        }
+
+        return result;
+    }
+
     /**
      * @deprecated since 11.5RC1, use {@link #isCustomMappingValid(BaseClass, String)}
      */
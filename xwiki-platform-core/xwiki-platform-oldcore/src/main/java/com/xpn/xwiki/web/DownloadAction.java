@@ -21,6 +21,9 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -52,6 +55,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -255,9 +259,6 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
         final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
     {
         if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
             setCommonHeaders(attachment, request, response, context);
             response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
             if ((end - start + 1L) < Integer.MAX_VALUE) {
@@ -265,7 +266,12 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
             }
             response.setHeader("Content-Range",
                 "bytes " + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
+            if (!transferContent(attachment, start, end - start + 1L, response, context)) {
+                InputStream data = attachment.getContentInputStream(context);
+                data = new BoundedInputStream(data, end + 1);
+                data.skip(start);
+                IOUtils.copyLarge(data, response.getOutputStream());
+            }
         } else {
             response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         }
@@ -287,8 +293,10 @@ protected void sendContent(final XWikiAttachment attachment, final XWikiRequest
         try {
             setCommonHeaders(attachment, request, response, context);
             setContentLength(response, attachment.getContentLongSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            if (!transferContent(attachment, 0, attachment.getContentLongSize(context), response, context)) {
+                stream = attachment.getContentInputStream(context);
+                IOUtils.copy(stream, response.getOutputStream());
+            }
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
@@ -299,6 +307,46 @@ protected void sendContent(final XWikiAttachment attachment, final XWikiRequest
         }
     }
 
+    /**
+     * Send a range of the attachment content directly from the file holding it, when there is one. The bytes are
+     * transferred by the file channel (which avoids opening an {@link InputStream}, skipping the bytes before the range
+     * and allocating copy buffers for each request).
+     *
+     * @param attachment the attachment to get content from
+     * @param start the first byte to write
+     * @param length the number of bytes to write
+     * @param response the response to write to
+     * @param context the current request context
+     * @return {@code true} if the content was sent, {@code false} if it's not stored in a file
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the response cannot be written
+     */
+    private boolean transferContent(XWikiAttachment attachment, long start, long length, XWikiResponse response,
+        XWikiContext context) throws XWikiException, IOException
+    {
+        XWikiAttachmentContent content = attachment.getAttachmentContent(context);
+
+        try (FileChannel channel = content != null ? content.getContentFileChannel() : null) {
+            if (channel == null) {
+                return false;
+            }
+
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, output);
+                if (transferred <= 0) {
+                    // The file is shorter than expected
+                    break;
+                }
+                position += transferred;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * @return the filename of the attachment or null if the URL didn't point to an attachment
      */
@@ -19,11 +19,14 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Date;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -39,6 +42,8 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.skin.SkinResourceCache;
+import com.xpn.xwiki.internal.skin.SkinResourceCache.SkinResource;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.user.api.XWikiRightService;
 import com.xpn.xwiki.util.Util;
@@ -76,6 +81,10 @@ public class SkinAction extends XWikiAction
      */
     private static final String ENCODING = "UTF-8";
 
+    private static final String ETAG_HEADER = "ETag";
+
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+
     @Override
     public String render(XWikiContext context) throws XWikiException
     {
@@ -262,16 +271,21 @@ private boolean renderFileFromFilesystem(String path, XWikiContext context) thro
 
         XWikiResponse response = context.getResponse();
         try {
-            byte[] data;
-            data = context.getWiki().getResourceContentAsBytes(path);
-            if (data != null && data.length > 0) {
-                String filename = path.substring(path.lastIndexOf("/") + 1, path.length());
+            String filename = path.substring(path.lastIndexOf("/") + 1, path.length());
 
-                Date modified = null;
+            // Evaluate the file only if it's of a supported type.
+            String mimetype = context.getEngineContext().getMimeType(filename.toLowerCase());
+            if (isCssMimeType(mimetype) || isJavascriptMimeType(mimetype) || isLessCssFile(filename)) {
+                SkinResourceCache cache = Utils.getComponent(SkinResourceCache.class);
+                String key = cache.getKey(path, getFilesystemFileVersion(path, context), context);
+                SkinResource resource = cache.get(key);
+
+                if (resource == null) {
+                    byte[] data = context.getWiki().getResourceContentAsBytes(path);
+                    if (data == null || data.length == 0) {
+                        return false;
+                    }
 
-                // Evaluate the file only if it's of a supported type.
-                String mimetype = context.getEngineContext().getMimeType(filename.toLowerCase());
-                if (isCssMimeType(mimetype) || isJavascriptMimeType(mimetype) || isLessCssFile(filename)) {
                     // Always force UTF-8, as this is the assumed encoding for text files.
                     String rawContent = new String(data, ENCODING);
 
@@ -281,8 +295,9 @@ private boolean renderFileFromFilesystem(String path, XWikiContext context) thro
                     String evaluatedContent =
                         evaluateVelocity(rawContent, path, superadminUserReference, null, context);
 
+                    Date modified;
                     byte[] newdata = evaluatedContent.getBytes(ENCODING);
-                    // If the content contained velocity code, then it should not be cached
+                    // If the content contained velocity code, then it was generated now
                     if (Arrays.equals(newdata, data)) {
                         modified = context.getWiki().getResourceLastModificationDate(path);
                     } else {
@@ -290,11 +305,23 @@ private boolean renderFileFromFilesystem(String path, XWikiContext context) thro
                         data = newdata;
                     }
 
-                    response.setCharacterEncoding(ENCODING);
-                } else {
-                    modified = context.getWiki().getResourceLastModificationDate(path);
+                    resource = cache.set(key, data, modified);
                 }
 
+                try {
+                    renderSkinResource(resource, mimetype, context);
+                } catch (IOException e) {
+                    throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
+                        XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
+                }
+
+                return true;
+            }
+
+            byte[] data = context.getWiki().getResourceContentAsBytes(path);
+            if (data != null && data.length > 0) {
+                Date modified = context.getWiki().getResourceLastModificationDate(path);
+
                 // Write the content to the response's output stream.
                 setupHeaders(response, mimetype, modified, data.length);
                 try {
@@ -312,6 +339,27 @@ private boolean renderFileFromFilesystem(String path, XWikiContext context) thro
         return false;
     }
 
+    /**
+     * @param path the path of the filesystem file
+     * @param context the current {@link XWikiContext request context}
+     * @return the version of the file made of its last modification date and its size, or an empty string if the file
+     *         is packaged in the web application (in which case it cannot change without a restart)
+     */
+    private String getFilesystemFileVersion(String path, XWikiContext context)
+    {
+        XWikiEngineContext engineContext = context.getEngineContext();
+        String realPath = engineContext != null ? engineContext.getRealPath(path) : path;
+
+        if (realPath != null) {
+            File file = new File(realPath);
+            if (file.isFile()) {
+                return file.lastModified() + "-" + file.length();
+            }
+        }
+
+        return "";
+    }
+
     /**
      * Tries to serve the content of an XWikiSkins object field as a skin file.
      *
@@ -342,9 +390,21 @@ public boolean renderFileFromObjectField(String filename, XWikiDocument doc, fin
                 final ObjectPropertyReference propertyReference =
                     new ObjectPropertyReference(filename, object.getReference());
 
-                // Evaluate the content with the rights of the document's author.
-                content = evaluateVelocity(content, propertyReference, doc.getAuthorReference(),
-                    doc.getDocumentReference(), context);
+                SkinResourceCache cache = Utils.getComponent(SkinResourceCache.class);
+                String key = cache.getKey(serialize(propertyReference), doc.getVersion(), context);
+                SkinResource resource = cache.get(key);
+
+                if (resource == null) {
+                    // Evaluate the content with the rights of the document's author.
+                    content = evaluateVelocity(content, propertyReference, doc.getAuthorReference(),
+                        doc.getDocumentReference(), context);
+
+                    resource = cache.set(key, content.getBytes(ENCODING), doc.getDate());
+                }
+
+                renderSkinResource(resource, mimetype, context);
+
+                return true;
             }
 
             // Prepare the response.
@@ -369,12 +429,18 @@ public boolean renderFileFromObjectField(String filename, XWikiDocument doc, fin
     private String evaluateVelocity(String content, EntityReference reference, DocumentReference author,
         final DocumentReference sourceDocument, XWikiContext context)
     {
-        EntityReferenceSerializer<String> serializer = Utils.getComponent(EntityReferenceSerializer.TYPE_STRING);
-        String namespace = serializer.serialize(reference);
+        String namespace = serialize(reference);
 
         return evaluateVelocity(content, namespace, author, sourceDocument, context);
     }
 
+    private String serialize(EntityReference reference)
+    {
+        EntityReferenceSerializer<String> serializer = Utils.getComponent(EntityReferenceSerializer.TYPE_STRING);
+
+        return serializer.serialize(reference);
+    }
+
     private String evaluateVelocity(final String content, final String namespace, final DocumentReference author,
         final DocumentReference sourceDocument, final XWikiContext context)
     {
@@ -415,22 +481,24 @@ public boolean renderFileFromAttachment(String filename, XWikiDocument doc, XWik
             // Evaluate the file only if it's of a supported type.
             String mimetype = xwiki.getEngineContext().getMimeType(filename.toLowerCase());
             if (isCssMimeType(mimetype) || isJavascriptMimeType(mimetype)) {
-                byte[] data = attachment.getContent(context);
-                // Always force UTF-8, as this is the assumed encoding for text files.
-                String velocityCode = new String(data, ENCODING);
+                SkinResourceCache cache = Utils.getComponent(SkinResourceCache.class);
+                String key = cache.getKey(serialize(attachment.getReference()), attachment.getVersion(), context);
+                SkinResource resource = cache.get(key);
 
-                // Evaluate the content with the rights of the document's author.
-                String evaluatedContent =
-                    evaluateVelocity(velocityCode, attachment.getReference(), doc.getAuthorReference(),
-                        doc.getDocumentReference(), context);
+                if (resource == null) {
+                    byte[] data = attachment.getContent(context);
+                    // Always force UTF-8, as this is the assumed encoding for text files.
+                    String velocityCode = new String(data, ENCODING);
 
-                // Prepare the response.
-                response.setCharacterEncoding(ENCODING);
+                    // Evaluate the content with the rights of the document's author.
+                    String evaluatedContent =
+                        evaluateVelocity(velocityCode, attachment.getReference(), doc.getAuthorReference(),
+                            doc.getDocumentReference(), context);
 
-                // Write the content to the response's output stream.
-                data = evaluatedContent.getBytes(ENCODING);
-                setupHeaders(response, mimetype, attachment.getDate(), data.length);
-                response.getOutputStream().write(data);
+                    resource = cache.set(key, evaluatedContent.getBytes(ENCODING), attachment.getDate());
+                }
+
+                renderSkinResource(resource, mimetype, context);
             } else {
                 // Otherwise, return the raw content.
                 setupHeaders(response, mimetype, attachment.getDate(), attachment.getContentLongSize(context));
@@ -445,6 +513,52 @@ public boolean renderFileFromAttachment(String filename, XWikiDocument doc, XWik
         return false;
     }
 
+    /**
+     * Send an evaluated skin resource, or only indicate that it did not change if the client already has the same
+     * version.
+     *
+     * @param resource the evaluated skin resource
+     * @param mimetype the mimetype of the resource
+     * @param context the current {@link XWikiContext request context}
+     * @throws IOException if the response cannot be sent
+     */
+    private void renderSkinResource(SkinResource resource, String mimetype, XWikiContext context) throws IOException
+    {
+        XWikiResponse response = context.getResponse();
+
+        response.setHeader(ETAG_HEADER, resource.getETag());
+
+        if (isNotModified(resource, context.getRequest())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setDateHeader(LAST_MODIFIED_HEADER, resource.getDate().getTime());
+
+            return;
+        }
+
+        // Evaluated resources are always UTF-8 encoded
+        response.setCharacterEncoding(ENCODING);
+
+        // Write the content to the response's output stream.
+        setupHeaders(response, mimetype, resource.getDate(), resource.getContent().length);
+        response.getOutputStream().write(resource.getContent());
+    }
+
+    private boolean isNotModified(SkinResource resource, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (ifNoneMatch != null) {
+            for (String etag : StringUtils.split(ifNoneMatch, ',')) {
+                etag = StringUtils.removeStart(etag.trim(), "W/");
+                if ("*".equals(etag) || etag.equals(resource.getETag())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Checks if a mimetype indicates a javascript file.
      *
@@ -515,7 +629,7 @@ protected void setupHeaders(XWikiResponse response, String mimetype, Date lastCh
         } else {
             response.setContentType("application/octet-stream");
         }
-        response.setDateHeader("Last-Modified", lastChanged.getTime());
+        response.setDateHeader(LAST_MODIFIED_HEADER, lastChanged.getTime());
         // Cache for one month (30 days)
         response.setHeader("Cache-Control", "public");
         response.setDateHeader("Expires", (new Date()).getTime() + 30 * 24 * 3600 * 1000L);
@@ -39,9 +39,12 @@
 import com.xpn.xwiki.user.api.XWikiRightService;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
@@ -128,6 +131,69 @@ void removeObjectDoesntCauseDataLoss() throws XWikiException
         }
     }
 
+    @Test
+    void readObjectsWithoutCloning() throws XWikiException
+    {
+        XWikiDocument xdoc = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+        xdoc.getXClass().addTextField("key", "Key", 30);
+        BaseObject xobj1 = xdoc.newXObject(xdoc.getDocumentReference(), this.oldcore.getXWikiContext());
+        BaseObject xobj2 = xdoc.newXObject(xdoc.getDocumentReference(), this.oldcore.getXWikiContext());
+
+        Document adoc = xdoc.newDocument(this.oldcore.getXWikiContext());
+
+        List<Object> objects = adoc.getObjects("Space.Page");
+        Object obj1 = objects.get(0);
+        Object obj2 = objects.get(1);
+
+        // Reading does not clone the document
+        assertNull(obj1.getValue("key"));
+        assertSame(xobj1, obj1.getBaseObject());
+        assertSame(xdoc, adoc.doc);
+
+        // The first modification does
+        obj1.set("key", "value");
+
+        assertNotSame(xdoc, adoc.doc);
+        assertNull(xobj1.get("key"));
+        assertEquals("value", obj1.getValue("key"));
+        assertSame(adoc.doc.getXObject(xdoc.getDocumentReference(), 0), obj1.getBaseObject());
+
+        // Objects taken before the modification see the clone too
+        obj2.set("key", "value2");
+
+        assertNull(xobj2.get("key"));
+        assertEquals("value2", adoc.doc.getXObject(xdoc.getDocumentReference(), 1).getStringValue("key"));
+    }
+
+    @Test
+    void getPropertyClonesSharedDocument() throws XWikiException
+    {
+        when(this.oldcore.getMockRightService().hasProgrammingRights(any(XWikiContext.class))).thenReturn(true);
+
+        XWikiDocument xdoc = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+        xdoc.getXClass().addTextField("key", "Key", 30);
+        BaseObject xobj = xdoc.newXObject(xdoc.getDocumentReference(), this.oldcore.getXWikiContext());
+        xobj.setStringValue("key", "value");
+
+        Document adoc = xdoc.newDocument(this.oldcore.getXWikiContext());
+        Object obj = adoc.getObject("Space.Page");
+        Property property = obj.getProperty("key");
+
+        // Reading the property does not clone the document
+        assertEquals("value", property.getValue());
+        assertSame(xdoc, adoc.doc);
+
+        // Exposing the internal property does
+        BaseProperty baseProperty = property.getProperty();
+        assertNotSame(xdoc, adoc.doc);
+        assertNotSame(xobj.getField("key"), baseProperty);
+        assertSame(adoc.doc.getXObject(xdoc.getDocumentReference(), 0).getField("key"), baseProperty);
+
+        baseProperty.setValue("modified");
+        assertEquals("value", xobj.getStringValue("key"));
+        assertEquals("modified", obj.getValue("key"));
+    }
+
     @Test
     void saveAsAuthorUsesGuestIfDroppedPermissions() throws XWikiException
     {
@@ -30,6 +30,9 @@
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.display.internal.DisplayConfiguration;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.test.annotation.AllComponents;
 import org.xwiki.test.junit5.mockito.InjectComponentManager;
@@ -48,6 +51,8 @@
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -420,4 +425,30 @@ public void getRenderedContentTextRights() throws Exception
         assertEquals("<p>callerwiki:XWiki.calleruser Space.Page authorwiki:XWiki.contentauthor</p>",
             apiDocument.getRenderedContent(content, Syntax.XWIKI_2_1.toIdString(), Syntax.XHTML_1_0.toIdString()));
     }
+
+    @Test
+    public void getReadOnlyXDOMIsSharedAndGetXDOMIsACopy()
+    {
+        this.document.setContent("**bold**");
+
+        XDOM readOnlyXDOM = this.document.getReadOnlyXDOM();
+        assertSame(readOnlyXDOM, this.document.getReadOnlyXDOM());
+
+        XDOM xdom = this.document.getXDOM();
+        assertNotSame(readOnlyXDOM, xdom);
+        assertNotSame(xdom, this.document.getXDOM());
+
+        // Inserting the blocks of the copy in another block (like the mention quote does) does not affect the
+        // cached XDOM
+        Block bold = xdom.getChildren().get(0).getChildren().get(0);
+        Block quote = new ParagraphBlock(Arrays.asList(bold));
+        assertSame(quote, bold.getParent());
+        Block readOnlyParagraph = readOnlyXDOM.getChildren().get(0);
+        assertSame(readOnlyParagraph, readOnlyParagraph.getChildren().get(0).getParent());
+
+        // Modifying the copy does not affect the cached XDOM
+        xdom.getChildren().clear();
+        assertEquals(1, this.document.getReadOnlyXDOM().getChildren().size());
+        assertEquals(1, this.document.getXDOM().getChildren().size());
+    }
 }
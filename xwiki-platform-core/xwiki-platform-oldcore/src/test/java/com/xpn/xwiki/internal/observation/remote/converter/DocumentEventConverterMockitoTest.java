@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the way {@link DocumentEventConverter} loads the documents of a remote event.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+class DocumentEventConverterMockitoTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "space", "page");
+
+    @InjectMockComponents
+    private DocumentEventConverter converter;
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private final Map<Locale, XWikiDocument> lastDocuments = new HashMap<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.oldcore.getMockStore().loadXWikiDoc(any(), any()))
+            .then(invocation -> this.lastDocuments.get(invocation.<XWikiDocument>getArgument(0).getLocale()).clone());
+        when(this.oldcore.getMockVersioningStore().loadXWikiDoc(any(), any(), any())).then(invocation -> {
+            XWikiDocument document = invocation.getArgument(0);
+
+            return createDocument(document.getLocale(), invocation.getArgument(1));
+        });
+    }
+
+    private XWikiDocument createDocument(Locale locale, String version)
+    {
+        XWikiDocument document = new XWikiDocument(DOCUMENT_REFERENCE, locale);
+        document.setVersion(version);
+        document.setNew(false);
+
+        return document;
+    }
+
+    private void setLastDocument(Locale locale, String version)
+    {
+        this.lastDocuments.put(locale, createDocument(locale, version));
+    }
+
+    private XWikiDocument convert(XWikiDocument document, XWikiDocument originalDocument)
+    {
+        document.setOriginalDocument(originalDocument);
+
+        LocalEventData localEvent = new LocalEventData();
+        localEvent.setEvent(new DocumentUpdatedEvent(DOCUMENT_REFERENCE));
+        localEvent.setSource(document);
+        localEvent.setData(this.oldcore.getXWikiContext());
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        assertTrue(this.converter.toRemote(localEvent, remoteEvent));
+
+        LocalEventData convertedEvent = new LocalEventData();
+        assertTrue(this.converter.fromRemote(remoteEvent, convertedEvent));
+
+        return (XWikiDocument) convertedEvent.getSource();
+    }
+
+    @Test
+    void fromRemoteLoadsLastDocumentOnce() throws Exception
+    {
+        setLastDocument(Locale.ROOT, "2.1");
+
+        XWikiDocument document = convert(createDocument(Locale.ROOT, "2.1"), createDocument(Locale.ROOT, "1.1"));
+
+        assertEquals("2.1", document.getVersion());
+        assertEquals("1.1", document.getOriginalDocument().getVersion());
+
+        // The original document is directly read from the history
+        verify(this.oldcore.getMockStore(), times(1)).loadXWikiDoc(any(), any());
+        verify(this.oldcore.getMockVersioningStore(), times(1)).loadXWikiDoc(any(), any(), any());
+        verify(this.oldcore.getMockVersioningStore()).loadXWikiDoc(any(), eq("1.1"), any());
+    }
+
+    @Test
+    void fromRemoteWhenDocumentModifiedSinceEvent() throws Exception
+    {
+        setLastDocument(Locale.ROOT, "3.1");
+
+        XWikiDocument document = convert(createDocument(Locale.ROOT, "2.1"), createDocument(Locale.ROOT, "1.1"));
+
+        assertEquals("2.1", document.getVersion());
+        assertEquals("1.1", document.getOriginalDocument().getVersion());
+
+        verify(this.oldcore.getMockStore(), times(1)).loadXWikiDoc(any(), any());
+        verify(this.oldcore.getMockVersioningStore()).loadXWikiDoc(any(), eq("2.1"), any());
+        verify(this.oldcore.getMockVersioningStore()).loadXWikiDoc(any(), eq("1.1"), any());
+    }
+
+    @Test
+    void fromRemoteWithSameVersion() throws Exception
+    {
+        setLastDocument(Locale.ROOT, "2.1");
+
+        XWikiDocument document = convert(createDocument(Locale.ROOT, "2.1"), createDocument(Locale.ROOT, "2.1"));
+
+        // The document is never its own original document
+        assertEquals("2.1", document.getOriginalDocument().getVersion());
+        assertNotSame(document, document.getOriginalDocument());
+
+        verify(this.oldcore.getMockStore(), times(1)).loadXWikiDoc(any(), any());
+        verify(this.oldcore.getMockVersioningStore(), never()).loadXWikiDoc(any(), any(), any());
+    }
+
+    @Test
+    void fromRemoteWithOriginalDocumentInAnotherLanguage() throws Exception
+    {
+        setLastDocument(Locale.ROOT, "2.1");
+        setLastDocument(Locale.FRENCH, "1.1");
+
+        XWikiDocument document = convert(createDocument(Locale.ROOT, "2.1"), createDocument(Locale.FRENCH, "1.1"));
+
+        assertEquals(Locale.ROOT, document.getLocale());
+        assertEquals(Locale.FRENCH, document.getOriginalDocument().getLocale());
+        assertEquals(DOCUMENT_REFERENCE, document.getOriginalDocument().getDocumentReference());
+
+        // The last version of each language is loaded
+        verify(this.oldcore.getMockStore(), times(2)).loadXWikiDoc(any(), any());
+        verify(this.oldcore.getMockVersioningStore(), never()).loadXWikiDoc(any(), any(), any());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.pdf;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.xml.EntityResolver;
+import org.xwiki.xml.XMLReaderFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XSLTemplatesCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class XSLTemplatesCacheTest
+{
+    private static final String XSLT = "<xsl:stylesheet version=\"1.0\" "
+        + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:output method=\"text\"/>"
+        + "<xsl:template match=\"/\">[<xsl:value-of select=\"/a\"/>]</xsl:template></xsl:stylesheet>";
+
+    @InjectMockComponents
+    private XSLTemplatesCache templatesCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private XMLReaderFactory xmlReaderFactory;
+
+    @MockComponent
+    private EntityResolver entityResolver;
+
+    private final Map<String, Object> entries = new HashMap<>();
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        Cache<Object> cache = mock(Cache.class);
+        when(this.cacheManager.createNewLocalCache(any(CacheConfiguration.class))).thenReturn((Cache) cache);
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+        when(this.xmlReaderFactory.createXMLReader())
+            .then(invocation -> parserFactory.newSAXParser().getXMLReader());
+    }
+
+    @Test
+    void getTemplates() throws Exception
+    {
+        Templates templates = this.templatesCache.getTemplates(XSLT);
+
+        StringWriter writer = new StringWriter();
+        templates.newTransformer().transform(new StreamSource(new StringReader("<a>b</a>")), new StreamResult(writer));
+        assertEquals("[b]", writer.toString());
+
+        assertSame(templates, this.templatesCache.getTemplates(XSLT));
+        assertNotSame(templates, this.templatesCache.getTemplates(XSLT.replace("[", "(")));
+    }
+
+    @Test
+    void getResourceTemplates() throws Exception
+    {
+        Templates templates = this.templatesCache.getTemplates(getClass().getClassLoader(), "fop.xsl");
+
+        assertSame(templates, this.templatesCache.getTemplates(getClass().getClassLoader(), "fop.xsl"));
+
+        assertThrows(IOException.class,
+            () -> this.templatesCache.getTemplates(getClass().getClassLoader(), "missing.xsl"));
+    }
+}
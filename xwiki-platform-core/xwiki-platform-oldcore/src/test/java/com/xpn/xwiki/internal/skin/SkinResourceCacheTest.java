@@ -0,0 +1,184 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.skin;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectAddedEvent;
+import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
+import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
+import com.xpn.xwiki.internal.skin.SkinResourceCache.SkinResource;
+import com.xpn.xwiki.web.XWikiRequest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SkinResourceCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class SkinResourceCacheTest
+{
+    @InjectMockComponents
+    private SkinResourceCache resourceCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private ObservationManager observation;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private final Map<String, Object> entries = new HashMap<>();
+
+    private XWikiContext xcontext;
+
+    private XWikiRequest request;
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        when(this.configuration.getProperty("skin.cache.resources.size", 500)).thenReturn(500);
+
+        Cache<Object> cache = mock(Cache.class);
+        when(this.cacheManager.createNewLocalCache(any(CacheConfiguration.class))).thenReturn((Cache) cache);
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        doAnswer(invocation -> {
+            this.entries.clear();
+            return null;
+        }).when(cache).removeAll();
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.xcontext = mock(XWikiContext.class);
+        this.request = mock(XWikiRequest.class);
+        XWiki xwiki = mock(XWiki.class);
+
+        when(this.xcontext.getRequest()).thenReturn(this.request);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+        when(this.xcontext.getLocale()).thenReturn(Locale.ENGLISH);
+        when(xwiki.getSkin(this.xcontext)).thenReturn("XWiki.DefaultSkin");
+        when(xwiki.getUserPreference("colorTheme", this.xcontext)).thenReturn("ColorThemes.Default");
+        when(this.request.getRequestURL()).thenReturn(new StringBuffer("http://host/xwiki/bin/skin/style.css"));
+    }
+
+    @Test
+    void getSet()
+    {
+        String key = this.resourceCache.getKey("style.css", "1.1", this.xcontext);
+
+        assertNull(this.resourceCache.get(key));
+
+        Date date = new Date();
+        this.resourceCache.set(key, new byte[] { 'a' }, date);
+
+        SkinResource resource = this.resourceCache.get(this.resourceCache.getKey("style.css", "1.1", this.xcontext));
+        assertNotNull(resource);
+        assertArrayEquals(new byte[] { 'a' }, resource.getContent());
+        assertEquals(date, resource.getDate());
+        assertEquals("\"0cc175b9c0f1b6a831c399e269772661\"", resource.getETag());
+
+        // Another version of the resource
+        assertNull(this.resourceCache.get(this.resourceCache.getKey("style.css", "1.2", this.xcontext)));
+
+        // Another color theme
+        when(this.request.getParameter("colorTheme")).thenReturn("ColorThemes.Other");
+        assertNotEquals(key, this.resourceCache.getKey("style.css", "1.1", this.xcontext));
+    }
+
+    @Test
+    void removeAllOnSkinObjectEvent()
+    {
+        String key = this.resourceCache.getKey("style.css", "1.1", this.xcontext);
+        this.resourceCache.set(key, new byte[] { 'a' }, new Date());
+
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        verify(this.observation).addListener(listenerCaptor.capture());
+        EventListener listener = listenerCaptor.getValue();
+
+        // Only the skin related objects are listened to
+        DocumentReference documentReference = new DocumentReference("wiki", "XWiki", "DefaultSkin");
+        assertTrue(matches(listener, new XObjectUpdatedEvent(
+            new ObjectReference("XWiki.XWikiSkins[0]", documentReference))));
+        assertTrue(matches(listener, new XObjectAddedEvent(
+            new ObjectReference("ColorThemes.ColorThemeClass[0]", documentReference))));
+        assertTrue(matches(listener, new XObjectDeletedEvent(
+            new ObjectReference("XWiki.XWikiPreferences[0]", documentReference))));
+        assertFalse(matches(listener, new XObjectUpdatedEvent(
+            new ObjectReference("XWiki.XWikiComments[0]", documentReference))));
+        assertFalse(matches(listener, new DocumentUpdatedEvent(documentReference)));
+
+        listener.onEvent(new XObjectUpdatedEvent(), mock(XWikiDocument.class), null);
+
+        assertNull(this.resourceCache.get(key));
+    }
+
+    private boolean matches(EventListener listener, Event event)
+    {
+        return listener.getEvents().stream().anyMatch(listenedEvent -> listenedEvent.matches(event));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.Test;
+
+import com.xpn.xwiki.objects.DBStringListProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.StringProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ObjectPropertiesBulkLoader}.
+ *
+ * @version $Id$
+ */
+class ObjectPropertiesBulkLoaderTest
+{
+    private Session session = mock(Session.class);
+
+    @Test
+    void load()
+    {
+        Query<Object[]> propertiesQuery = mock(Query.class);
+        when(this.session.createQuery(
+            "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)",
+            Object[].class)).thenReturn(propertiesQuery);
+        when(propertiesQuery.list()).thenReturn(Arrays.asList(
+            new Object[] { 1L, "string", StringProperty.class.getName() },
+            new Object[] { 1L, "list", DBStringListProperty.class.getName() },
+            new Object[] { 2L, "string", StringProperty.class.getName() },
+            new Object[] { 2L, "integer", IntegerProperty.class.getName() }));
+
+        Query<Object[]> stringsQuery = mock(Query.class);
+        when(this.session.createQuery("select prop.id.id, prop.name, prop.value from "
+            + StringProperty.class.getName() + " as prop where prop.id.id in (:ids) and prop.classType = :classType",
+            Object[].class)).thenReturn(stringsQuery);
+        when(stringsQuery.list()).thenReturn(
+            Arrays.asList(new Object[] { 1L, "string", "value1" }, new Object[] { 2L, "string", null }));
+
+        Query<Object[]> integersQuery = mock(Query.class);
+        when(this.session.createQuery("select prop.id.id, prop.name, prop.value from "
+            + IntegerProperty.class.getName() + " as prop where prop.id.id in (:ids) and prop.classType = :classType",
+            Object[].class)).thenReturn(integersQuery);
+        when(integersQuery.list()).thenReturn(Collections.singletonList(new Object[] { 2L, "integer", 42 }));
+
+        ObjectPropertiesBulkLoader loader = new ObjectPropertiesBulkLoader();
+        loader.load(Arrays.asList(1L, 2L), this.session);
+
+        verify(propertiesQuery).setParameterList("ids", Arrays.asList(1L, 2L));
+        verify(stringsQuery).setParameterList("ids", Arrays.asList(1L, 2L));
+        verify(integersQuery).setParameterList("ids", Arrays.asList(2L));
+
+        assertEquals(2, loader.getProperties(1).size());
+        assertEquals(2, loader.getProperties(2).size());
+        assertTrue(loader.getProperties(3).isEmpty());
+
+        StringProperty string1 = new StringProperty();
+        string1.setId(1L);
+        string1.setName("string");
+        assertTrue(loader.setValue(string1));
+        assertEquals("value1", string1.getValue());
+        assertFalse(string1.isValueDirty());
+
+        // Null strings are converted to empty strings (Oracle)
+        StringProperty string2 = new StringProperty();
+        string2.setId(2L);
+        string2.setName("string");
+        assertTrue(loader.setValue(string2));
+        assertEquals("", string2.getValue());
+
+        IntegerProperty integer = new IntegerProperty();
+        integer.setId(2L);
+        integer.setName("integer");
+        assertTrue(loader.setValue(integer));
+        assertEquals(42, integer.getValue());
+
+        // Not handled in bulk
+        DBStringListProperty list = new DBStringListProperty();
+        list.setId(1L);
+        list.setName("list");
+        assertFalse(loader.setValue(list));
+
+        // Not found in the expected table
+        StringProperty missing = new StringProperty();
+        missing.setId(1L);
+        missing.setName("missing");
+        assertFalse(loader.setValue(missing));
+    }
+}
@@ -31,6 +31,7 @@
 import org.junit.jupiter.api.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.xwiki.cache.CacheManager;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.configuration.internal.MemoryConfigurationSource;
 import org.xwiki.environment.Environment;
@@ -90,6 +91,7 @@ void afterComponent() throws Exception
         this.componentManager.registerMockComponent(ConfigurationSource.class);
         this.componentManager.registerMockComponent(TransformationManager.class);
         this.componentManager.registerMockComponent(ObservationManager.class);
+        this.componentManager.registerMockComponent(CacheManager.class);
         this.componentManager.registerMockComponent(ContextualAuthorizationManager.class);
 
         this.authorizationMock = this.componentManager.registerMockComponent(AuthorizationManager.class);
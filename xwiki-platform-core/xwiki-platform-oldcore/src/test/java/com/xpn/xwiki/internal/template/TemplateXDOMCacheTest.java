@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.template;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateContent;
+import org.xwiki.template.event.TemplateUpdatedEvent;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link TemplateXDOMCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class TemplateXDOMCacheTest
+{
+    @InjectMockComponents
+    private TemplateXDOMCache xdomCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private ObservationManager observation;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private final Map<String, Object> entries = new HashMap<>();
+
+    private Template template;
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        when(this.configuration.getProperty("template.cache.xdom.size", 1000)).thenReturn(1000);
+
+        Cache<Object> cache = mock(Cache.class);
+        when(this.cacheManager.createNewLocalCache(any(CacheConfiguration.class))).thenReturn((Cache) cache);
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        doAnswer(invocation -> this.entries.remove(invocation.getArgument(0))).when(cache).remove(anyString());
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.template = mock(Template.class);
+        when(this.template.getId()).thenReturn("templateid");
+    }
+
+    private TemplateContent mockContent(String content)
+    {
+        TemplateContent templateContent = mock(TemplateContent.class);
+        when(templateContent.getContent()).thenReturn(content);
+        when(templateContent.getSourceSyntax()).thenReturn(Syntax.XWIKI_2_1);
+
+        return templateContent;
+    }
+
+    @Test
+    void getSet()
+    {
+        TemplateContent content = mockContent("content");
+
+        assertNull(this.xdomCache.get(this.template, content));
+
+        XDOM xdom = new XDOM(Collections.singletonList(new WordBlock("content")));
+        this.xdomCache.set(this.template, content, xdom);
+
+        XDOM cachedXDOM = this.xdomCache.get(this.template, mockContent("content"));
+        assertNotNull(cachedXDOM);
+        assertNotSame(xdom, cachedXDOM);
+        assertEquals("content", ((WordBlock) cachedXDOM.getChildren().get(0)).getWord());
+
+        // Modified content
+        assertNull(this.xdomCache.get(this.template, mockContent("other content")));
+
+        assertEquals(1, this.xdomCache.getHitCount());
+        assertEquals(2, this.xdomCache.getMissCount());
+        assertEquals(1.0 / 3, this.xdomCache.getHitRate());
+    }
+
+    @Test
+    void removeOnTemplateEvent()
+    {
+        TemplateContent content = mockContent("content");
+        this.xdomCache.set(this.template, content, new XDOM(Collections.emptyList()));
+
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        verify(this.observation).addListener(listenerCaptor.capture());
+        listenerCaptor.getValue().onEvent(new TemplateUpdatedEvent("templateid"), null, null);
+
+        assertNull(this.xdomCache.get(this.template, content));
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.context.ExecutionContextManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.stats.impl.DocumentStats;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XWikiStatsStoreService}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+class XWikiStatsStoreServiceTest
+{
+    private static final long HOUR = 3600000L;
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private XWikiHibernateStore hibernateStore;
+
+    private final List<String> stored = new CopyOnWriteArrayList<>();
+
+    /**
+     * Record the stored statistics instead of saving them.
+     *
+     * @version $Id$
+     */
+    private class TestStatsStoreItem extends AbstractStatsStoreItem
+    {
+        TestStatsStoreItem(String name)
+        {
+            super(name, new Date(), PeriodType.DAY, oldcore.getXWikiContext());
+        }
+
+        @Override
+        public String getId()
+        {
+            return this.name;
+        }
+
+        @Override
+        protected void storeInternal(List<XWikiStatsStoreItem> statsList)
+        {
+            if ("fail".equals(this.name)) {
+                throw new RuntimeException("Failed to store the statistic");
+            }
+
+            for (XWikiStatsStoreItem item : statsList) {
+                stored.add(this.name + ':' + ((TestStatsStoreItem) item).hits);
+            }
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+
+        this.hibernateStore = (XWikiHibernateStore) this.oldcore.getMockStore();
+        when(this.hibernateStore.beginTransaction(any(XWikiContext.class))).thenReturn(true);
+
+        doReturn(HOUR).when(this.oldcore.getSpyXWiki()).ParamAsLong("stats.flush.interval", 10000);
+        doReturn(2L).when(this.oldcore.getSpyXWiki()).ParamAsLong("stats.queue.size", 10000);
+    }
+
+    private XWikiStatsStoreService startService()
+    {
+        XWikiStatsStoreService service = new XWikiStatsStoreService(this.oldcore.getXWikiContext());
+        service.start();
+
+        return service;
+    }
+
+    @Test
+    void statisticsAreCombined() throws Exception
+    {
+        XWikiStatsStoreService service = startService();
+
+        service.add(new TestStatsStoreItem("a"));
+        service.add(new TestStatsStoreItem("b"));
+        for (int i = 0; i < 100; i++) {
+            service.add(new TestStatsStoreItem("a"));
+        }
+
+        service.stop();
+
+        // Each statistic is stored once, with all its hits, in a single transaction
+        assertEquals(Arrays.asList("a:101", "b:1"), this.stored.stream().sorted().collect(Collectors.toList()));
+        verify(this.hibernateStore).beginTransaction(any(XWikiContext.class));
+        verify(this.hibernateStore).endTransaction(any(XWikiContext.class), eq(true));
+    }
+
+    @Test
+    void statisticsAreStoredInInsertionOrder() throws Exception
+    {
+        doReturn(100L).when(this.oldcore.getSpyXWiki()).ParamAsLong("stats.queue.size", 10000);
+
+        XWikiStatsStoreService service = startService();
+
+        List<String> names = Arrays.asList("d", "a", "c", "b", "f", "e");
+        for (String name : names) {
+            service.add(new TestStatsStoreItem(name));
+        }
+        service.add(new TestStatsStoreItem("a"));
+
+        service.stop();
+
+        assertEquals(Arrays.asList("d:1", "a:2", "c:1", "b:1", "f:1", "e:1"), this.stored);
+    }
+
+    @Test
+    void documentStatisticsAreCombined() throws Exception
+    {
+        XWikiStatsStoreService service = startService();
+
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        Date date = new Date();
+        service.add(new DocumentStatsStoreItem("Space.Page", date, PeriodType.MONTH, "view", true, xcontext));
+        service.add(new DocumentStatsStoreItem("Space.Page", date, PeriodType.MONTH, "view", false, xcontext));
+        service.add(new DocumentStatsStoreItem("Space.Page", date, PeriodType.MONTH, "view", true, xcontext));
+
+        service.stop();
+
+        ArgumentCaptor<DocumentStats> captor = ArgumentCaptor.forClass(DocumentStats.class);
+        verify(this.hibernateStore).saveXWikiCollection(captor.capture(), any(XWikiContext.class), eq(true));
+        assertEquals(3, captor.getValue().getPageViews());
+        assertEquals(2, captor.getValue().getVisits());
+    }
+
+    @Test
+    void failingStatisticIsIsolated() throws Exception
+    {
+        XWikiStatsStoreService service = startService();
+
+        service.add(new TestStatsStoreItem("a"));
+        service.add(new TestStatsStoreItem("fail"));
+
+        service.stop();
+
+        // The wiki transaction fails and each statistic is then stored in its own transaction
+        verify(this.hibernateStore, times(3)).beginTransaction(any(XWikiContext.class));
+        verify(this.hibernateStore, times(2)).endTransaction(any(XWikiContext.class), eq(false));
+        verify(this.hibernateStore).endTransaction(any(XWikiContext.class), eq(true));
+        assertEquals(Collections.singletonList("a:1"),
+            this.stored.subList(this.stored.size() - 1, this.stored.size()));
+    }
+
+    @Test
+    void flushWhenTooManyDistinctStatistics() throws Exception
+    {
+        XWikiStatsStoreService service = startService();
+
+        // Hits on pending statistics don't count in the limit
+        for (int i = 0; i < 10; i++) {
+            service.add(new TestStatsStoreItem("a"));
+            service.add(new TestStatsStoreItem("b"));
+        }
+        assertEquals(Collections.emptyList(), this.stored);
+
+        // A new statistic waits for the pending ones to be stored instead of being dropped
+        service.add(new TestStatsStoreItem("c"));
+        assertEquals(Arrays.asList("a:10", "b:10"),
+            this.stored.stream().sorted().collect(Collectors.toList()));
+
+        service.stop();
+
+        assertEquals(Arrays.asList("a:10", "b:10", "c:1"),
+            this.stored.stream().sorted().collect(Collectors.toList()));
+    }
+}
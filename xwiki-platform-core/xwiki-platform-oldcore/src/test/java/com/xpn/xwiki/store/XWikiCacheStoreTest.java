@@ -19,6 +19,16 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.cache.Cache;
@@ -36,13 +46,18 @@
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -64,6 +79,8 @@
 
     private Cache<Boolean> existCache;
 
+    private Cache<List<String>> translationListCache;
+
     @BeforeEach
     void beforeEach() throws Exception
     {
@@ -77,6 +94,9 @@ void beforeEach() throws Exception
         existCache = mock(Cache.class);
         when(cacheManager.<Boolean>createNewCache(isCacheConfiguration("xwiki.store.pageexistcache"))).thenReturn(
             existCache);
+        translationListCache = mock(Cache.class);
+        when(cacheManager.<List<String>>createNewCache(isCacheConfiguration("xwiki.store.translationlistcache")))
+            .thenReturn(translationListCache);
     }
 
     @Test
@@ -142,4 +162,257 @@ void saveXWikiDocumentFailing() throws XWikiException
         verify(this.cache).remove("4:wiki5:space4:page0:");
         verify(this.existCache).remove("4:wiki5:space4:page0:");
     }
+
+    @Test
+    void loadXWikiDocConcurrently() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+        XWikiDocument storedDocument = new XWikiDocument(reference);
+        storedDocument.setNew(false);
+
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loadStarted.countDown();
+            loadReleased.await();
+
+            return storedDocument;
+        }).when(this.oldcore.getMockStore()).loadXWikiDoc(any(), any());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<XWikiDocument> first = executor
+                .submit(() -> store.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext()));
+            loadStarted.await();
+            Future<XWikiDocument> second = executor
+                .submit(() -> store.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext()));
+
+            // Wait for the second thread to join the pending load
+            while (store.getCoalescedDocumentLoadCount() == 0) {
+                Thread.sleep(10);
+            }
+            loadReleased.countDown();
+
+            assertSame(storedDocument, first.get());
+            assertSame(storedDocument, second.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, store.getCoalescedDocumentLoadCount());
+        verify(this.oldcore.getMockStore()).loadXWikiDoc(any(), any());
+        verify(this.cache).set("4:wiki5:space4:page0:", storedDocument);
+        verify(this.existCache).set("4:wiki5:space4:page0:", Boolean.TRUE);
+    }
+
+    @Test
+    void loadXWikiDocs() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference cachedReference = new DocumentReference("wiki", "space", "cached");
+        XWikiDocument cachedDocument = new XWikiDocument(cachedReference);
+        when(this.cache.get("4:wiki5:space6:cached0:")).thenReturn(cachedDocument);
+
+        DocumentReference missingReference = new DocumentReference("wiki", "space", "missing");
+        when(this.existCache.get("4:wiki5:space7:missing0:")).thenReturn(Boolean.FALSE);
+
+        DocumentReference storedReference = new DocumentReference("wiki", "space", "stored");
+        XWikiDocument storedDocument = new XWikiDocument(storedReference);
+        storedDocument.setNew(false);
+        doReturn(Collections.singletonList(storedDocument)).when(this.oldcore.getMockStore())
+            .loadXWikiDocs(Collections.singletonList(storedReference), this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        List<XWikiDocument> documents = store.loadXWikiDocs(
+            Arrays.asList(cachedReference, missingReference, storedReference), this.oldcore.getXWikiContext());
+
+        assertEquals(3, documents.size());
+        assertSame(cachedDocument, documents.get(0));
+        assertTrue(documents.get(0).isFromCache());
+        assertEquals(missingReference, documents.get(1).getDocumentReference());
+        assertTrue(documents.get(1).isNew());
+        assertSame(storedDocument, documents.get(2));
+
+        verify(this.oldcore.getMockStore(), times(0)).loadXWikiDoc(any(), any());
+        verify(this.cache).set("4:wiki5:space6:stored0:", storedDocument);
+        verify(this.existCache).set("4:wiki5:space6:stored0:", Boolean.TRUE);
+    }
+
+    @Test
+    void loadXWikiDocsConcurrently() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference pendingReference = new DocumentReference("wiki", "space", "pending");
+        XWikiDocument pendingDocument = new XWikiDocument(pendingReference);
+        pendingDocument.setNew(false);
+
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loadStarted.countDown();
+            loadReleased.await();
+
+            return pendingDocument;
+        }).when(this.oldcore.getMockStore()).loadXWikiDoc(any(), any());
+
+        DocumentReference storedReference = new DocumentReference("wiki", "space", "stored");
+        XWikiDocument storedDocument = new XWikiDocument(storedReference);
+        storedDocument.setNew(false);
+        doReturn(Collections.singletonList(storedDocument)).when(this.oldcore.getMockStore())
+            .loadXWikiDocs(Collections.singletonList(storedReference), this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<XWikiDocument> first = executor.submit(
+                () -> store.loadXWikiDoc(new XWikiDocument(pendingReference), this.oldcore.getXWikiContext()));
+            loadStarted.await();
+            Future<List<XWikiDocument>> second = executor.submit(() -> store
+                .loadXWikiDocs(Arrays.asList(pendingReference, storedReference), this.oldcore.getXWikiContext()));
+
+            // Wait for the second thread to join the pending load
+            while (store.getCoalescedDocumentLoadCount() == 0) {
+                Thread.sleep(10);
+            }
+            loadReleased.countDown();
+
+            assertSame(pendingDocument, first.get());
+            List<XWikiDocument> documents = second.get();
+            assertSame(pendingDocument, documents.get(0));
+            assertTrue(documents.get(0).isFromCache());
+            assertSame(storedDocument, documents.get(1));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The bulk load only asked the store for the document which was not already being loaded
+        assertEquals(1, store.getCoalescedDocumentLoadCount());
+        verify(this.oldcore.getMockStore()).loadXWikiDoc(any(), any());
+        verify(this.oldcore.getMockStore()).loadXWikiDocs(any(), any());
+        verify(this.cache).set("4:wiki5:space7:pending0:", pendingDocument);
+        verify(this.cache).set("4:wiki5:space6:stored0:", storedDocument);
+    }
+
+    @Test
+    void existsMultiple() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference cachedReference = new DocumentReference("wiki", "space", "cached");
+        when(this.existCache.get("4:wiki5:space6:cached0:")).thenReturn(Boolean.TRUE);
+
+        DocumentReference storedReference = new DocumentReference("wiki", "space", "stored");
+        DocumentReference missingReference = new DocumentReference("wiki", "space", "missing");
+        doReturn(Arrays.asList(true, false)).when(this.oldcore.getMockStore())
+            .exists(Arrays.asList(storedReference, missingReference), this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        assertEquals(Arrays.asList(true, true, false),
+            store.exists(Arrays.asList(cachedReference, storedReference, missingReference),
+                this.oldcore.getXWikiContext()));
+
+        verify(this.oldcore.getMockStore(), never()).exists(any(XWikiDocument.class), any());
+        verify(this.existCache).set("4:wiki5:space6:stored0:", Boolean.TRUE);
+        verify(this.existCache).set("4:wiki5:space7:missing0:", Boolean.FALSE);
+    }
+
+    @Test
+    void existsMultipleConcurrently() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference pendingReference = new DocumentReference("wiki", "space", "pending");
+
+        CountDownLatch checkStarted = new CountDownLatch(1);
+        CountDownLatch checkReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            checkStarted.countDown();
+            checkReleased.await();
+
+            return true;
+        }).when(this.oldcore.getMockStore()).exists(any(XWikiDocument.class), any());
+
+        DocumentReference storedReference = new DocumentReference("wiki", "space", "stored");
+        doReturn(Collections.singletonList(false)).when(this.oldcore.getMockStore())
+            .exists(Collections.singletonList(storedReference), this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor
+                .submit(() -> store.exists(new XWikiDocument(pendingReference), this.oldcore.getXWikiContext()));
+            checkStarted.await();
+            Future<List<Boolean>> second = executor.submit(
+                () -> store.exists(Arrays.asList(pendingReference, storedReference), this.oldcore.getXWikiContext()));
+
+            // Wait for the second thread to join the pending check
+            while (store.getCoalescedDocumentExistCount() == 0) {
+                Thread.sleep(10);
+            }
+            checkReleased.countDown();
+
+            assertTrue(first.get());
+            assertEquals(Arrays.asList(true, false), second.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The bulk check only asked the store for the document which was not already being checked
+        assertEquals(1, store.getCoalescedDocumentExistCount());
+        verify(this.oldcore.getMockStore()).exists(any(XWikiDocument.class), any());
+        verify(this.oldcore.getMockStore()).exists(any(Collection.class), any());
+        verify(this.existCache).set("4:wiki5:space7:pending0:", Boolean.TRUE);
+        verify(this.existCache).set("4:wiki5:space6:stored0:", Boolean.FALSE);
+    }
+
+    @Test
+    void loadMissingTranslation() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+        List<String> translations = Collections.singletonList("fr");
+        doReturn(translations).when(this.oldcore.getMockStore()).getTranslationList(any(), any());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument translation =
+            store.loadXWikiDoc(new XWikiDocument(reference, Locale.GERMAN), this.oldcore.getXWikiContext());
+
+        assertTrue(translation.isNew());
+        verify(this.oldcore.getMockStore(), never()).loadXWikiDoc(any(), any());
+        verify(this.translationListCache).set("4:wiki5:space4:page0:", translations);
+        verify(this.existCache).set("4:wiki5:space4:page2:de", Boolean.FALSE);
+
+        // The list of translations answers for the other locales
+        when(this.translationListCache.get("4:wiki5:space4:page0:")).thenReturn(translations);
+
+        assertFalse(store.exists(new XWikiDocument(reference, Locale.ITALIAN), this.oldcore.getXWikiContext()));
+        assertEquals(translations, store.getTranslationList(new XWikiDocument(reference),
+            this.oldcore.getXWikiContext()));
+
+        verify(this.oldcore.getMockStore(), never()).exists(any(XWikiDocument.class), any());
+        verify(this.oldcore.getMockStore()).getTranslationList(any(), any());
+
+        // Saving a translation invalidates the list
+        store.saveXWikiDoc(new XWikiDocument(reference, Locale.ITALIAN), this.oldcore.getXWikiContext());
+
+        verify(this.translationListCache).remove("4:wiki5:space4:page0:");
+    }
 }
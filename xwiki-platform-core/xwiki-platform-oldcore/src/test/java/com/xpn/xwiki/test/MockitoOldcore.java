@@ -495,6 +495,7 @@ public Boolean answer(InvocationOnMock invocation) throws Throwable
                 return documents.containsKey(reference);
             }
         });
+        when(getMockStore().loadXWikiDocs(any(), anyXWikiContext())).thenCallRealMethod();
         doAnswer(new Answer<Void>()
         {
             @Override
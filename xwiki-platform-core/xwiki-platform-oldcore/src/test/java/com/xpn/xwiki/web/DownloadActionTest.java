@@ -20,16 +20,21 @@
 package com.xpn.xwiki.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
@@ -56,6 +61,7 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -76,6 +82,9 @@
     @Rule
     public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
 
+    @Rule
+    public TemporaryFolder tmpDirRule = new TemporaryFolder();
+
     /** Mocked context document. */
     private XWikiDocument document;
 
@@ -613,6 +622,67 @@ public void downloadWhenEmptyRange() throws XWikiException, IOException
         verifyResponseExpectations(d.getTime(), this.fileContent.length);
     }
 
+    @Test
+    public void downloadFromFileChannel() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachmentContent content = createFileAttachment(d, true);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+        verify(content, never()).getContentInputStream();
+    }
+
+    @Test
+    public void downloadRangeFromFileChannel() throws XWikiException, IOException
+    {
+        // This test expects bytes 3, 4 and 5 from the file, read at their position in the file
+        Date d = new Date();
+        XWikiAttachmentContent content = createFileAttachment(d, true);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 3-5/" + DownloadActionTest.this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), 3);
+        verifyOutputExpectations(3, 6);
+        verify(content, never()).getContentInputStream();
+    }
+
+    @Test
+    public void downloadWithoutFileChannel() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachmentContent content = createFileAttachment(d, false);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        // The content which is not stored in a file is copied from its stream
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+        verify(content).getContentInputStream();
+    }
+
+    @Test
+    public void downloadRangeWithoutFileChannel() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachmentContent content = createFileAttachment(d, false);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyResponseExpectations(d.getTime(), 3);
+        verifyOutputExpectations(3, 6);
+        verify(content).getContentInputStream();
+    }
+
     private void createAttachment(Date d, String name) throws IOException
     {
         XWikiAttachment filetxt = new XWikiAttachment(this.document, name);
@@ -621,6 +691,30 @@ private void createAttachment(Date d, String name) throws IOException
         this.document.getAttachmentList().add(filetxt);
     }
 
+    /**
+     * Create an attachment whose content is stored in a file, or not stored in a file at all.
+     */
+    private XWikiAttachmentContent createFileAttachment(Date d, boolean inFile) throws IOException
+    {
+        XWikiAttachment filetxt = new XWikiAttachment(this.document, DEFAULT_FILE_NAME);
+        XWikiAttachmentContent content = mock(XWikiAttachmentContent.class);
+        when(content.getAttachment()).thenReturn(filetxt);
+        when(content.getLongSize()).thenReturn((long) this.fileContent.length);
+        when(content.getContentInputStream()).then(invocation -> new ByteArrayInputStream(this.fileContent));
+        if (inFile) {
+            File file = this.tmpDirRule.newFile();
+            FileUtils.writeByteArrayToFile(file, this.fileContent);
+            when(content.getContentFileChannel())
+                .then(invocation -> FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        }
+        filetxt.setAttachment_content(content);
+        filetxt.setLongSize(this.fileContent.length);
+        filetxt.setDate(d);
+        this.document.getAttachmentList().add(filetxt);
+
+        return content;
+    }
+
     private void setRequestExpectations(String uri, String id, String forceDownload, String range, long modifiedSince,
         String attachmentName)
     {
@@ -71,6 +71,7 @@ public Properties getInterWikiDefinitions()
     @Override
     public List<String> getTransformationNames()
     {
-        return this.configuration.getProperty(PREFIX + "transformations", Arrays.asList("macro", "icon"));
+        return this.configuration.getProperty(PREFIX + "transformations",
+            Arrays.asList("macro", "icon", "linkexistence"));
     }
 }
@@ -57,8 +57,8 @@ void getLinkLabelFormat()
     @Test
     void getTransformationNames()
     {
-        when(this.source.getProperty("rendering.transformations", Arrays.asList("macro", "icon"))).thenReturn(
-            Arrays.asList("mytransformation"));
+        when(this.source.getProperty("rendering.transformations", Arrays.asList("macro", "icon", "linkexistence")))
+            .thenReturn(Arrays.asList("mytransformation"));
 
         List<String> txs = this.configuration.getTransformationNames();
         assertEquals(1, txs.size());
@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.wiki;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.transformation.AbstractTransformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+
+/**
+ * Check the existence of all the documents targeted by the links of the content with a single query before the
+ * content is rendered, instead of one query for each link when the renderer asks the {@link XWikiWikiModel} if the
+ * document is available. The result is kept by the document existence cache of the store.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component
+@Named("linkexistence")
+@Singleton
+public class LinkExistenceTransformation extends AbstractTransformation
+{
+    /**
+     * Executed after the other transformations since they might produce links (macros for example).
+     */
+    private static final int PRIORITY = 2000;
+
+    private static final List<ResourceType> DOCUMENT_TYPES =
+        Arrays.asList(ResourceType.DOCUMENT, ResourceType.SPACE, ResourceType.PAGE);
+
+    @Inject
+    private DocumentAccessBridge documentAccessBridge;
+
+    @Inject
+    private EntityReferenceResolver<ResourceReference> resourceReferenceEntityReferenceResolver;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public int getPriority()
+    {
+        return PRIORITY;
+    }
+
+    @Override
+    public void transform(Block block, TransformationContext context)
+    {
+        Set<DocumentReference> documentReferences = new LinkedHashSet<>();
+
+        List<LinkBlock> linkBlocks =
+            block.getBlocks(new ClassBlockMatcher(LinkBlock.class), Block.Axes.DESCENDANT_OR_SELF);
+        for (LinkBlock linkBlock : linkBlocks) {
+            ResourceReference reference = linkBlock.getReference();
+
+            if (DOCUMENT_TYPES.contains(reference.getType())) {
+                try {
+                    DocumentReference documentReference = getDocumentReference(reference);
+                    if (documentReference != null) {
+                        documentReferences.add(documentReference);
+                    }
+                } catch (Exception e) {
+                    // The renderer will take care of it
+                    this.logger.debug("Failed to resolve link reference [{}]", reference, e);
+                }
+            }
+        }
+
+        // Not worth it for a single link
+        if (documentReferences.size() > 1) {
+            this.documentAccessBridge.exists(new ArrayList<>(documentReferences));
+        }
+    }
+
+    /**
+     * Resolve the reference the same way as {@link XWikiWikiModel#isDocumentAvailable(ResourceReference)}.
+     */
+    private DocumentReference getDocumentReference(ResourceReference reference)
+    {
+        EntityReference entityReference = this.resourceReferenceEntityReferenceResolver.resolve(reference,
+            reference.getType().equals(ResourceType.PAGE) ? EntityType.PAGE : EntityType.DOCUMENT);
+
+        return entityReference != null ? this.documentAccessBridge.getDocumentReference(entityReference) : null;
+    }
+}
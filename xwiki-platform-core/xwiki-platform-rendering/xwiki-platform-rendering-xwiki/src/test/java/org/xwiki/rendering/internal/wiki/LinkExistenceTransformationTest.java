@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.wiki;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.rendering.block.LinkBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link LinkExistenceTransformation}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class LinkExistenceTransformationTest
+{
+    @InjectMockComponents
+    private LinkExistenceTransformation transformation;
+
+    @MockComponent
+    private DocumentAccessBridge documentAccessBridge;
+
+    @MockComponent
+    private EntityReferenceResolver<ResourceReference> resourceReferenceEntityReferenceResolver;
+
+    private LinkBlock mockLink(String reference, DocumentReference documentReference)
+    {
+        ResourceReference resourceReference = new DocumentResourceReference(reference);
+        when(this.resourceReferenceEntityReferenceResolver.resolve(resourceReference, EntityType.DOCUMENT))
+            .thenReturn(documentReference);
+        when(this.documentAccessBridge.getDocumentReference(documentReference)).thenReturn(documentReference);
+
+        return new LinkBlock(Collections.emptyList(), resourceReference, false);
+    }
+
+    @Test
+    void transform()
+    {
+        DocumentReference reference1 = new DocumentReference("wiki", "space", "page1");
+        DocumentReference reference2 = new DocumentReference("wiki", "space", "page2");
+
+        XDOM xdom = new XDOM(Arrays.asList(new ParagraphBlock(Arrays.asList(mockLink("page1", reference1),
+            mockLink("page2", reference2), mockLink("page1", reference1),
+            new LinkBlock(Collections.emptyList(), new ResourceReference("http://xwiki.org", ResourceType.URL),
+                true)))));
+
+        this.transformation.transform(xdom, new TransformationContext());
+
+        verify(this.documentAccessBridge).exists(Arrays.asList(reference1, reference2));
+    }
+
+    @Test
+    void transformWithSingleLink()
+    {
+        XDOM xdom =
+            new XDOM(Collections.singletonList(mockLink("page", new DocumentReference("wiki", "space", "page"))));
+
+        this.transformation.transform(xdom, new TransformationContext());
+
+        verify(this.documentAccessBridge, never()).exists(anyList());
+    }
+}
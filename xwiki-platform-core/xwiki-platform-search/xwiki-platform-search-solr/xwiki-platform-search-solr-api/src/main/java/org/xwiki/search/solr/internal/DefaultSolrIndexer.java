@@ -19,13 +19,24 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -61,7 +72,8 @@
  * <p>
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
- * processes the queue.
+ * processes the queue: the data to index is extracted by a pool of threads but the operations are always sent to the
+ * Solr server in the order they were queued.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -140,6 +152,34 @@ public String toString()
         }
     }
 
+    /**
+     * An entry of the index queue waiting to be sent to the Solr server.
+     * 
+     * @version $Id$
+     */
+    private static class PendingEntry
+    {
+        /**
+         * The entry taken from the index queue.
+         */
+        public final IndexQueueEntry entry;
+
+        /**
+         * The data being extracted from the entity to index, {@code null} for the other operations.
+         */
+        public final Future<LengthSolrInputDocument> document;
+
+        /**
+         * @param entry the entry taken from the index queue
+         * @param document the data being extracted from the entity to index
+         */
+        PendingEntry(IndexQueueEntry entry, Future<LengthSolrInputDocument> document)
+        {
+            this.entry = entry;
+            this.document = document;
+        }
+    }
+
     /**
      * Resolve queue entry.
      * 
@@ -299,6 +339,21 @@ public void runInternal()
      */
     private Thread indexThread;
 
+    /**
+     * The threads extracting the data to index.
+     */
+    private ExecutorService extractExecutor;
+
+    /**
+     * The maximum number of entries taken from the index queue and not yet sent to the Solr server.
+     */
+    private int maxPendingEntries;
+
+    /**
+     * The number of entries taken from the index queue and not yet sent to the Solr server.
+     */
+    private volatile int pendingEntries;
+
     /**
      * Thread in which the provided references children will be resolved.
      */
@@ -314,6 +369,26 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The length of the not yet sent batch.
+     */
+    private int batchLength;
+
+    /**
+     * The extracted documents not yet sent to the Solr server (they are sent together).
+     */
+    private List<SolrInputDocument> documents = new ArrayList<>();
+
+    /**
+     * The time spent extracting the data of the entities (in nanoseconds), summed over all the extract threads.
+     */
+    private final AtomicLong extractTime = new AtomicLong();
+
+    /**
+     * The time spent sending the batch to the Solr server (in nanoseconds).
+     */
+    private long sendTime;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -321,6 +396,13 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Create the threads extracting the data to index
+        int threads = Math.max(1, this.configuration.getIndexerThreads());
+        this.extractExecutor = Executors.newFixedThreadPool(threads, new BasicThreadFactory.Builder()
+            .namingPattern("XWiki Solr extract thread %d").daemon(true).priority(Thread.NORM_PRIORITY - 1).build());
+        // Allow each thread to work on the next entity while the previous ones are waiting to be sent
+        this.maxPendingEntries = threads * 2;
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -378,6 +460,8 @@ public void run()
             }
         }
 
+        this.extractExecutor.shutdownNow();
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
@@ -390,56 +474,146 @@ public void run()
      */
     private boolean processBatch(IndexQueueEntry queueEntry)
     {
-        int length = 0;
+        // The entries being extracted, in the order they were queued
+        Deque<PendingEntry> pending = new ArrayDeque<>(this.maxPendingEntries + 1);
 
         for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
             if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
-                // Discard the current batch and stop the indexing thread.
+                // Send the documents already extracted but discard the rest of the current batch and stop the
+                // indexing thread.
+                sendDocuments();
+                for (PendingEntry pendingEntry : pending) {
+                    if (pendingEntry.document != null) {
+                        pendingEntry.document.cancel(false);
+                    }
+                }
+                this.pendingEntries = 0;
+
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
+            pending.add(new PendingEntry(batchEntry, extract(batchEntry)));
+            this.pendingEntries = pending.size();
+
+            // Send the oldest entries to the Solr server while the next ones are being extracted
+            while (pending.size() > this.maxPendingEntries) {
+                processEntry(pending.poll());
+                this.pendingEntries = pending.size();
+            }
+        }
+
+        // Send what's left
+        while (!pending.isEmpty()) {
+            processEntry(pending.poll());
+            this.pendingEntries = pending.size();
+        }
 
-            // For the current contiguous operations queue, group the changes
+        // Commit what's left
+        if (this.batchSize > 0) {
+            commit();
+        }
+
+        return true;
+    }
+
+    /**
+     * Start extracting the data to index in one of the extract threads.
+     * 
+     * @param queueEntry the entry taken from the index queue
+     * @return the data being extracted, {@code null} if the entry is not about indexing an entity
+     */
+    private Future<LengthSolrInputDocument> extract(IndexQueueEntry queueEntry)
+    {
+        if (!IndexOperation.INDEX.equals(queueEntry.operation)) {
+            return null;
+        }
+
+        return this.extractExecutor.submit(() -> {
+            long start = System.nanoTime();
             try {
                 this.ecim.initialize(new ExecutionContext());
 
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
+                return getSolrDocument(queueEntry.reference);
+            } finally {
+                this.execution.removeContext();
+
+                this.extractTime.addAndGet(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Send the passed entry to the Solr server, once its data has been extracted.
+     * 
+     * @param pendingEntry the entry to send
+     */
+    private void processEntry(PendingEntry pendingEntry)
+    {
+        IndexQueueEntry batchEntry = pendingEntry.entry;
+        IndexOperation operation = batchEntry.operation;
+
+        try {
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument = pendingEntry.document.get();
+                if (solrDocument != null) {
+                    this.documents.add(solrDocument);
+                    this.batchLength += solrDocument.getLength();
+                    ++this.batchSize;
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                // Don't let the delete overtake the documents to index which were queued before it
+                sendDocuments();
+
+                this.ecim.initialize(new ExecutionContext());
+
+                try {
+                    long start = System.nanoTime();
                     if (batchEntry.reference == null) {
                         solrInstance.deleteByQuery(batchEntry.deleteQuery);
                     } else {
                         solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
                     }
-
-                    ++this.batchSize;
+                    this.sendTime += System.nanoTime() - start;
+                } finally {
+                    this.execution.removeContext();
                 }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
-            }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
+                ++this.batchSize;
             }
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e.getCause());
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", batchEntry);
+
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
         }
 
-        // Commit what's left
-        if (this.batchSize > 0) {
+        // Commit the index changes so that they become available to queries. This is a costly operation and that is
+        // the reason why we perform it at the end of the batch.
+        if (shouldCommit(this.batchLength, this.batchSize)) {
             commit();
         }
+    }
 
-        return true;
+    /**
+     * Send the extracted documents to the Solr server in a single request.
+     */
+    private void sendDocuments()
+    {
+        if (!this.documents.isEmpty()) {
+            List<SolrInputDocument> sentDocuments = this.documents;
+            this.documents = new ArrayList<>();
+
+            long start = System.nanoTime();
+            try {
+                solrInstance.add(sentDocuments);
+            } catch (Exception e) {
+                this.logger.error("Failed to send [{}] documents to the Solr server", sentDocuments.size(), e);
+            }
+            this.sendTime += System.nanoTime() - start;
+        }
     }
 
     /**
@@ -447,6 +621,11 @@ private boolean processBatch(IndexQueueEntry queueEntry)
      */
     private void commit()
     {
+        sendDocuments();
+
+        int size = this.batchSize;
+        long start = System.nanoTime();
+
         try {
             solrInstance.commit();
         } catch (Exception e) {
@@ -460,7 +639,15 @@ private void commit()
             }
         }
 
+        if (this.logger.isDebugEnabled()) {
+            this.logger.debug("Committed [{}] entries: [{}] ms spent extracting, [{}] ms sending, [{}] ms committing",
+                size, TimeUnit.NANOSECONDS.toMillis(this.extractTime.getAndSet(0)),
+                TimeUnit.NANOSECONDS.toMillis(this.sendTime), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
         this.batchSize = 0;
+        this.batchLength = 0;
+        this.sendTime = 0;
     }
 
     /**
@@ -552,7 +739,7 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.pendingEntries + this.batchSize;
     }
 
     @Override
@@ -36,10 +36,13 @@
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.security.authorization.event.RightUpdatedEvent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -75,7 +78,18 @@ public class SolrIndexEventListener implements EventListener
         new DocumentCreatedEvent(), new DocumentDeletedEvent(), new AttachmentAddedEvent(),
         new AttachmentDeletedEvent(), new AttachmentUpdatedEvent(), new XObjectAddedEvent(), new XObjectDeletedEvent(),
         new XObjectUpdatedEvent(), new XObjectPropertyAddedEvent(), new XObjectPropertyDeletedEvent(),
-        new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent());
+        new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent(), new RightUpdatedEvent());
+
+    /**
+     * The document holding the rights of a whole wiki.
+     */
+    private static final LocalDocumentReference WIKI_PREFERENCES =
+        new LocalDocumentReference("XWiki", "XWikiPreferences");
+
+    /**
+     * The name of the documents holding the rights of a whole space.
+     */
+    private static final String SPACE_PREFERENCES = "WebPreferences";
 
     /**
      * Logging framework.
@@ -91,6 +105,9 @@ public class SolrIndexEventListener implements EventListener
     @Inject
     private Provider<SolrIndexer> solrIndexer;
 
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
     @Override
     public List<Event> getEvents()
     {
@@ -175,12 +192,37 @@ public void onEvent(Event event, Object source, Object data)
                 WikiReference wikiReference = new WikiReference(wikiName);
 
                 this.solrIndexer.get().delete(wikiReference, false);
+            } else if (event instanceof RightUpdatedEvent) {
+                indexRights(((XWikiDocument) source).getDocumentReference());
             }
         } catch (Exception e) {
             this.logger.error("Failed to handle event [{}] with source [{}]", event, source.toString(), e);
         }
     }
 
+    /**
+     * Reindex the entities whose view rights (indexed to filter the search results) might have been changed by the
+     * rights stored in the passed document.
+     * 
+     * @param documentReference the reference of the document holding the modified rights
+     */
+    private void indexRights(DocumentReference documentReference)
+    {
+        if (WIKI_PREFERENCES.equals(documentReference.getLocalDocumentReference())) {
+            if (this.wikiDescriptorManager.getMainWikiId().equals(documentReference.getWikiReference().getName())) {
+                // The rights of the main wiki are inherited by all the wikis
+                this.solrIndexer.get().index(null, true);
+            } else {
+                this.solrIndexer.get().index(documentReference.getWikiReference(), true);
+            }
+        } else if (SPACE_PREFERENCES.equals(documentReference.getName())) {
+            this.solrIndexer.get().index(documentReference.getParent(), true);
+        } else {
+            // Also update the attachments and objects of the document
+            this.solrIndexer.get().index(documentReference, true);
+        }
+    }
+
     /**
      * Helper method to index all the translations of a document. We don't rely on the {@code recurse} parameter of the
      * {@link SolrIndexer#index(org.xwiki.model.reference.EntityReference, boolean)} because we want to update only the
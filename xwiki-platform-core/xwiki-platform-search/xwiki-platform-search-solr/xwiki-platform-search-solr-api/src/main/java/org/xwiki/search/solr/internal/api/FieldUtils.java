@@ -227,6 +227,24 @@
      */
     public static final String HIDDEN = "hidden";
 
+    /**
+     * The users and groups which might be allowed to view the entity (or {@link #VIEW_ALLOW_ANY}), used to filter the
+     * search results at query time.
+     * <p>
+     * Note: Relies on the {@code *_string} dynamic field so that it can be indexed by search cores created before its
+     * introduction.
+     *
+     * @since 12.8RC1
+     */
+    public static final String VIEW_ALLOW = "viewallow_string";
+
+    /**
+     * The value of {@link #VIEW_ALLOW} when the view right is not restricted to some users or groups.
+     *
+     * @since 12.8RC1
+     */
+    public static final String VIEW_ALLOW_ANY = "any";
+
     /**
      * Document score, not an actual field. It's only computed at query time.
      */
@@ -114,6 +114,12 @@ public abstract class AbstractSolrMetadataExtractor implements SolrMetadataExtra
     @Inject
     protected ComponentManager componentManager;
 
+    /**
+     * Used to index the users and groups which might be allowed to view the entity.
+     */
+    @Inject
+    private ViewRightsExtractor viewRightsExtractor;
+
     @Override
     public LengthSolrInputDocument getSolrDocument(EntityReference entityReference)
         throws SolrIndexerException, IllegalArgumentException
@@ -245,6 +251,11 @@ protected boolean setDocumentFields(DocumentReference documentReference, SolrInp
         solrDocument.setField(FieldUtils.LOCALE, locale.toString());
         solrDocument.setField(FieldUtils.LANGUAGE, locale.getLanguage());
 
+        // Set the field used to filter the search results according to the view right of the current user.
+        for (String principal : this.viewRightsExtractor.getViewAllowed(documentReference)) {
+            solrDocument.addField(FieldUtils.VIEW_ALLOW, principal);
+        }
+
         return true;
     }
 
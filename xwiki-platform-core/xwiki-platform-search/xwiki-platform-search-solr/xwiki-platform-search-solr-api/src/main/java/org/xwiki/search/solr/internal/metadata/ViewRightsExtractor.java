@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.GroupsClass;
+import com.xpn.xwiki.objects.classes.LevelsClass;
+import com.xpn.xwiki.objects.classes.UsersClass;
+
+/**
+ * Extract the users and groups which might be allowed to view a document, so that they can be indexed and used to
+ * filter the search results directly in the Solr query.
+ * <p>
+ * The result is a superset of the users and groups actually allowed (deny rules are ignored for example) and the search
+ * results still need to be checked one by one: the goal is only to exclude most of the forbidden entities from the
+ * Solr response. Administrators of a whole wiki are expected to be taken care of at query time.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = ViewRightsExtractor.class)
+@Singleton
+public class ViewRightsExtractor
+{
+    private static final String XWIKI_SPACE = "XWiki";
+
+    private static final LocalDocumentReference LOCAL_RIGHTS_CLASS =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiGlobalRights");
+
+    private static final String WIKI_PREFERENCES = "XWikiPreferences";
+
+    private static final String SPACE_PREFERENCES = "WebPreferences";
+
+    @Inject
+    @Named("user")
+    private DocumentReferenceResolver<String> userResolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private WikiDescriptorManager wikis;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * The rights of the users and groups at a given level of the hierarchy.
+     */
+    private final class LevelRules
+    {
+        private final Set<String> viewers = new LinkedHashSet<>();
+
+        private final Set<String> administrators = new LinkedHashSet<>();
+
+        private LevelRules(XWikiDocument document, EntityReference rightsClass)
+        {
+            WikiReference wikiReference = document.getDocumentReference().getWikiReference();
+
+            for (BaseObject rightsObject : document.getXObjects(rightsClass)) {
+                // Deny rules are ignored: they can only restrict the access
+                if (rightsObject != null && rightsObject.getIntValue("allow", 1) == 1) {
+                    List<String> levels = LevelsClass.getListFromString(rightsObject.getStringValue("levels"));
+                    if (levels.contains(Right.VIEW.getName())) {
+                        addPrincipals(rightsObject, wikiReference, this.viewers);
+                    }
+                    if (levels.contains(Right.ADMIN.getName()) || levels.contains(Right.PROGRAM.getName())) {
+                        addPrincipals(rightsObject, wikiReference, this.administrators);
+                    }
+                }
+            }
+        }
+
+        private void addPrincipals(BaseObject rightsObject, WikiReference wikiReference, Set<String> principals)
+        {
+            for (String user : UsersClass.getListFromString(rightsObject.getStringValue("users"))) {
+                principals.add(serializer.serialize(userResolver.resolve(user, wikiReference)));
+            }
+            for (String group : GroupsClass.getListFromString(rightsObject.getStringValue("groups"))) {
+                principals.add(serializer.serialize(userResolver.resolve(group, wikiReference)));
+            }
+        }
+    }
+
+    /**
+     * @param documentReference the reference of the document
+     * @return the serialized references of the users and groups which might be allowed to view the document, or
+     *         {@link FieldUtils#VIEW_ALLOW_ANY} if the view right is not restricted
+     * @throws XWikiException when failing to load the documents holding the rights
+     */
+    public Set<String> getViewAllowed(DocumentReference documentReference) throws XWikiException
+    {
+        Set<String> allowed = new LinkedHashSet<>();
+        Set<String> viewers = null;
+
+        // From the most specific to the most generic level: the first level allowing view to some users or groups
+        // implicitly deny it to the others (but administrators can't be denied anything)
+        for (LevelRules rules : getRules(documentReference)) {
+            if (viewers == null && !rules.viewers.isEmpty()) {
+                viewers = rules.viewers;
+            }
+            allowed.addAll(rules.administrators);
+        }
+
+        if (viewers != null) {
+            allowed.addAll(viewers);
+        } else {
+            allowed.add(FieldUtils.VIEW_ALLOW_ANY);
+        }
+
+        return allowed;
+    }
+
+    private List<LevelRules> getRules(DocumentReference documentReference) throws XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        List<LevelRules> rules = new ArrayList<>();
+
+        // Document
+        DocumentReference reference = new DocumentReference(documentReference, (Locale) null);
+        rules.add(new LevelRules(xcontext.getWiki().getDocument(reference, xcontext), LOCAL_RIGHTS_CLASS));
+
+        // Spaces
+        for (EntityReference space = documentReference.getParent(); space.getType() == EntityType.SPACE;
+            space = space.getParent()) {
+            DocumentReference preferences = new DocumentReference(SPACE_PREFERENCES, new SpaceReference(space));
+            rules.add(new LevelRules(xcontext.getWiki().getDocument(preferences, xcontext), GLOBAL_RIGHTS_CLASS));
+        }
+
+        // Wiki and farm
+        WikiReference wikiReference = documentReference.getWikiReference();
+        rules.add(getWikiRules(wikiReference, xcontext));
+        if (!this.wikis.getMainWikiId().equals(wikiReference.getName())) {
+            rules.add(getWikiRules(new WikiReference(this.wikis.getMainWikiId()), xcontext));
+        }
+
+        return rules;
+    }
+
+    private LevelRules getWikiRules(WikiReference wikiReference, XWikiContext xcontext) throws XWikiException
+    {
+        DocumentReference preferences = new DocumentReference(wikiReference.getName(), XWIKI_SPACE, WIKI_PREFERENCES);
+
+        return new LevelRules(xcontext.getWiki().getDocument(preferences, xcontext), GLOBAL_RIGHTS_CLASS);
+    }
+}
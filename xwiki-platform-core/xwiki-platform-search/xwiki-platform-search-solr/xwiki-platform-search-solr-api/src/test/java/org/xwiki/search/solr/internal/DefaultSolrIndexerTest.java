@@ -0,0 +1,214 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultSolrIndexer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultSolrIndexerTest
+{
+    private static final long TIMEOUT = 10000;
+
+    private static final SpaceReference SPACE = new SpaceReference("wiki", "Space");
+
+    private static final DocumentReference DOCUMENT_A = new DocumentReference("A", SPACE);
+
+    private static final DocumentReference DOCUMENT_B = new DocumentReference("B", SPACE);
+
+    private static final DocumentReference DOCUMENT_C = new DocumentReference("C", SPACE);
+
+    private static final DocumentReference GATE = new DocumentReference("Gate", SPACE);
+
+    @InjectMockComponents
+    private DefaultSolrIndexer indexer;
+
+    @MockComponent
+    private SolrConfiguration configuration;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private SolrReferenceResolver resolver;
+
+    @MockComponent
+    @Named("document")
+    private SolrMetadataExtractor documentExtractor;
+
+    private final Map<EntityReference, LengthSolrInputDocument> solrDocuments = new HashMap<>();
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(this.configuration.getIndexerThreads()).thenReturn(4);
+        when(this.configuration.getIndexerBatchSize()).thenReturn(100);
+        when(this.configuration.getIndexerBatchMaxLengh()).thenReturn(Integer.MAX_VALUE);
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        for (DocumentReference reference : Arrays.asList(DOCUMENT_A, DOCUMENT_B, DOCUMENT_C)) {
+            this.solrDocuments.put(reference, new LengthSolrInputDocument());
+        }
+    }
+
+    /**
+     * Block the index thread on a delete operation until the returned latch is released.
+     */
+    private CountDownLatch blockIndexThread() throws Exception
+    {
+        CountDownLatch gateReached = new CountDownLatch(1);
+        CountDownLatch gateReleased = new CountDownLatch(1);
+        when(this.resolver.getQuery(GATE)).thenReturn("gate");
+        doAnswer(invocation -> {
+            gateReached.countDown();
+            gateReleased.await(TIMEOUT, TimeUnit.MILLISECONDS);
+
+            return null;
+        }).when(this.solrInstance).deleteByQuery("gate");
+
+        this.indexer.delete(GATE, true);
+
+        assertTrue(gateReached.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        return gateReleased;
+    }
+
+    private void waitForQueueSize(int size) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (this.indexer.getQueueSize() != size && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void extractInParallel() throws Exception
+    {
+        // Each extraction waits for the other ones to start
+        CountDownLatch extracting = new CountDownLatch(3);
+        when(this.documentExtractor.getSolrDocument(any())).then(invocation -> {
+            extracting.countDown();
+            if (!extracting.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new Exception("The documents were not extracted in parallel");
+            }
+
+            return this.solrDocuments.get(invocation.getArgument(0));
+        });
+
+        CountDownLatch resolved = new CountDownLatch(1);
+        when(this.resolver.getReferences(SPACE)).then(invocation -> {
+            resolved.countDown();
+
+            return Arrays.asList(DOCUMENT_A, DOCUMENT_B, DOCUMENT_C);
+        });
+
+        // Make sure the three documents are in the index queue before the index thread takes them
+        CountDownLatch gate = blockIndexThread();
+        this.indexer.index(SPACE, true);
+        assertTrue(resolved.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        // The blocked delete and the three documents
+        waitForQueueSize(4);
+        gate.countDown();
+
+        verify(this.solrInstance, timeout(TIMEOUT)).commit();
+
+        // The documents are sent together, still in the order they were queued
+        verify(this.solrInstance).add(Arrays.<SolrInputDocument>asList(this.solrDocuments.get(DOCUMENT_A),
+            this.solrDocuments.get(DOCUMENT_B), this.solrDocuments.get(DOCUMENT_C)));
+        verify(this.solrInstance, never()).add(any(SolrInputDocument.class));
+    }
+
+    @Test
+    void deleteDoesNotOvertakeIndex() throws Exception
+    {
+        CountDownLatch extractStarted = new CountDownLatch(1);
+        CountDownLatch extractReleased = new CountDownLatch(1);
+        when(this.documentExtractor.getSolrDocument(DOCUMENT_A)).then(invocation -> {
+            extractStarted.countDown();
+            extractReleased.await(TIMEOUT, TimeUnit.MILLISECONDS);
+
+            return this.solrDocuments.get(DOCUMENT_A);
+        });
+
+        CountDownLatch resolved = new CountDownLatch(1);
+        when(this.resolver.getQuery(SPACE)).then(invocation -> {
+            resolved.countDown();
+
+            return "space";
+        });
+
+        this.indexer.index(DOCUMENT_A, false);
+        assertTrue(extractStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // Queue the delete while the document is still being extracted
+        this.indexer.delete(SPACE, true);
+        assertTrue(resolved.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        // The document being extracted and the delete
+        waitForQueueSize(2);
+        extractReleased.countDown();
+
+        verify(this.solrInstance, timeout(TIMEOUT)).deleteByQuery("space");
+
+        InOrder inOrder = inOrder(this.solrInstance);
+        inOrder.verify(this.solrInstance).add(Arrays.<SolrInputDocument>asList(this.solrDocuments.get(DOCUMENT_A)));
+        inOrder.verify(this.solrInstance).deleteByQuery("space");
+        inOrder.verify(this.solrInstance).commit();
+    }
+}
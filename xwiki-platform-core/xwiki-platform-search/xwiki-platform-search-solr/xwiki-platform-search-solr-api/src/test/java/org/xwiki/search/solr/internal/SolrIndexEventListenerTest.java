@@ -29,15 +29,19 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.security.authorization.event.RightUpdatedEvent;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -107,4 +111,35 @@ public void onDocumentDefaultTranslationUpdated() throws Exception
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.FRENCH), false);
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.GERMAN), false);
     }
+
+    @Test
+    public void onRightUpdated() throws Exception
+    {
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getMainWikiId()).thenReturn("xwiki");
+
+        XWikiDocument document = mock(XWikiDocument.class);
+
+        DocumentReference documentReference = new DocumentReference("wiki", "Path", "Page");
+        when(document.getDocumentReference()).thenReturn(documentReference);
+        this.mocker.getComponentUnderTest().onEvent(new RightUpdatedEvent(), document, null);
+        verify(this.indexer).index(documentReference, true);
+
+        DocumentReference spacePreferencesReference = new DocumentReference("wiki", "Path", "WebPreferences");
+        when(document.getDocumentReference()).thenReturn(spacePreferencesReference);
+        this.mocker.getComponentUnderTest().onEvent(new RightUpdatedEvent(), document, null);
+        verify(this.indexer).index(spacePreferencesReference.getLastSpaceReference(), true);
+
+        DocumentReference wikiPreferencesReference = new DocumentReference("wiki", "XWiki", "XWikiPreferences");
+        when(document.getDocumentReference()).thenReturn(wikiPreferencesReference);
+        this.mocker.getComponentUnderTest().onEvent(new RightUpdatedEvent(), document, null);
+        verify(this.indexer).index(new WikiReference("wiki"), true);
+
+        // The rights of the main wiki are inherited by all the wikis
+        DocumentReference mainPreferencesReference = new DocumentReference("xwiki", "XWiki", "XWikiPreferences");
+        when(document.getDocumentReference()).thenReturn(mainPreferencesReference);
+        this.mocker.getComponentUnderTest().onEvent(new RightUpdatedEvent(), document, null);
+        verify(this.indexer).index(null, true);
+        verify(this.indexer, never()).index(new WikiReference("xwiki"), true);
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ViewRightsExtractor}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class ViewRightsExtractorTest
+{
+    private static final LocalDocumentReference LOCAL_RIGHTS_CLASS =
+        new LocalDocumentReference("XWiki", "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference("XWiki", "XWikiGlobalRights");
+
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    private static final DocumentReference SPACE_PREFERENCES =
+        new DocumentReference("wiki", "Space", "WebPreferences");
+
+    private static final DocumentReference WIKI_PREFERENCES =
+        new DocumentReference("wiki", "XWiki", "XWikiPreferences");
+
+    private static final DocumentReference MAIN_WIKI_PREFERENCES =
+        new DocumentReference("xwiki", "XWiki", "XWikiPreferences");
+
+    @InjectMockComponents
+    private ViewRightsExtractor extractor;
+
+    @MockComponent
+    @Named("user")
+    private DocumentReferenceResolver<String> userResolver;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    private WikiDescriptorManager wikis;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    private final Map<DocumentReference, XWikiDocument> documents = new HashMap<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        XWikiContext xcontext = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getDocument(any(DocumentReference.class), any(XWikiContext.class)))
+            .then(invocation -> getDocument(invocation.getArgument(0)));
+
+        when(this.wikis.getMainWikiId()).thenReturn("xwiki");
+
+        when(this.userResolver.resolve(anyString(), any())).then(invocation -> new DocumentReference(
+            ((WikiReference) invocation.getArgument(1)).getName(), "XWiki",
+            StringUtils.substringAfter(invocation.getArgument(0), ".")));
+        when(this.serializer.serialize(any())).then(invocation -> String.valueOf(invocation.getArgument(0)));
+    }
+
+    private XWikiDocument getDocument(DocumentReference reference)
+    {
+        return this.documents.computeIfAbsent(reference, key -> {
+            XWikiDocument document = mock(XWikiDocument.class);
+            when(document.getDocumentReference()).thenReturn(key);
+            when(document.getXObjects(LOCAL_RIGHTS_CLASS)).thenReturn(new ArrayList<>());
+            when(document.getXObjects(GLOBAL_RIGHTS_CLASS)).thenReturn(new ArrayList<>());
+            return document;
+        });
+    }
+
+    private void addRights(DocumentReference reference, LocalDocumentReference rightsClass, boolean allow,
+        String levels, String users, String groups)
+    {
+        BaseObject rightsObject = mock(BaseObject.class);
+        when(rightsObject.getIntValue("allow", 1)).thenReturn(allow ? 1 : 0);
+        when(rightsObject.getStringValue("levels")).thenReturn(levels);
+        when(rightsObject.getStringValue("users")).thenReturn(users);
+        when(rightsObject.getStringValue("groups")).thenReturn(groups);
+
+        getDocument(reference).getXObjects(rightsClass).add(rightsObject);
+    }
+
+    @Test
+    void getViewAllowedWithoutRights() throws Exception
+    {
+        assertEquals(new HashSet<>(Arrays.asList(FieldUtils.VIEW_ALLOW_ANY)),
+            this.extractor.getViewAllowed(DOCUMENT));
+    }
+
+    @Test
+    void getViewAllowedFromNearestLevel() throws Exception
+    {
+        addRights(DOCUMENT, LOCAL_RIGHTS_CLASS, true, "view,edit", "XWiki.Alice", "");
+        addRights(SPACE_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "view", "XWiki.Bob", "XWiki.SpaceGroup");
+        addRights(WIKI_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "view", "", "XWiki.XWikiAllGroup");
+        addRights(WIKI_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "admin", "", "XWiki.XWikiAdminGroup");
+
+        // The document level defines the viewers, only the administrators of the other levels are added
+        assertEquals(new HashSet<>(Arrays.asList("wiki:XWiki.Alice", "wiki:XWiki.XWikiAdminGroup")),
+            this.extractor.getViewAllowed(DOCUMENT));
+
+        // Without document rights the space level wins over the wiki level
+        this.documents.remove(DOCUMENT);
+        assertEquals(
+            new HashSet<>(Arrays.asList("wiki:XWiki.Bob", "wiki:XWiki.SpaceGroup", "wiki:XWiki.XWikiAdminGroup")),
+            this.extractor.getViewAllowed(DOCUMENT));
+    }
+
+    @Test
+    void getViewAllowedInheritedFromMainWiki() throws Exception
+    {
+        addRights(MAIN_WIKI_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "view", "", "XWiki.MainGroup");
+        addRights(MAIN_WIKI_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "programming", "XWiki.Root", "");
+
+        // The principals of the main wiki are resolved in the main wiki
+        assertEquals(new HashSet<>(Arrays.asList("xwiki:XWiki.MainGroup", "xwiki:XWiki.Root")),
+            this.extractor.getViewAllowed(DOCUMENT));
+
+        // A subwiki defining its own viewers overrides the main wiki viewers but not its administrators
+        addRights(WIKI_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "view", "", "XWiki.WikiGroup");
+        assertEquals(new HashSet<>(Arrays.asList("wiki:XWiki.WikiGroup", "xwiki:XWiki.Root")),
+            this.extractor.getViewAllowed(DOCUMENT));
+    }
+
+    @Test
+    void getViewAllowedIgnoresDenyRules() throws Exception
+    {
+        // A deny rule alone doesn't restrict the viewers
+        addRights(DOCUMENT, LOCAL_RIGHTS_CLASS, false, "view", "XWiki.Alice", "");
+        assertEquals(new HashSet<>(Arrays.asList(FieldUtils.VIEW_ALLOW_ANY)),
+            this.extractor.getViewAllowed(DOCUMENT));
+
+        // Denied principals are kept: the indexed list is a superset of the allowed principals
+        addRights(WIKI_PREFERENCES, GLOBAL_RIGHTS_CLASS, true, "view", "XWiki.Alice,XWiki.Bob", "");
+        assertEquals(new HashSet<>(Arrays.asList("wiki:XWiki.Alice", "wiki:XWiki.Bob")),
+            this.extractor.getViewAllowed(DOCUMENT));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.solr.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
+
+/**
+ * Remember the wikis administered by each user so that the Solr queries don't have to check the admin right of the
+ * user on every wiki of the farm each time they are executed.
+ * <p>
+ * The whole cache is invalidated by {@link AdminWikisCacheInvalidator} when a right, the members of a group or a wiki
+ * change.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = AdminWikisCache.class)
+@Singleton
+public class AdminWikisCache implements Initializable, Disposable
+{
+    private static final String NAME = "solr.query.adminwikis";
+
+    private static final int SIZE = 1000;
+
+    private static final String GUEST = "";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private AuthorizationManager authorization;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Set<String>> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewLocalCache(new LRUCacheConfiguration(NAME, SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the Solr query admin wikis cache", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.cache.dispose();
+    }
+
+    /**
+     * @param userReference the user, {@code null} for the guest user
+     * @return the identifiers of the wikis in which the passed user has the admin right
+     * @throws WikiManagerException when failing to get the wikis of the farm
+     */
+    public Set<String> getAdminWikis(DocumentReference userReference) throws WikiManagerException
+    {
+        String key = userReference != null ? this.serializer.serialize(userReference) : GUEST;
+
+        Set<String> adminWikis = this.cache.get(key);
+        if (adminWikis == null) {
+            Set<String> wikis = new HashSet<>();
+            for (String wiki : this.wikiDescriptorManager.getAllIds()) {
+                if (this.authorization.hasAccess(Right.ADMIN, userReference, new WikiReference(wiki))) {
+                    wikis.add(wiki);
+                }
+            }
+            adminWikis = Collections.unmodifiableSet(wikis);
+
+            this.cache.set(key, adminWikis);
+        }
+
+        return adminWikis;
+    }
+
+    /**
+     * Forget the wikis administered by all the users.
+     */
+    public void invalidateAll()
+    {
+        this.cache.removeAll();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.solr.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.WikiCreatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.security.authorization.event.RightUpdatedEvent;
+
+import com.xpn.xwiki.objects.BaseObjectReference;
+
+/**
+ * Listener to events to invalidate the cache of {@link AdminWikisCache}: modified rights, created or deleted wikis and
+ * modified group members.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component
+@Named(AdminWikisCacheInvalidator.NAME)
+@Singleton
+public class AdminWikisCacheInvalidator extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "AdminWikisCacheInvalidator";
+
+    private static final String GROUP_CLASS = "XWiki.XWikiGroups";
+
+    @Inject
+    private AdminWikisCache cache;
+
+    /**
+     * The default constructor.
+     */
+    public AdminWikisCacheInvalidator()
+    {
+        super(NAME, getInvalidationEvents());
+    }
+
+    private static List<Event> getInvalidationEvents()
+    {
+        List<Event> events = new ArrayList<>();
+        events.add(new RightUpdatedEvent());
+        events.add(new WikiCreatedEvent());
+        events.add(new WikiDeletedEvent());
+        // RightUpdatedEvent is not sent when the members of a group change
+        events.addAll(BaseObjectReference.anyEvents(GROUP_CLASS));
+
+        return events;
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.cache.invalidateAll();
+    }
+}
@@ -22,8 +22,12 @@
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -31,8 +35,10 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.slf4j.Logger;
@@ -40,13 +46,18 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryExecutor;
 import org.xwiki.query.SecureQuery;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
+import org.xwiki.user.group.GroupManager;
+import org.xwiki.user.group.WikiTarget;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWikiContext;
 
@@ -75,6 +86,10 @@ public class SolrQueryExecutor implements QueryExecutor
      */
     private static final String PARAM_SUPPORTED_LOCALES = "xwiki.supportedLocales";
 
+    private static final String XWIKI_SPACE = "XWiki";
+
+    private static final String OR = " OR ";
+
     /**
      * Logging framework.
      */
@@ -105,6 +120,18 @@ public class SolrQueryExecutor implements QueryExecutor
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private GroupManager groupManager;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private AdminWikisCache adminWikisCache;
+
     @Override
     public <T> List<T> execute(Query query) throws QueryException
     {
@@ -114,33 +141,43 @@ public <T> List<T> execute(Query query) throws QueryException
         try {
             this.progress.startStep(query, "query.solr.progress.execute.prepare", "Prepare");
 
+            List<DocumentReference> usersToCheck = new ArrayList<>(2);
+            if (query instanceof SecureQuery) {
+                if (((SecureQuery) query).isCurrentUserChecked()) {
+                    usersToCheck.add(xcontextProvider.get().getUserReference());
+                }
+                if (((SecureQuery) query).isCurrentAuthorChecked()) {
+                    usersToCheck.add(xcontextProvider.get().getAuthorReference());
+                }
+            } else {
+                usersToCheck.add(xcontextProvider.get().getUserReference());
+                usersToCheck.add(xcontextProvider.get().getAuthorReference());
+            }
+
             SolrQuery solrQuery = createSolrQuery(query);
 
+            // Exclude most of the results the users are not allowed to view directly in the query, based on the view
+            // rights indexed with each entity.
+            for (DocumentReference user : usersToCheck) {
+                String viewFilterQuery = getViewFilterQuery(user);
+                if (viewFilterQuery != null) {
+                    solrQuery.addFilterQuery(viewFilterQuery);
+                }
+            }
+
             this.progress.startStep(query, "query.solr.progress.execute.execute", "Execute");
 
             QueryResponse response = this.solrInstance.query(solrQuery);
 
             this.progress.startStep(query, "query.solr.progress.execute.filter", "Filter");
 
-            // Check access rights need to be checked before returning the response.
+            // Access rights still need to be checked before returning the response since the indexed view rights are
+            // only an approximation (which can also be outdated).
             // FIXME: this is not really the best way, mostly because at this point all grouping operations
             // have already been performed and any change on the result will not ensure that the grouping
             // information (facets, highlighting, maxScore, etc.) is still relevant.
             // A better way would be using a PostFilter as described in this article:
             // http://java.dzone.com/articles/custom-security-filtering-solr
-            // Basically, we would be asking
-            List<DocumentReference> usersToCheck = new ArrayList<>(2);
-            if (query instanceof SecureQuery) {
-                if (((SecureQuery) query).isCurrentUserChecked()) {
-                    usersToCheck.add(xcontextProvider.get().getUserReference());
-                }
-                if (((SecureQuery) query).isCurrentAuthorChecked()) {
-                    usersToCheck.add(xcontextProvider.get().getAuthorReference());
-                }
-            } else {
-                usersToCheck.add(xcontextProvider.get().getUserReference());
-                usersToCheck.add(xcontextProvider.get().getAuthorReference());
-            }
             if (!usersToCheck.isEmpty()) {
                 filterResponse(response, usersToCheck);
             }
@@ -193,6 +230,62 @@ private SolrQuery createSolrQuery(Query query)
         return solrQuery;
     }
 
+    /**
+     * @param userReference the user for which to filter the results
+     * @return the filter query matching the entities the passed user might be allowed to view, null if no filter
+     *         should be applied
+     */
+    private String getViewFilterQuery(DocumentReference userReference)
+    {
+        StringBuilder filterQuery = new StringBuilder();
+
+        // The entities indexed before their view rights were
+        filterQuery.append("(*:* -").append(FieldUtils.VIEW_ALLOW).append(":[* TO *])");
+        filterQuery.append(OR).append(FieldUtils.VIEW_ALLOW).append(':').append(FieldUtils.VIEW_ALLOW_ANY);
+
+        try {
+            Set<String> principals = new LinkedHashSet<>();
+            boolean adminOfAllWikis = true;
+
+            Set<String> adminWikis = this.adminWikisCache.getAdminWikis(userReference);
+            for (String wiki : this.wikiDescriptorManager.getAllIds()) {
+                if (adminWikis.contains(wiki)) {
+                    // The wiki administrators can view everything in the wiki
+                    filterQuery.append(OR).append(FieldUtils.WIKI).append(':')
+                        .append(ClientUtils.escapeQueryChars(wiki));
+                } else {
+                    adminOfAllWikis = false;
+                    principals.add(this.serializer.serialize(new DocumentReference(wiki, XWIKI_SPACE,
+                        userReference == null ? "XWikiGuest" : "XWikiAllGroup")));
+                }
+            }
+
+            if (adminOfAllWikis) {
+                return null;
+            }
+
+            if (userReference != null) {
+                principals.add(this.serializer.serialize(userReference));
+                Collection<DocumentReference> groups = this.groupManager.getGroups(userReference, WikiTarget.ALL, true);
+                for (DocumentReference group : groups) {
+                    principals.add(this.serializer.serialize(group));
+                }
+            }
+
+            for (String principal : principals) {
+                filterQuery.append(OR).append(FieldUtils.VIEW_ALLOW).append(':')
+                    .append(ClientUtils.escapeQueryChars(principal));
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to filter the results the user [{}] is allowed to view in the query: {}",
+                userReference, ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+
+        return filterQuery.toString();
+    }
+
     /**
      * Converts an arbitrary array to an array containing its string representations.
      * 
@@ -235,26 +328,32 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         SolrDocumentList results = response.getResults();
         long numFound = results.getNumFound();
 
-        // Since we are modifying the results collection, we need to iterate over its copy.
-        for (SolrDocument result : new ArrayList<SolrDocument>(results)) {
+        // Resolve all the results first so that the rights of each user are checked in a single call.
+        List<SolrDocument> checkedResults = new ArrayList<>(results.size());
+        List<DocumentReference> resultDocumentReferences = new ArrayList<>(results.size());
+        for (SolrDocument result : results) {
             try {
-                DocumentReference resultDocumentReference = this.solrDocumentReferenceResolver.resolve(result);
+                resultDocumentReferences.add(this.solrDocumentReferenceResolver.resolve(result));
+                checkedResults.add(result);
+            } catch (Exception e) {
+                this.logger.warn("Skipping bad result: {}", result, e);
+            }
+        }
 
-                if (!isAllowed(resultDocumentReference, usersToCheck)) {
+        Set<DocumentReference> allowedReferences = getAllowed(resultDocumentReferences, usersToCheck);
 
-                    // Remove the current incompatible result.
-                    results.remove(result);
+        for (int i = 0; i < checkedResults.size(); ++i) {
+            if (!allowedReferences.contains(resultDocumentReferences.get(i))) {
+                // Remove the current incompatible result.
+                results.remove(checkedResults.get(i));
 
-                    // Decrement the number of results.
-                    numFound--;
+                // Decrement the number of results.
+                numFound--;
 
-                    // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
-                    // Sorting based on score might be a not so expensive option.
+                // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
+                // Sorting based on score might be a not so expensive option.
 
-                    // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
-                }
-            } catch (Exception e) {
-                this.logger.warn("Skipping bad result: {}", result, e);
+                // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
             }
         }
 
@@ -266,14 +365,24 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         results.setNumFound(numFound);
     }
 
-    protected boolean isAllowed(DocumentReference resultDocumentReference, List<DocumentReference> usersToCheck)
+    /**
+     * @param resultDocumentReferences the documents found
+     * @param usersToCheck the users who should all be allowed to view the returned documents
+     * @return the documents that all the passed users are allowed to view
+     */
+    protected Set<DocumentReference> getAllowed(Collection<DocumentReference> resultDocumentReferences,
+        List<DocumentReference> usersToCheck)
     {
+        List<DocumentReference> allowedReferences = new ArrayList<>(new LinkedHashSet<>(resultDocumentReferences));
         for (DocumentReference user : usersToCheck) {
-            if (!this.authorization.hasAccess(Right.VIEW, user, resultDocumentReference)) {
-                return false;
+            if (allowedReferences.isEmpty()) {
+                break;
             }
+
+            // Only check the documents allowed to the previous users
+            allowedReferences = this.authorization.filterAccessible(Right.VIEW, user, allowedReferences);
         }
 
-        return true;
+        return new HashSet<>(allowedReferences);
     }
 }
@@ -21,6 +21,8 @@
 
 import java.lang.reflect.ParameterizedType;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Locale;
 
 import javax.inject.Provider;
@@ -45,12 +47,15 @@
 import org.xwiki.query.internal.DefaultQuery;
 import org.xwiki.query.internal.DefaultQueryExecutorManager;
 import org.xwiki.query.internal.DefaultQueryManager;
+import org.xwiki.query.solr.internal.AdminWikisCache;
 import org.xwiki.query.solr.internal.SolrQueryExecutor;
 import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.user.group.GroupManager;
+import org.xwiki.user.group.WikiTarget;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
@@ -59,8 +64,11 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -164,6 +172,8 @@ public void filterResponse() throws Exception
         DocumentReferenceResolver<SolrDocument> resolver = this.componentManager.getInstance(resolverType);
 
         AuthorizationManager authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+        // The default implementation relies on hasAccess()
+        when(authorizationManager.filterAccessible(any(), any(), any())).thenCallRealMethod();
 
         DocumentReference currentUserReference = new DocumentReference("xwiki", "XWiki", "currentuser");
         this.oldCore.getXWikiContext().setUserReference(currentUserReference);
@@ -229,5 +239,52 @@ public void filterResponse() throws Exception
 
         results = ((QueryResponse) this.componentManager.getComponentUnderTest().execute(query).get(0)).getResults();
         assertEquals(Arrays.asList(alice, bob), results);
+
+        // The rights of each user are checked on all the results at once, and the author is only checked on the
+        // results allowed to the current user
+        verify(authorizationManager, times(2)).filterAccessible(Right.VIEW, currentUserReference,
+            Arrays.asList(aliceReference, bobReference, carolReference));
+        verify(authorizationManager).filterAccessible(Right.VIEW, currentAuthorReference,
+            Arrays.asList(bobReference, carolReference));
+        verify(authorizationManager).filterAccessible(Right.VIEW, currentAuthorReference,
+            Arrays.asList(aliceReference, bobReference, carolReference));
+    }
+
+    @Test
+    public void viewFilterQuery() throws Exception
+    {
+        AdminWikisCache adminWikisCache = this.componentManager.getInstance(AdminWikisCache.class);
+        GroupManager groupManager = this.componentManager.getInstance(GroupManager.class);
+
+        DocumentReference currentUserReference = new DocumentReference("xwiki", "XWiki", "currentuser");
+        this.oldCore.getXWikiContext().setUserReference(currentUserReference);
+
+        when(this.oldCore.getWikiDescriptorManager().getAllIds()).thenReturn(Arrays.asList("xwiki", "subwiki"));
+        when(adminWikisCache.getAdminWikis(currentUserReference)).thenReturn(Collections.singleton("subwiki"));
+        when(groupManager.getGroups(currentUserReference, WikiTarget.ALL, true))
+            .thenReturn(Arrays.asList(new DocumentReference("xwiki", "XWiki", "groupA")));
+
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(new SolrDocumentList());
+        when(this.solr.query(any(SolrParams.class))).thenReturn(response);
+
+        DefaultQuery query = new DefaultQuery("", null);
+        query.checkCurrentUser(true);
+
+        this.componentManager.getComponentUnderTest().execute(query);
+
+        String[] expectedFilterQueries = new String[] { "(*:* -viewallow_string:[* TO *]) OR viewallow_string:any"
+            + " OR wiki:subwiki OR viewallow_string:xwiki\\:XWiki.XWikiAllGroup"
+            + " OR viewallow_string:xwiki\\:XWiki.currentuser OR viewallow_string:xwiki\\:XWiki.groupA" };
+        verify(this.solr)
+            .query(argThat((SolrParams params) -> Arrays.equals(expectedFilterQueries, params.getParams("fq"))));
+
+        // No filter needed for the administrators of all the wikis
+        when(adminWikisCache.getAdminWikis(currentUserReference))
+            .thenReturn(new HashSet<>(Arrays.asList("xwiki", "subwiki")));
+
+        this.componentManager.getComponentUnderTest().execute(query);
+
+        verify(this.solr).query(argThat((SolrParams params) -> params.getParams("fq") == null));
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.solr.internal;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.observation.event.Event;
+import org.xwiki.security.authorization.event.RightUpdatedEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectAddedEvent;
+import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
+import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link AdminWikisCacheInvalidator}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AdminWikisCacheInvalidatorTest
+{
+    private static final DocumentReference GROUP = new DocumentReference("xwiki", "XWiki", "XWikiAdminGroup");
+
+    @InjectMockComponents
+    private AdminWikisCacheInvalidator invalidator;
+
+    @MockComponent
+    private AdminWikisCache cache;
+
+    private boolean matches(Event event)
+    {
+        return this.invalidator.getEvents().stream().anyMatch(listenedEvent -> listenedEvent.matches(event));
+    }
+
+    @Test
+    void getEvents()
+    {
+        assertTrue(matches(new RightUpdatedEvent()));
+        assertTrue(matches(new WikiDeletedEvent("subwiki")));
+
+        // Modified members of a group
+        assertTrue(matches(new XObjectAddedEvent(new ObjectReference("XWiki.XWikiGroups[1]", GROUP))));
+        assertTrue(matches(new XObjectUpdatedEvent(new ObjectReference("XWiki.XWikiGroups[0]", GROUP))));
+        assertTrue(matches(new XObjectDeletedEvent(new ObjectReference("XWiki.XWikiGroups[2]", GROUP))));
+
+        assertFalse(matches(new XObjectUpdatedEvent(new ObjectReference("XWiki.XWikiComments[0]", GROUP))));
+        assertFalse(matches(new DocumentUpdatedEvent(GROUP)));
+    }
+
+    @Test
+    void onGroupMemberAdded()
+    {
+        this.invalidator.onEvent(new XObjectAddedEvent(new ObjectReference("XWiki.XWikiGroups[1]", GROUP)),
+            mock(XWikiDocument.class), null);
+
+        verify(this.cache).invalidateAll();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.solr.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AdminWikisCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AdminWikisCacheTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "user");
+
+    private static final WikiReference MAIN_WIKI = new WikiReference("xwiki");
+
+    private static final WikiReference SUBWIKI = new WikiReference("subwiki");
+
+    @InjectMockComponents
+    private AdminWikisCache adminWikisCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private AuthorizationManager authorization;
+
+    @MockComponent
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    private final Map<String, Set<String>> entries = new HashMap<>();
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        Cache<Set<String>> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        doAnswer(invocation -> {
+            this.entries.clear();
+            return null;
+        }).when(cache).removeAll();
+        when(this.cacheManager.<Set<String>>createNewLocalCache(any(CacheConfiguration.class))).thenReturn(cache);
+    }
+
+    @Test
+    void getAdminWikis() throws Exception
+    {
+        when(this.wikiDescriptorManager.getAllIds()).thenReturn(Arrays.asList("xwiki", "subwiki"));
+        when(this.serializer.serialize(USER)).thenReturn("xwiki:XWiki.user");
+        when(this.authorization.hasAccess(Right.ADMIN, USER, SUBWIKI)).thenReturn(true);
+
+        assertEquals(Collections.singleton("subwiki"), this.adminWikisCache.getAdminWikis(USER));
+        assertEquals(Collections.emptySet(), this.adminWikisCache.getAdminWikis(null));
+
+        // The rights are checked only once per user and wiki
+        assertEquals(Collections.singleton("subwiki"), this.adminWikisCache.getAdminWikis(USER));
+        verify(this.authorization).hasAccess(Right.ADMIN, USER, SUBWIKI);
+        verify(this.authorization).hasAccess(Right.ADMIN, null, MAIN_WIKI);
+
+        // The rights are checked again after an invalidation
+        when(this.authorization.hasAccess(Right.ADMIN, USER, MAIN_WIKI)).thenReturn(true);
+        this.adminWikisCache.invalidateAll();
+
+        assertEquals(new HashSet<>(Arrays.asList("xwiki", "subwiki")),
+            this.adminWikisCache.getAdminWikis(USER));
+        verify(this.authorization, times(2)).hasAccess(Right.ADMIN, USER, SUBWIKI);
+    }
+}
@@ -19,7 +19,10 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
@@ -76,6 +79,28 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Filter the entities on which the user identified by {@code userReference} has the access identified by
+     * {@code right}. The result is the same as calling {@link #hasAccess(Right, DocumentReference, EntityReference)}
+     * for each entity, but implementations are expected to share what can be shared between the checks (like the rules
+     * settled for the common parents of the entities).
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return the entities on which the user has the specified right, in the same order as provided
+     * @since 12.8RC1
+     */
+    @Unstable
+    default <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        return entityReferences.stream().filter(entityReference -> hasAccess(right, userReference, entityReference))
+            .collect(Collectors.toList());
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
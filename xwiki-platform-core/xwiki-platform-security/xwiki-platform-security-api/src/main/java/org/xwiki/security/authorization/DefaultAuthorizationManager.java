@@ -19,9 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -125,6 +129,46 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        if (isSuperAdmin(userReference)) {
+            return new ArrayList<>(entityReferences);
+        }
+
+        List<T> accessible = new ArrayList<>(entityReferences.size());
+
+        if (right == null || right == Right.ILLEGAL || (!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
+            || (userReference == null && xwikiBridge.needsAuthentication(right))) {
+            return accessible;
+        }
+
+        UserSecurityReference user = securityReferenceFactory.newUserReference(userReference);
+
+        // The access settled for each entity (and its parents without rules), shared by the following entities
+        Map<SecurityReference, SecurityAccess> settled = new HashMap<>();
+
+        for (T entityReference : entityReferences) {
+            try {
+                SecurityAccess securityAccess =
+                    getAccess(user, securityReferenceFactory.newEntityReference(entityReference), settled);
+
+                RuleState access = securityAccess.get(right);
+                logAccess(access, userReference, entityReference, right, "access inquiry", true);
+                if (access == RuleState.ALLOW) {
+                    accessible.add(entityReference);
+                }
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                    (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+            }
+        }
+
+        return accessible;
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -168,7 +212,8 @@ private boolean evaluateSecurityAccess(Right right, DocumentReference userRefere
     {
         SecurityAccess securityAccess = getAccess(
             securityReferenceFactory.newUserReference(userReference),
-            securityReferenceFactory.newEntityReference(entityReference)
+            securityReferenceFactory.newEntityReference(entityReference),
+            null
         );
 
         RuleState access = securityAccess.get(right);
@@ -215,17 +260,32 @@ public Right register(RightDescription rightDescription, Set<Right> impliedByRig
      *
      * @param user The user identity.
      * @param entity The entity.  May be of type DOCUMENT, WIKI, or SPACE.
+     * @param settled The access already settled for the user (and updated with the access found in the cache), null
+     * if nothing should be shared with other calls.
      * @return the cached access entry.
      * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
      */
-    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity)
-        throws AuthorizationException
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> settled) throws AuthorizationException
     {
+        // The entities without any rule, which inherit the access of their first parent having some rules
+        List<SecurityReference> inheriting = new ArrayList<>();
+
         for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
             if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
                 // Skip search on entity types that will obviously have empty/useless list of rules.
                 continue;
             }
+            if (settled != null) {
+                SecurityAccess access = settled.get(ref);
+                if (access != null) {
+                    logger.debug("0. Got already settled entry for user {} on {}: [{}]", user, entity, access);
+
+                    settle(settled, inheriting, access);
+
+                    return access;
+                }
+            }
             SecurityRuleEntry entry = securityCache.get(ref);
             if (entry == null) {
                 SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
@@ -247,9 +307,13 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
 
                     logger.debug("3. Got entry for user {} on {} from cache: [{}]", user, entity, access);
 
+                    inheriting.add(ref);
+                    settle(settled, inheriting, access);
+
                     return access;
                 }
-            } 
+            }
+            inheriting.add(ref);
         }
 
         SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
@@ -259,6 +323,16 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
         return access;
     }
 
+    private void settle(Map<SecurityReference, SecurityAccess> settled, List<SecurityReference> references,
+        SecurityAccess access)
+    {
+        if (settled != null) {
+            for (SecurityReference reference : references) {
+                settled.put(reference, access);
+            }
+        }
+    }
+
     /**
      * Log access conclusion.
      * @param access The ALLOW or DENY state
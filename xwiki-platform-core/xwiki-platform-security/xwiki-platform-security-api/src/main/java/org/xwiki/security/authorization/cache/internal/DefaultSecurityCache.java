@@ -25,8 +25,10 @@
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
@@ -56,6 +58,10 @@
 
 /**
  * Default implementation of the security cache.
+ * <p>
+ * Reading the cache does not require any lock: the links between the entries are never modified once visible to
+ * readers (they are replaced instead) and entries which are being removed are ignored. Only the modifications of the
+ * cache are serialized.
  *
  * @version $Id$
  * @since 4.0M2
@@ -74,15 +80,14 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
-
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /** Lock used to serialize the modifications of the cache (reads don't need it). */
+    private final Lock writeLock = new ReentrantLock();
 
+    /**
+     * Fair lock used to suspend the invalidation while the cache is being loaded. It's taken once per load (and not
+     * for each read of the cache) and invalidations are rare, so fairness is cheap here, and it makes sure that a
+     * continuous flow of loads cannot indefinitely delay an invalidation (leaving outdated rights in the cache).
+     */
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
     private final Lock invalidationReadLock = invalidationReadWriteLock.readLock();
@@ -136,22 +141,22 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
-         * Parents of this cached entry.
+         * Parents of this cached entry. The collection is never modified once assigned, since it's read without lock.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
-         * Children of this cached entry.
+         * Children of this cached entry. Only accessed while holding the write lock.
          */
         private Collection<SecurityCacheEntry> children;
 
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -282,7 +287,7 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             this.entry = entry;
             int parentSize = groups.size() + ((parentReference == null) ? 0 : 1);
             if (parentSize > 0) {
-                this.parents = new ArrayList<>(parentSize);
+                List<SecurityCacheEntry> newParents = new ArrayList<>(parentSize);
                 if (parentReference != null) {
                     SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
                     if (parent == null) {
@@ -291,10 +296,11 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
                                 + " is no longer available in the cache.",
                             parentReference, entry, groups));
                     }
-                    this.parents.add(parent);
+                    newParents.add(parent);
                     parent.addChild(this);
                 }
-                addParentGroups(groups, parentReference);
+                addParentGroups(newParents, groups, parentReference);
+                this.parents = newParents;
                 logNewEntry();
             } else {
                 this.parents = null;
@@ -305,12 +311,13 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
         /**
          * Add provided groups as parent of this entry, excluding the main parent reference.
          *
+         * @param newParents the parents being built for this entry.
          * @param groups the list of groups to add.
          * @param parentReference the main parent reference to exclude.
          * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
          */
-        private void addParentGroups(Collection<GroupSecurityReference> groups, SecurityReference parentReference)
-            throws ParentEntryEvictedException
+        private void addParentGroups(List<SecurityCacheEntry> newParents, Collection<GroupSecurityReference> groups,
+            SecurityReference parentReference) throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
                 if (group.equals(parentReference)) {
@@ -323,7 +330,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups, Security
                     throw new ParentEntryEvictedException(String
                         .format("The parent with reference [%s] is no longer available in the cache", parentReference));
                 }
-                this.parents.add(parent);
+                newParents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -340,16 +347,19 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups) throws Par
                 return false;
             }
 
+            // The new parents are fully built before being published since they might be read concurrently
             if (groups != null && !groups.isEmpty()) {
+                List<SecurityCacheEntry> newParents;
                 if (this.parents == null) {
-                    this.parents = new ArrayList<>(groups.size());
-                    addParentGroups(groups, null);
+                    newParents = new ArrayList<>(groups.size());
+                    addParentGroups(newParents, groups, null);
                 } else {
                     SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    newParents = new ArrayList<>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(newParents, groups, parent.entry.getReference());
                 }
+                this.parents = newParents;
             }
 
             return true;
@@ -568,12 +578,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(reference));
     }
 
     /**
@@ -584,12 +589,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -600,12 +600,19 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
-        readLock.lock();
-        try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * @param key the key of the entry
+     * @return a security cache entry corresponding to the given key, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getEntry(String key)
+    {
+        SecurityCacheEntry entry = cache.get(key);
+
+        // Ignore an entry which is being removed (concurrently to this read) by a cascaded removal
+        return entry != null && !entry.disposed ? entry : null;
     }
 
     /**
@@ -890,7 +897,13 @@ public Collection<GroupSecurityReference> getImmediateGroupsFor(UserSecurityRefe
             return null;
         }
 
-        for (SecurityCacheEntry parent : userEntry.parents) {
+        // Read the parents only once since they might be replaced concurrently
+        Collection<SecurityCacheEntry> parents = userEntry.parents;
+        if (parents == null) {
+            return groups;
+        }
+
+        for (SecurityCacheEntry parent : parents) {
             // Add the parent group (if we have not already seen it)
             SecurityReference parentRef = parent.getEntry().getReference();
             if (parentRef instanceof GroupSecurityReference) {
@@ -920,7 +933,10 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
         // Special case if the user is a shadow.
         if (entityWiki != null) {
             // We start with the parents of the original entry, and the parent of this shadow (excluding the original)
-            addParentsWhenEntryIsShadow(userEntry, user, groups, entriesToExplore);
+            if (!addParentsWhenEntryIsShadow(userEntry, user, groups, entriesToExplore)) {
+                // The original entry is being removed, so the ancestors are not fully loaded anymore
+                return null;
+            }
         } else {
             // We start with the current user
             entriesToExplore.add(userEntry);
@@ -948,15 +964,22 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
         return groups;
     }
 
-    private void addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurityReference user,
+    private boolean addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurityReference user,
         Collection<GroupSecurityReference> groups, Deque<SecurityCacheEntry> entriesToExplore)
     {
         SecurityCacheEntry originalEntry = getEntry(user);
 
+        // The original entry is removed before its shadows (which are its children)
+        if (originalEntry == null) {
+            return false;
+        }
+
         // We add the parents of the original (but not the original, otherwise we could have the same group twice)
         addParentsToTheListOfEntriesToExplore(originalEntry.parents, groups, entriesToExplore);
         // And we add the parent groups of the shadow
         addParentsToTheListOfEntriesToExplore(shadow.parents, groups, entriesToExplore, originalEntry);
+
+        return true;
     }
 
     /**
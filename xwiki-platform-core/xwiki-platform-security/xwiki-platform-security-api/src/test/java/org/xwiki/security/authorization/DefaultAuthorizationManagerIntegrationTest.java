@@ -21,8 +21,10 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -473,6 +475,36 @@ public void testInheritancePolicyForGlobalFullWikiAccess() throws Exception
             getDoc("docDenyA", "any space", "wikiAllowA"));
     }
 
+    @Test
+    public void testFilterAccessible() throws Exception
+    {
+        initialiseWikiMock("inheritancePolicyForGlobalFullWikiAccess");
+
+        List<EntityReference> entities = Arrays.asList(getXDoc("any document", "any space"),
+            getXDoc("any document", "spaceAllowA"), getXDoc("docDenyA", "spaceAllowA"),
+            getXDoc("docAllowA", "any space"), getXDoc("other document", "any space"),
+            getXDoc("other document", "spaceAllowA"), getXSpace("spaceAllowA"));
+
+        Assert.assertEquals(
+            Arrays.asList(getXDoc("any document", "spaceAllowA"), getXDoc("docDenyA", "spaceAllowA"),
+                getXDoc("docAllowA", "any space"), getXDoc("other document", "spaceAllowA"),
+                getXSpace("spaceAllowA")),
+            authorizationManager.filterAccessible(VIEW, getXUser("userA"), entities));
+
+        // Same result when the cache is already filled
+        for (Right right : Arrays.asList(VIEW, EDIT, ADMIN, PROGRAM, ILLEGAL)) {
+            List<EntityReference> expected = new ArrayList<>();
+            for (EntityReference entity : entities) {
+                if (authorizationManager.hasAccess(right, getXUser("userA"), entity)) {
+                    expected.add(entity);
+                }
+            }
+            Assert.assertEquals(expected, authorizationManager.filterAccessible(right, getXUser("userA"), entities));
+        }
+
+        Assert.assertEquals(entities, authorizationManager.filterAccessible(PROGRAM, SUPERADMIN, entities));
+    }
+
     @Test
     public void testInheritancePolicyForLocalWikiAccess() throws Exception
     {
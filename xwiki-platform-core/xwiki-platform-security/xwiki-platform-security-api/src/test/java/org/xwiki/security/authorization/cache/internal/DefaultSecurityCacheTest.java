@@ -26,6 +26,9 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -63,6 +66,7 @@
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -862,4 +866,117 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    /**
+     * Read all the entries of the cache without any lock, as the authorization manager does.
+     *
+     * @param failures where to report the inconsistent reads
+     */
+    private void readAll(Collection<Throwable> failures)
+    {
+        try {
+            List<SecurityReference> references = new ArrayList<>(wikiRefs);
+            references.addAll(xwikiSpaceRefs);
+            references.addAll(entityRefs);
+            references.addAll(userRefs);
+            references.addAll(groupRefs.keySet());
+            references.addAll(groupUserRefs);
+            for (SecurityReference reference : references) {
+                SecurityRuleEntry entry = securityCache.get(reference);
+                if (entry != null) {
+                    assertThat(entry.getReference(), is(reference));
+                }
+            }
+
+            List<UserSecurityReference> users = new ArrayList<>(userRefs);
+            users.addAll(groupUserRefs);
+            for (UserSecurityReference user : users) {
+                for (SecurityReference reference : entityRefs) {
+                    SecurityAccessEntry entry = securityCache.get(user, reference);
+                    if (entry != null) {
+                        assertThat(entry.getUserReference(), is(user));
+                        assertThat(entry.getReference(), is(reference));
+                    }
+                }
+
+                securityCache.getImmediateGroupsFor(user);
+                securityCache.getGroupsFor(user, null);
+                securityCache.getGroupsFor(user, wikiRef);
+                securityCache.getGroupsFor(user, anotherWikiRef);
+            }
+        } catch (Throwable e) {
+            failures.add(e);
+        }
+    }
+
+    @Test
+    public void testReadDuringCascadedRemoval() throws Exception
+    {
+        // Fill the cache
+        InsertUsers();
+        InsertEntities();
+        InsertAccess();
+
+        // Read the cache each time an entry is removed, while the other entries of the removed sub tree are still
+        // being disposed
+        List<Throwable> failures = new ArrayList<>();
+        List<String> removedKeys = new ArrayList<>();
+        cache.setRemoveCallback(key -> {
+            removedKeys.add(key);
+            readAll(failures);
+        });
+
+        try {
+            securityCache.remove(xwikiRef);
+        } finally {
+            cache.setRemoveCallback(null);
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(removedKeys.size() > 1);
+        assertThat(securityCache.get(xwikiRef), nullValue());
+        assertThat(securityCache.get(xuserRef), nullValue());
+    }
+
+    @Test
+    public void testConcurrentReadAndInvalidation() throws Exception
+    {
+        // Fill the cache
+        InsertUsers();
+        InsertEntities();
+        InsertAccess();
+
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    readAll(failures);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        try {
+            // Invalidate and reload the whole cache while it's being read
+            for (int i = 0; i < 20; ++i) {
+                for (SecurityReference wiki : wikiRefs) {
+                    securityCache.remove(wiki);
+                }
+
+                InsertUsers();
+                InsertEntities();
+                InsertAccess();
+            }
+        } finally {
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
 }
@@ -20,8 +20,9 @@
 
 package org.xwiki.security.authorization.cache.internal;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheEntry;
@@ -43,7 +44,10 @@
  */
 public class TestCache<T> implements Cache<T>
 {
-    private Map<String, T> cache = new HashMap<String, T>();
+    // The security cache reads it without lock
+    private Map<String, T> cache = new ConcurrentHashMap<String, T>();
+
+    private Consumer<String> removeCallback;
     private CacheEntryListener<T> listener;
     private String lastInsertedKey;
 
@@ -124,6 +128,9 @@ public T get(String key)
     public void remove(String key)
     {
         T value = cache.remove(key);
+        if (removeCallback != null) {
+            removeCallback.accept(key);
+        }
         if (listener != null) {
             listener.cacheEntryRemoved(getEvent(key, value));
         }
@@ -166,6 +173,14 @@ private void disposeCacheValue(T value)
         }
     }
 
+    /**
+     * @param removeCallback called with the key of each removed entry, before the entry is disposed
+     */
+    public void setRemoveCallback(Consumer<String> removeCallback)
+    {
+        this.removeCallback = removeCallback;
+    }
+
     public String getLastInsertedKey()
     {
         return lastInsertedKey;
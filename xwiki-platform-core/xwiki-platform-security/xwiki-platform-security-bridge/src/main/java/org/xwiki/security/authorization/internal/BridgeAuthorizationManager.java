@@ -19,6 +19,11 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -72,4 +77,19 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
 
         return allowed;
     }
+
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        List<T> accessible = super.filterAccessible(right, userReference, entityReferences);
+
+        // Associated the currently executing content with the passed right checks
+        Set<T> allowed = new HashSet<>(accessible);
+        for (T entityReference : entityReferences) {
+            this.asyncContext.useRight(right, userReference, entityReference, allowed.contains(entityReference));
+        }
+
+        return accessible;
+    }
 }
@@ -24,13 +24,18 @@
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
+import org.xwiki.skinx.internal.CompressedSkinExtensionCache;
+import org.xwiki.skinx.internal.CompressedSkinExtensionCache.CompressedSkinExtension;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.internal.debug.DebugConfiguration;
 import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiAction;
+import com.xpn.xwiki.web.XWikiRequest;
 import com.xpn.xwiki.web.XWikiResponse;
 import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
 
@@ -58,8 +63,17 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used to specify the encodings accepted by the client. */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /** What http header parameter is used to specify the encoding of the content. */
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+    /** What http header parameter is used to specify the request headers the response depends on. */
+    private static final String VARY_HEADER = "Vary";
+
+    /** The gzip content encoding. */
+    private static final String GZIP_ENCODING = "gzip";
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
@@ -106,18 +120,96 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = compress(extensionContent, sxType.getCompressor(), context);
+        CompressedSkinExtension compressedExtension = getCompressedExtension(extensionContent, sxType, context);
+
+        if (compressedExtension.getSourceMap() != null) {
+            setSourceMap(compressedExtension.getSourceMap(), context);
+        }
+
+        // The response depends on the encodings accepted by the client
+        response.setHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+
+        byte[] data;
+        if (compressedExtension.getGzipContent() != null && acceptsGzip(context.getRequest())) {
+            response.setHeader(CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+            data = compressedExtension.getGzipContent();
+        } else {
+            data = compressedExtension.getContent();
         }
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            response.setContentLength(data.length);
+            response.getOutputStream().write(data);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
     }
 
+    private CompressedSkinExtension getCompressedExtension(String extensionContent, Extension sxType,
+        XWikiContext context)
+    {
+        boolean minify = getDebugConfiguration().isMinify();
+
+        // Minifying the same content gives the same result so there is no need to do it again for each request
+        CompressedSkinExtensionCache cache = Utils.getComponent(CompressedSkinExtensionCache.class);
+        String key = cache.getKey(sxType.getClassName(), minify, extensionContent);
+        CompressedSkinExtension compressedExtension = cache.get(key);
+
+        if (compressedExtension == null) {
+            if (minify) {
+                SxCompressor compressor = sxType.getCompressor();
+                String compressedContent = compress(extensionContent, compressor, context);
+                compressedExtension = cache.set(key, compressedContent, compressor.getSourceMap());
+            } else {
+                compressedExtension = cache.set(key, extensionContent, null);
+            }
+        }
+
+        return compressedExtension;
+    }
+
+    private boolean acceptsGzip(XWikiRequest request)
+    {
+        String acceptEncoding = request.getHeader(ACCEPT_ENCODING_HEADER);
+
+        if (acceptEncoding != null) {
+            for (String encoding : StringUtils.split(acceptEncoding, ',')) {
+                String[] parameters = StringUtils.split(encoding, ';');
+                String name = parameters[0].trim();
+                if ((GZIP_ENCODING.equalsIgnoreCase(name) || "*".equals(name)) && !isRefused(parameters)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isRefused(String[] parameters)
+    {
+        for (int i = 1; i < parameters.length; ++i) {
+            String parameter = StringUtils.deleteWhitespace(parameters[i]);
+            if (parameter.startsWith("q=")) {
+                return NumberUtils.toDouble(parameter.substring(2), 1) <= 0;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Called with the source map generated when minifying the extension content (whether the minification was done
+     * for the current request or taken from the cache).
+     *
+     * @param sourceMap the source map associated to the sent content
+     * @param context the XWiki context when rendering the skin extension
+     * @since 12.8RC1
+     */
+    protected void setSourceMap(String sourceMap, XWikiContext context)
+    {
+        // Source maps are ignored by default
+    }
+
     protected String compress(String source, SxCompressor compressor, XWikiContext context)
     {
         return compressor.compress(source);
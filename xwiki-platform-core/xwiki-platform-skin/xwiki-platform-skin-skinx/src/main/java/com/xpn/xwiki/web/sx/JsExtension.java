@@ -163,6 +163,7 @@ private String getSourceMap(Compiler compiler) throws IOException
         /**
          * @return the last source map that was created by this compressor
          */
+        @Override
         public String getSourceMap()
         {
             return this.sourceMap;
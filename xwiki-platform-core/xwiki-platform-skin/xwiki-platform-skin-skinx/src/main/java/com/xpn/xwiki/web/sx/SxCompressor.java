@@ -34,4 +34,14 @@
      * @return A compressed version of the input source
      */
     String compress(String source);
+
+    /**
+     * @return the source map generated by the last call to {@link #compress(String)}, {@code null} if the compressor
+     *         does not generate source maps
+     * @since 12.8RC1
+     */
+    default String getSourceMap()
+    {
+        return null;
+    }
 }
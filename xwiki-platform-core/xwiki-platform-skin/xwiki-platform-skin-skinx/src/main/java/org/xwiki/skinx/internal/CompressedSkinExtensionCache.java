@@ -0,0 +1,201 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+
+/**
+ * Keep the minified and gzipped versions of the skin extensions sent by the SSX and JSX actions so that the same
+ * content is not minified again for each request.
+ * <p>
+ * The entries are indexed by the hash of the content to minify so a modified extension (or an extension producing a
+ * different result with the current request) is simply associated to a new entry, the old one being evicted when the
+ * cache is full.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component(roles = CompressedSkinExtensionCache.class)
+@Singleton
+public class CompressedSkinExtensionCache implements Initializable, Disposable
+{
+    private static final String NAME = "skinx.compressed";
+
+    /**
+     * The minified version of a skin extension.
+     *
+     * @version $Id$
+     */
+    public static final class CompressedSkinExtension
+    {
+        private final byte[] content;
+
+        private final byte[] gzipContent;
+
+        private final String sourceMap;
+
+        private CompressedSkinExtension(byte[] content, byte[] gzipContent, String sourceMap)
+        {
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.sourceMap = sourceMap;
+        }
+
+        /**
+         * @return the UTF-8 encoded content
+         */
+        public byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return the gzipped content, {@code null} if compressing the content does not make it smaller or if the
+         *         extension is not cached
+         */
+        public byte[] getGzipContent()
+        {
+            return this.gzipContent;
+        }
+
+        /**
+         * @return the source map generated by the minification, if any
+         */
+        public String getSourceMap()
+        {
+            return this.sourceMap;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private Cache<CompressedSkinExtension> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int size = this.configuration.getProperty("skinx.cache.compressed.size", 500);
+
+        if (size > 0) {
+            try {
+                this.cache = this.cacheManager.createNewLocalCache(new LRUCacheConfiguration(NAME, size));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to create the compressed skin extensions cache", e);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+
+    /**
+     * @param type the type of extension (usually the name of the extension class)
+     * @param minify {@code true} if the content is minified
+     * @param source the content of the extension, before minification
+     * @return the key of the extension in the cache, {@code null} if the cache is disabled
+     */
+    public String getKey(String type, boolean minify, String source)
+    {
+        if (this.cache == null) {
+            return null;
+        }
+
+        return type + ':' + minify + ':' + DigestUtils.sha256Hex(source);
+    }
+
+    /**
+     * @param key the key of the extension
+     * @return the compressed extension, {@code null} if it's not in the cache
+     */
+    public CompressedSkinExtension get(String key)
+    {
+        return this.cache != null && key != null ? this.cache.get(key) : null;
+    }
+
+    /**
+     * @param key the key of the extension, {@code null} if the cache is disabled
+     * @param content the content to send (minified or not)
+     * @param sourceMap the source map generated by the minification, if any
+     * @return the compressed extension
+     */
+    public CompressedSkinExtension set(String key, String content, String sourceMap)
+    {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        if (this.cache == null || key == null) {
+            // Gzipping the content for a single request costs more than sending it as is
+            return new CompressedSkinExtension(bytes, null, sourceMap);
+        }
+
+        CompressedSkinExtension extension = new CompressedSkinExtension(bytes, gzip(bytes), sourceMap);
+        this.cache.set(key, extension);
+
+        return extension;
+    }
+
+    private byte[] gzip(byte[] content)
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            this.logger.warn("Failed to gzip the skin extension content: {}", ExceptionUtils.getRootCauseMessage(e));
+
+            return null;
+        }
+
+        // Small contents can become bigger when compressed
+        return output.size() < content.length ? output.toByteArray() : null;
+    }
+}
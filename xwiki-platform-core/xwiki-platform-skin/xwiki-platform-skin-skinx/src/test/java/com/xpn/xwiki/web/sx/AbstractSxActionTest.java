@@ -0,0 +1,267 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Named;
+import javax.servlet.ServletOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.skinx.internal.CompressedSkinExtensionCache;
+import org.xwiki.skinx.internal.CompressedSkinExtensionCache.CompressedSkinExtension;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList(CompressedSkinExtensionCache.class)
+class AbstractSxActionTest
+{
+    private static final String CONTENT = StringUtils.repeat("alert('Hello World!');\n", 100);
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @MockComponent
+    private DebugConfiguration debugConfiguration;
+
+    private final Map<String, CompressedSkinExtension> entries = new HashMap<>();
+
+    private final TestSxAction action = new TestSxAction();
+
+    private SxCompressor compressor;
+
+    private XWikiContext context;
+
+    private XWikiRequest request;
+
+    private XWikiResponse response;
+
+    private ServletOutputStream outputStream;
+
+    /**
+     * Use the test compressor (which removes the line breaks) and remember the received source maps.
+     */
+    private class TestSxAction extends AbstractSxAction
+    {
+        private final List<String> sourceMaps = new ArrayList<>();
+
+        @Override
+        protected Logger getLogger()
+        {
+            return mock(Logger.class);
+        }
+
+        @Override
+        public Extension getExtensionType()
+        {
+            Extension extension = mock(Extension.class);
+            when(extension.getClassName()).thenReturn("XWiki.JavaScriptExtension");
+            when(extension.getContentType()).thenReturn("text/javascript; charset=UTF-8");
+            when(extension.getCompressor()).thenReturn(AbstractSxActionTest.this.compressor);
+
+            return extension;
+        }
+
+        @Override
+        protected void setSourceMap(String sourceMap, XWikiContext context)
+        {
+            this.sourceMaps.add(sourceMap);
+        }
+    }
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.configuration.getProperty("skinx.cache.compressed.size", 500)).thenReturn(500);
+
+        Cache<CompressedSkinExtension> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        when(this.cacheManager.<CompressedSkinExtension>createNewLocalCache(any())).thenReturn(cache);
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        Utils.setComponentManager(this.componentManager);
+
+        when(this.debugConfiguration.isMinify()).thenReturn(true);
+
+        this.compressor = mock(SxCompressor.class);
+        when(this.compressor.compress(anyString()))
+            .then(invocation -> StringUtils.remove(invocation.<String>getArgument(0), '\n'));
+        when(this.compressor.getSourceMap()).thenReturn("sourcemap");
+
+        this.context = mock(XWikiContext.class);
+        this.request = mock(XWikiRequest.class);
+        this.response = mock(XWikiResponse.class);
+        this.outputStream = mock(ServletOutputStream.class);
+        when(this.context.getRequest()).thenReturn(this.request);
+        when(this.context.getResponse()).thenReturn(this.response);
+        when(this.response.getOutputStream()).thenReturn(this.outputStream);
+    }
+
+    private SxSource getSource(String content)
+    {
+        SxSource source = mock(SxSource.class);
+        when(source.getContent()).thenReturn(content);
+        when(source.getCachePolicy()).thenReturn(CachePolicy.DEFAULT);
+
+        return source;
+    }
+
+    private List<byte[]> getSentContents() throws Exception
+    {
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(this.outputStream, atLeastOnce()).write(captor.capture());
+
+        return captor.getAllValues();
+    }
+
+    @Test
+    void renderExtensionMinifiesOnce() throws Exception
+    {
+        this.action.renderExtension(getSource(CONTENT), this.action.getExtensionType(), this.context);
+        this.action.renderExtension(getSource(CONTENT), this.action.getExtensionType(), this.context);
+
+        // The second request gets the minified content and its source map from the cache
+        verify(this.compressor).compress(CONTENT);
+        assertEquals(2, this.action.sourceMaps.size());
+        assertEquals("sourcemap", this.action.sourceMaps.get(1));
+
+        byte[] minified = StringUtils.remove(CONTENT, '\n').getBytes(StandardCharsets.UTF_8);
+        List<byte[]> sentContents = getSentContents();
+        assertArrayEquals(minified, sentContents.get(0));
+        assertArrayEquals(minified, sentContents.get(1));
+        verify(this.response, times(2)).setContentLength(minified.length);
+        verify(this.response, times(2)).setHeader("Vary", ACCEPT_ENCODING);
+        verify(this.response, never()).setHeader(eq(CONTENT_ENCODING), any());
+    }
+
+    @Test
+    void renderModifiedExtension() throws Exception
+    {
+        String modifiedContent = CONTENT + "alert('Modified');\n";
+
+        this.action.renderExtension(getSource(CONTENT), this.action.getExtensionType(), this.context);
+        this.action.renderExtension(getSource(modifiedContent), this.action.getExtensionType(), this.context);
+
+        // The modified content is minified again instead of getting the previous version from the cache
+        verify(this.compressor).compress(CONTENT);
+        verify(this.compressor).compress(modifiedContent);
+
+        assertArrayEquals(StringUtils.remove(modifiedContent, '\n').getBytes(StandardCharsets.UTF_8),
+            getSentContents().get(1));
+    }
+
+    @Test
+    void renderExtensionWithoutMinification() throws Exception
+    {
+        when(this.debugConfiguration.isMinify()).thenReturn(false);
+
+        this.action.renderExtension(getSource(CONTENT), this.action.getExtensionType(), this.context);
+
+        verify(this.compressor, never()).compress(anyString());
+        verify(this.outputStream).write(CONTENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void renderExtensionGzipped() throws Exception
+    {
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("deflate, gzip;q=0.8");
+
+        this.action.renderExtension(getSource(CONTENT), this.action.getExtensionType(), this.context);
+
+        verify(this.response).setHeader(CONTENT_ENCODING, "gzip");
+        verify(this.response).setHeader("Vary", ACCEPT_ENCODING);
+
+        byte[] sentContent = getSentContents().get(0);
+        verify(this.response).setContentLength(sentContent.length);
+        assertArrayEquals(StringUtils.remove(CONTENT, '\n').getBytes(StandardCharsets.UTF_8),
+            IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(sentContent))));
+    }
+
+    @Test
+    void renderExtensionGzipRefused() throws Exception
+    {
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("deflate, gzip; q=0");
+
+        this.action.renderExtension(getSource(CONTENT), this.action.getExtensionType(), this.context);
+
+        verify(this.response, never()).setHeader(eq(CONTENT_ENCODING), any());
+        verify(this.outputStream).write(StringUtils.remove(CONTENT, '\n').getBytes(StandardCharsets.UTF_8));
+    }
+}
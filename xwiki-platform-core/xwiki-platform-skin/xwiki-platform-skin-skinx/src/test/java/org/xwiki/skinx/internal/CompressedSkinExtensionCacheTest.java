@@ -0,0 +1,155 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.inject.Named;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.skinx.internal.CompressedSkinExtensionCache.CompressedSkinExtension;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link CompressedSkinExtensionCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class CompressedSkinExtensionCacheTest
+{
+    private static final String TYPE = "XWiki.JavaScriptExtension";
+
+    private static final String CONTENT = StringUtils.repeat("alert('Hello World!');\n", 100);
+
+    @InjectMockComponents
+    private CompressedSkinExtensionCache compressedCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private final Map<String, CompressedSkinExtension> entries = new HashMap<>();
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        when(this.configuration.getProperty("skinx.cache.compressed.size", 500)).thenReturn(500);
+
+        Cache<CompressedSkinExtension> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        when(this.cacheManager.<CompressedSkinExtension>createNewLocalCache(any())).thenReturn(cache);
+    }
+
+    @Test
+    void getKey()
+    {
+        String key = this.compressedCache.getKey(TYPE, true, CONTENT);
+
+        assertEquals(key, this.compressedCache.getKey(TYPE, true, CONTENT));
+        assertNotEquals(key, this.compressedCache.getKey(TYPE, false, CONTENT));
+        assertNotEquals(key, this.compressedCache.getKey("XWiki.StyleSheetExtension", true, CONTENT));
+    }
+
+    @Test
+    void getModifiedExtension()
+    {
+        String key = this.compressedCache.getKey(TYPE, true, CONTENT);
+        this.compressedCache.set(key, "minified", null);
+
+        // A modified extension is associated to a new entry, the previous one is never returned for it
+        String modifiedKey = this.compressedCache.getKey(TYPE, true, CONTENT + "alert('Modified');");
+
+        assertNotEquals(key, modifiedKey);
+        assertNull(this.compressedCache.get(modifiedKey));
+    }
+
+    @Test
+    void setAndGet() throws Exception
+    {
+        String key = this.compressedCache.getKey(TYPE, true, CONTENT);
+
+        assertNull(this.compressedCache.get(key));
+
+        CompressedSkinExtension extension = this.compressedCache.set(key, CONTENT, "sourcemap");
+
+        assertSame(extension, this.compressedCache.get(key));
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), extension.getContent());
+        assertEquals("sourcemap", extension.getSourceMap());
+
+        // The repeated content is a lot smaller once gzipped
+        assertTrue(extension.getGzipContent().length < extension.getContent().length);
+        assertArrayEquals(extension.getContent(),
+            IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(extension.getGzipContent()))));
+    }
+
+    @Test
+    void setSmallContent()
+    {
+        String key = this.compressedCache.getKey(TYPE, false, "a");
+
+        CompressedSkinExtension extension = this.compressedCache.set(key, "a", null);
+
+        // Gzipping a small content makes it bigger
+        assertNull(extension.getGzipContent());
+        assertArrayEquals(new byte[] { 'a' }, extension.getContent());
+        assertNull(extension.getSourceMap());
+    }
+
+    @Test
+    void setWithoutKey()
+    {
+        // The content is not gzipped when the extension is not cached
+        CompressedSkinExtension extension = this.compressedCache.set(null, CONTENT, null);
+
+        assertNull(extension.getGzipContent());
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), extension.getContent());
+        assertTrue(this.entries.isEmpty());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal.migration;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.ObjectNotFoundException;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.store.internal.FileSystemStoreUtils;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.store.StoreConfiguration;
+import com.xpn.xwiki.store.AttachmentVersioningStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.migration.DataMigrationException;
+import com.xpn.xwiki.store.migration.XWikiDBVersion;
+
+/**
+ * Move the attachment archives still stored as a single RCS blob in the database to the filesystem store (where each
+ * version of the attachment is stored in its own file) when the filesystem store is the configured attachment
+ * versioning store.
+ * <p>
+ * Adding a version to an RCS archive requires to load and rewrite all the previous versions in memory which is a
+ * problem for big attachments.
+ *
+ * @version $Id$
+ * @since 12.8RC1
+ */
+@Component
+@Named("R1280000AttachmentArchive")
+@Singleton
+public class R1280000AttachmentArchiveDataMigration extends AbstractFileStoreDataMigration
+{
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private StoreConfiguration storeConfiguration;
+
+    @Override
+    public String getDescription()
+    {
+        return "Move the attachment archives stored in the database to the filesystem store.";
+    }
+
+    @Override
+    public XWikiDBVersion getVersion()
+    {
+        return new XWikiDBVersion(1280000);
+    }
+
+    @Override
+    public void hibernateMigrate() throws XWikiException, DataMigrationException
+    {
+        AttachmentVersioningStore fileStore;
+        try {
+            fileStore = this.storeConfiguration.getAttachmentVersioningStore();
+        } catch (ComponentLookupException e) {
+            throw new DataMigrationException("Failed to get the configured attachment versioning store", e);
+        }
+
+        if (fileStore == null || !FileSystemStoreUtils.HINT.equals(fileStore.getHint())) {
+            this.logger.info("Skipping the migration (the filesystem attachment versioning store is not used)");
+
+            return;
+        }
+
+        XWikiContext xcontext = getXWikiContext();
+
+        // A NULL archive store is also a database archive: it's what XWikiHibernateStore saves when the database store
+        // is the default one, and what R910001XWIKI14697DataMigration left for the attachments which already had an
+        // archive in the database. XWikiAttachment and XWikiHibernateAttachmentStore resolve it to the database store
+        // (and not to the configured default store), so the database row is the archive actually used and any
+        // archive found on the filesystem for these attachments is not up to date.
+        List<Object[]> attachments = getStore().executeRead(xcontext,
+            session -> session
+                .createQuery("SELECT attachment.id, attachment.filename, document.fullName"
+                    + " FROM XWikiAttachment as attachment, XWikiDocument as document"
+                    + " WHERE attachment.docId = document.id"
+                    + " AND (attachment.archiveStore = :store OR attachment.archiveStore is NULL)")
+                .setParameter("store", XWikiHibernateBaseStore.HINT).list());
+
+        if (!attachments.isEmpty()) {
+            this.logger.info("Moving [{}] attachment archives to the filesystem store", attachments.size());
+
+            for (Object[] attachment : attachments) {
+                try {
+                    migrate((Long) attachment[0], (String) attachment[1], (String) attachment[2], fileStore,
+                        xcontext);
+                } catch (XWikiException e) {
+                    // The archive is left in the database store where it's still usable
+                    this.logger.warn("Failed to move the archive of attachment [{}] of document [{}]: {}",
+                        attachment[1], attachment[2], ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+    }
+
+    private void migrate(long id, String filename, String fullName, AttachmentVersioningStore fileStore,
+        XWikiContext xcontext) throws XWikiException
+    {
+        DocumentReference documentReference = this.resolver.resolve(fullName, xcontext.getWikiReference());
+
+        if (StringUtils.isEmpty(filename)) {
+            this.logger.warn("Unsupported attachment with empty string as name has been found on document [{}]."
+                + " Ignoring it.", documentReference);
+
+            return;
+        }
+
+        XWikiAttachment attachment = new XWikiAttachment(new XWikiDocument(documentReference), filename);
+
+        if (attachment.getId() != id) {
+            this.logger.warn("Unexpected identifier for attachment [{}] of document [{}]. Ignoring it.", filename,
+                documentReference);
+
+            return;
+        }
+
+        // Each attachment is moved in its own transaction to not keep all the archives in memory
+        getStore().executeWrite(xcontext, session -> {
+            XWikiAttachmentArchive archive = new XWikiAttachmentArchive();
+            archive.setAttachment(attachment);
+
+            boolean exists;
+            try {
+                session.load(archive, id);
+                exists = true;
+            } catch (ObjectNotFoundException e) {
+                exists = false;
+            }
+
+            if (exists && archive.getRCSArchive() != null) {
+                // Write each version in its own file
+                fileStore.saveArchive(archive, xcontext, false);
+            }
+
+            if (exists) {
+                session.delete(archive);
+            }
+
+            session.createQuery("UPDATE XWikiAttachment SET archiveStore = :store WHERE id = :id")
+                .setParameter("store", FileSystemStoreUtils.HINT).setParameter("id", id).executeUpdate();
+
+            return null;
+        });
+    }
+}
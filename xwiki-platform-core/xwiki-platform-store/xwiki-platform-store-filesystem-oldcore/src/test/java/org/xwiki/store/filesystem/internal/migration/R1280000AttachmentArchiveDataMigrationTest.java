@@ -0,0 +1,282 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal.migration;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.ObjectNotFoundException;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.suigeneris.jrcs.rcs.Archive;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.store.StoreConfiguration;
+import com.xpn.xwiki.store.AttachmentVersioningStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link R1280000AttachmentArchiveDataMigration}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class R1280000AttachmentArchiveDataMigrationTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final String DOCUMENT = "Space.Page";
+
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockComponents
+    private R1280000AttachmentArchiveDataMigration migration;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private StoreConfiguration storeConfiguration;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private Execution execution;
+
+    private XWikiHibernateStore hibernateStore;
+
+    private AttachmentVersioningStore fileStore;
+
+    private Session session;
+
+    private Query<Object[]> selectQuery;
+
+    private Query<?> updateQuery;
+
+    /**
+     * The RCS archives stored in the database, indexed by attachment identifier.
+     */
+    private final Map<Long, Archive> databaseArchives = new HashMap<>();
+
+    /**
+     * The versions written to the filesystem store, indexed by attachment name.
+     */
+    private final Map<String, List<String>> fileArchives = new HashMap<>();
+
+    private final List<Object[]> attachments = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontext.getWikiReference()).thenReturn(WIKI);
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", xcontext);
+        when(this.execution.getContext()).thenReturn(executionContext);
+
+        when(this.resolver.resolve(DOCUMENT, WIKI)).thenReturn(DOCUMENT_REFERENCE);
+
+        this.fileStore = mock(AttachmentVersioningStore.class);
+        when(this.fileStore.getHint()).thenReturn("file");
+        when(this.storeConfiguration.getAttachmentVersioningStore()).thenReturn(this.fileStore);
+        doAnswer(invocation -> {
+            XWikiAttachmentArchive archive = invocation.getArgument(0);
+            List<String> versions = new ArrayList<>();
+            for (Version version : archive.getVersions()) {
+                versions.add(version.toString());
+            }
+            Collections.sort(versions);
+            this.fileArchives.put(archive.getAttachment().getFilename(), versions);
+
+            return null;
+        }).when(this.fileStore).saveArchive(any(), any(), eq(false));
+
+        this.session = mock(Session.class);
+        this.selectQuery = mock(Query.class);
+        when(this.session.createQuery(startsWith("SELECT"))).thenReturn((Query) this.selectQuery);
+        when(this.selectQuery.setParameter(anyString(), any())).thenReturn(this.selectQuery);
+        when(this.selectQuery.list()).thenReturn(this.attachments);
+        this.updateQuery = mock(Query.class);
+        when(this.session.createQuery(startsWith("UPDATE"))).thenReturn((Query) this.updateQuery);
+        when(this.updateQuery.setParameter(anyString(), any())).thenReturn((Query) this.updateQuery);
+        doAnswer(invocation -> {
+            XWikiAttachmentArchive archive = invocation.getArgument(0);
+            Archive rcsArchive = this.databaseArchives.get(invocation.<Long>getArgument(1));
+            if (rcsArchive == null) {
+                throw new ObjectNotFoundException(invocation.<Serializable>getArgument(1), "XWikiAttachmentArchive");
+            }
+            archive.setRCSArchive(rcsArchive);
+
+            return null;
+        }).when(this.session).load(any(XWikiAttachmentArchive.class), any(Serializable.class));
+
+        this.hibernateStore = mock(XWikiHibernateStore.class);
+        when(this.hibernateStore.executeRead(any(), any()))
+            .then(invocation -> invocation.<HibernateCallback<?>>getArgument(1).doInHibernate(this.session));
+        when(this.hibernateStore.executeWrite(any(), any()))
+            .then(invocation -> invocation.<HibernateCallback<?>>getArgument(1).doInHibernate(this.session));
+        this.componentManager.registerComponent(XWikiStoreInterface.class, "hibernate", this.hibernateStore);
+    }
+
+    private long addAttachment(String filename, String... versions) throws Exception
+    {
+        long id = new XWikiAttachment(new XWikiDocument(DOCUMENT_REFERENCE), filename).getId();
+
+        this.attachments.add(new Object[] { id, filename, DOCUMENT });
+
+        if (versions.length > 0) {
+            Archive archive = new Archive(new Object[] { versions[0] }, "");
+            for (int i = 1; i < versions.length; ++i) {
+                archive.addRevision(new Object[] { versions[i] }, "");
+            }
+            this.databaseArchives.put(id, archive);
+        }
+
+        return id;
+    }
+
+    @Test
+    void hibernateMigrate() throws Exception
+    {
+        long id = addAttachment("file.txt", "content 1.1", "content 1.2", "content 1.3");
+
+        this.migration.hibernateMigrate();
+
+        // Every version of the RCS archive is written to the filesystem store
+        assertEquals(Arrays.asList("1.1", "1.2", "1.3"), this.fileArchives.get("file.txt"));
+
+        // The database archive is deleted
+        verify(this.session).delete(any(XWikiAttachmentArchive.class));
+
+        // The attachment now uses the filesystem store
+        verify(this.updateQuery).setParameter("store", "file");
+        verify(this.updateQuery).setParameter("id", id);
+        verify(this.updateQuery).executeUpdate();
+
+        // Both the database store and the NULL archive store attachments are selected
+        verify(this.session).createQuery(
+            "SELECT attachment.id, attachment.filename, document.fullName"
+                + " FROM XWikiAttachment as attachment, XWikiDocument as document"
+                + " WHERE attachment.docId = document.id"
+                + " AND (attachment.archiveStore = :store OR attachment.archiveStore is NULL)");
+        verify(this.selectQuery).setParameter("store", "hibernate");
+    }
+
+    @Test
+    void hibernateMigrateWithoutDatabaseArchive() throws Exception
+    {
+        // An attachment with a NULL archive store and no archive row (it only has its current version)
+        long id = addAttachment("file.txt");
+
+        this.migration.hibernateMigrate();
+
+        verify(this.fileStore, never()).saveArchive(any(), any(), eq(false));
+        verify(this.session, never()).delete(any());
+
+        verify(this.updateQuery).setParameter("store", "file");
+        verify(this.updateQuery).setParameter("id", id);
+        verify(this.updateQuery).executeUpdate();
+    }
+
+    @Test
+    void hibernateMigrateWhenConversionFails() throws Exception
+    {
+        addAttachment("failing.txt", "content 1.1", "content 1.2");
+        long id = addAttachment("file.txt", "content 1.1", "content 1.2");
+
+        Archive failingArchive = this.databaseArchives.get(this.attachments.get(0)[0]);
+        doAnswer(invocation -> {
+            XWikiAttachmentArchive archive = invocation.getArgument(0);
+            if (archive.getRCSArchive() == failingArchive) {
+                throw new XWikiException();
+            }
+            this.fileArchives.put(archive.getAttachment().getFilename(), new ArrayList<>());
+
+            return null;
+        }).when(this.fileStore).saveArchive(any(), any(), eq(false));
+
+        this.migration.hibernateMigrate();
+
+        // The archive which failed to be converted is left in the database and the attachment keeps using it
+        assertEquals(1, this.fileArchives.size());
+        assertTrue(this.fileArchives.containsKey("file.txt"));
+        ArgumentCaptor<XWikiAttachmentArchive> deleted = ArgumentCaptor.forClass(XWikiAttachmentArchive.class);
+        verify(this.session).delete(deleted.capture());
+        assertEquals("file.txt", deleted.getValue().getAttachment().getFilename());
+        verify(this.updateQuery).setParameter(eq("id"), any());
+        verify(this.updateQuery).setParameter("id", id);
+        verify(this.updateQuery).executeUpdate();
+
+        // So it can still be read from the database
+        assertArrayEquals(new Object[] { "content 1.2" }, failingArchive.getRevision(new Version("1.2")));
+    }
+
+    @Test
+    void hibernateMigrateWhenFileStoreIsNotConfigured() throws Exception
+    {
+        when(this.fileStore.getHint()).thenReturn("hibernate");
+        addAttachment("file.txt", "content 1.1");
+
+        this.migration.hibernateMigrate();
+
+        verifyNoInteractions(this.hibernateStore);
+        verify(this.fileStore, never()).saveArchive(any(), any(), eq(false));
+    }
+}